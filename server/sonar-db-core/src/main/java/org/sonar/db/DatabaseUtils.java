@@ -38,6 +38,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
@@ -98,6 +99,26 @@ public class DatabaseUtils {
     return executeLargeInputs(input, function, size -> size == 0 ? Collections.emptyList() : new ArrayList<>(size));
   }
 
+  /**
+   * Same as {@link #executeLargeInputs(Collection, Function)} but the size of partitions is computed by
+   * {@code partitionSizeManipulations} from the default size, for instance when each element of the input is bound
+   * several times in the query.
+   */
+  public static <OUTPUT, INPUT extends Comparable<INPUT>> List<OUTPUT> executeLargeInputsWithPartitionSize(Collection<INPUT> input,
+    Function<List<INPUT>, List<OUTPUT>> function, IntUnaryOperator partitionSizeManipulations) {
+    if (input.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<OUTPUT> results = new ArrayList<>(input.size());
+    for (List<INPUT> partition : toUniqueAndSortedPartitions(input, partitionSizeManipulations.applyAsInt(PARTITION_SIZE_FOR_ORACLE))) {
+      List<OUTPUT> subResults = function.apply(partition);
+      if (subResults != null) {
+        results.addAll(subResults);
+      }
+    }
+    return results;
+  }
+
   public static <OUTPUT, INPUT extends Comparable<INPUT>> Set<OUTPUT> executeLargeInputsIntoSet(Collection<INPUT> input, Function<List<INPUT>, Set<OUTPUT>> function) {
     return executeLargeInputs(input, function, size -> size == 0 ? Collections.emptySet() : new HashSet<>(size));
   }
@@ -153,7 +174,11 @@ public class DatabaseUtils {
    * Ensure values {@code inputs} are unique (which avoids useless arguments) and sorted before creating the partition.
    */
   public static <INPUT extends Comparable<INPUT>> Iterable<List<INPUT>> toUniqueAndSortedPartitions(Collection<INPUT> inputs) {
-    return Iterables.partition(toUniqueAndSortedList(inputs), PARTITION_SIZE_FOR_ORACLE);
+    return toUniqueAndSortedPartitions(inputs, PARTITION_SIZE_FOR_ORACLE);
+  }
+
+  private static <INPUT extends Comparable<INPUT>> Iterable<List<INPUT>> toUniqueAndSortedPartitions(Collection<INPUT> inputs, int partitionSize) {
+    return Iterables.partition(toUniqueAndSortedList(inputs), partitionSize);
   }
 
   /**
@@ -267,6 +267,35 @@ public class DatabaseUtilsTest {
     assertThat(outputs).isEqualTo(expectedOutputs);
   }
 
+  @Test
+  public void executeLargeInputsWithPartitionSize() {
+    List<Integer> inputs = newArrayList();
+    List<String> expectedOutputs = newArrayList();
+    for (int i = 0; i < 2010; i++) {
+      inputs.add(i);
+      expectedOutputs.add(Integer.toString(i));
+    }
+    List<Integer> partitionSizes = newArrayList();
+
+    List<String> outputs = DatabaseUtils.executeLargeInputsWithPartitionSize(inputs, input -> {
+      partitionSizes.add(input.size());
+      return input.stream().map(String::valueOf).collect(MoreCollectors.toList());
+    }, i -> i / 3);
+
+    assertThat(outputs).isEqualTo(expectedOutputs);
+    assertThat(partitionSizes).containsExactly(333, 333, 333, 333, 333, 333, 12);
+  }
+
+  @Test
+  public void executeLargeInputsWithPartitionSize_on_empty_list() {
+    List<String> outputs = DatabaseUtils.executeLargeInputsWithPartitionSize(Collections.<Integer>emptyList(), input -> {
+      fail("No partition should be made on empty list");
+      return Collections.emptyList();
+    }, i -> i / 3);
+
+    assertThat(outputs).isEmpty();
+  }
+
   @Test
   public void executeLargeInputs_on_empty_list() {
     List<String> outputs = DatabaseUtils.executeLargeInputs(Collections.emptyList(), new Function<List<Integer>, List<String>>() {
@@ -20,20 +20,29 @@
 package org.sonar.db.ce;
 
 import com.google.common.base.Optional;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import javax.annotation.Nullable;
 import org.apache.ibatis.session.RowBounds;
 import org.sonar.api.utils.System2;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Collections.emptyList;
 import static org.sonar.db.ce.CeQueueDto.Status.IN_PROGRESS;
 import static org.sonar.db.ce.CeQueueDto.Status.PENDING;
 
 public class CeQueueDao implements Dao {
 
-  private static final RowBounds ONE_ROW_LIMIT = new RowBounds(0, 1);
+  /**
+   * Number of eligible tasks loaded for each requested task, so that tasks claimed concurrently by
+   * other workers or belonging to the same project can be skipped without querying again.
+   */
+  private static final int CANDIDATES_PER_PEEKED_TASK = 3;
 
   private final System2 system2;
 
@@ -100,6 +109,13 @@ public class CeQueueDao implements Dao {
     mapper(session).resetAllToPendingStatus(system2.now());
   }
 
+  /**
+   * Update the row of the specified task with: STATUS='PENDING', STARTED_AT=NULL, UPDATED_AT={now}, if it is in progress.
+   */
+  public void resetToPendingStatus(DbSession session, String uuid) {
+    mapper(session).updateIfStatus(uuid, PENDING, null, system2.now(), IN_PROGRESS);
+  }
+
   public int countByStatus(DbSession dbSession, CeQueueDto.Status status) {
     return mapper(dbSession).countByStatusAndComponentUuid(status, null);
   }
@@ -109,24 +125,58 @@ public class CeQueueDao implements Dao {
   }
 
   public Optional<CeQueueDto> peek(DbSession session) {
-    List<String> taskUuids = mapper(session).selectEligibleForPeek(ONE_ROW_LIMIT);
-    if (taskUuids.isEmpty()) {
+    List<CeQueueDto> peeked = peek(session, 1);
+    if (peeked.isEmpty()) {
       return Optional.absent();
     }
-
-    String taskUuid = taskUuids.get(0);
-    return tryToPeek(session, taskUuid);
+    return Optional.of(peeked.get(0));
   }
 
-  private Optional<CeQueueDto> tryToPeek(DbSession session, String taskUuid) {
-    int touchedRows = mapper(session).updateIfStatus(taskUuid, IN_PROGRESS, system2.now(), system2.now(), PENDING);
-    if (touchedRows != 1) {
-      return Optional.absent();
+  /**
+   * Claims up to {@code maxCount} of the oldest eligible tasks in a single read of the queue. The status of the returned
+   * tasks is changed to {@link CeQueueDto.Status#IN_PROGRESS} and they all belong to distinct components.
+   * <p>
+   * Rows are claimed with an optimistic update on their status, so that tasks claimed concurrently by other
+   * workers are skipped rather than making the whole peek fail.
+   * </p>
+   *
+   * @return the claimed tasks, from the oldest to the newest
+   */
+  public List<CeQueueDto> peek(DbSession session, int maxCount) {
+    checkArgument(maxCount > 0, "Max count must be strictly positive");
+    CeQueueMapper mapper = mapper(session);
+    List<CeQueueDto> candidates = mapper.selectEligibleForPeek(new RowBounds(0, maxCount * CANDIDATES_PER_PEEKED_TASK));
+    if (candidates.isEmpty()) {
+      return emptyList();
+    }
+
+    List<String> peekedUuids = new ArrayList<>(maxCount);
+    // only a single task can be in progress for a given project. Components of the tasks claimed
+    // concurrently by other workers are excluded as well.
+    Set<String> excludedComponentUuids = new HashSet<>();
+    for (CeQueueDto candidate : candidates) {
+      if (peekedUuids.size() == maxCount) {
+        break;
+      }
+      String componentUuid = candidate.getComponentUuid();
+      boolean eligible = componentUuid == null || excludedComponentUuids.add(componentUuid);
+      if (eligible && tryToPeek(mapper, candidate.getUuid())) {
+        peekedUuids.add(candidate.getUuid());
+      }
+    }
+    if (peekedUuids.isEmpty()) {
+      return emptyList();
     }
 
-    CeQueueDto result = mapper(session).selectByUuid(taskUuid);
+    List<CeQueueDto> result = new ArrayList<>(mapper.selectByUuids(peekedUuids));
     session.commit();
-    return Optional.of(result);
+    result.sort(Comparator.comparing(dto -> peekedUuids.indexOf(dto.getUuid())));
+    return result;
+  }
+
+  private boolean tryToPeek(CeQueueMapper mapper, String taskUuid) {
+    int touchedRows = mapper.updateIfStatus(taskUuid, IN_PROGRESS, system2.now(), system2.now(), PENDING);
+    return touchedRows == 1;
   }
 
   private static CeQueueMapper mapper(DbSession session) {
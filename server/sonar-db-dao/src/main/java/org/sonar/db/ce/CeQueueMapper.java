@@ -35,11 +35,16 @@ public interface CeQueueMapper {
 
   int countByQuery(@Param("query") CeTaskQuery query);
 
-  List<String> selectEligibleForPeek(RowBounds rowBounds);
+  /**
+   * Only fields uuid and componentUuid of the returned {@link CeQueueDto} are populated.
+   */
+  List<CeQueueDto> selectEligibleForPeek(RowBounds rowBounds);
 
   @CheckForNull
   CeQueueDto selectByUuid(@Param("uuid") String uuid);
 
+  List<CeQueueDto> selectByUuids(@Param("uuids") List<String> uuids);
+
   int countByStatusAndComponentUuid(@Param("status") CeQueueDto.Status status, @Nullable @Param("componentUuid") String componentUuid);
 
   void insert(CeQueueDto dto);
@@ -21,6 +21,7 @@ package org.sonar.db.measure;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -30,6 +31,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 
 import static java.util.Collections.emptyList;
+import static org.sonar.db.DatabaseUtils.PARTITION_SIZE_FOR_ORACLE;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 
 public class MeasureDao implements Dao {
@@ -94,6 +96,23 @@ public class MeasureDao implements Dao {
       ids -> mapper(dbSession).selectPastMeasuresOnSingleAnalysis(componentUuid, analysisUuid, ids));
   }
 
+  /**
+   * Same as {@link #selectPastMeasures(DbSession, String, String, Collection)} for several components, with one
+   * request per partition of components.
+   */
+  public List<PastMeasureDto> selectPastMeasures(DbSession dbSession, Collection<String> componentUuids, String analysisUuid, Collection<Integer> metricIds) {
+    if (metricIds.isEmpty()) {
+      return emptyList();
+    }
+    List<PastMeasureDto> result = new ArrayList<>();
+    for (List<Integer> metricIdsPartition : Iterables.partition(metricIds, PARTITION_SIZE_FOR_ORACLE)) {
+      result.addAll(executeLargeInputs(
+        componentUuids,
+        uuids -> mapper(dbSession).selectPastMeasuresOnComponents(uuids, analysisUuid, metricIdsPartition)));
+    }
+    return result;
+  }
+
   /**
    * Select measures of:
    * - one component
@@ -21,6 +21,7 @@ package org.sonar.db.permission;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -29,6 +30,7 @@ import org.sonar.db.DbSession;
 
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 import static org.sonar.db.DatabaseUtils.executeLargeInputsIntoSet;
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithPartitionSize;
 
 /**
  * The SQL requests used to verify authorization (the permissions
@@ -71,6 +73,26 @@ public class AuthorizationDao implements Dao {
     return mapper(dbSession).selectProjectPermissionsOfAnonymous(projectUuid);
   }
 
+  /**
+   * Loads all the permissions granted to logged-in user, or to anonymous if {@code userId} is null, for the
+   * specified projects, in a single query per partition of projects.
+   * Projects on which user has no permissions are not returned.
+   * <p>
+   * The uuids of projects are bound three times in the query of logged-in user, so partitions are three times
+   * smaller than usual in order to not exceed the limit of 2'100 parameters of MsSQL.
+   */
+  public List<ProjectUuidPermission> selectProjectPermissionsByProjectUuids(DbSession dbSession, Collection<String> projectUuids, @Nullable Integer userId) {
+    return executeLargeInputsWithPartitionSize(
+      projectUuids,
+      partition -> {
+        if (userId == null) {
+          return mapper(dbSession).selectProjectPermissionsByProjectUuidsOfAnonymous(partition);
+        }
+        return mapper(dbSession).selectProjectPermissionsByProjectUuids(partition, userId);
+      },
+      partitionSize -> partitionSize / 3);
+  }
+
   /**
    * The number of users who will still have the permission if the group {@code excludedGroupId}
    * is deleted. The anyone virtual group is not taken into account.
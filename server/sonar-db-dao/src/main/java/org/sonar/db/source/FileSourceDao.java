@@ -25,8 +25,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import javax.annotation.CheckForNull;
 import org.apache.commons.dbutils.DbUtils;
@@ -35,6 +38,8 @@ import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static org.sonar.db.DatabaseUtils.executeLargeInputs;
+
 public class FileSourceDao implements Dao {
 
   private static final Splitter END_OF_LINE_SPLITTER = Splitter.on('\n');
@@ -74,6 +79,20 @@ public class FileSourceDao implements Dao {
     }
   }
 
+  /**
+   * Line hashes of the source of the specified files, by file uuid. Files without source are not part of the
+   * returned map. As there is a single row per file, the result does not depend on the order of rows.
+   */
+  public Map<String, List<String>> selectLineHashes(DbSession dbSession, Collection<String> fileUuids) {
+    List<FileSourceDto> dtos = executeLargeInputs(fileUuids, partition -> mapper(dbSession).selectLineHashesByFileUuids(partition, Type.SOURCE));
+    Map<String, List<String>> result = new HashMap<>(dtos.size());
+    for (FileSourceDto dto : dtos) {
+      String lineHashes = dto.getLineHashes();
+      result.put(dto.getFileUuid(), lineHashes == null ? Collections.emptyList() : END_OF_LINE_SPLITTER.splitToList(lineHashes));
+    }
+    return result;
+  }
+
   public <T> void readLineHashesStream(DbSession dbSession, String fileUuid, Function<Reader, T> function) {
     Connection connection = dbSession.getConnection();
     PreparedStatement pstmt = null;
@@ -19,6 +19,7 @@
  */
 package org.sonar.db.source;
 
+import com.google.protobuf.ByteString;
 import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import java.io.ByteArrayInputStream;
@@ -26,6 +27,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -38,6 +40,13 @@ import static java.lang.String.format;
 
 public class FileSourceDto {
 
+  /**
+   * Tags of the length-delimited field {@link DbFileSources.Data#LINES_FIELD_NUMBER} and of the varint field
+   * {@link DbFileSources.Line#LINE_FIELD_NUMBER} in the protobuf wire format
+   */
+  private static final int DATA_LINES_TAG = (DbFileSources.Data.LINES_FIELD_NUMBER << 3) | 2;
+  private static final int LINE_LINE_TAG = DbFileSources.Line.LINE_FIELD_NUMBER << 3;
+
   private static final String SIZE_LIMIT_EXCEEDED_EXCEPTION_MESSAGE = "Protocol message was too large.  May be malicious.  " +
     "Use CodedInputStream.setSizeLimit() to increase the size limit.";
 
@@ -52,6 +61,7 @@ public class FileSourceDto {
   private String dataType;
   private String dataHash;
   private String revision;
+  private String inputsHash;
 
   public Long getId() {
     return id;
@@ -122,6 +132,69 @@ public class FileSourceDto {
     }
   }
 
+  /**
+   * Decompress and deserialize the lines of the column BINARY_DATA, starting from the first line whose number is greater
+   * than or equal to {@code from}, and limited to {@code (toInclusive - from + 1)} lines, as
+   * {@link DbFileSources.Data#getLinesList()} would be filtered.
+   * <p>
+   * The lines before the range are skipped without being deserialized, and the data following the range is not
+   * decompressed. The list is empty if {@code toInclusive} is lower than {@code from}.
+   * </p>
+   */
+  public List<DbFileSources.Line> decodeSourceLines(int from, int toInclusive) {
+    long maxLines = (long) toInclusive - from + 1;
+    if (maxLines <= 0) {
+      return Collections.emptyList();
+    }
+    try {
+      return decodeSourceLines(binaryData, from, maxLines);
+    } catch (IOException e) {
+      throw new IllegalStateException(
+        format("Fail to decompress and deserialize source data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
+        e);
+    }
+  }
+
+  private static List<DbFileSources.Line> decodeSourceLines(byte[] binaryData, int from, long maxLines) throws IOException {
+    List<DbFileSources.Line> lines = new ArrayList<>();
+    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData))) {
+      CodedInputStream input = CodedInputStream.newInstance(lz4Input);
+      input.setSizeLimit(Integer.MAX_VALUE);
+      int tag = input.readTag();
+      while (tag != 0) {
+        if (tag == DATA_LINES_TAG) {
+          ByteString line = input.readBytes();
+          Integer lineNumber = readLineNumber(line);
+          if (lineNumber != null && lineNumber >= from) {
+            lines.add(DbFileSources.Line.parseFrom(line));
+            if (lines.size() >= maxLines) {
+              return lines;
+            }
+          }
+        } else {
+          input.skipField(tag);
+        }
+        tag = input.readTag();
+      }
+    }
+    return lines;
+  }
+
+  @CheckForNull
+  private static Integer readLineNumber(ByteString line) throws IOException {
+    CodedInputStream input = line.newCodedInput();
+    int tag = input.readTag();
+    while (tag != 0) {
+      if (tag == LINE_LINE_TAG) {
+        // fields are written by order of field number, so the line number is usually the first one
+        return input.readInt32();
+      }
+      input.skipField(tag);
+      tag = input.readTag();
+    }
+    return null;
+  }
+
   /**
    * Serialize and compress protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data}
    * in the column BINARY_DATA.
@@ -290,6 +363,20 @@ public class FileSourceDto {
     return this;
   }
 
+  @CheckForNull
+  public String getInputsHash() {
+    return inputsHash;
+  }
+
+  /**
+   * Hash of the data from which column BINARY_DATA is computed by the Compute Engine. Used to skip the computation
+   * of sources which inputs did not change.
+   */
+  public FileSourceDto setInputsHash(@Nullable String inputsHash) {
+    this.inputsHash = inputsHash;
+    return this;
+  }
+
   public static class Type {
     public static final String SOURCE = "SOURCE";
     public static final String TEST = "TEST";
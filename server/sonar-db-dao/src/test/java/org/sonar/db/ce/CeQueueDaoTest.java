@@ -29,6 +29,7 @@ import java.util.Map;
 import javax.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.sonar.api.utils.internal.TestSystem2;
 import org.sonar.db.DbTester;
 
@@ -52,6 +53,8 @@ public class CeQueueDaoTest {
 
   @Rule
   public DbTester db = DbTester.create(system2);
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
 
   private CeQueueDao underTest = new CeQueueDao(system2);
   private static final String SELECT_QUEUE_UUID_AND_STATUS_QUERY = "select uuid,status from ce_queue";
@@ -124,6 +127,20 @@ public class CeQueueDaoTest {
     verifyCeQueueStatuses(TASK_UUID_1, PENDING, TASK_UUID_2, PENDING, TASK_UUID_3, PENDING);
   }
 
+  @Test
+  public void resetToPendingStatus_only_resets_specified_task_in_progress() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, IN_PROGRESS);
+    insert(TASK_UUID_2, COMPONENT_UUID_1, IN_PROGRESS);
+    insert(TASK_UUID_3, COMPONENT_UUID_1, PENDING);
+
+    underTest.resetToPendingStatus(db.getSession(), TASK_UUID_1);
+    underTest.resetToPendingStatus(db.getSession(), TASK_UUID_3);
+    db.getSession().commit();
+
+    verifyCeQueueStatuses(TASK_UUID_1, PENDING, TASK_UUID_2, IN_PROGRESS, TASK_UUID_3, PENDING);
+    assertThat(underTest.selectByUuid(db.getSession(), TASK_UUID_1).get().getStartedAt()).isNull();
+  }
+
   @Test
   public void peek_none_if_no_pendings() throws Exception {
     assertThat(underTest.peek(db.getSession()).isPresent()).isFalse();
@@ -160,6 +177,46 @@ public class CeQueueDaoTest {
     assertThat(underTest.peek(db.getSession()).isPresent()).isFalse();
   }
 
+  @Test
+  public void peek_several_tasks_in_a_single_call() throws Exception {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 3_000_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+    system2.setNow(INIT_TIME + 6_000_000);
+    insert(TASK_UUID_3, "PROJECT_3", PENDING);
+
+    List<CeQueueDto> peeked = underTest.peek(db.getSession(), 2);
+
+    assertThat(peeked).extracting(CeQueueDto::getUuid).containsExactly(TASK_UUID_1, TASK_UUID_2);
+    assertThat(peeked).extracting(CeQueueDto::getStatus).containsOnly(IN_PROGRESS);
+    verifyCeQueueStatuses(TASK_UUID_1, IN_PROGRESS, TASK_UUID_2, IN_PROGRESS, TASK_UUID_3, PENDING);
+
+    assertThat(underTest.peek(db.getSession(), 2)).extracting(CeQueueDto::getUuid).containsExactly(TASK_UUID_3);
+    assertThat(underTest.peek(db.getSession(), 2)).isEmpty();
+  }
+
+  @Test
+  public void peek_several_tasks_returns_a_single_task_per_project() throws Exception {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 3_000_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 6_000_000);
+    insert(TASK_UUID_3, COMPONENT_UUID_2, PENDING);
+
+    List<CeQueueDto> peeked = underTest.peek(db.getSession(), 3);
+
+    assertThat(peeked).extracting(CeQueueDto::getUuid).containsExactly(TASK_UUID_1, TASK_UUID_3);
+    verifyCeQueueStatuses(TASK_UUID_1, IN_PROGRESS, TASK_UUID_2, PENDING, TASK_UUID_3, IN_PROGRESS);
+  }
+
+  @Test
+  public void peek_several_tasks_fails_if_max_count_is_not_positive() throws Exception {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Max count must be strictly positive");
+
+    underTest.peek(db.getSession(), 0);
+  }
+
   @Test
   public void do_not_peek_multiple_tasks_on_same_project_at_the_same_time() throws Exception {
     // two pending tasks on the same project
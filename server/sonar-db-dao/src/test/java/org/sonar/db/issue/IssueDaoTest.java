@@ -122,6 +122,22 @@ public class IssueDaoTest {
     assertThat(issues).extracting("key").containsExactly("I2", "I1");
   }
 
+  @Test
+  public void selectProjectUuids() {
+    assertThat(underTest.selectProjectUuids(dbTester.getSession())).isEmpty();
+
+    // contains I1 and I2 on the same project
+    prepareTables();
+    underTest.insert(dbTester.getSession(), newIssueDto("I3")
+      .setRuleId(RULE.getId())
+      .setComponentUuid("other-file-uuid")
+      .setProjectUuid("other-project-uuid")
+      .setStatus("CLOSED"));
+    dbTester.getSession().commit();
+
+    assertThat(underTest.selectProjectUuids(dbTester.getSession())).containsOnly(PROJECT_UUID, "other-project-uuid");
+  }
+
   private static IssueDto newIssueDto(String key) {
     IssueDto dto = new IssueDto();
     dto.setComponent(new ComponentDto().setKey("struts:Action").setId(123L).setUuid("component-uuid"));
@@ -43,6 +43,7 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.api.resources.Qualifiers.FILE;
 import static org.sonar.api.resources.Qualifiers.PROJECT;
 import static org.sonar.api.resources.Qualifiers.UNIT_TEST_FILE;
@@ -373,6 +374,28 @@ public class MeasureDaoTest {
     assertThat(result).hasSize(2).extracting(MeasureDto::getData).containsOnly("PROJECT_M1", "PROJECT_M2");
   }
 
+  @Test
+  public void selectPastMeasures_on_several_components() {
+    insertMeasure("M1", LAST_ANALYSIS_UUID, "C1", NCLOC_METRIC_ID);
+    insertMeasure("M2", LAST_ANALYSIS_UUID, "C1", COVERAGE_METRIC_ID);
+    insertMeasure("M3", LAST_ANALYSIS_UUID, "C1", COMPLEXITY_METRIC_ID);
+    insertMeasure("M4", LAST_ANALYSIS_UUID, "C2", NCLOC_METRIC_ID);
+    insertMeasure("M5", OTHER_ANALYSIS_UUID, "C2", COVERAGE_METRIC_ID);
+    insertMeasure("M6", LAST_ANALYSIS_UUID, "C3", NCLOC_METRIC_ID);
+    insertMeasureOnPerson("M7", LAST_ANALYSIS_UUID, "C1", NCLOC_METRIC_ID, A_PERSON_ID);
+    db.commit();
+
+    List<PastMeasureDto> result = underTest.selectPastMeasures(db.getSession(), asList("C1", "C2"), LAST_ANALYSIS_UUID, asList(NCLOC_METRIC_ID, COVERAGE_METRIC_ID));
+
+    assertThat(result)
+      .extracting(PastMeasureDto::getComponentUuid, PastMeasureDto::getMetricId, PastMeasureDto::getPersonId)
+      .containsOnly(
+        tuple("C1", NCLOC_METRIC_ID, null),
+        tuple("C1", COVERAGE_METRIC_ID, null),
+        tuple("C2", NCLOC_METRIC_ID, null));
+    assertThat(underTest.selectPastMeasures(db.getSession(), asList("C1", "C2"), LAST_ANALYSIS_UUID, emptyList())).isEmpty();
+  }
+
   @Test
   public void selectByComponentsAndMetrics() {
     ComponentDto project1 = db.components().insertProject(db.getDefaultOrganization(), "P1");
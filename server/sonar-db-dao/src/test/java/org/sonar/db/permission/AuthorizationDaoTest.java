@@ -19,8 +19,10 @@
  */
 package org.sonar.db.permission;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import org.junit.Before;
 import org.junit.Rule;
@@ -35,7 +37,9 @@ import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
 
 import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.core.permission.GlobalPermissions.QUALITY_GATE_ADMIN;
 import static org.sonar.core.permission.GlobalPermissions.SCAN_EXECUTION;
 import static org.sonar.core.permission.GlobalPermissions.SYSTEM_ADMIN;
@@ -561,4 +565,60 @@ public class AuthorizationDaoTest {
 
     assertThat(underTest.selectProjectPermissions(dbSession, project.uuid(), user.getId())).containsOnly(UserRole.CODEVIEWER, UserRole.ISSUE_ADMIN, UserRole.USER);
   }
+
+  @Test
+  public void selectProjectPermissionsByProjectUuids_returns_permissions_of_logged_in_user_on_specified_projects() {
+    ComponentDto project1 = db.components().insertProject(org);
+    ComponentDto project2 = db.components().insertProject(org);
+    ComponentDto otherProject = db.components().insertProject(org);
+    db.users().insertProjectPermissionOnUser(user, UserRole.CODEVIEWER, project1);
+    db.users().insertProjectPermissionOnAnyone(UserRole.ISSUE_ADMIN, project1);
+    db.users().insertProjectPermissionOnGroup(group1, UserRole.USER, project2);
+    db.users().insertProjectPermissionOnGroup(group2, UserRole.ADMIN, project2);
+    db.users().insertMember(group1, user);
+    db.users().insertProjectPermissionOnUser(user, UserRole.USER, otherProject);
+
+    List<ProjectUuidPermission> result = underTest.selectProjectPermissionsByProjectUuids(dbSession,
+      asList(project1.uuid(), project2.uuid(), "does_not_exist"), user.getId());
+
+    assertThat(result)
+      .extracting(ProjectUuidPermission::getProjectUuid, ProjectUuidPermission::getPermission)
+      .containsOnly(
+        tuple(project1.uuid(), UserRole.CODEVIEWER),
+        tuple(project1.uuid(), UserRole.ISSUE_ADMIN),
+        tuple(project2.uuid(), UserRole.USER));
+  }
+
+  @Test
+  public void selectProjectPermissionsByProjectUuids_returns_permissions_of_anonymous_on_specified_projects() {
+    ComponentDto project1 = db.components().insertProject(org);
+    ComponentDto project2 = db.components().insertProject(org);
+    db.users().insertProjectPermissionOnAnyone(UserRole.CODEVIEWER, project1);
+    db.users().insertProjectPermissionOnUser(user, UserRole.USER, project1);
+    db.users().insertProjectPermissionOnGroup(group1, UserRole.USER, project2);
+
+    List<ProjectUuidPermission> result = underTest.selectProjectPermissionsByProjectUuids(dbSession,
+      asList(project1.uuid(), project2.uuid()), null);
+
+    assertThat(result)
+      .extracting(ProjectUuidPermission::getProjectUuid, ProjectUuidPermission::getPermission)
+      .containsOnly(tuple(project1.uuid(), UserRole.CODEVIEWER));
+  }
+
+  @Test
+  public void selectProjectPermissionsByProjectUuids_supports_more_than_700_projects() {
+    List<String> projectUuids = new ArrayList<>();
+    for (int i = 0; i < 701; i++) {
+      ComponentDto project = db.components().insertProject(org);
+      db.users().insertProjectPermissionOnUser(user, UserRole.USER, project);
+      projectUuids.add(project.uuid());
+    }
+
+    List<ProjectUuidPermission> result = underTest.selectProjectPermissionsByProjectUuids(dbSession, projectUuids, user.getId());
+
+    assertThat(result)
+      .extracting(ProjectUuidPermission::getProjectUuid)
+      .containsOnlyElementsOf(projectUuids)
+      .hasSize(701);
+  }
 }
@@ -21,6 +21,9 @@ package org.sonar.db.source;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
@@ -31,6 +34,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 
@@ -57,6 +61,7 @@ public class FileSourceDaoTest {
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(1500000000000L);
     assertThat(fileSourceDto.getDataType()).isEqualTo(Type.SOURCE);
     assertThat(fileSourceDto.getRevision()).isEqualTo("123456789");
+    assertThat(fileSourceDto.getInputsHash()).isEqualTo("INPUTS_HASH");
   }
 
   @Test
@@ -103,11 +108,12 @@ public class FileSourceDaoTest {
       .setDataType(Type.SOURCE)
       .setCreatedAt(1500000000000L)
       .setUpdatedAt(1500000000001L)
-      .setRevision("123456789"));
+      .setRevision("123456789")
+      .setInputsHash("FILE2_INPUTS_HASH"));
     session.commit();
 
     dbTester.assertDbUnitTable(getClass(), "insert-result.xml", "file_sources",
-      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision");
+      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision", "inputs_hash");
   }
 
   @Test
@@ -129,6 +135,22 @@ public class FileSourceDaoTest {
     assertThat(underTest.selectLineHashes(dbTester.getSession(), "FILE2_UUID")).isEmpty();
   }
 
+  @Test
+  public void selectLineHashes_of_several_files() {
+    insertSource("FILE1_UUID", Type.SOURCE, "A\nB");
+    insertSource("FILE2_UUID", Type.SOURCE, null);
+    insertSource("FILE3_UUID", Type.TEST, "C");
+    insertSource("FILE4_UUID", Type.SOURCE, "D");
+    session.commit();
+
+    Map<String, List<String>> lineHashes = underTest.selectLineHashes(session, asList("FILE1_UUID", "FILE2_UUID", "FILE3_UUID", "unknown"));
+
+    assertThat(lineHashes).containsOnlyKeys("FILE1_UUID", "FILE2_UUID");
+    assertThat(lineHashes.get("FILE1_UUID")).containsExactly("A", "B");
+    assertThat(lineHashes.get("FILE2_UUID")).isEmpty();
+    assertThat(underTest.selectLineHashes(session, Collections.emptyList())).isEmpty();
+  }
+
   @Test
   public void readLineHashesStream_does_not_fail_when_lineshashes_is_null() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
@@ -172,11 +194,25 @@ public class FileSourceDaoTest {
       .setLineHashes("NEW_LINE_HASHES")
       .setDataType(Type.SOURCE)
       .setUpdatedAt(1500000000002L)
-      .setRevision("987654321"));
+      .setRevision("987654321")
+      .setInputsHash("NEW_INPUTS_HASH"));
     session.commit();
 
     dbTester.assertDbUnitTable(getClass(), "update-result.xml", "file_sources",
-      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision");
+      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision", "inputs_hash");
+  }
+
+  private void insertSource(String fileUuid, String dataType, @Nullable String lineHashes) {
+    underTest.insert(session, new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid(fileUuid)
+      .setBinaryData(new byte[0])
+      .setDataHash("DATA_HASH")
+      .setLineHashes(lineHashes)
+      .setSrcHash("SRC_HASH")
+      .setDataType(dataType)
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000001L));
   }
 
   private static class ReaderToStringFunction implements Function<Reader, String> {
@@ -27,6 +27,7 @@ import org.junit.rules.ExpectedException;
 import org.sonar.db.protobuf.DbFileSources;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 public class FileSourceDtoTest {
   private static final String LOREM_IPSUM = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. Aliquam ac magna libero. " +
@@ -80,6 +81,72 @@ public class FileSourceDtoTest {
     assertThat(data.getLinesCount()).isEqualTo(build.getLinesCount());
   }
 
+  @Test
+  public void decodeSourceLines_returns_range_of_lines() {
+    FileSourceDto underTest = new FileSourceDto().setSourceData(createData(100));
+
+    assertThat(underTest.decodeSourceLines(5, 7)).extracting(DbFileSources.Line::getLine, DbFileSources.Line::getSource)
+      .containsExactly(tuple(5, "line 5"), tuple(6, "line 6"), tuple(7, "line 7"));
+    assertThat(underTest.decodeSourceLines(1, 1)).extracting(DbFileSources.Line::getLine).containsExactly(1);
+    assertThat(underTest.decodeSourceLines(98, Integer.MAX_VALUE)).extracting(DbFileSources.Line::getLine).containsExactly(98, 99, 100);
+    assertThat(underTest.decodeSourceLines(101, 200)).isEmpty();
+    assertThat(underTest.decodeSourceLines(7, 5)).isEmpty();
+    assertThat(underTest.decodeSourceLines(7, 6)).isEmpty();
+  }
+
+  @Test
+  public void decodeSourceLines_ignores_lines_without_number() {
+    DbFileSources.Data data = DbFileSources.Data.newBuilder()
+      .addLines(DbFileSources.Line.newBuilder().setSource("no number"))
+      .addLines(DbFileSources.Line.newBuilder().setLine(1).setSource("line 1"))
+      .addLines(DbFileSources.Line.newBuilder().setSource("no number"))
+      .addLines(DbFileSources.Line.newBuilder().setLine(2).setSource("line 2"))
+      .build();
+    FileSourceDto underTest = new FileSourceDto().setSourceData(data);
+
+    assertThat(underTest.decodeSourceLines(1, 2)).extracting(DbFileSources.Line::getSource).containsExactly("line 1", "line 2");
+  }
+
+  @Test
+  public void decodeSourceLines_returns_same_lines_as_getSourceData() {
+    DbFileSources.Data data = DbFileSources.Data.newBuilder()
+      .addLines(DbFileSources.Line.newBuilder()
+        .setLine(1)
+        .setSource("line 1")
+        .setScmAuthor("author")
+        .setHighlighting("0,5,k")
+        .setLineHits(3)
+        .addDuplication(2))
+      .build();
+    FileSourceDto underTest = new FileSourceDto().setSourceData(data);
+
+    assertThat(underTest.decodeSourceLines(1, 1)).isEqualTo(underTest.getSourceData().getLinesList());
+  }
+
+  @Test
+  public void decodeSourceLines_throws_ISE_with_id_fileUuid_and_projectUuid_in_message_when_data_cant_be_read() {
+    FileSourceDto underTest = new FileSourceDto()
+      .setBinaryData(new byte[] {1, 2, 3, 4, 5})
+      .setId(12L)
+      .setFileUuid("file uuid")
+      .setProjectUuid("project uuid");
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to decompress and deserialize source data [id=12,fileUuid=file uuid,projectUuid=project uuid]");
+
+    underTest.decodeSourceLines(1, 10);
+  }
+
+  private static DbFileSources.Data createData(int numberOfLines) {
+    DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
+    for (int i = 1; i <= numberOfLines; i++) {
+      dataBuilder.addLines(DbFileSources.Line.newBuilder()
+        .setLine(i)
+        .setSource("line " + i));
+    }
+    return dataBuilder.build();
+  }
+
   private static DbFileSources.Data createOver64MBDataStructure() {
     DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
     DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder();
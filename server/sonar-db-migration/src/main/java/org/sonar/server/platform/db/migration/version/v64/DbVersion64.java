@@ -54,6 +54,7 @@ public class DbVersion64 implements DbVersion {
       .add(1623, "Set organization members into 'Members' group", SetOrganizationMembersIntoMembersGroup.class)
       .add(1624, "Add ORGANIZATIONS.DEFAULT_GROUP_ID", AddDefaultGroupIdToOrganizations.class)
       .add(1625, "Populate column ORGANIZATIONS.DEFAULT_GROUP_ID", PopulateColumnDefaultGroupIdOfOrganizations.class)
-      .add(1626, "Clean orphan rows in table GROUPS_USERS", CleanOrphanRowsInGroupsUsers.class);
+      .add(1626, "Clean orphan rows in table GROUPS_USERS", CleanOrphanRowsInGroupsUsers.class)
+      .add(1627, "Add FILE_SOURCES.INPUTS_HASH", AddInputsHashToFileSources.class);
   }
 }
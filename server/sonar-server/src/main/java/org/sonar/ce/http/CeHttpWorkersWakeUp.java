@@ -0,0 +1,86 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.http;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.picocontainer.Startable;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.queue.CeQueueSubmitListener;
+
+/**
+ * Wakes up the idle workers of the Compute Engine when the Web Server submits tasks, so that they
+ * are processed without waiting for the next poll of the queue.
+ * <p>
+ * The HTTP request is sent by a dedicated thread, so that submitters are never blocked by an unreachable
+ * Compute Engine. Submissions received while a request is pending are notified by this request only.
+ * </p>
+ */
+public class CeHttpWorkersWakeUp implements CeQueueSubmitListener, Startable {
+
+  private final CeHttpClient ceHttpClient;
+  private final ExecutorService executorService;
+  private final AtomicBoolean pending = new AtomicBoolean(false);
+
+  public CeHttpWorkersWakeUp(CeHttpClient ceHttpClient) {
+    this.ceHttpClient = ceHttpClient;
+    this.executorService = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat("CE_workers_wake_up-%d")
+      .build());
+  }
+
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  @Override
+  public void stop() {
+    executorService.shutdownNow();
+  }
+
+  @Override
+  public void onSubmit() {
+    if (!pending.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      executorService.execute(this::wakeUpWorkers);
+    } catch (RejectedExecutionException e) {
+      // stopped, tasks will be processed anyway at next poll of the queue
+      pending.set(false);
+    }
+  }
+
+  private void wakeUpWorkers() {
+    // reset before the call, so that tasks submitted meanwhile trigger a new one
+    pending.set(false);
+    try {
+      ceHttpClient.wakeUpWorkers();
+    } catch (RuntimeException e) {
+      // tasks will be processed anyway at next poll of the queue
+      Loggers.get(CeHttpWorkersWakeUp.class).debug("Failed to wake up workers of Compute Engine", e);
+    }
+  }
+}
@@ -39,6 +39,7 @@ public class ProjectAction implements BatchWsAction {
   private static final String PARAM_KEY = "key";
   private static final String PARAM_PROFILE = "profile";
   private static final String PARAM_ISSUES_MODE = "issues_mode";
+  private static final String PARAM_VERSION = "version";
 
   private final ProjectDataLoader projectDataLoader;
 
@@ -71,6 +72,13 @@ public class ProjectAction implements BatchWsAction {
       .setDescription("Issues mode or not")
       .setDefaultValue(false)
       .setBooleanPossibleValues();
+
+    action
+      .createParam(PARAM_VERSION)
+      .setDescription("Version of the project repository already known by the client. " +
+        "If it is still the current version, then files are not returned and the field 'notModified' is true.")
+      .setSince("6.4")
+      .setExampleValue("2e5a5bf5f0b6a1e4e3f3b1dc03c2e4b5a8d4a9e1");
   }
 
   @Override
@@ -78,7 +86,8 @@ public class ProjectAction implements BatchWsAction {
     ProjectRepositories data = projectDataLoader.load(ProjectDataQuery.create()
       .setModuleKey(wsRequest.mandatoryParam(PARAM_KEY))
       .setProfileName(wsRequest.param(PARAM_PROFILE))
-      .setIssuesMode(wsRequest.mandatoryParamAsBoolean(PARAM_ISSUES_MODE)));
+      .setIssuesMode(wsRequest.mandatoryParamAsBoolean(PARAM_ISSUES_MODE))
+      .setKnownVersion(wsRequest.param(PARAM_VERSION)));
 
     WsProjectResponse projectResponse = buildResponse(data);
     writeProtobuf(projectResponse, wsRequest, wsResponse);
@@ -86,12 +95,16 @@ public class ProjectAction implements BatchWsAction {
 
   private static WsProjectResponse buildResponse(ProjectRepositories data) {
     WsProjectResponse.Builder response = WsProjectResponse.newBuilder();
+    setNullable(data.version(), response::setVersion);
+    response.getMutableSettingsByModule()
+      .putAll(buildSettingsByModule(data));
+    if (data.notModified()) {
+      return response.setNotModified(true).build();
+    }
     setNullable(data.lastAnalysisDate(), response::setLastAnalysisDate, Date::getTime);
     response.setTimestamp(data.timestamp());
     response.getMutableFileDataByModuleAndPath()
       .putAll(buildFileDataByModuleAndPath(data));
-    response.getMutableSettingsByModule()
-      .putAll(buildSettingsByModule(data));
 
     return response.build();
   }
@@ -26,6 +26,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.server.ServerSide;
@@ -33,11 +34,12 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.FilePathWithHashDto;
+import org.sonar.db.component.SnapshotDto;
+import org.sonar.db.permission.OrganizationPermission;
 import org.sonar.db.property.PropertyDto;
 import org.sonar.scanner.protocol.input.FileData;
 import org.sonar.scanner.protocol.input.ProjectRepositories;
 import org.sonar.server.exceptions.ForbiddenException;
-import org.sonar.db.permission.OrganizationPermission;
 import org.sonar.server.user.UserSession;
 
 import static com.google.common.collect.Lists.newArrayList;
@@ -83,6 +85,15 @@ public class ProjectDataLoader {
       TreeModuleSettings treeModuleSettings = new TreeModuleSettings(moduleUuidsByKey, moduleIdsByKey, modulesTree, modulesTreeSettings);
 
       addSettingsToChildrenModules(data, query.getModuleKey(), Maps.<String, String>newHashMap(), treeModuleSettings, hasScanPerm);
+
+      String version = computeVersion(session, project, modulesTree);
+      data.setVersion(version);
+      if (version.equals(query.getKnownVersion())) {
+        // files, which are the most expensive data to load, are already known by the batch. Settings are always
+        // returned as the batch does not cache them.
+        return data.setNotModified(true);
+      }
+
       List<FilePathWithHashDto> files = searchFilesWithHashAndRevision(session, module);
       addFileData(data, modulesTree, files);
 
@@ -94,6 +105,20 @@ public class ProjectDataLoader {
     }
   }
 
+  /**
+   * Files of the project change only when it is analyzed, so the version is based on the last analysis rather than
+   * on the files. It does not depend on settings, which are returned on every call.
+   */
+  private String computeVersion(DbSession session, ComponentDto project, List<ComponentDto> modulesTree) {
+    StringBuilder version = new StringBuilder();
+    version.append(dbClient.snapshotDao().selectLastAnalysisByRootComponentUuid(session, project.uuid()).map(SnapshotDto::getUuid).orElse(""));
+    modulesTree.stream()
+      .map(module -> module.uuid() + '=' + module.key())
+      .sorted()
+      .forEach(module -> version.append('\n').append(module));
+    return DigestUtils.sha1Hex(version.toString());
+  }
+
   private static boolean isProjectOrModule(ComponentDto module) {
     if (!Scopes.PROJECT.equals(module.scope())) {
       return false;
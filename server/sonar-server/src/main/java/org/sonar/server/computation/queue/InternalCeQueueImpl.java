@@ -19,12 +19,17 @@
  */
 package org.sonar.server.computation.queue;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.log4j.Logger;
@@ -32,6 +37,7 @@ import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.utils.System2;
 import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.ce.queue.CeQueueImpl;
+import org.sonar.ce.queue.CeQueueSubmitListener;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.ce.queue.CeTaskResult;
 import org.sonar.core.util.UuidFactory;
@@ -53,10 +59,22 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
 
   // state
   private AtomicBoolean peekPaused = new AtomicBoolean(false);
+  // number of workers currently peeking the queue
+  private final AtomicInteger concurrentPeeks = new AtomicInteger(0);
+  // tasks claimed in db on behalf of workers which are currently peeking the queue
+  private final Deque<CeQueueDto> peekedTasks = new ArrayDeque<>();
 
+  /**
+   * Used when no {@link CeQueueSubmitListener} is available in pico container.
+   */
   public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus,
     DefaultOrganizationProvider defaultOrganizationProvider) {
-    super(dbClient, uuidFactory, defaultOrganizationProvider);
+    this(system2, dbClient, uuidFactory, queueStatus, defaultOrganizationProvider, new CeQueueSubmitListener[0]);
+  }
+
+  public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus,
+    DefaultOrganizationProvider defaultOrganizationProvider, CeQueueSubmitListener[] submitListeners) {
+    super(dbClient, uuidFactory, defaultOrganizationProvider, submitListeners);
     this.system2 = system2;
     this.dbClient = dbClient;
     this.queueStatus = queueStatus;
@@ -67,20 +85,79 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     if (peekPaused.get()) {
       return Optional.absent();
     }
+    concurrentPeeks.incrementAndGet();
+    CeQueueDto dto;
+    try {
+      dto = pollOrClaimTasks();
+    } finally {
+      concurrentPeeks.decrementAndGet();
+    }
+    if (dto == null) {
+      return Optional.absent();
+    }
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      CeTask task = loadTask(dbSession, dto);
+      queueStatus.addInProgress();
+      return Optional.of(task);
+    }
+  }
+
+  /**
+   * When several workers peek the queue at the same time, the first one claims a task for each of them in a single
+   * batch and the others get their task from {@link #peekedTasks} instead of querying the queue again.
+   * Tasks are never claimed for workers which are not peeking, so that claimed tasks do not wait in memory.
+   */
+  @CheckForNull
+  private synchronized CeQueueDto pollOrClaimTasks() {
+    if (peekPaused.get()) {
+      return null;
+    }
+    CeQueueDto dto = peekedTasks.poll();
+    if (dto != null) {
+      return dto;
+    }
     try (DbSession dbSession = dbClient.openSession(false)) {
-      Optional<CeQueueDto> dto = dbClient.ceQueueDao().peek(dbSession);
-      CeTask task = null;
-      if (dto.isPresent()) {
-        task = loadTask(dbSession, dto.get());
-        queueStatus.addInProgress();
+      List<CeQueueDto> dtos = dbClient.ceQueueDao().peek(dbSession, Math.max(1, countConcurrentPeeks()));
+      if (dtos.isEmpty()) {
+        return null;
       }
-      return Optional.fromNullable(task);
+      peekedTasks.addAll(dtos.subList(1, dtos.size()));
+      return dtos.get(0);
+    }
+  }
+
+  @VisibleForTesting
+  int countConcurrentPeeks() {
+    return concurrentPeeks.get();
+  }
 
+  /**
+   * Tasks claimed for workers which stopped peeking in the meantime are set back to pending, so that they are
+   * not reported as in progress until the next restart of the Compute Engine.
+   */
+  private synchronized void releasePeekedTasks() {
+    if (peekedTasks.isEmpty()) {
+      return;
+    }
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      for (CeQueueDto dto : peekedTasks) {
+        dbClient.ceQueueDao().resetToPendingStatus(dbSession, dto.getUuid());
+      }
+      dbSession.commit();
     }
+    peekedTasks.clear();
+  }
+
+  private synchronized void discardPeekedTask(String taskUuid) {
+    peekedTasks.removeIf(dto -> dto.getUuid().equals(taskUuid));
   }
 
   @Override
   public int clear() {
+    synchronized (this) {
+      // tasks claimed for concurrent peeks are in progress, hence cancelled below
+      peekedTasks.clear();
+    }
     return cancelAll(true);
   }
 
@@ -150,12 +227,14 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
 
   @Override
   public void cancel(DbSession dbSession, CeQueueDto ceQueueDto) {
+    discardPeekedTask(ceQueueDto.getUuid());
     cancelImpl(dbSession, ceQueueDto);
   }
 
   @Override
   public void pausePeek() {
     this.peekPaused.set(true);
+    releasePeekedTasks();
   }
 
   @Override
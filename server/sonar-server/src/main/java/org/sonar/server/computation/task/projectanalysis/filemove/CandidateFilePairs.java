@@ -0,0 +1,249 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.server.computation.task.projectanalysis.filemove.FileSimilarity.File;
+
+import static org.sonar.server.computation.task.projectanalysis.filemove.FileMoveDetectionStep.MIN_REQUIRED_SCORE;
+
+/**
+ * Pairs of a file of the DB and of a file of the report which may get a score of at least
+ * {@link FileMoveDetectionStep#MIN_REQUIRED_SCORE}, so that similarity is only computed for them.
+ * <p>
+ * The score is based on the Levenshtein distance between the line hashes of the two files. This distance is at least
+ * the difference of their number of lines, and at least the number of lines of the biggest file which do not exist in
+ * the other one. Pairs for which one of these lower bounds is already too high are discarded.
+ * </p>
+ * <p>
+ * When there are many pairs, only the pairs of files sharing at least one band of their MinHash signature
+ * (locality-sensitive hashing) are checked, instead of all of them.
+ * </p>
+ */
+final class CandidateFilePairs {
+  /**
+   * Number of pairs of files from which MinHash signatures are used to find the candidate pairs.
+   */
+  static final long LSH_MIN_PAIRS = 10_000L;
+  private static final int BANDS = 16;
+  private static final int ROWS = 4;
+  private static final long[] SEEDS = seeds(BANDS * ROWS);
+
+  private final int[][] reportFileIndexesByDbFile;
+  private final long size;
+
+  private CandidateFilePairs(int[][] reportFileIndexesByDbFile, long size) {
+    this.reportFileIndexesByDbFile = reportFileIndexesByDbFile;
+    this.size = size;
+  }
+
+  /**
+   * @return {@code null} if there are more than {@code maxPairs} candidate pairs
+   */
+  @CheckForNull
+  static CandidateFilePairs find(List<File> dbFiles, List<File> reportFiles, long maxPairs) {
+    Map<String, Integer> lineHashIds = new HashMap<>();
+    int[][] dbLines = toSortedIds(dbFiles, lineHashIds);
+    int[][] reportLines = toSortedIds(reportFiles, lineHashIds);
+
+    ReportFilesBuckets buckets = null;
+    if ((long) dbFiles.size() * reportFiles.size() >= LSH_MIN_PAIRS) {
+      buckets = new ReportFilesBuckets(reportLines);
+    }
+
+    int[][] reportFileIndexesByDbFile = new int[dbLines.length][];
+    long size = 0;
+    BitSet reportFileIndexes = new BitSet(reportLines.length);
+    for (int dbFileIndex = 0; dbFileIndex < dbLines.length; dbFileIndex++) {
+      int[] lines = dbLines[dbFileIndex];
+      reportFileIndexes.clear();
+      if (buckets == null) {
+        reportFileIndexes.set(0, reportLines.length);
+      } else {
+        buckets.collectSimilar(lines, reportFileIndexes);
+      }
+      int[] candidates = new int[reportFileIndexes.cardinality()];
+      int count = 0;
+      for (int i = reportFileIndexes.nextSetBit(0); i >= 0; i = reportFileIndexes.nextSetBit(i + 1)) {
+        if (mayReachMinRequiredScore(lines, reportLines[i])) {
+          candidates[count] = i;
+          count++;
+        }
+      }
+      size += count;
+      if (size > maxPairs) {
+        return null;
+      }
+      reportFileIndexesByDbFile[dbFileIndex] = Arrays.copyOf(candidates, count);
+    }
+    return new CandidateFilePairs(reportFileIndexesByDbFile, size);
+  }
+
+  /**
+   * Indexes, in ascending order, of the files of the report to be compared with the specified file of the DB.
+   */
+  int[] getReportFileIndexes(int dbFileIndex) {
+    return reportFileIndexesByDbFile[dbFileIndex];
+  }
+
+  long size() {
+    return size;
+  }
+
+  /**
+   * Replaces the line hashes of each file by sorted ids, the same line hash getting the same id in all the files.
+   */
+  private static int[][] toSortedIds(List<File> files, Map<String, Integer> lineHashIds) {
+    int[][] res = new int[files.size()][];
+    for (int i = 0; i < res.length; i++) {
+      List<String> lineHashes = files.get(i).getLineHashes();
+      int[] ids = new int[lineHashes.size()];
+      for (int j = 0; j < ids.length; j++) {
+        Integer id = lineHashIds.get(lineHashes.get(j));
+        if (id == null) {
+          id = lineHashIds.size();
+          lineHashIds.put(lineHashes.get(j), id);
+        }
+        ids[j] = id;
+      }
+      Arrays.sort(ids);
+      res[i] = ids;
+    }
+    return res;
+  }
+
+  static boolean mayReachMinRequiredScore(int[] sortedLeft, int[] sortedRight) {
+    if (sortedLeft.length == 0 || sortedRight.length == 0) {
+      // score is 0
+      return false;
+    }
+    long maxLines = Math.max(sortedLeft.length, sortedRight.length);
+    long maxDistance = (100 - MIN_REQUIRED_SCORE) * maxLines;
+    if (100 * (maxLines - Math.min(sortedLeft.length, sortedRight.length)) > maxDistance) {
+      return false;
+    }
+    return 100 * (maxLines - countCommonLines(sortedLeft, sortedRight)) <= maxDistance;
+  }
+
+  private static int countCommonLines(int[] sortedLeft, int[] sortedRight) {
+    int res = 0;
+    int i = 0;
+    int j = 0;
+    while (i < sortedLeft.length && j < sortedRight.length) {
+      if (sortedLeft[i] == sortedRight[j]) {
+        res++;
+        i++;
+        j++;
+      } else if (sortedLeft[i] < sortedRight[j]) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return res;
+  }
+
+  /**
+   * MinHash signature of the multiset of lines of a file, each occurrence of a line hash being a distinct element.
+   */
+  private static long[] signature(int[] sortedLines) {
+    long[] res = new long[SEEDS.length];
+    Arrays.fill(res, Long.MAX_VALUE);
+    int occurrence = 0;
+    for (int i = 0; i < sortedLines.length; i++) {
+      occurrence = i > 0 && sortedLines[i] == sortedLines[i - 1] ? (occurrence + 1) : 0;
+      long element = ((long) sortedLines[i] << 32) | occurrence;
+      for (int h = 0; h < SEEDS.length; h++) {
+        long hash = mix(element ^ SEEDS[h]);
+        if (hash < res[h]) {
+          res[h] = hash;
+        }
+      }
+    }
+    return res;
+  }
+
+  private static long bandHash(long[] signature, int band) {
+    long res = band;
+    for (int row = 0; row < ROWS; row++) {
+      res = 31 * res + signature[band * ROWS + row];
+    }
+    return res;
+  }
+
+  private static long[] seeds(int count) {
+    long[] res = new long[count];
+    for (int i = 0; i < count; i++) {
+      res[i] = mix(i + 1L);
+    }
+    return res;
+  }
+
+  /**
+   * Finalizer of the 64 bits MurmurHash3.
+   */
+  private static long mix(long value) {
+    long res = value;
+    res ^= res >>> 33;
+    res *= 0xff51afd7ed558ccdL;
+    res ^= res >>> 33;
+    res *= 0xc4ceb9fe1a85ec53L;
+    res ^= res >>> 33;
+    return res;
+  }
+
+  private static final class ReportFilesBuckets {
+    private final List<Map<Long, List<Integer>>> bucketsByBand = new ArrayList<>(BANDS);
+
+    private ReportFilesBuckets(int[][] reportLines) {
+      for (int band = 0; band < BANDS; band++) {
+        bucketsByBand.add(new HashMap<>());
+      }
+      for (int reportFileIndex = 0; reportFileIndex < reportLines.length; reportFileIndex++) {
+        if (reportLines[reportFileIndex].length == 0) {
+          continue;
+        }
+        long[] signature = signature(reportLines[reportFileIndex]);
+        for (int band = 0; band < BANDS; band++) {
+          bucketsByBand.get(band).computeIfAbsent(bandHash(signature, band), k -> new ArrayList<>()).add(reportFileIndex);
+        }
+      }
+    }
+
+    private void collectSimilar(int[] sortedLines, BitSet reportFileIndexes) {
+      if (sortedLines.length == 0) {
+        return;
+      }
+      long[] signature = signature(sortedLines);
+      for (int band = 0; band < BANDS; band++) {
+        List<Integer> bucket = bucketsByBand.get(band).get(bandHash(signature, band));
+        if (bucket != null) {
+          bucket.forEach(reportFileIndexes::set);
+        }
+      }
+    }
+  }
+}
@@ -20,20 +20,30 @@
 package org.sonar.server.computation.task.projectanalysis.filemove;
 
 import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
@@ -64,6 +74,17 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 
 public class FileMoveDetectionStep implements ComputationStep {
   protected static final int MIN_REQUIRED_SCORE = 85;
+  /**
+   * Maximum number of pairs of a removed and an added file for which similarity is computed. Detection is aborted
+   * beyond.
+   */
+  static final String MAX_CANDIDATE_PAIRS_PROPERTY = "sonar.filemove.maxCandidatePairs";
+  private static final long DEFAULT_MAX_CANDIDATE_PAIRS = 500_000L;
+  /**
+   * Maximum time, in milliseconds, to compute the similarity of the pairs of files. Detection is aborted beyond.
+   */
+  static final String TIMEOUT_PROPERTY = "sonar.filemove.timeoutInMs";
+  private static final long DEFAULT_TIMEOUT_IN_MS = 60_000L;
   private static final Logger LOG = Loggers.get(FileMoveDetectionStep.class);
   private static final List<String> FILE_QUALIFIERS = asList(Qualifiers.FILE, Qualifiers.UNIT_TEST_FILE);
   private static final Splitter LINES_HASHES_SPLITTER = on('\n');
@@ -74,15 +95,18 @@ public class FileMoveDetectionStep implements ComputationStep {
   private final SourceLinesRepository sourceLinesRepository;
   private final FileSimilarity fileSimilarity;
   private final MutableMovedFilesRepository movedFilesRepository;
+  private final Settings settings;
 
   public FileMoveDetectionStep(AnalysisMetadataHolder analysisMetadataHolder, TreeRootHolder rootHolder, DbClient dbClient,
-    SourceLinesRepository sourceLinesRepository, FileSimilarity fileSimilarity, MutableMovedFilesRepository movedFilesRepository) {
+    SourceLinesRepository sourceLinesRepository, FileSimilarity fileSimilarity, MutableMovedFilesRepository movedFilesRepository,
+    Settings settings) {
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.rootHolder = rootHolder;
     this.dbClient = dbClient;
     this.sourceLinesRepository = sourceLinesRepository;
     this.fileSimilarity = fileSimilarity;
     this.movedFilesRepository = movedFilesRepository;
+    this.settings = settings;
   }
 
   @Override
@@ -125,6 +149,10 @@ public class FileMoveDetectionStep implements ComputationStep {
 
     // compute score matrix
     ScoreMatrix scoreMatrix = computeScoreMatrix(dbFilesByKey, removedFileKeys, reportFileSourcesByKey);
+    // budget of the detection exceeded => abort
+    if (scoreMatrix == null) {
+      return;
+    }
     printIfDebug(scoreMatrix);
 
     // not a single match with score higher than MIN_REQUIRED_SCORE => abort
@@ -196,33 +224,117 @@ public class FileMoveDetectionStep implements ComputationStep {
     return builder.build();
   }
 
+  /**
+   * @return {@code null} if the budget of the detection (see {@link #MAX_CANDIDATE_PAIRS_PROPERTY} and
+   * {@link #TIMEOUT_PROPERTY}) is exceeded
+   */
+  @CheckForNull
   private ScoreMatrix computeScoreMatrix(Map<String, DbComponent> dtosByKey, Set<String> dbFileKeys, Map<String, File> reportFileSourcesByKey) {
-    int[][] scoreMatrix = new int[dbFileKeys.size()][reportFileSourcesByKey.size()];
-    int maxScore = 0;
-
+    long start = System.currentTimeMillis();
+    List<String> dbKeys = new ArrayList<>(dbFileKeys.size());
+    List<File> dbFiles = new ArrayList<>(dbFileKeys.size());
     try (DbSession dbSession = dbClient.openSession(false)) {
-      int dbFileIndex = 0;
       for (String removedFileKey : dbFileKeys) {
         File fileInDb = getFile(dbSession, dtosByKey.get(removedFileKey));
-        if (fileInDb == null) {
-          continue;
+        if (fileInDb != null) {
+          dbKeys.add(removedFileKey);
+          dbFiles.add(fileInDb);
         }
+      }
+    }
+    List<String> reportKeys = new ArrayList<>(reportFileSourcesByKey.keySet());
+    List<File> reportFiles = new ArrayList<>(reportFileSourcesByKey.values());
+
+    long maxCandidatePairs = getLong(MAX_CANDIDATE_PAIRS_PROPERTY, DEFAULT_MAX_CANDIDATE_PAIRS);
+    CandidateFilePairs candidatePairs = CandidateFilePairs.find(dbFiles, reportFiles, maxCandidatePairs);
+    if (candidatePairs == null) {
+      LOG.warn("File move detection aborted: more than {} pairs of files to compare (removed files={}, added files={}). Limit can be changed with property {}.",
+        maxCandidatePairs, dbFiles.size(), reportFiles.size(), MAX_CANDIDATE_PAIRS_PROPERTY);
+      return null;
+    }
+    LOG.debug("{} pairs of files to compare (removed files={}, added files={})", candidatePairs.size(), dbFiles.size(), reportFiles.size());
 
-        int reportFileIndex = 0;
-        for (Map.Entry<String, File> reportFileSourceAndKey : reportFileSourcesByKey.entrySet()) {
-          File unmatchedFile = reportFileSourceAndKey.getValue();
-          int score = fileSimilarity.score(fileInDb, unmatchedFile);
-          scoreMatrix[dbFileIndex][reportFileIndex] = score;
-          if (score > maxScore) {
-            maxScore = score;
-          }
-          reportFileIndex++;
+    long timeoutInMs = getLong(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT_IN_MS);
+    List<ScoreMatrix.Score> scores = computeScores(dbKeys, dbFiles, reportKeys, reportFiles, candidatePairs, timeoutInMs - (System.currentTimeMillis() - start));
+    if (scores == null) {
+      LOG.warn("File move detection aborted: similarity of {} pairs of files not computed within {}ms (removed files={}, added files={}). Limit can be changed with property {}.",
+        candidatePairs.size(), timeoutInMs, dbFiles.size(), reportFiles.size(), TIMEOUT_PROPERTY);
+      return null;
+    }
+    int maxScore = 0;
+    for (ScoreMatrix.Score score : scores) {
+      maxScore = Math.max(maxScore, score.getScore());
+    }
+    return new ScoreMatrix(dbFileKeys, reportFileSourcesByKey, scores, maxScore);
+  }
+
+  /**
+   * Computes the similarity of the candidate pairs on a pool bounded by the number of processors, one task per file of
+   * the DB. Scores are returned in the order of the files of the DB, then of the files of the report.
+   *
+   * @return {@code null} if scores can not be computed within the specified timeout
+   */
+  @CheckForNull
+  private List<ScoreMatrix.Score> computeScores(List<String> dbKeys, List<File> dbFiles, List<String> reportKeys, List<File> reportFiles,
+    CandidateFilePairs candidatePairs, long timeoutInMs) {
+    if (timeoutInMs <= 0) {
+      return null;
+    }
+    List<Callable<List<ScoreMatrix.Score>>> tasks = new ArrayList<>();
+    for (int i = 0; i < dbFiles.size(); i++) {
+      int[] reportFileIndexes = candidatePairs.getReportFileIndexes(i);
+      if (reportFileIndexes.length > 0) {
+        String dbKey = dbKeys.get(i);
+        File dbFile = dbFiles.get(i);
+        tasks.add(() -> computeScores(dbKey, dbFile, reportKeys, reportFiles, reportFileIndexes));
+      }
+    }
+    if (tasks.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    int poolSize = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService executorService = Executors.newFixedThreadPool(poolSize,
+      new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("FileMoveDetection-%d")
+        .build());
+    try {
+      // tasks not completed within the timeout are cancelled
+      List<Future<List<ScoreMatrix.Score>>> futures = executorService.invokeAll(tasks, timeoutInMs, TimeUnit.MILLISECONDS);
+      List<ScoreMatrix.Score> res = new ArrayList<>();
+      for (Future<List<ScoreMatrix.Score>> future : futures) {
+        if (future.isCancelled()) {
+          return null;
         }
-        dbFileIndex++;
+        res.addAll(future.get());
+      }
+      return res;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while detecting file moves", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private List<ScoreMatrix.Score> computeScores(String dbKey, File dbFile, List<String> reportKeys, List<File> reportFiles, int[] reportFileIndexes) {
+    List<ScoreMatrix.Score> res = new ArrayList<>(reportFileIndexes.length);
+    for (int reportFileIndex : reportFileIndexes) {
+      if (Thread.currentThread().isInterrupted()) {
+        // task has been cancelled, its result will be ignored
+        break;
       }
+      int score = fileSimilarity.score(dbFile, reportFiles.get(reportFileIndex));
+      res.add(new ScoreMatrix.Score(dbKey, reportKeys.get(reportFileIndex), score));
     }
+    return res;
+  }
 
-    return new ScoreMatrix(dbFileKeys, reportFileSourcesByKey, scoreMatrix, maxScore);
+  private long getLong(String propertyKey, long defaultValue) {
+    return settings.hasKey(propertyKey) ? settings.getLong(propertyKey) : defaultValue;
   }
 
   @CheckForNull
@@ -19,56 +19,57 @@
  */
 package org.sonar.server.computation.task.projectanalysis.filemove;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
+import javax.annotation.concurrent.Immutable;
 
+/**
+ * Scores of the pairs of files of the DB and of the report. The matrix is sparse: only the pairs for which a score
+ * has been computed are stored, the score of any other pair being considered as 0.
+ */
 final class ScoreMatrix {
   private final Set<String> dbFileKeys;
   private final Map<String, FileSimilarity.File> reportFileSourcesByKey;
-  private final int[][] scores;
+  private final List<Score> scores;
   private final int maxScore;
 
-  public ScoreMatrix(Set<String> dbFileKeys, Map<String, FileSimilarity.File> reportFileSourcesByKey, int[][] scores, int maxScore) {
+  public ScoreMatrix(Set<String> dbFileKeys, Map<String, FileSimilarity.File> reportFileSourcesByKey, List<Score> scores, int maxScore) {
     this.dbFileKeys = dbFileKeys;
     this.reportFileSourcesByKey = reportFileSourcesByKey;
     this.scores = scores;
     this.maxScore = maxScore;
   }
 
+  /**
+   * Visits the pairs for which a score has been computed, in the order they were provided.
+   */
   public void accept(ScoreMatrixVisitor visitor) {
-    int dbFileIndex = 0;
-    for (String dbFileKey : dbFileKeys) {
-      int reportFileIndex = 0;
-      for (Map.Entry<String, FileSimilarity.File> reportFileSourceAndKey : reportFileSourcesByKey.entrySet()) {
-        int score = scores[dbFileIndex][reportFileIndex];
-        visitor.visit(dbFileKey, reportFileSourceAndKey.getKey(), score);
-        reportFileIndex++;
-      }
-      dbFileIndex++;
+    for (Score score : scores) {
+      visitor.visit(score.getDbFileKey(), score.getReportFileKey(), score.getScore());
     }
   }
 
   public String toCsv(char separator) {
+    Map<String, Map<String, Integer>> scoresByDbFileKey = new HashMap<>();
+    accept((dbFileKey, reportFileKey, score) -> scoresByDbFileKey.computeIfAbsent(dbFileKey, k -> new HashMap<>()).put(reportFileKey, score));
+
     StringBuilder res = new StringBuilder();
     // first row: empty column, then one column for each report file (its key)
     res.append(separator);
-    for (Map.Entry<String, FileSimilarity.File> reportEntry : reportFileSourcesByKey.entrySet()) {
-      res.append(reportEntry.getKey()).append(separator);
+    for (String reportFileKey : reportFileSourcesByKey.keySet()) {
+      res.append(reportFileKey).append(separator);
     }
     // rows with data: column with db file (its key), then one column for each value
-    accept(new ScoreMatrixVisitor() {
-      private String previousDbFileKey = null;
-
-      @Override
-      public void visit(String dbFileKey, String reportFileKey, int score) {
-        if (!Objects.equals(previousDbFileKey, dbFileKey)) {
-          res.append('\n').append(dbFileKey).append(separator);
-          previousDbFileKey = dbFileKey;
-        }
-        res.append(score).append(separator);
+    for (String dbFileKey : dbFileKeys) {
+      res.append('\n').append(dbFileKey).append(separator);
+      Map<String, Integer> rowScores = scoresByDbFileKey.getOrDefault(dbFileKey, Collections.emptyMap());
+      for (String reportFileKey : reportFileSourcesByKey.keySet()) {
+        res.append(rowScores.getOrDefault(reportFileKey, 0)).append(separator);
       }
-    });
+    }
     return res.toString();
   }
 
@@ -80,4 +81,29 @@ final class ScoreMatrix {
   public int getMaxScore() {
     return maxScore;
   }
+
+  @Immutable
+  static final class Score {
+    private final String dbFileKey;
+    private final String reportFileKey;
+    private final int score;
+
+    Score(String dbFileKey, String reportFileKey, int score) {
+      this.dbFileKey = dbFileKey;
+      this.reportFileKey = reportFileKey;
+      this.score = score;
+    }
+
+    String getDbFileKey() {
+      return dbFileKey;
+    }
+
+    String getReportFileKey() {
+      return reportFileKey;
+    }
+
+    int getScore() {
+      return score;
+    }
+  }
 }
@@ -0,0 +1,462 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.issue.IssueComment;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.server.util.cache.RecordCodec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compact binary encoding of {@link DefaultIssue} used by {@link IssueCache}, which avoids the cost of Java
+ * serialization (class descriptors, reflection, stream resets) for each issue.
+ */
+public class DefaultIssueCodec implements RecordCodec<DefaultIssue> {
+
+  private static final int NULL_LENGTH = -1;
+
+  private static final byte LOCATIONS_NONE = 0;
+  private static final byte LOCATIONS_PROTOBUF = 1;
+  private static final byte LOCATIONS_SERIALIZED = 2;
+
+  private static final byte CHANGE_NEW = 0;
+  private static final byte CHANGE_CURRENT = 1;
+
+  private static final byte VALUE_NULL = 0;
+  private static final byte VALUE_STRING = 1;
+  private static final byte VALUE_LONG = 2;
+  private static final byte VALUE_INTEGER = 3;
+  private static final byte VALUE_DOUBLE = 4;
+  private static final byte VALUE_SERIALIZED = 5;
+
+  @Override
+  public void write(DataOutput output, DefaultIssue issue) throws IOException {
+    writeString(output, issue.key());
+    RuleType type = issue.type();
+    output.writeByte(type == null ? NULL_LENGTH : type.ordinal());
+    writeString(output, issue.componentUuid());
+    writeString(output, issue.componentKey());
+    writeString(output, issue.moduleUuid());
+    writeString(output, issue.moduleUuidPath());
+    writeString(output, issue.projectUuid());
+    writeString(output, issue.projectKey());
+    RuleKey ruleKey = issue.ruleKey();
+    writeString(output, ruleKey == null ? null : ruleKey.repository());
+    writeString(output, ruleKey == null ? null : ruleKey.rule());
+    writeString(output, issue.language());
+    writeString(output, issue.severity());
+    output.writeBoolean(issue.manualSeverity());
+    writeString(output, issue.message());
+    writeNullableLong(output, issue.line() == null ? null : issue.line().longValue());
+    writeNullableDouble(output, issue.gap());
+    writeNullableLong(output, issue.effortInMinutes());
+    writeString(output, issue.status());
+    writeString(output, issue.resolution());
+    writeString(output, issue.assignee());
+    writeString(output, issue.checksum());
+    writeStringMap(output, issue.attributes());
+    writeString(output, issue.authorLogin());
+    writeComments(output, issue.comments());
+    writeStrings(output, issue.tags());
+    writeLocations(output, issue.getLocations());
+    writeDate(output, issue.creationDate());
+    writeDate(output, issue.updateDate());
+    writeDate(output, issue.closeDate());
+    writeChanges(output, issue.changes(), issue.currentChange());
+    output.writeBoolean(issue.isNew());
+    output.writeBoolean(issue.isBeingClosed());
+    output.writeBoolean(issue.isOnDisabledRule());
+    output.writeBoolean(issue.isChanged());
+    output.writeBoolean(issue.mustSendNotifications());
+    writeNullableLong(output, issue.selectedAt());
+  }
+
+  @Override
+  public DefaultIssue read(DataInput input) throws IOException {
+    DefaultIssue issue = new DefaultIssue();
+    issue.setKey(readString(input));
+    byte type = input.readByte();
+    issue.setType(type == NULL_LENGTH ? null : RuleType.values()[type]);
+    issue.setComponentUuid(readString(input));
+    issue.setComponentKey(readString(input));
+    issue.setModuleUuid(readString(input));
+    issue.setModuleUuidPath(readString(input));
+    issue.setProjectUuid(readString(input));
+    issue.setProjectKey(readString(input));
+    String ruleRepository = readString(input);
+    String rule = readString(input);
+    if (ruleRepository != null && rule != null) {
+      issue.setRuleKey(RuleKey.of(ruleRepository, rule));
+    }
+    issue.setLanguage(readString(input));
+    issue.setSeverity(readString(input));
+    issue.setManualSeverity(input.readBoolean());
+    issue.setMessage(readString(input));
+    Long line = readNullableLong(input);
+    issue.setLine(line == null ? null : line.intValue());
+    issue.setGap(readNullableDouble(input));
+    Long effort = readNullableLong(input);
+    issue.setEffort(effort == null ? null : Duration.create(effort));
+    String status = readString(input);
+    if (status != null) {
+      issue.setStatus(status);
+    }
+    issue.setResolution(readString(input));
+    issue.setAssignee(readString(input));
+    issue.setChecksum(readString(input));
+    Map<String, String> attributes = readStringMap(input);
+    if (!attributes.isEmpty()) {
+      issue.setAttributes(attributes);
+    }
+    issue.setAuthorLogin(readString(input));
+    readComments(input, issue);
+    Set<String> tags = readStrings(input);
+    if (!tags.isEmpty()) {
+      issue.setTags(tags);
+    }
+    issue.setLocations(readLocations(input));
+    issue.setCreationDate(readDate(input));
+    issue.setUpdateDate(readDate(input));
+    issue.setCloseDate(readDate(input));
+    readChanges(input, issue);
+    issue.setNew(input.readBoolean());
+    issue.setBeingClosed(input.readBoolean());
+    issue.setOnDisabledRule(input.readBoolean());
+    issue.setChanged(input.readBoolean());
+    issue.setSendNotifications(input.readBoolean());
+    issue.setSelectedAt(readNullableLong(input));
+    return issue;
+  }
+
+  private static void writeComments(DataOutput output, List<IssueComment> comments) throws IOException {
+    output.writeInt(comments.size());
+    for (IssueComment comment : comments) {
+      DefaultIssueComment defaultComment = (DefaultIssueComment) comment;
+      writeString(output, defaultComment.issueKey());
+      writeString(output, defaultComment.userLogin());
+      writeDate(output, defaultComment.createdAt());
+      writeDate(output, defaultComment.updatedAt());
+      writeString(output, defaultComment.key());
+      writeString(output, defaultComment.markdownText());
+      output.writeBoolean(defaultComment.isNew());
+    }
+  }
+
+  private static void readComments(DataInput input, DefaultIssue issue) throws IOException {
+    int size = input.readInt();
+    for (int i = 0; i < size; i++) {
+      DefaultIssueComment comment = new DefaultIssueComment()
+        .setIssueKey(readString(input))
+        .setUserLogin(readString(input))
+        .setCreatedAt(readDate(input))
+        .setUpdatedAt(readDate(input))
+        .setKey(readString(input))
+        .setMarkdownText(readString(input))
+        .setNew(input.readBoolean());
+      issue.addComment(comment);
+    }
+  }
+
+  /**
+   * The current change is also referenced by the list of changes. It is written only once and the identity is
+   * restored when reading, as Java serialization used to do.
+   */
+  private static void writeChanges(DataOutput output, List<FieldDiffs> changes, @Nullable FieldDiffs currentChange) throws IOException {
+    writeFieldDiffs(output, currentChange);
+    output.writeInt(changes.size());
+    for (FieldDiffs change : changes) {
+      if (currentChange != null && change == currentChange) {
+        output.writeByte(CHANGE_CURRENT);
+      } else {
+        output.writeByte(CHANGE_NEW);
+        writeFieldDiffs(output, change);
+      }
+    }
+  }
+
+  private static void readChanges(DataInput input, DefaultIssue issue) throws IOException {
+    FieldDiffs currentChange = readFieldDiffs(input);
+    int size = input.readInt();
+    List<FieldDiffs> changes = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      if (input.readByte() == CHANGE_CURRENT) {
+        changes.add(currentChange);
+      } else {
+        changes.add(readFieldDiffs(input));
+      }
+    }
+    if (currentChange != null) {
+      // setCurrentChange() appends the current change to the list of changes
+      int lastIndex = changes.lastIndexOf(currentChange);
+      if (lastIndex >= 0) {
+        changes.remove(lastIndex);
+      }
+      issue.setChanges(changes);
+      issue.setCurrentChange(currentChange);
+    } else if (!changes.isEmpty()) {
+      issue.setChanges(changes);
+    }
+  }
+
+  private static void writeFieldDiffs(DataOutput output, @Nullable FieldDiffs fieldDiffs) throws IOException {
+    output.writeBoolean(fieldDiffs != null);
+    if (fieldDiffs == null) {
+      return;
+    }
+    writeString(output, fieldDiffs.issueKey());
+    writeString(output, fieldDiffs.userLogin());
+    writeDate(output, fieldDiffs.creationDate());
+    Map<String, FieldDiffs.Diff> diffs = fieldDiffs.diffs();
+    output.writeInt(diffs.size());
+    for (Map.Entry<String, FieldDiffs.Diff> entry : diffs.entrySet()) {
+      writeString(output, entry.getKey());
+      writeValue(output, entry.getValue().oldValue());
+      writeValue(output, entry.getValue().newValue());
+    }
+  }
+
+  @CheckForNull
+  private static FieldDiffs readFieldDiffs(DataInput input) throws IOException {
+    if (!input.readBoolean()) {
+      return null;
+    }
+    FieldDiffs fieldDiffs = new FieldDiffs();
+    String issueKey = readString(input);
+    if (issueKey != null) {
+      fieldDiffs.setIssueKey(issueKey);
+    }
+    fieldDiffs.setUserLogin(readString(input));
+    fieldDiffs.setCreationDate(readDate(input));
+    int size = input.readInt();
+    for (int i = 0; i < size; i++) {
+      fieldDiffs.setDiff(readString(input), readValue(input), readValue(input));
+    }
+    return fieldDiffs;
+  }
+
+  private static void writeValue(DataOutput output, @Nullable Serializable value) throws IOException {
+    if (value == null) {
+      output.writeByte(VALUE_NULL);
+    } else if (value instanceof String) {
+      output.writeByte(VALUE_STRING);
+      writeString(output, (String) value);
+    } else if (value instanceof Long) {
+      output.writeByte(VALUE_LONG);
+      output.writeLong((Long) value);
+    } else if (value instanceof Integer) {
+      output.writeByte(VALUE_INTEGER);
+      output.writeInt((Integer) value);
+    } else if (value instanceof Double) {
+      output.writeByte(VALUE_DOUBLE);
+      output.writeDouble((Double) value);
+    } else {
+      output.writeByte(VALUE_SERIALIZED);
+      writeSerialized(output, value);
+    }
+  }
+
+  @CheckForNull
+  private static Serializable readValue(DataInput input) throws IOException {
+    byte valueType = input.readByte();
+    switch (valueType) {
+      case VALUE_NULL:
+        return null;
+      case VALUE_STRING:
+        return readString(input);
+      case VALUE_LONG:
+        return input.readLong();
+      case VALUE_INTEGER:
+        return input.readInt();
+      case VALUE_DOUBLE:
+        return input.readDouble();
+      case VALUE_SERIALIZED:
+        return (Serializable) readSerialized(input);
+      default:
+        throw new IllegalStateException("Unsupported type of value: " + valueType);
+    }
+  }
+
+  private static void writeLocations(DataOutput output, @Nullable Object locations) throws IOException {
+    if (locations == null) {
+      output.writeByte(LOCATIONS_NONE);
+    } else if (locations instanceof DbIssues.Locations) {
+      output.writeByte(LOCATIONS_PROTOBUF);
+      writeBytes(output, ((DbIssues.Locations) locations).toByteArray());
+    } else {
+      output.writeByte(LOCATIONS_SERIALIZED);
+      writeSerialized(output, locations);
+    }
+  }
+
+  @CheckForNull
+  private static Object readLocations(DataInput input) throws IOException {
+    byte locationsType = input.readByte();
+    switch (locationsType) {
+      case LOCATIONS_NONE:
+        return null;
+      case LOCATIONS_PROTOBUF:
+        return DbIssues.Locations.parseFrom(readBytes(input));
+      case LOCATIONS_SERIALIZED:
+        return readSerialized(input);
+      default:
+        throw new IllegalStateException("Unsupported type of locations: " + locationsType);
+    }
+  }
+
+  private static void writeSerialized(DataOutput output, Object object) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+      objectOutput.writeObject(object);
+    }
+    writeBytes(output, bytes.toByteArray());
+  }
+
+  private static Object readSerialized(DataInput input) throws IOException {
+    try (ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(readBytes(input)))) {
+      return objectInput.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Fail to deserialize object", e);
+    }
+  }
+
+  private static void writeStringMap(DataOutput output, Map<String, String> map) throws IOException {
+    output.writeInt(map.size());
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      writeString(output, entry.getKey());
+      writeString(output, entry.getValue());
+    }
+  }
+
+  private static Map<String, String> readStringMap(DataInput input) throws IOException {
+    int size = input.readInt();
+    Map<String, String> map = new LinkedHashMap<>(size);
+    for (int i = 0; i < size; i++) {
+      map.put(readString(input), readString(input));
+    }
+    return map;
+  }
+
+  private static void writeStrings(DataOutput output, Set<String> strings) throws IOException {
+    output.writeInt(strings.size());
+    for (String s : strings) {
+      writeString(output, s);
+    }
+  }
+
+  private static Set<String> readStrings(DataInput input) throws IOException {
+    int size = input.readInt();
+    Set<String> strings = new LinkedHashSet<>(size);
+    for (int i = 0; i < size; i++) {
+      strings.add(readString(input));
+    }
+    return strings;
+  }
+
+  private static void writeDate(DataOutput output, @Nullable Date date) throws IOException {
+    writeNullableLong(output, date == null ? null : date.getTime());
+  }
+
+  @CheckForNull
+  private static Date readDate(DataInput input) throws IOException {
+    Long time = readNullableLong(input);
+    return time == null ? null : new Date(time);
+  }
+
+  private static void writeNullableLong(DataOutput output, @Nullable Long l) throws IOException {
+    output.writeBoolean(l != null);
+    if (l != null) {
+      output.writeLong(l);
+    }
+  }
+
+  @CheckForNull
+  private static Long readNullableLong(DataInput input) throws IOException {
+    return input.readBoolean() ? input.readLong() : null;
+  }
+
+  private static void writeNullableDouble(DataOutput output, @Nullable Double d) throws IOException {
+    output.writeBoolean(d != null);
+    if (d != null) {
+      output.writeDouble(d);
+    }
+  }
+
+  @CheckForNull
+  private static Double readNullableDouble(DataInput input) throws IOException {
+    return input.readBoolean() ? input.readDouble() : null;
+  }
+
+  /**
+   * Unlike {@link DataOutput#writeUTF(String)}, does not limit strings to 64KB.
+   */
+  private static void writeString(DataOutput output, @Nullable String s) throws IOException {
+    writeBytes(output, s == null ? null : s.getBytes(UTF_8));
+  }
+
+  @CheckForNull
+  private static String readString(DataInput input) throws IOException {
+    byte[] bytes = readBytes(input);
+    return bytes == null ? null : new String(bytes, UTF_8);
+  }
+
+  private static void writeBytes(DataOutput output, @Nullable byte[] bytes) throws IOException {
+    if (bytes == null) {
+      output.writeInt(NULL_LENGTH);
+    } else {
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+
+  @CheckForNull
+  private static byte[] readBytes(DataInput input) throws IOException {
+    int length = input.readInt();
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.util.Set;
+
+/**
+ * Issues of the project which must be indexed at the end of the analysis.
+ */
+public interface IssuesToIndexHolder {
+
+  /**
+   * Keys of the issues created or updated in database by the analysis, including the issues closed by the analysis.
+   */
+  Set<String> getIssueKeys();
+
+  /**
+   * Whether all the issues of the project must be indexed, instead of only {@link #getIssueKeys()}, for example
+   * because the paths of some components changed, so that the documents of unchanged issues are also outdated.
+   */
+  boolean isProjectReindexRequired();
+
+}
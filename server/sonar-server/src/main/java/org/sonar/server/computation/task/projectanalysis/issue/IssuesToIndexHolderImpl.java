@@ -0,0 +1,50 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class IssuesToIndexHolderImpl implements MutableIssuesToIndexHolder {
+
+  private final Set<String> issueKeys = new HashSet<>();
+  private boolean projectReindexRequired = false;
+
+  @Override
+  public Set<String> getIssueKeys() {
+    return Collections.unmodifiableSet(issueKeys);
+  }
+
+  @Override
+  public boolean isProjectReindexRequired() {
+    return projectReindexRequired;
+  }
+
+  @Override
+  public void addIssueKey(String issueKey) {
+    issueKeys.add(issueKey);
+  }
+
+  @Override
+  public void requireProjectReindex() {
+    this.projectReindexRequired = true;
+  }
+}
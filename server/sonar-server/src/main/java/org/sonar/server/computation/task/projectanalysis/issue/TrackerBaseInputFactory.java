@@ -19,8 +19,10 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.core.issue.DefaultIssue;
@@ -34,7 +36,8 @@ import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepo
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository.OriginalFile;
 
 /**
- * Factory of {@link Input} of base data for issue tracking. Data are lazy-loaded.
+ * Factory of {@link Input} of base data for issue tracking. Data are lazy-loaded, except when inputs of several
+ * components are created at once.
  */
 public class TrackerBaseInputFactory {
   private static final LineHashSequence EMPTY_LINE_HASH_SEQUENCE = new LineHashSequence(Collections.<String>emptyList());
@@ -53,6 +56,47 @@ public class TrackerBaseInputFactory {
     return new BaseLazyInput(component, movedFilesRepository.getOriginalFile(component).orNull());
   }
 
+  /**
+   * Inputs of the specified components, in the same order. Contrary to {@link #create(Component)}, data are loaded
+   * right away, with a few queries for all the components.
+   */
+  public List<Input<DefaultIssue>> create(List<Component> components) {
+    List<String> effectiveUuids = new ArrayList<>(components.size());
+    List<String> fileUuids = new ArrayList<>(components.size());
+    for (Component component : components) {
+      String effectiveUuid = effectiveUuidOf(component, movedFilesRepository.getOriginalFile(component).orNull());
+      effectiveUuids.add(effectiveUuid);
+      if (component.getType() == Component.Type.FILE) {
+        fileUuids.add(effectiveUuid);
+      }
+    }
+
+    Map<String, List<String>> lineHashesByUuid;
+    try (DbSession session = dbClient.openSession(false)) {
+      lineHashesByUuid = dbClient.fileSourceDao().selectLineHashes(session, fileUuids);
+    }
+    Map<String, List<DefaultIssue>> issuesByUuid = baseIssuesLoader.loadForComponentUuids(effectiveUuids);
+
+    List<Input<DefaultIssue>> inputs = new ArrayList<>(components.size());
+    for (int i = 0; i < components.size(); i++) {
+      String effectiveUuid = effectiveUuids.get(i);
+      List<String> lineHashes = components.get(i).getType() == Component.Type.FILE ? lineHashesByUuid.get(effectiveUuid) : null;
+      inputs.add(new LoadedInput(toLineHashSequence(lineHashes), issuesByUuid.getOrDefault(effectiveUuid, new ArrayList<>())));
+    }
+    return inputs;
+  }
+
+  private static String effectiveUuidOf(Component component, @Nullable OriginalFile originalFile) {
+    return originalFile == null ? component.getUuid() : originalFile.getUuid();
+  }
+
+  private static LineHashSequence toLineHashSequence(@Nullable List<String> hashes) {
+    if (hashes == null || hashes.isEmpty()) {
+      return EMPTY_LINE_HASH_SEQUENCE;
+    }
+    return new LineHashSequence(hashes);
+  }
+
   private class BaseLazyInput extends LazyInput<DefaultIssue> {
     private final Component component;
     @CheckForNull
@@ -60,7 +104,7 @@ public class TrackerBaseInputFactory {
 
     private BaseLazyInput(Component component, @Nullable OriginalFile originalFile) {
       this.component = component;
-      this.effectiveUuid = originalFile == null ? component.getUuid() : originalFile.getUuid();
+      this.effectiveUuid = effectiveUuidOf(component, originalFile);
     }
 
     @Override
@@ -70,11 +114,7 @@ public class TrackerBaseInputFactory {
       }
 
       try (DbSession session = dbClient.openSession(false)) {
-        List<String> hashes = dbClient.fileSourceDao().selectLineHashes(session, effectiveUuid);
-        if (hashes == null || hashes.isEmpty()) {
-          return EMPTY_LINE_HASH_SEQUENCE;
-        }
-        return new LineHashSequence(hashes);
+        return toLineHashSequence(dbClient.fileSourceDao().selectLineHashes(session, effectiveUuid));
       }
     }
 
@@ -83,4 +123,24 @@ public class TrackerBaseInputFactory {
       return baseIssuesLoader.loadForComponentUuid(effectiveUuid);
     }
   }
+
+  private static class LoadedInput extends LazyInput<DefaultIssue> {
+    private final LineHashSequence lineHashSequence;
+    private final List<DefaultIssue> issues;
+
+    private LoadedInput(LineHashSequence lineHashSequence, List<DefaultIssue> issues) {
+      this.lineHashSequence = lineHashSequence;
+      this.issues = issues;
+    }
+
+    @Override
+    protected LineHashSequence loadLineHashSequence() {
+      return lineHashSequence;
+    }
+
+    @Override
+    protected List<DefaultIssue> loadIssues() {
+      return issues;
+    }
+  }
 }
@@ -19,25 +19,194 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.picocontainer.Startable;
+import org.slf4j.MDC;
 import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
 import org.sonar.core.issue.tracking.Tracker;
 import org.sonar.core.issue.tracking.Tracking;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 
-public class TrackerExecution {
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
+
+/**
+ * Tracks the issues of the components in the order they are visited by {@link IntegrateIssuesVisitor}.
+ * <p>
+ * Components are independent from each other, so base data of the next components are loaded by batches of
+ * {@link #BATCH_SIZE} components and their report issues are tracked concurrently, before they are visited.
+ * Issues of common rules are computed from the measures of the component, so they are loaded only when the
+ * component is visited, in which case the component is tracked again with the data already loaded.
+ * </p>
+ * <p>
+ * Prefetched trackings are looked up by component uuid, so the order of visit only impacts how far ahead components
+ * are prefetched. A component which is not prefetched is tracked synchronously. The MDC of the task is propagated
+ * to the threads of the pool, so that their logs keep the context of the task.
+ * </p>
+ */
+public class TrackerExecution implements Startable {
+
+  static final int BATCH_SIZE = 100;
+  /**
+   * Maximum number of batches loaded or tracked ahead of the visited component, in order to bound memory usage.
+   */
+  private static final int MAX_BATCHES_AHEAD = 4;
 
   private final TrackerBaseInputFactory baseInputFactory;
   private final TrackerRawInputFactory rawInputFactory;
   private final Tracker<DefaultIssue, DefaultIssue> tracker;
+  private final TreeRootHolder treeRootHolder;
+
+  // state, initialized when the first component is tracked
+  @CheckForNull
+  private List<Component> components;
+  private int nextBatchStart = 0;
+  private final Map<String, CompletableFuture<PrefetchedTracking>> prefetchedByUuid = new HashMap<>();
+  @CheckForNull
+  private ExecutorService executorService;
 
   public TrackerExecution(TrackerBaseInputFactory baseInputFactory, TrackerRawInputFactory rawInputFactory,
-    Tracker<DefaultIssue, DefaultIssue> tracker) {
+    Tracker<DefaultIssue, DefaultIssue> tracker, TreeRootHolder treeRootHolder) {
     this.baseInputFactory = baseInputFactory;
     this.rawInputFactory = rawInputFactory;
     this.tracker = tracker;
+    this.treeRootHolder = treeRootHolder;
+  }
+
+  @Override
+  public void start() {
+    // nothing to do, components are prefetched when the first one is tracked
+  }
+
+  @Override
+  public void stop() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
   }
 
   public Tracking<DefaultIssue, DefaultIssue> track(Component component) {
-    return tracker.track(rawInputFactory.create(component), baseInputFactory.create(component));
+    if (components == null) {
+      components = listComponentsInVisitOrder(treeRootHolder.getRoot());
+      prefetch();
+    }
+
+    CompletableFuture<PrefetchedTracking> prefetched = prefetchedByUuid.remove(component.getUuid());
+    if (prefetched == null) {
+      return tracker.track(rawInputFactory.create(component), baseInputFactory.create(component));
+    }
+    prefetch();
+
+    PrefetchedTracking prefetchedTracking = join(prefetched);
+    List<DefaultIssue> commonRuleIssues = rawInputFactory.loadCommonRuleIssues(component);
+    if (commonRuleIssues.isEmpty()) {
+      return prefetchedTracking.tracking;
+    }
+    // tracking depends on the order of raw issues, which are the same as in create(Component)
+    return tracker.track(rawInputFactory.withCommonRuleIssues(prefetchedTracking.rawInput, commonRuleIssues), prefetchedTracking.baseInput);
+  }
+
+  private static List<Component> listComponentsInVisitOrder(Component root) {
+    List<Component> result = new ArrayList<>();
+    new DepthTraversalTypeAwareCrawler(
+      new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, POST_ORDER) {
+        @Override
+        public void visitAny(Component component) {
+          result.add(component);
+        }
+      }).visit(root);
+    return result;
+  }
+
+  private void prefetch() {
+    while (nextBatchStart < components.size() && prefetchedByUuid.size() < MAX_BATCHES_AHEAD * BATCH_SIZE) {
+      int batchEnd = Math.min(nextBatchStart + BATCH_SIZE, components.size());
+      prefetchBatch(components.subList(nextBatchStart, batchEnd));
+      nextBatchStart = batchEnd;
+    }
+    if (nextBatchStart == components.size() && executorService != null) {
+      // all components are prefetched, threads are released once the pending tasks are done
+      executorService.shutdown();
+    }
+  }
+
+  private void prefetchBatch(List<Component> batch) {
+    ExecutorService executor = getOrCreateExecutorService();
+    Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+    CompletableFuture<List<Input<DefaultIssue>>> baseInputs = CompletableFuture.supplyAsync(
+      () -> withMdc(mdcContext, () -> baseInputFactory.create(batch)), executor);
+    for (int i = 0; i < batch.size(); i++) {
+      Component component = batch.get(i);
+      int index = i;
+      CompletableFuture<PrefetchedTracking> future = baseInputs.thenApplyAsync(inputs -> withMdc(mdcContext, () -> {
+        Input<DefaultIssue> rawInput = rawInputFactory.createWithoutCommonRuleIssues(component);
+        Input<DefaultIssue> baseInput = inputs.get(index);
+        return new PrefetchedTracking(rawInput, baseInput, tracker.track(rawInput, baseInput));
+      }), executor);
+      prefetchedByUuid.put(component.getUuid(), future);
+    }
+  }
+
+  private static <T> T withMdc(@Nullable Map<String, String> mdcContext, Supplier<T> supplier) {
+    MDC.setContextMap(mdcContext == null ? Collections.emptyMap() : mdcContext);
+    try {
+      return supplier.get();
+    } finally {
+      MDC.clear();
+    }
+  }
+
+  private ExecutorService getOrCreateExecutorService() {
+    if (executorService == null) {
+      executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+        new ThreadFactoryBuilder()
+          .setDaemon(true)
+          .setNameFormat("IssueTracking-%d")
+          .build());
+    }
+    return executorService;
+  }
+
+  private static PrefetchedTracking join(CompletableFuture<PrefetchedTracking> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  private static final class PrefetchedTracking {
+    private final Input<DefaultIssue> rawInput;
+    private final Input<DefaultIssue> baseInput;
+    private final Tracking<DefaultIssue, DefaultIssue> tracking;
+
+    private PrefetchedTracking(Input<DefaultIssue> rawInput, Input<DefaultIssue> baseInput, Tracking<DefaultIssue, DefaultIssue> tracking) {
+      this.rawInput = rawInput;
+      this.baseInput = baseInput;
+      this.tracking = tracking;
+    }
   }
 }
@@ -20,12 +20,14 @@
 package org.sonar.server.computation.task.projectanalysis.issue;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.BlockHashSequence;
 import org.sonar.core.issue.tracking.Input;
 import org.sonar.core.issue.tracking.LazyInput;
 import org.sonar.core.issue.tracking.LineHashSequence;
@@ -63,14 +65,81 @@ public class TrackerRawInputFactory {
   }
 
   public Input<DefaultIssue> create(Component component) {
-    return new RawLazyInput(component);
+    return new RawLazyInput(component, true);
+  }
+
+  /**
+   * Same as {@link #create(Component)} but without the issues raised by common rules. Contrary to them, issues
+   * of the analysis report do not depend on measures of the component, so the input can be loaded before the
+   * component is visited, from any thread.
+   *
+   * @see #loadCommonRuleIssues(Component)
+   * @see #withCommonRuleIssues(Input, List)
+   */
+  public Input<DefaultIssue> createWithoutCommonRuleIssues(Component component) {
+    return new RawLazyInput(component, false);
+  }
+
+  /**
+   * Issues raised by common rules on the specified component, as returned by {@link #create(Component)}.
+   */
+  public List<DefaultIssue> loadCommonRuleIssues(Component component) {
+    List<DefaultIssue> result = new ArrayList<>();
+    for (DefaultIssue commonRuleIssue : commonRuleEngine.process(component)) {
+      if (issueFilter.accept(commonRuleIssue, component)) {
+        result.add(init(commonRuleIssue, component));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Input made of the issues of common rules followed by the issues of an input created by
+   * {@link #createWithoutCommonRuleIssues(Component)}, as returned by {@link #create(Component)}. Line hashes
+   * are the ones of the latter.
+   */
+  public Input<DefaultIssue> withCommonRuleIssues(Input<DefaultIssue> input, List<DefaultIssue> commonRuleIssues) {
+    if (commonRuleIssues.isEmpty()) {
+      return input;
+    }
+    List<DefaultIssue> issues = new ArrayList<>(commonRuleIssues.size() + input.getIssues().size());
+    issues.addAll(commonRuleIssues);
+    issues.addAll(input.getIssues());
+    return new Input<DefaultIssue>() {
+      @Override
+      public LineHashSequence getLineHashSequence() {
+        return input.getLineHashSequence();
+      }
+
+      @Override
+      public BlockHashSequence getBlockHashSequence() {
+        return input.getBlockHashSequence();
+      }
+
+      @Override
+      public Collection<DefaultIssue> getIssues() {
+        return issues;
+      }
+    };
+  }
+
+  private DefaultIssue init(DefaultIssue issue, Component component) {
+    issue.setResolution(null);
+    issue.setStatus(Issue.STATUS_OPEN);
+    issue.setComponentUuid(component.getUuid());
+    issue.setComponentKey(component.getKey());
+    issue.setProjectUuid(treeRootHolder.getRoot().getUuid());
+    issue.setProjectKey(treeRootHolder.getRoot().getKey());
+    return issue;
   }
 
   private class RawLazyInput extends LazyInput<DefaultIssue> {
     private final Component component;
+    private final boolean withCommonRuleIssues;
 
-    private RawLazyInput(Component component) {
+    private RawLazyInput(Component component, boolean withCommonRuleIssues) {
       this.component = component;
+      this.withCommonRuleIssues = withCommonRuleIssues;
     }
 
     @Override
@@ -86,13 +155,7 @@ public class TrackerRawInputFactory {
 
     @Override
     protected List<DefaultIssue> loadIssues() {
-      List<DefaultIssue> result = new ArrayList<>();
-
-      for (DefaultIssue commonRuleIssue : commonRuleEngine.process(component)) {
-        if (issueFilter.accept(commonRuleIssue, component)) {
-          result.add(init(commonRuleIssue));
-        }
-      }
+      List<DefaultIssue> result = withCommonRuleIssues ? loadCommonRuleIssues(component) : new ArrayList<>();
       try (CloseableIterator<ScannerReport.Issue> reportIssues = reportReader.readComponentIssues(component.getReportAttributes().getRef())) {
         // optimization - do not load line hashes if there are no issues -> getLineHashSequence() is executed
         // as late as possible
@@ -120,7 +183,7 @@ public class TrackerRawInputFactory {
 
     private DefaultIssue toIssue(LineHashSequence lineHashSeq, ScannerReport.Issue reportIssue) {
       DefaultIssue issue = new DefaultIssue();
-      init(issue);
+      init(issue, component);
       issue.setRuleKey(RuleKey.of(reportIssue.getRuleRepository(), reportIssue.getRuleKey()));
       if (reportIssue.hasTextRange()) {
         int startLine = reportIssue.getTextRange().getStartLine();
@@ -155,16 +218,6 @@ public class TrackerRawInputFactory {
       return issue;
     }
 
-    private DefaultIssue init(DefaultIssue issue) {
-      issue.setResolution(null);
-      issue.setStatus(Issue.STATUS_OPEN);
-      issue.setComponentUuid(component.getUuid());
-      issue.setComponentKey(component.getKey());
-      issue.setProjectUuid(treeRootHolder.getRoot().getUuid());
-      issue.setProjectKey(treeRootHolder.getRoot().getKey());
-      return issue;
-    }
-
     private DbIssues.Location convertLocation(ScannerReport.IssueLocation source) {
       DbIssues.Location.Builder target = DbIssues.Location.newBuilder();
       if (source.getComponentRef() != 0 && source.getComponentRef() != component.getReportAttributes().getRef()) {
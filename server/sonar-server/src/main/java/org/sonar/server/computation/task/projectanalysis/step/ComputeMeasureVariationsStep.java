@@ -20,6 +20,9 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -43,7 +46,6 @@ import org.sonar.server.computation.task.projectanalysis.measure.MeasureKey;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
-import org.sonar.server.computation.task.projectanalysis.period.Period;
 import org.sonar.server.computation.task.projectanalysis.period.PeriodHolder;
 import org.sonar.server.computation.task.step.ComputationStep;
 
@@ -63,6 +65,9 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
  */
 public class ComputeMeasureVariationsStep implements ComputationStep {
 
+  // measures on files are currently purged, so past measures are not available on files
+  private static final CrawlerDepthLimit VISITED_DEPTH = CrawlerDepthLimit.reportMaxDepth(DIRECTORY).withViewsMaxDepth(SUBVIEW);
+
   private final DbClient dbClient;
   private final TreeRootHolder treeRootHolder;
   private final PeriodHolder periodHolder;
@@ -80,24 +85,44 @@ public class ComputeMeasureVariationsStep implements ComputationStep {
 
   @Override
   public void execute() {
+    List<Metric> metrics = StreamSupport.stream(metricRepository.getAll().spliterator(), false).filter(isNumeric()).collect(MoreCollectors.toList());
+    ListMultimap<String, PastMeasureDto> pastMeasuresByComponentUuid = loadPastMeasures(metrics);
+    new DepthTraversalTypeAwareCrawler(new VariationMeasuresVisitor(pastMeasuresByComponentUuid, metrics))
+      .visit(treeRootHolder.getRoot());
+  }
+
+  /**
+   * Past measures of all the components are loaded at once, instead of one request per component
+   */
+  private ListMultimap<String, PastMeasureDto> loadPastMeasures(List<Metric> metrics) {
+    if (!periodHolder.hasPeriod()) {
+      return ImmutableListMultimap.of();
+    }
+    List<String> componentUuids = new ArrayList<>();
+    new DepthTraversalTypeAwareCrawler(
+      new TypeAwareVisitorAdapter(VISITED_DEPTH, PRE_ORDER) {
+        @Override
+        public void visitAny(Component component) {
+          componentUuids.add(component.getUuid());
+        }
+      }).visit(treeRootHolder.getRoot());
+    Set<Integer> metricIds = metrics.stream().map(Metric::getId).collect(MoreCollectors.toSet());
     try (DbSession dbSession = dbClient.openSession(false)) {
-      List<Metric> metrics = StreamSupport.stream(metricRepository.getAll().spliterator(), false).filter(isNumeric()).collect(MoreCollectors.toList());
-      new DepthTraversalTypeAwareCrawler(new VariationMeasuresVisitor(dbSession, metrics))
-        .visit(treeRootHolder.getRoot());
+      return dbClient.measureDao()
+        .selectPastMeasures(dbSession, componentUuids, periodHolder.getPeriod().getAnalysisUuid(), metricIds)
+        .stream()
+        .collect(MoreCollectors.index(PastMeasureDto::getComponentUuid));
     }
   }
 
   private class VariationMeasuresVisitor extends TypeAwareVisitorAdapter {
 
-    private final DbSession session;
-    private final Set<Integer> metricIds;
+    private final ListMultimap<String, PastMeasureDto> pastMeasuresByComponentUuid;
     private final List<Metric> metrics;
 
-    VariationMeasuresVisitor(DbSession session, List<Metric> metrics) {
-      // measures on files are currently purged, so past measures are not available on files
-      super(CrawlerDepthLimit.reportMaxDepth(DIRECTORY).withViewsMaxDepth(SUBVIEW), PRE_ORDER);
-      this.session = session;
-      this.metricIds = metrics.stream().map(Metric::getId).collect(MoreCollectors.toSet());
+    VariationMeasuresVisitor(ListMultimap<String, PastMeasureDto> pastMeasuresByComponentUuid, List<Metric> metrics) {
+      super(VISITED_DEPTH, PRE_ORDER);
+      this.pastMeasuresByComponentUuid = pastMeasuresByComponentUuid;
       this.metrics = metrics;
     }
 
@@ -110,10 +135,7 @@ public class ComputeMeasureVariationsStep implements ComputationStep {
     private MeasuresWithVariationRepository computeMeasuresWithVariations(Component component) {
       MeasuresWithVariationRepository measuresWithVariationRepository = new MeasuresWithVariationRepository();
       if (periodHolder.hasPeriod()) {
-        Period period = periodHolder.getPeriod();
-        List<PastMeasureDto> pastMeasures = dbClient.measureDao()
-          .selectPastMeasures(session, component.getUuid(), period.getAnalysisUuid(), metricIds);
-        setVariationMeasures(component, pastMeasures, measuresWithVariationRepository);
+        setVariationMeasures(component, pastMeasuresByComponentUuid.get(component.getUuid()), measuresWithVariationRepository);
       }
       return measuresWithVariationRepository;
     }
@@ -19,21 +19,33 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import java.util.Set;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.issue.IssuesToIndexHolder;
 import org.sonar.server.computation.task.step.ComputationStep;
 import org.sonar.server.es.ProjectIndexer;
+import org.sonar.server.issue.index.IssueIndexer;
 
+/**
+ * Indexes the project in all the {@link ProjectIndexer}s. Issues are indexed incrementally: only the issues
+ * persisted by the analysis are indexed, unless {@link IssuesToIndexHolder#isProjectReindexRequired()}.
+ */
 public class IndexAnalysisStep implements ComputationStep {
 
   private static final Logger LOGGER = Loggers.get(IndexAnalysisStep.class);
 
   private final TreeRootHolder treeRootHolder;
+  private final IssuesToIndexHolder issuesToIndexHolder;
+  private final IssueIndexer issueIndexer;
   private final ProjectIndexer[] indexers;
 
-  public IndexAnalysisStep(TreeRootHolder treeRootHolder, ProjectIndexer... indexers) {
+  public IndexAnalysisStep(TreeRootHolder treeRootHolder, IssuesToIndexHolder issuesToIndexHolder, IssueIndexer issueIndexer,
+    ProjectIndexer... indexers) {
     this.treeRootHolder = treeRootHolder;
+    this.issuesToIndexHolder = issuesToIndexHolder;
+    this.issueIndexer = issueIndexer;
     this.indexers = indexers;
   }
 
@@ -41,8 +53,20 @@ public class IndexAnalysisStep implements ComputationStep {
   public void execute() {
     String projectUuid = treeRootHolder.getRoot().getUuid();
     for (ProjectIndexer indexer : indexers) {
-      LOGGER.debug("Call {}", indexer);
-      indexer.indexProject(projectUuid, ProjectIndexer.Cause.NEW_ANALYSIS);
+      if (indexer == issueIndexer && !issuesToIndexHolder.isProjectReindexRequired()) {
+        indexIssues();
+      } else {
+        LOGGER.debug("Call {}", indexer);
+        indexer.indexProject(projectUuid, ProjectIndexer.Cause.NEW_ANALYSIS);
+      }
+    }
+  }
+
+  private void indexIssues() {
+    Set<String> issueKeys = issuesToIndexHolder.getIssueKeys();
+    LOGGER.debug("Index {} issues", issueKeys.size());
+    if (!issueKeys.isEmpty()) {
+      issueIndexer.index(issueKeys);
     }
   }
 
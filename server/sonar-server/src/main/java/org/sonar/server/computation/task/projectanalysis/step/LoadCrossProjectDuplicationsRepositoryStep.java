@@ -20,8 +20,16 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Function;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nonnull;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
@@ -58,6 +66,8 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
 
   private static final Logger LOGGER = Loggers.get(LoadCrossProjectDuplicationsRepositoryStep.class);
 
+  static final int FILES_BATCH_SIZE = 100;
+
   private final TreeRootHolder treeRootHolder;
   private final BatchReportReader reportReader;
   private final AnalysisMetadataHolder analysisMetadataHolder;
@@ -79,7 +89,9 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
   @Override
   public void execute() {
     if (crossProjectDuplicationStatusHolder.isEnabled()) {
-      new DepthTraversalTypeAwareCrawler(new CrossProjectDuplicationVisitor()).visit(treeRootHolder.getRoot());
+      CrossProjectDuplicationVisitor visitor = new CrossProjectDuplicationVisitor();
+      new DepthTraversalTypeAwareCrawler(visitor).visit(treeRootHolder.getRoot());
+      visitor.loadPendingFiles();
     }
   }
 
@@ -88,7 +100,12 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
     return "Compute cross project duplications";
   }
 
+  /**
+   * Files are processed by batches of {@link #FILES_BATCH_SIZE}, so that the candidates of all the files of a batch
+   * sharing the same language are loaded by the same requests.
+   */
   private class CrossProjectDuplicationVisitor extends TypeAwareVisitorAdapter {
+    private final List<Component> pendingFiles = new ArrayList<>(FILES_BATCH_SIZE);
 
     private CrossProjectDuplicationVisitor() {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
@@ -96,14 +113,66 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
 
     @Override
     public void visitFile(Component file) {
-      List<CpdTextBlock> cpdTextBlocks = newArrayList(reportReader.readCpdTextBlocks(file.getReportAttributes().getRef()));
-      LOGGER.trace("Found {} cpd blocks on file {}", cpdTextBlocks.size(), file.getKey());
-      if (cpdTextBlocks.isEmpty()) {
+      pendingFiles.add(file);
+      if (pendingFiles.size() >= FILES_BATCH_SIZE) {
+        loadPendingFiles();
+      }
+    }
+
+    private void loadPendingFiles() {
+      if (pendingFiles.isEmpty()) {
+        return;
+      }
+      Map<Component, List<CpdTextBlock>> cpdTextBlocksByFile = new LinkedHashMap<>();
+      for (Component file : pendingFiles) {
+        List<CpdTextBlock> cpdTextBlocks = newArrayList(reportReader.readCpdTextBlocks(file.getReportAttributes().getRef()));
+        LOGGER.trace("Found {} cpd blocks on file {}", cpdTextBlocks.size(), file.getKey());
+        if (!cpdTextBlocks.isEmpty()) {
+          cpdTextBlocksByFile.put(file, cpdTextBlocks);
+        }
+      }
+      pendingFiles.clear();
+      if (cpdTextBlocksByFile.isEmpty()) {
         return;
       }
 
-      Collection<String> hashes = from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toList();
-      List<DuplicationUnitDto> dtos = selectDuplicates(file, hashes);
+      Map<String, ListMultimap<String, DuplicationUnitDto>> candidatesByHashByLanguage = selectCandidates(cpdTextBlocksByFile);
+      for (Map.Entry<Component, List<CpdTextBlock>> entry : cpdTextBlocksByFile.entrySet()) {
+        ListMultimap<String, DuplicationUnitDto> candidatesByHash = candidatesByHashByLanguage.get(entry.getKey().getFileAttributes().getLanguageKey());
+        if (candidatesByHash != null) {
+          computeCpd(entry.getKey(), entry.getValue(), candidatesByHash);
+        }
+      }
+    }
+
+    private Map<String, ListMultimap<String, DuplicationUnitDto>> selectCandidates(Map<Component, List<CpdTextBlock>> cpdTextBlocksByFile) {
+      Map<String, Set<String>> hashesByLanguage = new HashMap<>();
+      for (Map.Entry<Component, List<CpdTextBlock>> entry : cpdTextBlocksByFile.entrySet()) {
+        String languageKey = entry.getKey().getFileAttributes().getLanguageKey();
+        if (languageKey != null) {
+          Set<String> hashes = hashesByLanguage.computeIfAbsent(languageKey, k -> new HashSet<>());
+          entry.getValue().forEach(cpdTextBlock -> hashes.add(cpdTextBlock.getHash()));
+        }
+      }
+
+      Map<String, ListMultimap<String, DuplicationUnitDto>> result = new HashMap<>();
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
+        String analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
+        for (Map.Entry<String, Set<String>> entry : hashesByLanguage.entrySet()) {
+          ListMultimap<String, DuplicationUnitDto> candidatesByHash = ArrayListMultimap.create();
+          dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, entry.getKey(), entry.getValue())
+            .forEach(dto -> candidatesByHash.put(dto.getHash(), dto));
+          result.put(entry.getKey(), candidatesByHash);
+        }
+      }
+      return result;
+    }
+
+    private void computeCpd(Component file, List<CpdTextBlock> cpdTextBlocks, ListMultimap<String, DuplicationUnitDto> candidatesByHash) {
+      Set<String> hashes = from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toSet();
+      List<DuplicationUnitDto> dtos = new ArrayList<>();
+      hashes.forEach(hash -> dtos.addAll(candidatesByHash.get(hash)));
       if (dtos.isEmpty()) {
         return;
       }
@@ -114,14 +183,6 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
 
       integrateCrossProjectDuplications.computeCpd(file, originBlocks, duplicatedBlocks);
     }
-
-    private List<DuplicationUnitDto> selectDuplicates(Component file, Collection<String> hashes) {
-      try (DbSession dbSession = dbClient.openSession(false)) {
-        Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
-        String analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
-        return dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, file.getFileAttributes().getLanguageKey(), hashes);
-      }
-    }
   }
 
   private enum CpdTextBlockToHash implements Function<CpdTextBlock, String> {
@@ -47,6 +47,7 @@ import org.sonar.server.computation.task.projectanalysis.component.PathAwareCraw
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareVisitor;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.issue.MutableIssuesToIndexHolder;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 import static com.google.common.collect.FluentIterable.from;
@@ -66,16 +67,19 @@ public class PersistComponentsStep implements ComputationStep {
   private final System2 system2;
   private final MutableDisabledComponentsHolder disabledComponentsHolder;
   private final AnalysisMetadataHolder analysisMetadataHolder;
+  private final MutableIssuesToIndexHolder issuesToIndexHolder;
 
   public PersistComponentsStep(DbClient dbClient, TreeRootHolder treeRootHolder,
     MutableDbIdsRepository dbIdsRepository, System2 system2,
-    MutableDisabledComponentsHolder disabledComponentsHolder, AnalysisMetadataHolder analysisMetadataHolder) {
+    MutableDisabledComponentsHolder disabledComponentsHolder, AnalysisMetadataHolder analysisMetadataHolder,
+    MutableIssuesToIndexHolder issuesToIndexHolder) {
     this.dbClient = dbClient;
     this.treeRootHolder = treeRootHolder;
     this.dbIdsRepository = dbIdsRepository;
     this.system2 = system2;
     this.disabledComponentsHolder = disabledComponentsHolder;
     this.analysisMetadataHolder = analysisMetadataHolder;
+    this.issuesToIndexHolder = issuesToIndexHolder;
   }
 
   @Override
@@ -211,6 +215,9 @@ public class PersistComponentsStep implements ComputationStep {
       if (update.isPresent()) {
         ComponentUpdateDto updateDto = update.get();
         dbClient.componentDao().update(dbSession, updateDto);
+        if (isIndexedInIssues(existingComponent, updateDto)) {
+          issuesToIndexHolder.requireProjectReindex();
+        }
 
         // update the fields in memory in order the PathAwareVisitor.Path
         // to be up-to-date
@@ -409,6 +416,14 @@ public class PersistComponentsStep implements ComputationStep {
     return Optional.ofNullable(update);
   }
 
+  /**
+   * Whether the fields of the component copied in the documents of the issues index are changed
+   */
+  private static boolean isIndexedInIssues(ComponentDto existing, ComponentUpdateDto update) {
+    return !StringUtils.equals(existing.path(), update.getBPath()) ||
+      !StringUtils.equals(existing.moduleUuidPath(), update.getBModuleUuidPath());
+  }
+
   private static String getFileQualifier(Component component) {
     return component.getFileAttributes().isUnitTest() ? Qualifiers.UNIT_TEST_FILE : Qualifiers.FILE;
   }
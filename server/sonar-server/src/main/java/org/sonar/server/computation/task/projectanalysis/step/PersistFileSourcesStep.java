@@ -21,10 +21,19 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.protobuf.Message;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -44,6 +53,7 @@ import org.sonar.server.computation.task.projectanalysis.component.DepthTraversa
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepository;
+import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
 import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfo;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepository;
@@ -56,11 +66,18 @@ import org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConve
 import org.sonar.server.computation.task.projectanalysis.source.ScmLineReader;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SymbolsLineReader;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
-public class PersistFileSourcesStep implements ComputationStep {
+public class PersistFileSourcesStep implements ConcurrentComputationStep {
+
+  /**
+   * Version of the computation of sources, included in FILE_SOURCES.INPUTS_HASH. It must be incremented when
+   * the data computed from the same inputs changes, so that the sources of all the files are computed again.
+   */
+  private static final int INPUTS_HASH_VERSION = 1;
 
   private final DbClient dbClient;
   private final System2 system2;
@@ -114,21 +131,79 @@ public class PersistFileSourcesStep implements ComputationStep {
 
     @Override
     public void visitFile(Component file) {
+      try {
+        String inputsHash = computeInputsHash(file);
+        FileSourceDto previousDto = previousFileSourcesByUuid.get(file.getUuid());
+        // line data is not computed if none of its inputs changed since the previous analysis
+        if (previousDto == null || !inputsHash.equals(previousDto.getInputsHash())) {
+          computeAndPersistSource(file, inputsHash);
+        }
+      } catch (Exception e) {
+        throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
+      }
+    }
+
+    private void computeAndPersistSource(Component file, String inputsHash) {
       CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file);
       LineReaders lineReaders = new LineReaders(reportReader, scmInfoRepository, duplicationRepository, file);
       try {
         ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), file.getFileAttributes().getLines());
         ComputeFileSourceData.Data fileSourceData = computeFileSourceData.compute();
-        persistSource(fileSourceData, file.getUuid(), lineReaders.getLatestChange());
-      } catch (Exception e) {
-        throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
+        persistSource(fileSourceData, file.getUuid(), lineReaders.getLatestChange(), inputsHash);
       } finally {
         linesIterator.close();
         lineReaders.close();
       }
     }
 
-    private void persistSource(ComputeFileSourceData.Data fileSourceData, String componentUuid, @Nullable Changeset latestChange) {
+    /**
+     * Hash of all the data read by {@link #computeAndPersistSource(Component, String)}: source lines, coverage,
+     * highlighting, symbols, SCM and duplicated blocks of the file. Report data are hashed while they are streamed,
+     * so that nothing is kept in memory for unchanged files. They are read again only when the hash differs.
+     * <p>
+     * Each element of a section is preceded by a marker and each section ends with another one, so that an element
+     * can not be taken for one of the next section.
+     * </p>
+     */
+    private String computeInputsHash(Component file) throws IOException {
+      Hasher hasher = Hashing.md5().newHasher()
+        .putInt(INPUTS_HASH_VERSION)
+        .putInt(file.getFileAttributes().getLines());
+      try (CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file)) {
+        while (linesIterator.hasNext()) {
+          hasher.putBoolean(true);
+          putString(hasher, linesIterator.next());
+        }
+        hasher.putBoolean(false);
+      }
+
+      int componentRef = file.getReportAttributes().getRef();
+      putMessages(hasher, reportReader.readComponentCoverage(componentRef));
+      putMessages(hasher, reportReader.readComponentSyntaxHighlighting(componentRef));
+      putMessages(hasher, reportReader.readComponentSymbols(componentRef));
+
+      Optional<ScmInfo> scmInfo = scmInfoRepository.getScmInfo(file);
+      hasher.putBoolean(scmInfo.isPresent());
+      if (scmInfo.isPresent()) {
+        for (Changeset changeset : scmInfo.get().getAllChangesets()) {
+          hasher.putBoolean(true);
+          putString(hasher, changeset.getRevision());
+          putString(hasher, changeset.getAuthor());
+          hasher.putLong(changeset.getDate());
+        }
+        hasher.putBoolean(false);
+      }
+
+      List<TextBlock> textBlocks = DuplicationLineReader.extractAllDuplicatedTextBlocks(duplicationRepository.getDuplications(file));
+      Collections.sort(textBlocks);
+      hasher.putInt(textBlocks.size());
+      for (TextBlock textBlock : textBlocks) {
+        hasher.putInt(textBlock.getStart()).putInt(textBlock.getEnd());
+      }
+      return hasher.hash().toString();
+    }
+
+    private void persistSource(ComputeFileSourceData.Data fileSourceData, String componentUuid, @Nullable Changeset latestChange, String inputsHash) {
       DbFileSources.Data fileData = fileSourceData.getFileSourceData();
 
       byte[] data = FileSourceDto.encodeSourceData(fileData);
@@ -148,22 +223,25 @@ public class PersistFileSourcesStep implements ComputationStep {
           .setLineHashes(lineHashes)
           .setCreatedAt(system2.now())
           .setUpdatedAt(system2.now())
-          .setRevision(computeRevision(latestChange));
+          .setRevision(computeRevision(latestChange))
+          .setInputsHash(inputsHash);
         dbClient.fileSourceDao().insert(session, dto);
         session.commit();
       } else {
-        // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
+        // Update only if data_hash has changed or if src_hash, revision or inputs_hash is missing (progressive migration)
         boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
         boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
         String revision = computeRevision(latestChange);
         boolean revisionUpdated = !ObjectUtils.equals(revision, previousDto.getRevision());
-        if (binaryDataUpdated || srcHashUpdated || revisionUpdated) {
+        boolean inputsHashUpdated = !inputsHash.equals(previousDto.getInputsHash());
+        if (binaryDataUpdated || srcHashUpdated || revisionUpdated || inputsHashUpdated) {
           previousDto
             .setBinaryData(data)
             .setDataHash(dataHash)
             .setSrcHash(srcHash)
             .setLineHashes(lineHashes)
             .setRevision(revision)
+            .setInputsHash(inputsHash)
             .setUpdatedAt(system2.now());
           dbClient.fileSourceDao().update(session, previousDto);
           session.commit();
@@ -180,6 +258,27 @@ public class PersistFileSourcesStep implements ComputationStep {
     }
   }
 
+  private static void putString(Hasher hasher, @Nullable String s) {
+    hasher.putBoolean(s != null);
+    if (s != null) {
+      hasher.putInt(s.length()).putString(s, UTF_8);
+    }
+  }
+
+  /**
+   * Messages are written to the hasher in their delimited binary format, without being serialized to byte arrays.
+   */
+  private static void putMessages(Hasher hasher, CloseableIterator<? extends Message> messages) throws IOException {
+    try (CloseableIterator<? extends Message> it = messages) {
+      OutputStream output = Funnels.asOutputStream(hasher);
+      while (it.hasNext()) {
+        hasher.putBoolean(true);
+        it.next().writeDelimitedTo(output);
+      }
+      hasher.putBoolean(false);
+    }
+  }
+
   private static class LineReaders {
     private final List<LineReader> readers = new ArrayList<>();
     private final List<CloseableIterator<?>> closeables = new ArrayList<>();
@@ -231,6 +330,16 @@ public class PersistFileSourcesStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<Object> reads() {
+    return ImmutableSet.of(TreeRootHolder.class, BatchReportReader.class, SourceLinesRepository.class, ScmInfoRepository.class, DuplicationRepository.class);
+  }
+
+  @Override
+  public Set<Object> writes() {
+    return ImmutableSet.of(Type.SOURCE);
+  }
+
   @Override
   public String getDescription() {
     return "Persist sources";
@@ -19,6 +19,8 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
 import org.sonar.api.issue.IssueComment;
 import org.sonar.api.utils.System2;
 import org.sonar.core.issue.DefaultIssue;
@@ -27,30 +29,36 @@ import org.sonar.core.issue.FieldDiffs;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.issue.IssueChangeDao;
 import org.sonar.db.issue.IssueChangeDto;
 import org.sonar.db.issue.IssueChangeMapper;
+import org.sonar.db.issue.IssueDao;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.db.issue.IssueMapper;
 import org.sonar.server.computation.task.projectanalysis.issue.IssueCache;
+import org.sonar.server.computation.task.projectanalysis.issue.IssuesToIndexHolder;
+import org.sonar.server.computation.task.projectanalysis.issue.MutableIssuesToIndexHolder;
 import org.sonar.server.computation.task.projectanalysis.issue.RuleRepository;
 import org.sonar.server.computation.task.projectanalysis.issue.UpdateConflictResolver;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 
-public class PersistIssuesStep implements ComputationStep {
+public class PersistIssuesStep implements ConcurrentComputationStep {
 
   private final DbClient dbClient;
   private final System2 system2;
   private final UpdateConflictResolver conflictResolver;
   private final RuleRepository ruleRepository;
   private final IssueCache issueCache;
+  private final MutableIssuesToIndexHolder issuesToIndexHolder;
 
   public PersistIssuesStep(DbClient dbClient, System2 system2, UpdateConflictResolver conflictResolver,
-    RuleRepository ruleRepository, IssueCache issueCache) {
+    RuleRepository ruleRepository, IssueCache issueCache, MutableIssuesToIndexHolder issuesToIndexHolder) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.conflictResolver = conflictResolver;
     this.ruleRepository = ruleRepository;
     this.issueCache = issueCache;
+    this.issuesToIndexHolder = issuesToIndexHolder;
   }
 
   @Override
@@ -65,6 +73,7 @@ public class PersistIssuesStep implements ComputationStep {
         boolean saved = persistIssueIfRequired(mapper, issue);
         if (saved) {
           insertChanges(changeMapper, issue);
+          issuesToIndexHolder.addIssueKey(issue.key());
         }
       }
       dbSession.flushStatements();
@@ -115,6 +124,16 @@ public class PersistIssuesStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<Object> reads() {
+    return ImmutableSet.of(IssueCache.class, RuleRepository.class);
+  }
+
+  @Override
+  public Set<Object> writes() {
+    return ImmutableSet.of(IssueDao.class, IssueChangeDao.class, IssuesToIndexHolder.class);
+  }
+
   @Override
   public String getDescription() {
     return "Persist issues";
@@ -22,11 +22,16 @@ package org.sonar.server.computation.task.projectanalysis.step;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nonnull;
+import org.sonar.api.config.Settings;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.measure.MeasureDao;
@@ -42,15 +47,26 @@ import org.sonar.server.computation.task.projectanalysis.measure.MeasureReposito
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureToMeasureDto;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.FluentIterable.from;
 import static org.sonar.api.measures.CoreMetrics.CLASS_COMPLEXITY_DISTRIBUTION_KEY;
 import static org.sonar.api.measures.CoreMetrics.FILE_COMPLEXITY_DISTRIBUTION_KEY;
 import static org.sonar.api.measures.CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION_KEY;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
-public class PersistMeasuresStep implements ComputationStep {
+/**
+ * Measures are inserted by chunks of {@link #CHUNK_SIZE_PROPERTY} rows (default {@link #DEFAULT_CHUNK_SIZE}), sorted
+ * by metric and component so that consecutive rows of a JDBC batch are close in the index (analysis_uuid, metric_id)
+ * of table project_measures.
+ */
+public class PersistMeasuresStep implements ConcurrentComputationStep {
+
+  static final String CHUNK_SIZE_PROPERTY = "sonar.ce.persistMeasures.chunkSize";
+  static final int DEFAULT_CHUNK_SIZE = 1_000;
+  private static final Comparator<MeasureDto> INSERT_ORDER = Comparator.comparingInt(MeasureDto::getMetricId)
+    .thenComparing(MeasureDto::getComponentUuid);
 
   /**
    * List of metrics that should not be persisted on file measure (Waiting for SONAR-6688 to be implemented)
@@ -65,14 +81,26 @@ public class PersistMeasuresStep implements ComputationStep {
   private final MeasureToMeasureDto measureToMeasureDto;
   private final TreeRootHolder treeRootHolder;
   private final MeasureRepository measureRepository;
+  private final Settings settings;
 
   public PersistMeasuresStep(DbClient dbClient, MetricRepository metricRepository, MeasureToMeasureDto measureToMeasureDto,
-    TreeRootHolder treeRootHolder, MeasureRepository measureRepository) {
+    TreeRootHolder treeRootHolder, MeasureRepository measureRepository, Settings settings) {
     this.dbClient = dbClient;
     this.metricRepository = metricRepository;
     this.measureToMeasureDto = measureToMeasureDto;
     this.treeRootHolder = treeRootHolder;
     this.measureRepository = measureRepository;
+    this.settings = settings;
+  }
+
+  @Override
+  public Set<Object> reads() {
+    return ImmutableSet.of(TreeRootHolder.class, MetricRepository.class, MeasureRepository.class);
+  }
+
+  @Override
+  public Set<Object> writes() {
+    return ImmutableSet.of(MeasureDao.class);
   }
 
   @Override
@@ -82,21 +110,26 @@ public class PersistMeasuresStep implements ComputationStep {
 
   @Override
   public void execute() {
-    DbSession dbSession = dbClient.openSession(true);
-    try {
-      new DepthTraversalTypeAwareCrawler(new MeasureVisitor(dbSession)).visit(treeRootHolder.getRoot());
+    int chunkSize = settings.hasKey(CHUNK_SIZE_PROPERTY) ? settings.getInt(CHUNK_SIZE_PROPERTY) : DEFAULT_CHUNK_SIZE;
+    checkArgument(chunkSize > 0, "Property %s must be positive: %s", CHUNK_SIZE_PROPERTY, chunkSize);
+    try (DbSession dbSession = dbClient.openSession(true)) {
+      MeasureVisitor visitor = new MeasureVisitor(dbSession, chunkSize);
+      new DepthTraversalTypeAwareCrawler(visitor).visit(treeRootHolder.getRoot());
+      visitor.flush();
       dbSession.commit();
-    } finally {
-      dbSession.close();
     }
   }
 
   private class MeasureVisitor extends TypeAwareVisitorAdapter {
     private final DbSession session;
+    private final int chunkSize;
+    private final List<MeasureDto> chunk;
 
-    private MeasureVisitor(DbSession session) {
+    private MeasureVisitor(DbSession session, int chunkSize) {
       super(CrawlerDepthLimit.LEAVES, PRE_ORDER);
       this.session = session;
+      this.chunkSize = chunkSize;
+      this.chunk = new ArrayList<>(chunkSize);
     }
 
     @Override
@@ -105,6 +138,23 @@ public class PersistMeasuresStep implements ComputationStep {
       persistMeasures(component, measures);
     }
 
+    private void add(MeasureDto measureDto) {
+      chunk.add(measureDto);
+      if (chunk.size() >= chunkSize) {
+        flush();
+      }
+    }
+
+    private void flush() {
+      if (chunk.isEmpty()) {
+        return;
+      }
+      chunk.sort(INSERT_ORDER);
+      dbClient.measureDao().insert(session, chunk);
+      session.flushStatements();
+      chunk.clear();
+    }
+
     private void persistMeasures(Component component, Multimap<String, Measure> batchReportMeasures) {
       for (Map.Entry<String, Collection<Measure>> measures : batchReportMeasures.asMap().entrySet()) {
         String metricKey = measures.getKey();
@@ -114,10 +164,8 @@ public class PersistMeasuresStep implements ComputationStep {
 
         Metric metric = metricRepository.getByKey(metricKey);
         Predicate<Measure> notBestValueOptimized = Predicates.not(BestValueOptimization.from(metric, component));
-        MeasureDao measureDao = dbClient.measureDao();
         for (Measure measure : from(measures.getValue()).filter(NonEmptyMeasure.INSTANCE).filter(notBestValueOptimized)) {
-          MeasureDto measureDto = measureToMeasureDto.toMeasureDto(measure, metric, component);
-          measureDao.insert(session, measureDto);
+          add(measureToMeasureDto.toMeasureDto(measure, metric, component));
         }
       }
     }
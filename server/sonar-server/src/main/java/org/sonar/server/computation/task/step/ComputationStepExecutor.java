@@ -19,8 +19,18 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.slf4j.MDC;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
@@ -59,11 +69,96 @@ public final class ComputationStepExecutor {
   }
 
   private void executeSteps(Profiler stepProfiler) {
+    List<ConcurrentComputationStep> concurrentSteps = new ArrayList<>();
     for (ComputationStep step : steps.instances()) {
-      stepProfiler.start();
-      step.execute();
-      stepProfiler.stopDebug(step.getDescription());
+      if (step instanceof ConcurrentComputationStep) {
+        concurrentSteps.add((ConcurrentComputationStep) step);
+      } else {
+        executeConcurrently(concurrentSteps, stepProfiler);
+        concurrentSteps.clear();
+        executeStep(step, stepProfiler);
+      }
+    }
+    executeConcurrently(concurrentSteps, stepProfiler);
+  }
+
+  private static void executeStep(ComputationStep step, Profiler stepProfiler) {
+    stepProfiler.start();
+    step.execute();
+    stepProfiler.stopDebug(step.getDescription());
+  }
+
+  /**
+   * Executes the specified steps on a pool bounded by the number of processors. Each step is started as soon as the
+   * steps it depends on (see {@link #dependsOn(ConcurrentComputationStep, ConcurrentComputationStep)}) are done.
+   */
+  private static void executeConcurrently(List<ConcurrentComputationStep> concurrentSteps, Profiler stepProfiler) {
+    if (concurrentSteps.isEmpty()) {
+      return;
+    }
+    if (concurrentSteps.size() == 1) {
+      executeStep(concurrentSteps.get(0), stepProfiler);
+      return;
+    }
+
+    int poolSize = Math.min(concurrentSteps.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService executorService = Executors.newFixedThreadPool(poolSize,
+      new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("CE_Steps-%d")
+        .build());
+    try {
+      Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+      List<CompletableFuture<Void>> futures = new ArrayList<>(concurrentSteps.size());
+      for (int i = 0; i < concurrentSteps.size(); i++) {
+        ConcurrentComputationStep step = concurrentSteps.get(i);
+        List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+        for (int j = 0; j < i; j++) {
+          if (dependsOn(step, concurrentSteps.get(j))) {
+            dependencies.add(futures.get(j));
+          }
+        }
+        futures.add(CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[dependencies.size()]))
+          .thenRunAsync(() -> executeInWorker(step, mdcContext), executorService));
+      }
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).join();
+    } catch (CompletionException e) {
+      throw rethrowCause(e);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private static void executeInWorker(ConcurrentComputationStep step, @Nullable Map<String, String> mdcContext) {
+    MDC.setContextMap(mdcContext == null ? Collections.emptyMap() : mdcContext);
+    try {
+      executeStep(step, Profiler.create(LOGGER));
+    } finally {
+      MDC.clear();
+    }
+  }
+
+  /**
+   * A step depends on a step declared before it when one of them writes data the other one reads or writes.
+   */
+  private static boolean dependsOn(ConcurrentComputationStep step, ConcurrentComputationStep previousStep) {
+    return !Collections.disjoint(previousStep.writes(), step.reads())
+      || !Collections.disjoint(previousStep.writes(), step.writes())
+      || !Collections.disjoint(previousStep.reads(), step.writes());
+  }
+
+  private static RuntimeException rethrowCause(CompletionException e) {
+    Throwable cause = e;
+    while (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
     }
+    throw new IllegalStateException(cause);
   }
 
   private void executeListener(boolean allStepsExecuted) {
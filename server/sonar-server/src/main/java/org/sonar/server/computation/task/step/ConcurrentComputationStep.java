@@ -0,0 +1,50 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import java.util.Set;
+
+/**
+ * A {@link ComputationStep} which can be executed concurrently with the other {@link ConcurrentComputationStep}
+ * it is declared next to in {@link ComputationSteps#orderedStepClasses()}.
+ * <p>
+ * Steps declare the data they read and write (typically the class of a holder, a repository or a DAO). Within a
+ * sequence of consecutive concurrent steps, {@link ComputationStepExecutor} only starts a step once every step
+ * declared before it and whose data conflicts with its own is done, which guarantees the same result as the
+ * sequential execution.
+ * </p>
+ * <p>
+ * Implementations must only read shared in-memory data which is not modified anymore and must use their own
+ * {@link org.sonar.db.DbSession}.
+ * </p>
+ */
+public interface ConcurrentComputationStep extends ComputationStep {
+
+  /**
+   * Keys of the data read by this step.
+   */
+  Set<Object> reads();
+
+  /**
+   * Keys of the data written by this step. A step conflicts with any other step which reads or writes any of
+   * these keys.
+   */
+  Set<Object> writes();
+}
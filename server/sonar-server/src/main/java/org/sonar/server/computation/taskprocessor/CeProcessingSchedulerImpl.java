@@ -22,7 +22,6 @@ package org.sonar.server.computation.taskprocessor;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListenableScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.CheckForNull;
@@ -32,25 +31,34 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.server.computation.configuration.CeConfiguration;
 
-import static com.google.common.util.concurrent.Futures.addCallback;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startable {
   private static final Logger LOG = Loggers.get(CeProcessingSchedulerImpl.class);
+  /**
+   * Idle workers are woken up when tasks are submitted, so polling of the queue is only a safety net. The delay
+   * between two polls of an idle worker is doubled each time the queue is empty, up to this factor of the configured
+   * polling delay.
+   */
+  private static final int MAX_DELAY_FACTOR = 8;
 
   private final CeProcessingSchedulerExecutorService executorService;
   private final CeWorkerCallable workerRunnable;
+  private final CeWorkerWakeUp workerWakeUp;
 
   private final long delayBetweenTasks;
+  private final long maxDelayBetweenTasks;
   private final TimeUnit timeUnit;
   private final ChainingCallback[] chainingCallbacks;
 
   public CeProcessingSchedulerImpl(CeConfiguration ceConfiguration,
-    CeProcessingSchedulerExecutorService processingExecutorService, CeWorkerCallable workerRunnable) {
+    CeProcessingSchedulerExecutorService processingExecutorService, CeWorkerCallable workerRunnable, CeWorkerWakeUp workerWakeUp) {
     this.executorService = processingExecutorService;
     this.workerRunnable = workerRunnable;
+    this.workerWakeUp = workerWakeUp;
 
     this.delayBetweenTasks = ceConfiguration.getQueuePollingDelay();
+    this.maxDelayBetweenTasks = delayBetweenTasks * MAX_DELAY_FACTOR;
     this.timeUnit = MILLISECONDS;
 
     int workerCount = ceConfiguration.getWorkerCount();
@@ -68,8 +76,14 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
   @Override
   public void startScheduling() {
     for (ChainingCallback chainingCallback : chainingCallbacks) {
-      ListenableScheduledFuture<Boolean> future = executorService.schedule(workerRunnable, delayBetweenTasks, timeUnit);
-      addCallback(future, chainingCallback, executorService);
+      chainingCallback.chainWithDelay();
+    }
+    workerWakeUp.register(this::wakeUpIdleWorkers);
+  }
+
+  private void wakeUpIdleWorkers() {
+    for (ChainingCallback chainingCallback : chainingCallbacks) {
+      chainingCallback.wakeUp();
     }
   }
 
@@ -82,8 +96,11 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
 
   private class ChainingCallback implements FutureCallback<Boolean> {
     private final AtomicBoolean keepRunning = new AtomicBoolean(true);
+    // true when the worker is idle, waiting for the delay before its next poll of the queue
+    private final AtomicBoolean waitingForDelay = new AtomicBoolean(false);
+    private long nextDelay = delayBetweenTasks;
     @CheckForNull
-    private ListenableFuture<Boolean> workerFuture;
+    private volatile ListenableFuture<Boolean> workerFuture;
 
     @Override
     public void onSuccess(@Nullable Boolean result) {
@@ -99,11 +116,13 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
       if (t instanceof Error) {
         LOG.error("Compute Engine execution failed. Scheduled processing interrupted.", t);
       } else {
+        // also called when the delayed poll is cancelled by wakeUp()
         chainWithoutDelay();
       }
     }
 
     private void chainWithoutDelay() {
+      nextDelay = delayBetweenTasks;
       if (keepRunning()) {
         workerFuture = executorService.submit(workerRunnable);
       }
@@ -112,14 +131,25 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
 
     private void chainWithDelay() {
       if (keepRunning()) {
-        workerFuture = executorService.schedule(workerRunnable, delayBetweenTasks, timeUnit);
+        workerFuture = executorService.schedule(this::callAfterDelay, nextDelay, timeUnit);
+        waitingForDelay.set(true);
+        nextDelay = Math.min(nextDelay * 2, maxDelayBetweenTasks);
       }
       addCallback();
     }
 
+    private Boolean callAfterDelay() throws Exception {
+      if (waitingForDelay.compareAndSet(true, false)) {
+        return workerRunnable.call();
+      }
+      // worker has been woken up meanwhile, the queue must be polled again without delay
+      return true;
+    }
+
     private void addCallback() {
-      if (workerFuture != null && keepRunning()) {
-        Futures.addCallback(workerFuture, this, executorService);
+      ListenableFuture<Boolean> future = workerFuture;
+      if (future != null && keepRunning()) {
+        Futures.addCallback(future, this, executorService);
       }
     }
 
@@ -127,10 +157,22 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
       return keepRunning.get();
     }
 
+    /**
+     * Cancels the pending delayed poll of the queue, if any, so that the queue is polled right away
+     * (see {@link #onFailure(Throwable)}). Has no effect if the worker is not idle.
+     */
+    private void wakeUp() {
+      ListenableFuture<Boolean> future = workerFuture;
+      if (future != null && waitingForDelay.compareAndSet(true, false)) {
+        future.cancel(false);
+      }
+    }
+
     public void stop() {
       this.keepRunning.set(false);
-      if (workerFuture != null) {
-        workerFuture.cancel(false);
+      ListenableFuture<Boolean> future = workerFuture;
+      if (future != null) {
+        future.cancel(false);
       }
     }
   }
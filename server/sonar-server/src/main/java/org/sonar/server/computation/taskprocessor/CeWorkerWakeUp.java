@@ -0,0 +1,43 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.taskprocessor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.sonar.ce.queue.CeQueueSubmitListener;
+
+/**
+ * Wakes up the idle workers of the Compute Engine when tasks are submitted, either by the queue of the Compute
+ * Engine itself or by the Web Server through HTTP. This component has no dependency so that it can be injected
+ * in the queue without creating a cycle with the {@link CeProcessingScheduler}.
+ */
+public class CeWorkerWakeUp implements CeQueueSubmitListener {
+
+  private final List<Runnable> wakeUpActions = new CopyOnWriteArrayList<>();
+
+  public void register(Runnable wakeUpAction) {
+    wakeUpActions.add(wakeUpAction);
+  }
+
+  @Override
+  public void onSubmit() {
+    wakeUpActions.forEach(Runnable::run);
+  }
+}
@@ -21,10 +21,15 @@ package org.sonar.server.es;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Semaphore;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
@@ -39,6 +44,7 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.sort.SortOrder;
@@ -52,9 +58,13 @@ import static java.lang.String.format;
 /**
  * Helper to bulk requests in an efficient way :
  * <ul>
- *   <li>bulk request is sent on the wire when its size is higher than 5Mb</li>
+ *   <li>bulk request is sent on the wire when its size is higher than a threshold, 1Mb at startup</li>
+ *   <li>size threshold and number of concurrent bulk requests are adapted to the response times of Elasticsearch
+ *   (see {@link BulkIndexerThrottle})</li>
+ *   <li>requests rejected by Elasticsearch because it is overloaded are retried with an exponential back-off</li>
  *   <li>on large table indexing, replicas and automatic refresh can be temporarily disabled</li>
  *   <li>index refresh is optional (enabled by default)</li>
+ *   <li>requests can be added concurrently by several threads, between {@link #start()} and {@link #stop()}</li>
  * </ul>
  */
 public class BulkIndexer implements Startable {
@@ -63,6 +73,9 @@ public class BulkIndexer implements Startable {
   private static final long FLUSH_BYTE_SIZE = new ByteSizeValue(1, ByteSizeUnit.MB).bytes();
   private static final String REFRESH_INTERVAL_SETTING = "index.refresh_interval";
   private static final String ALREADY_STARTED_MESSAGE = "Bulk indexing is already started";
+  private static final int MAX_RETRIES = 8;
+  private static final long INITIAL_RETRY_DELAY_MS = 100L;
+  private static final long STOP_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
 
   private final EsClient client;
   private final String indexName;
@@ -71,8 +84,9 @@ public class BulkIndexer implements Startable {
   private BulkRequestBuilder bulkRequest = null;
   private Map<String, Object> largeInitialSettings = null;
   private final AtomicLong counter = new AtomicLong(0L);
-  private final int concurrentRequests;
-  private final Semaphore semaphore;
+  private final BulkIndexingStats stats;
+  private BulkIndexerThrottle throttle = null;
+  private final Queue<PendingRetry> pendingRetries = new ConcurrentLinkedQueue<>();
   private final ProgressLogger progress;
 
   public BulkIndexer(EsClient client, String indexName) {
@@ -80,10 +94,7 @@ public class BulkIndexer implements Startable {
     this.indexName = indexName;
     this.progress = new ProgressLogger(format("Progress[BulkIndexer[%s]]", indexName), counter, LOGGER)
       .setPluralLabel("requests");
-
-    // see https://jira.sonarsource.com/browse/SONAR-8075
-    this.concurrentRequests = Math.max(1, Runtime.getRuntime().availableProcessors() / 5);
-    this.semaphore = new Semaphore(concurrentRequests);
+    this.stats = client.getBulkIndexingStats();
   }
 
   public enum Size {
@@ -131,16 +142,20 @@ public class BulkIndexer implements Startable {
 
       updateSettings(bulkSettings);
     }
+    // see https://jira.sonarsource.com/browse/SONAR-8075 for the initial number of concurrent requests
+    int cpus = Runtime.getRuntime().availableProcessors();
+    throttle = new BulkIndexerThrottle(flushByteSize, cpus / 5, cpus / 2);
     bulkRequest = client.prepareBulk().setRefresh(false);
     counter.set(0L);
     progress.start();
   }
 
-  public void add(ActionRequest<?> request) {
+  public synchronized void add(ActionRequest<?> request) {
     bulkRequest.request().add(request);
-    if (bulkRequest.request().estimatedSizeInBytes() >= flushByteSize) {
+    if (bulkRequest.request().estimatedSizeInBytes() >= throttle.getFlushByteSize()) {
       executeBulk();
     }
+    executeDueRetries();
   }
 
   public void addDeletion(SearchRequestBuilder searchRequest) {
@@ -153,7 +168,7 @@ public class BulkIndexer implements Startable {
 
     // this search is synchronous. An optimization would be to be non-blocking,
     // but it requires to tracking pending requests in close().
-    // Same semaphore can't be reused because of potential deadlock (requires to acquire
+    // Same throttle can't be reused because of potential deadlock (requires to acquire
     // two locks)
     SearchResponse searchResponse = searchRequest.get();
 
@@ -199,15 +214,14 @@ public class BulkIndexer implements Startable {
   }
 
   @Override
-  public void stop() {
+  public synchronized void stop() {
     if (bulkRequest.numberOfActions() > 0) {
       executeBulk();
     }
     try {
-      if (semaphore.tryAcquire(concurrentRequests, 10, TimeUnit.MINUTES)) {
-        semaphore.release(concurrentRequests);
-      }
+      awaitCompletion();
     } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
       throw new IllegalStateException("Elasticsearch bulk requests still being executed after 10 minutes", e);
     }
     progress.stop();
@@ -229,36 +243,122 @@ public class BulkIndexer implements Startable {
     req.get();
   }
 
+  /**
+   * Waits for the responses of the bulk requests in flight, and for the execution of the retries
+   * they may have scheduled.
+   */
+  private void awaitCompletion() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + STOP_TIMEOUT_MS;
+    while (true) {
+      executeDueRetries();
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0L || !throttle.awaitNoneInFlight(remaining)) {
+        LOGGER.warn("index [{}], bulk requests still being executed after 10 minutes", indexName);
+        return;
+      }
+      // retries are scheduled before the response is released, so none can be added anymore
+      PendingRetry next = pendingRetries.peek();
+      if (next == null) {
+        return;
+      }
+      Thread.sleep(Math.max(0L, next.notBefore - System.currentTimeMillis()));
+    }
+  }
+
   private void executeBulk() {
-    final BulkRequestBuilder req = this.bulkRequest;
+    BulkRequestBuilder req = this.bulkRequest;
     this.bulkRequest = client.prepareBulk().setRefresh(false);
-    semaphore.acquireUninterruptibly();
-    req.execute(new BulkResponseActionListener(req));
+    execute(req, 0);
+  }
+
+  private void executeDueRetries() {
+    long now = System.currentTimeMillis();
+    Iterator<PendingRetry> it = pendingRetries.iterator();
+    while (it.hasNext()) {
+      PendingRetry retry = it.next();
+      if (retry.notBefore <= now) {
+        it.remove();
+        BulkRequestBuilder req = client.prepareBulk().setRefresh(false);
+        retry.requests.forEach(r -> req.request().add(r));
+        execute(req, retry.attempt);
+      }
+    }
+  }
+
+  private void execute(BulkRequestBuilder req, int attempt) {
+    throttle.acquire();
+    stats.onRequestSent();
+    req.execute(new BulkResponseActionListener(req, attempt, System.currentTimeMillis()));
+  }
+
+  private void retryLater(List<ActionRequest> requests, int attempt) {
+    if (attempt >= MAX_RETRIES) {
+      LOGGER.error("index [{}], {} requests still rejected by Elasticsearch after {} retries", indexName, requests.size(), MAX_RETRIES);
+      counter.addAndGet(requests.size());
+      return;
+    }
+    long delay = INITIAL_RETRY_DELAY_MS << attempt;
+    pendingRetries.add(new PendingRetry(requests, attempt + 1, System.currentTimeMillis() + delay));
+  }
+
+  private static boolean isRejection(Throwable e) {
+    return ExceptionsHelper.status(e) == RestStatus.TOO_MANY_REQUESTS;
+  }
+
+  private static class PendingRetry {
+    private final List<ActionRequest> requests;
+    private final int attempt;
+    private final long notBefore;
+
+    PendingRetry(List<ActionRequest> requests, int attempt, long notBefore) {
+      this.requests = requests;
+      this.attempt = attempt;
+      this.notBefore = notBefore;
+    }
   }
 
   private class BulkResponseActionListener implements ActionListener<BulkResponse> {
     private final BulkRequestBuilder req;
+    private final int attempt;
+    private final long sentAt;
 
-    BulkResponseActionListener(BulkRequestBuilder req) {
+    BulkResponseActionListener(BulkRequestBuilder req, int attempt, long sentAt) {
       this.req = req;
+      this.attempt = attempt;
+      this.sentAt = sentAt;
     }
 
     @Override
     public void onResponse(BulkResponse response) {
-      semaphore.release();
-      counter.addAndGet(response.getItems().length);
-
+      List<ActionRequest> rejected = new ArrayList<>();
+      int succeeded = 0;
       for (BulkItemResponse item : response.getItems()) {
-        if (item.isFailed()) {
+        if (!item.isFailed()) {
+          succeeded++;
+        } else if (item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+          rejected.add(req.request().requests().get(item.getItemId()));
+        } else {
           LOGGER.error("index [{}], type [{}], id [{}], message [{}]", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
         }
       }
+      counter.addAndGet(response.getItems().length - rejected.size());
+      if (!rejected.isEmpty()) {
+        retryLater(rejected, attempt);
+      }
+      stats.onResponse(succeeded, req.request().estimatedSizeInBytes(), rejected.size());
+      throttle.release(System.currentTimeMillis() - sentAt, !rejected.isEmpty());
     }
 
     @Override
     public void onFailure(Throwable e) {
-      semaphore.release();
-      LOGGER.error("Fail to execute bulk index request: " + req, e);
+      boolean rejected = isRejection(e);
+      if (rejected) {
+        retryLater(new ArrayList<>(req.request().requests()), attempt);
+      } else {
+        LOGGER.error("Fail to execute bulk index request: " + req, e);
+      }
+      stats.onResponse(0, 0L, rejected ? req.request().numberOfActions() : 0);
+      throttle.release(System.currentTimeMillis() - sentAt, rejected);
     }
   }
 }
@@ -0,0 +1,123 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+/**
+ * Adapts the size of bulk requests and the number of concurrent bulk requests of a {@link BulkIndexer}
+ * to the responsiveness of Elasticsearch:
+ * <ul>
+ *   <li>fast responses increase concurrency by one, up to its maximum, and multiply size by 1.5, up to
+ *   {@link #MAX_FLUSH_BYTE_SIZE}</li>
+ *   <li>slow responses decrease concurrency by one and halve size</li>
+ *   <li>rejected requests halve both concurrency and size</li>
+ * </ul>
+ */
+class BulkIndexerThrottle {
+
+  static final long MIN_FLUSH_BYTE_SIZE = new ByteSizeValue(256, ByteSizeUnit.KB).bytes();
+  static final long MAX_FLUSH_BYTE_SIZE = new ByteSizeValue(8, ByteSizeUnit.MB).bytes();
+  static final long FAST_RESPONSE_MS = 1_000L;
+  static final long SLOW_RESPONSE_MS = 5_000L;
+
+  private final long minFlushByteSize;
+  private final int maxConcurrency;
+  private long flushByteSize;
+  private int concurrency;
+  private int inFlight = 0;
+
+  BulkIndexerThrottle(long initialFlushByteSize, int initialConcurrency, int maxConcurrency) {
+    // size explicitly configured below the minimum (for example in tests) is kept as lower bound
+    this.minFlushByteSize = Math.min(initialFlushByteSize, MIN_FLUSH_BYTE_SIZE);
+    this.maxConcurrency = Math.max(1, maxConcurrency);
+    this.flushByteSize = initialFlushByteSize;
+    this.concurrency = Math.max(1, Math.min(initialConcurrency, this.maxConcurrency));
+  }
+
+  synchronized long getFlushByteSize() {
+    return flushByteSize;
+  }
+
+  synchronized int getConcurrency() {
+    return concurrency;
+  }
+
+  synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * Blocks until a new bulk request can be sent.
+   */
+  synchronized void acquire() {
+    boolean interrupted = false;
+    while (inFlight >= concurrency) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    inFlight++;
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Called when the response of a bulk request is received.
+   *
+   * @param responseTimeMs time elapsed since the request was sent
+   * @param rejected whether the request, or some of its items, have been rejected by Elasticsearch
+   */
+  synchronized void release(long responseTimeMs, boolean rejected) {
+    inFlight--;
+    if (rejected) {
+      concurrency = Math.max(1, concurrency / 2);
+      flushByteSize = Math.max(minFlushByteSize, flushByteSize / 2);
+    } else if (responseTimeMs <= FAST_RESPONSE_MS) {
+      concurrency = Math.min(maxConcurrency, concurrency + 1);
+      flushByteSize = Math.min(MAX_FLUSH_BYTE_SIZE, flushByteSize + flushByteSize / 2);
+    } else if (responseTimeMs >= SLOW_RESPONSE_MS) {
+      concurrency = Math.max(1, concurrency - 1);
+      flushByteSize = Math.max(minFlushByteSize, flushByteSize / 2);
+    }
+    notifyAll();
+  }
+
+  /**
+   * Waits until all the bulk requests sent have been responded.
+   *
+   * @return false if requests are still in flight after the timeout
+   */
+  synchronized boolean awaitNoneInFlight(long timeoutMs) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    while (inFlight > 0) {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0L) {
+        return false;
+      }
+      wait(remaining);
+    }
+    return true;
+  }
+}
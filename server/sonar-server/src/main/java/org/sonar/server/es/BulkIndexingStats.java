@@ -0,0 +1,104 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.sonar.api.utils.System2;
+
+/**
+ * Throughput of the bulk requests sent by all the {@link BulkIndexer}s of the process, as exported
+ * by the Elasticsearch monitor.
+ * <p>
+ * Rates are computed over the time during which at least one bulk request is being executed, so that
+ * they are not diluted by the periods without any indexing.
+ * </p>
+ */
+public class BulkIndexingStats {
+
+  private final System2 system2;
+
+  private long indexedDocs = 0L;
+  private long indexedBytes = 0L;
+  private long rejectedDocs = 0L;
+  private int requestsInFlight = 0;
+  private long busyTimeMs = 0L;
+  private long busySince = 0L;
+
+  public BulkIndexingStats() {
+    this(System2.INSTANCE);
+  }
+
+  BulkIndexingStats(System2 system2) {
+    this.system2 = system2;
+  }
+
+  synchronized void onRequestSent() {
+    if (requestsInFlight == 0) {
+      busySince = system2.now();
+    }
+    requestsInFlight++;
+  }
+
+  /**
+   * @param docs number of documents successfully indexed or deleted
+   * @param bytes estimated size of the request
+   * @param rejected number of documents rejected by Elasticsearch, to be retried
+   */
+  synchronized void onResponse(int docs, long bytes, int rejected) {
+    indexedDocs += docs;
+    indexedBytes += bytes;
+    rejectedDocs += rejected;
+    requestsInFlight--;
+    if (requestsInFlight == 0) {
+      busyTimeMs += system2.now() - busySince;
+    }
+  }
+
+  public synchronized long getIndexedDocs() {
+    return indexedDocs;
+  }
+
+  public synchronized long getIndexedBytes() {
+    return indexedBytes;
+  }
+
+  public synchronized long getRejectedDocs() {
+    return rejectedDocs;
+  }
+
+  public synchronized int getRequestsInFlight() {
+    return requestsInFlight;
+  }
+
+  public synchronized long getDocsPerSecond() {
+    return perSecond(indexedDocs);
+  }
+
+  public synchronized long getBytesPerSecond() {
+    return perSecond(indexedBytes);
+  }
+
+  private long perSecond(long count) {
+    long elapsedMs = busyTimeMs;
+    if (requestsInFlight > 0) {
+      elapsedMs += system2.now() - busySince;
+    }
+    return elapsedMs == 0L ? 0L : (count * 1_000L / elapsedMs);
+  }
+}
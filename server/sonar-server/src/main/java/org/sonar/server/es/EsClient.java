@@ -79,6 +79,7 @@ public class EsClient implements Closeable {
   public static final Logger LOGGER = Loggers.get("es");
 
   private final Client nativeClient;
+  private final BulkIndexingStats bulkIndexingStats = new BulkIndexingStats();
 
   public EsClient(Client nativeClient) {
     this.nativeClient = requireNonNull(nativeClient);
@@ -202,6 +203,13 @@ public class EsClient implements Closeable {
     return nativeClient;
   }
 
+  /**
+   * Throughput of the {@link BulkIndexer}s using this client.
+   */
+  public BulkIndexingStats getBulkIndexingStats() {
+    return bulkIndexingStats;
+  }
+
   /**
    * Checks whether there is any document in any mentioned type.
    */
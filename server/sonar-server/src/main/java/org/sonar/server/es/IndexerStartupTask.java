@@ -19,8 +19,19 @@
  */
 package org.sonar.server.es;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthAction;
 import org.elasticsearch.action.admin.indices.close.CloseIndexAction;
 import org.elasticsearch.action.admin.indices.open.OpenIndexAction;
@@ -33,6 +44,7 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.log.Profiler;
 
 import static java.util.Arrays.stream;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
 public class IndexerStartupTask {
@@ -52,11 +64,75 @@ public class IndexerStartupTask {
 
   public void execute() {
     if (indexesAreEnabled()) {
-      stream(indexers)
-        .forEach(this::indexEmptyTypes);
+      List<List<StartupIndexer>> groups = groupByIndex(indexers);
+      if (groups.size() <= 1) {
+        groups.forEach(this::indexGroup);
+      } else {
+        indexConcurrently(groups);
+      }
     }
   }
 
+  /**
+   * Indexers are grouped when they share an index, directly or through other indexers, as bulk indexing
+   * of an index temporarily changes its settings and marking a type as initialized closes the index. Groups
+   * are independent and can be indexed concurrently. Indexers are kept in their initial order.
+   */
+  static List<List<StartupIndexer>> groupByIndex(StartupIndexer... indexers) {
+    int[] groupIds = IntStream.range(0, indexers.length).toArray();
+    List<Set<String>> indices = stream(indexers)
+      .map(indexer -> indexer.getIndexTypes().stream().map(IndexType::getIndex).collect(toSet()))
+      .collect(toList());
+    for (int i = 0; i < indexers.length; i++) {
+      for (int j = 0; j < i; j++) {
+        if (!Collections.disjoint(indices.get(i), indices.get(j))) {
+          int mergedGroupId = groupIds[i];
+          int groupId = groupIds[j];
+          for (int k = 0; k < indexers.length; k++) {
+            if (groupIds[k] == mergedGroupId) {
+              groupIds[k] = groupId;
+            }
+          }
+        }
+      }
+    }
+    Map<Integer, List<StartupIndexer>> groups = new LinkedHashMap<>();
+    for (int i = 0; i < indexers.length; i++) {
+      groups.computeIfAbsent(groupIds[i], groupId -> new ArrayList<>()).add(indexers[i]);
+    }
+    return new ArrayList<>(groups.values());
+  }
+
+  private void indexConcurrently(List<List<StartupIndexer>> groups) {
+    int poolSize = Math.min(groups.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService executorService = Executors.newFixedThreadPool(poolSize,
+      new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("StartupIndexer-%d")
+        .build());
+    try {
+      CompletableFuture.allOf(groups.stream()
+        .map(group -> CompletableFuture.runAsync(() -> indexGroup(group), executorService))
+        .toArray(CompletableFuture[]::new))
+        .join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private void indexGroup(List<StartupIndexer> group) {
+    group.forEach(this::indexEmptyTypes);
+  }
+
   private boolean indexesAreEnabled() {
     return !settings.getBoolean("sonar.internal.es.disableIndexes");
   }
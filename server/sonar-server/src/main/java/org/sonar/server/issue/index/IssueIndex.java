@@ -140,6 +140,10 @@ public class IssueIndex {
   private static final Order EFFORT_AGGREGATION_ORDER = Order.aggregation(FACET_MODE_EFFORT, false);
 
   private static final int DEFAULT_FACET_SIZE = 15;
+  /**
+   * Number of issues returned by each shard for each page of a scroll
+   */
+  private static final int SCROLL_SIZE = 500;
   private static final Duration TWENTY_DAYS = Duration.standardDays(20L);
   private static final Duration TWENTY_WEEKS = Duration.standardDays(20L * 7L);
   private static final Duration TWENTY_MONTHS = Duration.standardDays(20L * 30L);
@@ -215,6 +219,32 @@ public class IssueIndex {
     return new SearchResult<>(requestBuilder.get(), DOC_CONVERTER);
   }
 
+  /**
+   * Return the keys of all the issues matching the query, without pagination nor facets, so that the
+   * result window of {@link #search(IssueQuery, SearchOptions)} does not apply. Sort of the query is ignored,
+   * keys are returned in no particular order. Keys are scrolled by batches, so that they are not all in memory.
+   */
+  public Iterator<String> searchAllKeys(IssueQuery query) {
+    SearchRequestBuilder requestBuilder = client
+      .prepareSearch(INDEX_TYPE_ISSUE)
+      .setSearchType(SearchType.SCAN)
+      .setScroll(TimeValue.timeValueMinutes(EsUtils.SCROLL_TIME_IN_MINUTES))
+      .setSize(SCROLL_SIZE)
+      .setFetchSource(false);
+    configureRouting(query, new SearchOptions(), requestBuilder);
+
+    BoolQueryBuilder esFilter = boolQuery();
+    for (QueryBuilder filter : createFilters(query).values()) {
+      if (filter != null) {
+        esFilter.must(filter);
+      }
+    }
+    requestBuilder.setQuery(boolQuery().must(matchAllQuery()).filter(esFilter));
+    SearchResponse response = requestBuilder.get();
+
+    return EsUtils.scrollIds(client, response.getScrollId(), key -> key);
+  }
+
   /**
    * Optimization - do not send ES request to all shards when scope is restricted
    * to a set of projects. Because project UUID is used for routing, the request
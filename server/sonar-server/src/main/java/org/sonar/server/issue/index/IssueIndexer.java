@@ -20,15 +20,27 @@
 package org.sonar.server.issue.index;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.sonar.api.resources.Qualifiers;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.ProgressLogger;
 import org.sonar.server.es.BulkIndexer;
 import org.sonar.server.es.BulkIndexer.Size;
 import org.sonar.server.es.EsClient;
@@ -39,6 +51,7 @@ import org.sonar.server.es.StartupIndexer;
 import org.sonar.server.permission.index.AuthorizationScope;
 import org.sonar.server.permission.index.NeedAuthorizationIndexer;
 
+import static java.lang.String.format;
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
 import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID;
@@ -46,8 +59,14 @@ import static org.sonar.server.issue.index.IssueIndexDefinition.INDEX_TYPE_ISSUE
 
 public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer, StartupIndexer {
 
+  private static final Logger LOGGER = Loggers.get(IssueIndexer.class);
   private static final String DELETE_ERROR_MESSAGE = "Fail to delete some issues of project [%s]";
   private static final int MAX_BATCH_SIZE = 1000;
+  /**
+   * Maximum number of partitions of projects which issues are read concurrently on startup, each with
+   * its own db connection
+   */
+  private static final int MAX_STARTUP_PARTITIONS = 4;
   private static final AuthorizationScope AUTHORIZATION_SCOPE = new AuthorizationScope(INDEX_TYPE_ISSUE, project -> Qualifiers.PROJECT.equals(project.getQualifier()));
 
   private final EsClient esClient;
@@ -70,7 +89,62 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer, S
 
   @Override
   public void indexOnStartup(Set<IndexType> emptyIndexTypes) {
-    doIndex(createBulkIndexer(Size.LARGE), (String) null);
+    List<String> projectUuids = issueIteratorFactory.selectProjectUuids();
+    int partitions = Math.min(projectUuids.size(), Math.min(MAX_STARTUP_PARTITIONS, Runtime.getRuntime().availableProcessors()));
+    if (partitions <= 1) {
+      doIndex(createBulkIndexer(Size.LARGE), (String) null);
+      return;
+    }
+
+    // projects are not assigned to partitions in advance, so that partitions end at the same time whatever the size of projects
+    Queue<String> remainingProjectUuids = new ConcurrentLinkedQueue<>(projectUuids);
+    BulkIndexer bulk = createBulkIndexer(Size.LARGE);
+    bulk.start();
+    ExecutorService executorService = Executors.newFixedThreadPool(partitions,
+      new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("IssueIndexer-%d")
+        .build());
+    try {
+      CompletableFuture.allOf(IntStream.rangeClosed(1, partitions)
+        .mapToObj(partition -> CompletableFuture.runAsync(
+          () -> indexPartition(bulk, remainingProjectUuids, format("%d/%d", partition, partitions)), executorService))
+        .toArray(CompletableFuture[]::new))
+        .join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    } finally {
+      executorService.shutdownNow();
+    }
+    bulk.stop();
+  }
+
+  private void indexPartition(BulkIndexer bulk, Queue<String> remainingProjectUuids, String partitionName) {
+    AtomicLong counter = new AtomicLong(0L);
+    ProgressLogger progress = new ProgressLogger(format("Progress[IssueIndexer[partition %s]]", partitionName), counter, LOGGER)
+      .setPluralLabel("issues");
+    progress.start();
+    try {
+      String projectUuid = remainingProjectUuids.poll();
+      while (projectUuid != null) {
+        try (IssueIterator issues = issueIteratorFactory.createForProject(projectUuid)) {
+          while (issues.hasNext()) {
+            bulk.add(newIndexRequest(issues.next()));
+            counter.incrementAndGet();
+          }
+        }
+        projectUuid = remainingProjectUuids.poll();
+      }
+    } finally {
+      progress.stop();
+    }
   }
 
   @Override
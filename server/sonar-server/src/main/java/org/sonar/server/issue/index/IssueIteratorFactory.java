@@ -20,8 +20,10 @@
 package org.sonar.server.issue.index;
 
 import java.util.Collection;
+import java.util.List;
 import javax.annotation.Nullable;
 import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
 
 public class IssueIteratorFactory {
 
@@ -39,6 +41,16 @@ public class IssueIteratorFactory {
     return new IssueIteratorForSingleChunk(dbClient, projectUuid, null);
   }
 
+  /**
+   * Uuids of the projects which have issues, in order to read them project by project with
+   * {@link #createForProject(String)}
+   */
+  public List<String> selectProjectUuids() {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return dbClient.issueDao().selectProjectUuids(dbSession);
+    }
+  }
+
   public IssueIterator createForIssueKeys(Collection<String> issueKeys) {
     return new IssueIteratorForMultipleChunks(dbClient, issueKeys);
   }
@@ -0,0 +1,174 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.server.issue.IssueQuery;
+import org.sonar.server.issue.IssueQueryFactory;
+import org.sonar.server.issue.index.IssueIndex;
+import org.sonarqube.ws.Issues;
+import org.sonarqube.ws.MediaTypes;
+import org.sonarqube.ws.client.issue.SearchWsRequest;
+
+import static java.lang.String.format;
+import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.ACTION_EXPORT;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_ASSIGNEES;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_COMPONENT_KEYS;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_AFTER;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_BEFORE;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_ORGANIZATION;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_RESOLUTIONS;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_RESOLVED;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_RULES;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_SEVERITIES;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_STATUSES;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_TAGS;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_TYPES;
+
+/**
+ * Streams all the issues matching the request, without the limit of api/issues/search on the number of issues.
+ * Keys of issues are scrolled from Elasticsearch, then issues are loaded and written by batches of {@link #BATCH_SIZE},
+ * so that memory does not depend on the number of exported issues.
+ */
+public class ExportAction implements IssuesWsAction {
+
+  static final int BATCH_SIZE = 500;
+
+  private final IssueIndex issueIndex;
+  private final IssueQueryFactory issueQueryFactory;
+  private final SearchResponseLoader searchResponseLoader;
+  private final SearchResponseFormat searchResponseFormat;
+
+  public ExportAction(IssueIndex issueIndex, IssueQueryFactory issueQueryFactory, SearchResponseLoader searchResponseLoader,
+    SearchResponseFormat searchResponseFormat) {
+    this.issueIndex = issueIndex;
+    this.issueQueryFactory = issueQueryFactory;
+    this.searchResponseLoader = searchResponseLoader;
+    this.searchResponseFormat = searchResponseFormat;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller
+      .createAction(ACTION_EXPORT)
+      .setHandler(this)
+      .setDescription("Export all the issues matching the filters. Requires Browse permission on project(s).<br>" +
+        "Contrary to api/issues/search, the number of returned issues is not limited. Issues are returned in no particular order, " +
+        "as a stream of length-delimited protobuf messages 'Issue', without additional fields.")
+      .setSince("6.4")
+      .setInternal(true);
+
+    action.createParam(PARAM_ORGANIZATION)
+      .setDescription("Organization key")
+      .setExampleValue("my-org");
+    action.createParam(PARAM_COMPONENT_KEYS)
+      .setDescription("To export issues associated to a specific list of components sub-components (comma-separated list of component keys). " +
+        "A component can be a view, project, module, directory or file.")
+      .setExampleValue(KEY_PROJECT_EXAMPLE_001);
+    action.createParam(PARAM_SEVERITIES)
+      .setDescription("Comma-separated list of severities")
+      .setExampleValue(Severity.BLOCKER + "," + Severity.CRITICAL)
+      .setPossibleValues(Severity.ALL);
+    action.createParam(PARAM_STATUSES)
+      .setDescription("Comma-separated list of statuses")
+      .setExampleValue(Issue.STATUS_OPEN + "," + Issue.STATUS_REOPENED)
+      .setPossibleValues(Issue.STATUSES);
+    action.createParam(PARAM_RESOLUTIONS)
+      .setDescription("Comma-separated list of resolutions")
+      .setExampleValue(Issue.RESOLUTION_FIXED + "," + Issue.RESOLUTION_REMOVED)
+      .setPossibleValues(Issue.RESOLUTIONS);
+    action.createParam(PARAM_RESOLVED)
+      .setDescription("To match resolved or unresolved issues")
+      .setBooleanPossibleValues();
+    action.createParam(PARAM_RULES)
+      .setDescription("Comma-separated list of coding rule keys. Format is &lt;repository&gt;:&lt;rule&gt;")
+      .setExampleValue("squid:AvoidCycles");
+    action.createParam(PARAM_TAGS)
+      .setDescription("Comma-separated list of tags.")
+      .setExampleValue("security,convention");
+    action.createParam(PARAM_TYPES)
+      .setDescription("Comma-separated list of types.")
+      .setPossibleValues(RuleType.values())
+      .setExampleValue(format("%s,%s", RuleType.CODE_SMELL, RuleType.BUG));
+    action.createParam(PARAM_ASSIGNEES)
+      .setDescription("Comma-separated list of assignee logins. The value '__me__' can be used as a placeholder for user who performs the request")
+      .setExampleValue("admin,usera,__me__");
+    action.createParam(PARAM_CREATED_AFTER)
+      .setDescription("To export issues created after the given date (inclusive). Format: date or datetime ISO formats.")
+      .setExampleValue("2013-05-01 (or 2013-05-01T13:00:00+0100)");
+    action.createParam(PARAM_CREATED_BEFORE)
+      .setDescription("To export issues created before the given date (exclusive). Format: date or datetime ISO formats")
+      .setExampleValue("2013-05-01 (or 2013-05-01T13:00:00+0100)");
+  }
+
+  @Override
+  public void handle(Request request, Response response) throws Exception {
+    IssueQuery query = issueQueryFactory.create(toSearchWsRequest(request));
+    Iterator<String> issueKeys = issueIndex.searchAllKeys(query);
+
+    response.stream().setMediaType(MediaTypes.PROTOBUF);
+    OutputStream output = response.stream().output();
+    List<String> batch = new ArrayList<>(BATCH_SIZE);
+    while (issueKeys.hasNext()) {
+      batch.add(issueKeys.next());
+      if (batch.size() == BATCH_SIZE || !issueKeys.hasNext()) {
+        writeBatch(batch, output);
+        batch.clear();
+      }
+    }
+  }
+
+  private void writeBatch(List<String> issueKeys, OutputStream output) throws IOException {
+    EnumSet<SearchAdditionalField> fields = EnumSet.noneOf(SearchAdditionalField.class);
+    SearchResponseData data = searchResponseLoader.load(new SearchResponseLoader.Collector(fields, issueKeys), null);
+    for (Issues.Issue issue : searchResponseFormat.formatIssues(fields, data)) {
+      issue.writeDelimitedTo(output);
+    }
+  }
+
+  private static SearchWsRequest toSearchWsRequest(Request request) {
+    return new SearchWsRequest()
+      .setOrganization(request.param(PARAM_ORGANIZATION))
+      .setComponentKeys(request.paramAsStrings(PARAM_COMPONENT_KEYS))
+      .setOnComponentOnly(false)
+      .setSeverities(request.paramAsStrings(PARAM_SEVERITIES))
+      .setStatuses(request.paramAsStrings(PARAM_STATUSES))
+      .setResolutions(request.paramAsStrings(PARAM_RESOLUTIONS))
+      .setResolved(request.paramAsBoolean(PARAM_RESOLVED))
+      .setRules(request.paramAsStrings(PARAM_RULES))
+      .setTags(request.paramAsStrings(PARAM_TAGS))
+      .setTypes(request.paramAsStrings(PARAM_TYPES))
+      .setAssignees(request.paramAsStrings(PARAM_ASSIGNEES))
+      .setCreatedAfter(request.param(PARAM_CREATED_AFTER))
+      .setCreatedBefore(request.param(PARAM_CREATED_BEFORE));
+  }
+}
@@ -21,6 +21,7 @@ package org.sonar.server.issue.ws;
 
 import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.SetMultimap;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashSet;
@@ -28,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
+import org.sonar.api.rule.RuleKey;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
@@ -39,6 +41,9 @@ import org.sonar.db.protobuf.DbIssues;
 import org.sonar.server.es.Facets;
 import org.sonar.server.issue.ActionFinder;
 import org.sonar.server.issue.TransitionService;
+import org.sonar.server.organization.OrganizationCache;
+import org.sonar.server.rule.RuleDefinitionCache;
+import org.sonar.server.user.UserCache;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.client.issue.IssuesWsParameters;
 
@@ -51,6 +56,9 @@ import static org.sonar.server.issue.ws.SearchAdditionalField.USERS;
 
 /**
  * Loads all the information required for the response of api/issues/search.
+ * <p>
+ * Rules, users and organizations are read from caches. Missing elements are loaded on the session of the request.
+ * </p>
  */
 public class SearchResponseLoader {
 
@@ -58,12 +66,19 @@ public class SearchResponseLoader {
   private final DbClient dbClient;
   private final ActionFinder actionService;
   private final TransitionService transitionService;
+  private final RuleDefinitionCache ruleDefinitionCache;
+  private final UserCache userCache;
+  private final OrganizationCache organizationCache;
 
-  public SearchResponseLoader(UserSession userSession, DbClient dbClient, ActionFinder actionService, TransitionService transitionService) {
+  public SearchResponseLoader(UserSession userSession, DbClient dbClient, ActionFinder actionService, TransitionService transitionService,
+    RuleDefinitionCache ruleDefinitionCache, UserCache userCache, OrganizationCache organizationCache) {
     this.userSession = userSession;
     this.dbClient = dbClient;
     this.actionService = actionService;
     this.transitionService = transitionService;
+    this.ruleDefinitionCache = ruleDefinitionCache;
+    this.userCache = userCache;
+    this.organizationCache = organizationCache;
   }
 
   /**
@@ -89,7 +104,7 @@ public class SearchResponseLoader {
 
   private void loadUsers(Collector collector, DbSession dbSession, SearchResponseData result) {
     if (collector.contains(USERS)) {
-      result.setUsers(dbClient.userDao().selectByLogins(dbSession, collector.<String>get(USERS)));
+      result.setUsers(new ArrayList<>(userCache.getAll(dbSession, collector.<String>get(USERS)).values()));
     }
   }
 
@@ -112,7 +127,7 @@ public class SearchResponseLoader {
 
   private void loadRules(Collector collector, DbSession dbSession, SearchResponseData result) {
     if (collector.contains(RULES)) {
-      result.setRules(dbClient.ruleDao().selectDefinitionByKeys(dbSession, collector.get(RULES)));
+      result.setRules(new ArrayList<>(ruleDefinitionCache.getAll(dbSession, collector.<RuleKey>get(RULES)).values()));
     }
   }
 
@@ -133,9 +148,8 @@ public class SearchResponseLoader {
     if (components == null) {
       return;
     }
-    dbClient.organizationDao().selectByUuids(
-      dbSession,
-      components.stream().map(ComponentDto::getOrganizationUuid).collect(MoreCollectors.toSet()))
+    organizationCache.getAll(dbSession, components.stream().map(ComponentDto::getOrganizationUuid).collect(MoreCollectors.toSet()))
+      .values()
       .forEach(result::addOrganization);
   }
 
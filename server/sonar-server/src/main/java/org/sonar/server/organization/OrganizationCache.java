@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.organization;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.sonar.core.util.stream.MoreCollectors;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.organization.OrganizationDto;
+import org.sonar.server.util.cache.ExpiringMemoryCache;
+
+/**
+ * Organizations by uuid, as displayed by web services returning many references to organizations, for example
+ * api/issues/search. Elements are not invalidated on update, as only their immutable keys are displayed.
+ */
+public class OrganizationCache extends ExpiringMemoryCache<String, OrganizationDto> {
+
+  private static final long MAXIMUM_SIZE = 10_000L;
+  private static final long EXPIRE_AFTER_WRITE_SECONDS = 60L;
+
+  private final DbClient dbClient;
+
+  public OrganizationCache(DbClient dbClient) {
+    super(MAXIMUM_SIZE, EXPIRE_AFTER_WRITE_SECONDS, TimeUnit.SECONDS);
+    this.dbClient = dbClient;
+  }
+
+  /**
+   * Missing elements are loaded with the session of the caller.
+   */
+  public Map<String, OrganizationDto> getAll(DbSession dbSession, Collection<String> uuids) {
+    return getAll(uuids, missingUuids -> dbClient.organizationDao().selectByUuids(dbSession, ImmutableSet.copyOf(missingUuids)).stream()
+      .collect(MoreCollectors.uniqueIndex(OrganizationDto::getUuid)));
+  }
+}
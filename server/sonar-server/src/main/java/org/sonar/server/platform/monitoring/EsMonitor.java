@@ -31,6 +31,7 @@ import org.elasticsearch.cluster.health.ClusterHealthStatus;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.server.es.BulkIndexingStats;
 import org.sonar.server.es.EsClient;
 
 import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
@@ -66,6 +67,21 @@ public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
     return clusterStats().getNodesStats().getCounts().getTotal();
   }
 
+  @Override
+  public long getBulkIndexingDocsPerSecond() {
+    return esClient.getBulkIndexingStats().getDocsPerSecond();
+  }
+
+  @Override
+  public long getBulkIndexingBytesPerSecond() {
+    return esClient.getBulkIndexingStats().getBytesPerSecond();
+  }
+
+  @Override
+  public int getBulkIndexingRequestsInFlight() {
+    return esClient.getBulkIndexingStats().getRequestsInFlight();
+  }
+
   @Override
   public Map<String, Object> attributes() {
     try {
@@ -74,6 +90,7 @@ public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
       attributes.put("Indices", indexAttributes());
       attributes.put("Number of Nodes", getNumberOfNodes());
       attributes.put("Nodes", nodeAttributes());
+      attributes.put("Bulk Indexing", bulkIndexingAttributes());
       return attributes;
     } catch (Exception es) {
       Loggers.get(EsMonitor.class).warn("Failed to retrieve ES attributes. There will be only a single \"state\" attribute.", es);
@@ -131,6 +148,17 @@ public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
     return nodes;
   }
 
+  private LinkedHashMap<String, Object> bulkIndexingAttributes() {
+    BulkIndexingStats stats = esClient.getBulkIndexingStats();
+    LinkedHashMap<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Indexed Docs", stats.getIndexedDocs());
+    attributes.put("Indexed Docs per Second", stats.getDocsPerSecond());
+    attributes.put("Indexed Size per Second", byteCountToDisplaySize(stats.getBytesPerSecond()));
+    attributes.put("Rejected Docs", stats.getRejectedDocs());
+    attributes.put("Requests in Flight", stats.getRequestsInFlight());
+    return attributes;
+  }
+
   private ClusterStatsResponse clusterStats() {
     return esClient.prepareClusterStats().get();
   }
@@ -26,4 +26,10 @@ package org.sonar.server.platform.monitoring;
 public interface EsMonitorMBean {
   String getState();
   int getNumberOfNodes();
+
+  long getBulkIndexingDocsPerSecond();
+
+  long getBulkIndexingBytesPerSecond();
+
+  int getBulkIndexingRequestsInFlight();
 }
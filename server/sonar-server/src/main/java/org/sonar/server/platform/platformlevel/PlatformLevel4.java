@@ -84,6 +84,7 @@ import org.sonar.server.metric.CoreCustomMetrics;
 import org.sonar.server.metric.DefaultMetricFinder;
 import org.sonar.server.metric.ws.MetricsWsModule;
 import org.sonar.server.notification.NotificationModule;
+import org.sonar.server.organization.OrganizationCache;
 import org.sonar.server.organization.OrganizationCreationImpl;
 import org.sonar.server.organization.OrganizationValidationImpl;
 import org.sonar.server.organization.ws.OrganizationsWsModule;
@@ -161,6 +162,7 @@ import org.sonar.server.rule.CommonRuleDefinitionsImpl;
 import org.sonar.server.rule.DefaultRuleFinder;
 import org.sonar.server.rule.DeprecatedRulesDefinitionLoader;
 import org.sonar.server.rule.RuleCreator;
+import org.sonar.server.rule.RuleDefinitionCache;
 import org.sonar.server.rule.RuleDefinitionsLoader;
 import org.sonar.server.rule.RuleDeleter;
 import org.sonar.server.rule.RuleUpdater;
@@ -198,6 +200,7 @@ import org.sonar.server.user.DefaultUserFinder;
 import org.sonar.server.user.DeprecatedUserFinder;
 import org.sonar.server.user.NewUserNotifier;
 import org.sonar.server.user.SecurityRealmFactory;
+import org.sonar.server.user.UserCache;
 import org.sonar.server.user.UserSessionFactoryImpl;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserIndex;
@@ -255,6 +258,7 @@ public class PlatformLevel4 extends PlatformLevel {
       // organizations
       OrganizationValidationImpl.class,
       OrganizationCreationImpl.class,
+      OrganizationCache.class,
       OrganizationsWsModule.class,
 
       // quality profile
@@ -288,6 +292,7 @@ public class PlatformLevel4 extends PlatformLevel {
       RuleDefinitionsLoader.class,
       CommonRuleDefinitionsImpl.class,
       RulesDefinitionXmlLoader.class,
+      RuleDefinitionCache.class,
       RuleUpdater.class,
       RuleCreator.class,
       RuleDeleter.class,
@@ -344,6 +349,7 @@ public class PlatformLevel4 extends PlatformLevel {
       UserIndexDefinition.class,
       UserIndexer.class,
       UserIndex.class,
+      UserCache.class,
       UserUpdater.class,
       UsersWsModule.class,
       UserTokenModule.class,
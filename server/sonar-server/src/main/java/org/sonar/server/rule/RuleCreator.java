@@ -59,13 +59,16 @@ public class RuleCreator {
   private final DbClient dbClient;
   private final TypeValidations typeValidations;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final RuleDefinitionCache ruleDefinitionCache;
 
-  public RuleCreator(System2 system2, RuleIndexer ruleIndexer, DbClient dbClient, TypeValidations typeValidations, DefaultOrganizationProvider defaultOrganizationProvider) {
+  public RuleCreator(System2 system2, RuleIndexer ruleIndexer, DbClient dbClient, TypeValidations typeValidations, DefaultOrganizationProvider defaultOrganizationProvider,
+    RuleDefinitionCache ruleDefinitionCache) {
     this.system2 = system2;
     this.ruleIndexer = ruleIndexer;
     this.dbClient = dbClient;
     this.typeValidations = typeValidations;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.ruleDefinitionCache = ruleDefinitionCache;
   }
 
   public RuleKey create(DbSession dbSession, NewCustomRule newRule) {
@@ -86,6 +89,8 @@ public class RuleCreator {
       .orElseGet(() -> createCustomRule(customRuleKey, newRule, templateRule, dbSession));
 
     dbSession.commit();
+    // a removed rule may have been reactivated
+    ruleDefinitionCache.invalidate(customRuleKey);
     ruleIndexer.indexRuleDefinition(customRuleKey);
     return customRuleKey;
   }
@@ -0,0 +1,56 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.core.util.stream.MoreCollectors;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.server.util.cache.ExpiringMemoryCache;
+
+/**
+ * Definitions of rules by key, as displayed by web services returning many references to rules, for example
+ * api/issues/search. Rules are invalidated by {@link RuleUpdater} and {@link RuleDeleter}. Changes done by other
+ * processes are visible when elements expire.
+ */
+public class RuleDefinitionCache extends ExpiringMemoryCache<RuleKey, RuleDefinitionDto> {
+
+  private static final long MAXIMUM_SIZE = 10_000L;
+  private static final long EXPIRE_AFTER_WRITE_SECONDS = 60L;
+
+  private final DbClient dbClient;
+
+  public RuleDefinitionCache(DbClient dbClient) {
+    super(MAXIMUM_SIZE, EXPIRE_AFTER_WRITE_SECONDS, TimeUnit.SECONDS);
+    this.dbClient = dbClient;
+  }
+
+  /**
+   * Missing elements are loaded with the session of the caller.
+   */
+  public Map<RuleKey, RuleDefinitionDto> getAll(DbSession dbSession, Collection<RuleKey> keys) {
+    return getAll(keys, missingKeys -> dbClient.ruleDao().selectDefinitionByKeys(dbSession, missingKeys).stream()
+      .collect(MoreCollectors.uniqueIndex(RuleDefinitionDto::getKey)));
+  }
+}
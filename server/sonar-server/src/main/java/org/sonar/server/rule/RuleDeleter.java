@@ -38,13 +38,16 @@ public class RuleDeleter {
   private final DbClient dbClient;
   private final RuleActivator ruleActivator;
   private final OrganizationFlags organizationFlags;
+  private final RuleDefinitionCache ruleDefinitionCache;
 
-  public RuleDeleter(System2 system2, RuleIndexer ruleIndexer, DbClient dbClient, RuleActivator ruleActivator, OrganizationFlags organizationFlags) {
+  public RuleDeleter(System2 system2, RuleIndexer ruleIndexer, DbClient dbClient, RuleActivator ruleActivator, OrganizationFlags organizationFlags,
+    RuleDefinitionCache ruleDefinitionCache) {
     this.system2 = system2;
     this.ruleIndexer = ruleIndexer;
     this.dbClient = dbClient;
     this.ruleActivator = ruleActivator;
     this.organizationFlags = organizationFlags;
+    this.ruleDefinitionCache = ruleDefinitionCache;
   }
 
   public void delete(RuleKey ruleKey) {
@@ -66,6 +69,7 @@ public class RuleDeleter {
       dbClient.ruleDao().update(dbSession, rule);
 
       dbSession.commit();
+      ruleDefinitionCache.invalidate(ruleKey);
       ruleIndexer.indexRuleDefinition(ruleKey);
     }
   }
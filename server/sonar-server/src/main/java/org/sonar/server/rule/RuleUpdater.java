@@ -61,11 +61,13 @@ public class RuleUpdater {
   private final DbClient dbClient;
   private final RuleIndexer ruleIndexer;
   private final System2 system;
+  private final RuleDefinitionCache ruleDefinitionCache;
 
-  public RuleUpdater(DbClient dbClient, RuleIndexer ruleIndexer, System2 system) {
+  public RuleUpdater(DbClient dbClient, RuleIndexer ruleIndexer, System2 system, RuleDefinitionCache ruleDefinitionCache) {
     this.dbClient = dbClient;
     this.ruleIndexer = ruleIndexer;
     this.system = system;
+    this.ruleDefinitionCache = ruleDefinitionCache;
   }
 
   /**
@@ -84,6 +86,7 @@ public class RuleUpdater {
     dbSession.commit();
 
     RuleKey ruleKey = rule.getKey();
+    ruleDefinitionCache.invalidate(ruleKey);
     ruleIndexer.indexRuleDefinition(ruleKey);
     ruleIndexer.indexRuleExtension(organization, ruleKey);
     return true;
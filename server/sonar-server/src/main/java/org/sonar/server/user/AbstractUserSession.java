@@ -19,7 +19,12 @@
  */
 package org.sonar.server.user;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonar.server.exceptions.ForbiddenException;
@@ -84,6 +89,29 @@ public abstract class AbstractUserSession implements UserSession {
 
   protected abstract boolean hasProjectUuidPermission(String permission, String projectUuid);
 
+  @Override
+  public final List<ComponentDto> keepAuthorizedComponents(String permission, Collection<ComponentDto> components) {
+    if (isRoot()) {
+      return new ArrayList<>(components);
+    }
+    Set<String> projectUuids = components.stream()
+      .map(ComponentDto::projectUuid)
+      .collect(MoreCollectors.toSet(components.size()));
+    Set<String> authorizedProjectUuids = keepAuthorizedProjectUuids(permission, projectUuids);
+    return components.stream()
+      .filter(component -> authorizedProjectUuids.contains(component.projectUuid()))
+      .collect(MoreCollectors.toList());
+  }
+
+  /**
+   * Naive implementation, to be overridden if permissions can be loaded more efficiently for multiple projects.
+   */
+  protected Set<String> keepAuthorizedProjectUuids(String permission, Set<String> projectUuids) {
+    return projectUuids.stream()
+      .filter(projectUuid -> hasProjectUuidPermission(permission, projectUuid))
+      .collect(MoreCollectors.toSet());
+  }
+
   @Override
   public final UserSession checkComponentPermission(String projectPermission, ComponentDto component) {
     if (!hasComponentPermission(projectPermission, component)) {
@@ -24,6 +24,8 @@ import com.google.common.base.Suppliers;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -33,6 +35,7 @@ import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.permission.ProjectUuidPermission;
 import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.organization.DefaultOrganizationProvider;
@@ -155,6 +158,34 @@ public class ServerUserSession extends AbstractUserSession {
     return permissions.contains(permission);
   }
 
+  /**
+   * Permissions of the projects which are not already known are loaded with a single request
+   */
+  @Override
+  protected Set<String> keepAuthorizedProjectUuids(String permission, Set<String> projectUuids) {
+    if (permissionsByProjectUuid == null) {
+      permissionsByProjectUuid = new HashMap<>();
+    }
+    Set<String> missingProjectUuids = projectUuids.stream()
+      .filter(projectUuid -> !permissionsByProjectUuid.containsKey(projectUuid))
+      .collect(MoreCollectors.toSet());
+    if (!missingProjectUuids.isEmpty()) {
+      loadProjectPermissions(missingProjectUuids);
+    }
+    return projectUuids.stream()
+      .filter(projectUuid -> permissionsByProjectUuid.get(projectUuid).contains(permission))
+      .collect(MoreCollectors.toSet());
+  }
+
+  private void loadProjectPermissions(Set<String> projectUuids) {
+    List<ProjectUuidPermission> permissions;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      permissions = dbClient.authorizationDao().selectProjectPermissionsByProjectUuids(dbSession, projectUuids, getUserId());
+    }
+    projectUuids.forEach(projectUuid -> permissionsByProjectUuid.put(projectUuid, new HashSet<>()));
+    permissions.forEach(p -> permissionsByProjectUuid.get(p.getProjectUuid()).add(p.getPermission()));
+  }
+
   private Set<String> loadProjectPermissions(String projectUuid) {
     try (DbSession dbSession = dbClient.openSession(false)) {
       if (userDto != null && userDto.getId() != null) {
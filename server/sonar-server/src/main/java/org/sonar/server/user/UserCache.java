@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.sonar.core.util.stream.MoreCollectors;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.user.UserDto;
+import org.sonar.server.util.cache.ExpiringMemoryCache;
+
+/**
+ * Users by login, as displayed by web services returning many references to users, for example api/issues/search.
+ * Users are invalidated by {@link UserUpdater} and when they are deactivated. Changes done by other processes
+ * are visible when elements expire.
+ */
+public class UserCache extends ExpiringMemoryCache<String, UserDto> {
+
+  private static final long MAXIMUM_SIZE = 10_000L;
+  private static final long EXPIRE_AFTER_WRITE_SECONDS = 60L;
+
+  private final DbClient dbClient;
+
+  public UserCache(DbClient dbClient) {
+    super(MAXIMUM_SIZE, EXPIRE_AFTER_WRITE_SECONDS, TimeUnit.SECONDS);
+    this.dbClient = dbClient;
+  }
+
+  /**
+   * Missing elements are loaded with the session of the caller.
+   */
+  public Map<String, UserDto> getAll(DbSession dbSession, Collection<String> logins) {
+    return getAll(logins, missingLogins -> dbClient.userDao().selectByLogins(dbSession, missingLogins).stream()
+      .collect(MoreCollectors.uniqueIndex(UserDto::getLogin)));
+  }
+}
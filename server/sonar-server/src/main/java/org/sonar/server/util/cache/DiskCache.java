@@ -19,12 +19,19 @@
  */
 package org.sonar.server.util.cache;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.utils.System2;
@@ -33,21 +40,39 @@ import org.sonar.server.util.ObjectInputStreamIterator;
 
 /**
  * Serialize and deserialize objects on disk. No search capabilities, only traversal (full scan).
+ * <p>
+ * Objects are written with Java serialization, unless a {@link RecordCodec} is provided. In this case, they
+ * are written as consecutive binary records through buffered streams.
+ * </p>
  */
 public class DiskCache<O extends Serializable> {
 
+  private static final int BUFFER_SIZE = 64 * 1024;
+
   private final File file;
   private final System2 system2;
+  @CheckForNull
+  private final RecordCodec<O> codec;
 
   public DiskCache(File file, System2 system2) {
+    this(file, system2, null);
+  }
+
+  public DiskCache(File file, System2 system2, @Nullable RecordCodec<O> codec) {
     this.system2 = system2;
     this.file = file;
+    this.codec = codec;
     OutputStream output = null;
     boolean threw = true;
     try {
-      // writes the serialization stream header required when calling "traverse()"
-      // on empty stream. Moreover it allows to call multiple times "newAppender()"
-      output = new ObjectOutputStream(new FileOutputStream(file));
+      if (codec == null) {
+        // writes the serialization stream header required when calling "traverse()"
+        // on empty stream. Moreover it allows to call multiple times "newAppender()"
+        output = new ObjectOutputStream(new FileOutputStream(file));
+      } else {
+        // truncates the file, records have no header
+        output = new FileOutputStream(file);
+      }
       output.flush();
       threw = false;
     } catch (IOException e) {
@@ -69,23 +94,30 @@ public class DiskCache<O extends Serializable> {
 
   public CloseableIterator<O> traverse() {
     try {
-      return new ObjectInputStreamIterator<>(FileUtils.openInputStream(file));
+      if (codec == null) {
+        return new ObjectInputStreamIterator<>(FileUtils.openInputStream(file));
+      }
+      return new RecordIterator<>(new DataInputStream(new BufferedInputStream(FileUtils.openInputStream(file), BUFFER_SIZE)), codec, file);
     } catch (IOException e) {
       throw new IllegalStateException("Fail to traverse file: " + file, e);
     }
   }
 
   public class DiskAppender implements AutoCloseable {
-    private final ObjectOutputStream output;
+    private final OutputStream output;
 
     private DiskAppender() {
       try {
-        this.output = new ObjectOutputStream(new FileOutputStream(file, true)) {
-          @Override
-          protected void writeStreamHeader() throws IOException {
-            // do not write stream headers as it's already done in constructor of DiskCache
-          }
-        };
+        if (codec == null) {
+          this.output = new ObjectOutputStream(new FileOutputStream(file, true)) {
+            @Override
+            protected void writeStreamHeader() throws IOException {
+              // do not write stream headers as it's already done in constructor of DiskCache
+            }
+          };
+        } else {
+          this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE));
+        }
       } catch (IOException e) {
         throw new IllegalStateException("Fail to open file " + file, e);
       }
@@ -93,8 +125,13 @@ public class DiskCache<O extends Serializable> {
 
     public DiskAppender append(O object) {
       try {
-        output.writeObject(object);
-        output.reset();
+        if (codec == null) {
+          ObjectOutputStream objectOutput = (ObjectOutputStream) output;
+          objectOutput.writeObject(object);
+          objectOutput.reset();
+        } else {
+          codec.write((DataOutputStream) output, object);
+        }
         return this;
       } catch (IOException e) {
         throw new IllegalStateException("Fail to write into file " + file, e);
@@ -106,4 +143,37 @@ public class DiskCache<O extends Serializable> {
       system2.close(output);
     }
   }
+
+  private static class RecordIterator<O> extends CloseableIterator<O> {
+    private final DataInputStream input;
+    private final RecordCodec<O> codec;
+    private final File file;
+
+    private RecordIterator(DataInputStream input, RecordCodec<O> codec, File file) {
+      this.input = input;
+      this.codec = codec;
+      this.file = file;
+    }
+
+    @Override
+    protected O doNext() {
+      try {
+        input.mark(1);
+        if (input.read() == -1) {
+          return null;
+        }
+        input.reset();
+        return codec.read(input);
+      } catch (EOFException e) {
+        throw new IllegalStateException("Unexpected end of file " + file, e);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read file " + file, e);
+      }
+    }
+
+    @Override
+    protected void doClose() {
+      IOUtils.closeQuietly(input);
+    }
+  }
 }
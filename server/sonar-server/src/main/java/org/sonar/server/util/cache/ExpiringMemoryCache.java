@@ -0,0 +1,79 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.util.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Thread-safe in-memory cache, bounded in size, whose elements expire after a delay. Missing elements are
+ * loaded by the function given by the caller, so that it can use its own resources, for example its DB session.
+ * Contrary to {@link MemoryCache}, keys which are not found are not kept in memory, and elements can
+ * be invalidated when they are updated. Cached values are shared between threads, they must not be modified.
+ */
+public class ExpiringMemoryCache<K, V> {
+
+  private final Cache<K, V> cache;
+
+  public ExpiringMemoryCache(long maximumSize, long expireAfterWrite, TimeUnit unit) {
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(maximumSize)
+      .expireAfterWrite(expireAfterWrite, unit)
+      .build();
+  }
+
+  /**
+   * Get values associated with keys. Keys which are not found are not included in the Map result.
+   *
+   * @param loader loads the values of the keys missing from the cache. Keys which are not found may be absent
+   *               from its result.
+   */
+  public Map<K, V> getAll(Collection<K> keys, Function<List<K>, Map<K, V>> loader) {
+    Map<K, V> result = new HashMap<>(cache.getAllPresent(keys));
+    List<K> missingKeys = keys.stream()
+      .filter(key -> !result.containsKey(key))
+      .collect(toList());
+    if (!missingKeys.isEmpty()) {
+      loader.apply(missingKeys).forEach((key, value) -> {
+        if (value != null) {
+          cache.put(key, value);
+          result.put(key, value);
+        }
+      });
+    }
+    return result;
+  }
+
+  public void invalidate(K key) {
+    cache.invalidate(key);
+  }
+
+  public void clear() {
+    cache.invalidateAll();
+  }
+}
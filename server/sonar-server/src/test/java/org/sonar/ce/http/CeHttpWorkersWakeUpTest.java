@@ -0,0 +1,91 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.http;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class CeHttpWorkersWakeUpTest {
+
+  private CeHttpClient ceHttpClient = mock(CeHttpClient.class);
+  private CeHttpWorkersWakeUp underTest = new CeHttpWorkersWakeUp(ceHttpClient);
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void onSubmit_wakes_up_workers_asynchronously() {
+    underTest.onSubmit();
+
+    verify(ceHttpClient, timeout(5_000)).wakeUpWorkers();
+  }
+
+  @Test
+  public void onSubmit_does_not_wait_for_Compute_Engine() throws InterruptedException {
+    CountDownLatch unblock = new CountDownLatch(1);
+    CountDownLatch called = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      called.countDown();
+      unblock.await();
+      return null;
+    }).when(ceHttpClient).wakeUpWorkers();
+
+    // returns while the first request is still blocked
+    underTest.onSubmit();
+    called.await(5, TimeUnit.SECONDS);
+    underTest.onSubmit();
+    underTest.onSubmit();
+    unblock.countDown();
+
+    // tasks submitted during the first request are notified by a single other request
+    verify(ceHttpClient, timeout(5_000).times(2)).wakeUpWorkers();
+  }
+
+  @Test
+  public void onSubmit_does_not_fail_if_wake_up_fails() {
+    doThrow(new IllegalStateException("CE is down")).when(ceHttpClient).wakeUpWorkers();
+
+    underTest.onSubmit();
+    verify(ceHttpClient, timeout(5_000)).wakeUpWorkers();
+
+    underTest.onSubmit();
+    verify(ceHttpClient, timeout(5_000).times(2)).wakeUpWorkers();
+  }
+
+  @Test
+  public void onSubmit_does_nothing_once_stopped() {
+    underTest.stop();
+
+    underTest.onSubmit();
+
+    verify(ceHttpClient, never()).wakeUpWorkers();
+  }
+}
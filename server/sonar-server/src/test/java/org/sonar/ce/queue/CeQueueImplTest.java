@@ -42,6 +42,10 @@ import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 public class CeQueueImplTest {
 
@@ -87,6 +91,20 @@ public class CeQueueImplTest {
     verifyCeTask(taskSubmit, task, null);
   }
 
+  @Test
+  public void submit_and_massSubmit_notify_submit_listeners_after_commit() {
+    CeQueueSubmitListener listener = mock(CeQueueSubmitListener.class);
+    CeQueueSubmitListener failingListener = mock(CeQueueSubmitListener.class);
+    doThrow(new IllegalStateException("faking listener failure")).when(failingListener).onSubmit();
+    underTest = new CeQueueImpl(dbTester.getDbClient(), uuidFactory, defaultOrganizationProvider, new CeQueueSubmitListener[] {failingListener, listener});
+
+    underTest.submit(createTaskSubmit(CeTaskTypes.REPORT, "PROJECT_1", null));
+    underTest.massSubmit(asList(createTaskSubmit(CeTaskTypes.REPORT, "PROJECT_2", null), createTaskSubmit(CeTaskTypes.REPORT, "PROJECT_3", null)));
+
+    verify(listener, times(2)).onSubmit();
+    assertThat(dbTester.getDbClient().ceQueueDao().selectAllInAscOrder(session)).hasSize(3);
+  }
+
   @Test
   public void submit_fails_with_ISE_if_paused() {
     underTest.pauseSubmit();
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.batch;
 
+import com.google.common.collect.ImmutableMap;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -29,6 +30,7 @@ import org.sonar.server.ws.WsActionTester;
 import org.sonarqube.ws.WsBatch.WsProjectResponse;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -82,4 +84,38 @@ public class ProjectActionTest {
       .executeProtobuf(WsProjectResponse.class);
     assertThat(wsProjectResponse.getFileDataByModuleAndPath()).isEmpty();
   }
+
+  @Test
+  public void pass_known_version_to_loader() throws Exception {
+    ArgumentCaptor<ProjectDataQuery> queryArgumentCaptor = ArgumentCaptor.forClass(ProjectDataQuery.class);
+    when(projectDataLoader.load(queryArgumentCaptor.capture())).thenReturn(new ProjectRepositories().setVersion("v1"));
+
+    WsProjectResponse wsProjectResponse = ws.newRequest()
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .setParam("version", "v0")
+      .executeProtobuf(WsProjectResponse.class);
+
+    assertThat(queryArgumentCaptor.getValue().getKnownVersion()).isEqualTo("v0");
+    assertThat(wsProjectResponse.getVersion()).isEqualTo("v1");
+    assertThat(wsProjectResponse.getNotModified()).isFalse();
+  }
+
+  @Test
+  public void return_only_version_and_settings_when_not_modified() throws Exception {
+    ProjectRepositories projectRepositories = new ProjectRepositories()
+      .setVersion("v1")
+      .setNotModified(true)
+      .addSettings("module-1", ImmutableMap.of("sonar.foo", "bar"));
+    when(projectDataLoader.load(any(ProjectDataQuery.class))).thenReturn(projectRepositories);
+
+    WsProjectResponse wsProjectResponse = ws.newRequest()
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .setParam("version", "v1")
+      .executeProtobuf(WsProjectResponse.class);
+
+    assertThat(wsProjectResponse.getVersion()).isEqualTo("v1");
+    assertThat(wsProjectResponse.getNotModified()).isTrue();
+    assertThat(wsProjectResponse.getFileDataByModuleAndPath()).isEmpty();
+    assertThat(wsProjectResponse.getSettingsByModule().get("module-1").getSettings()).containsOnly(entry("sonar.foo", "bar"));
+  }
 }
@@ -41,8 +41,10 @@ import org.sonar.server.tester.UserSessionRule;
 
 import static java.lang.String.format;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.junit.Assert.fail;
 import static org.sonar.db.permission.OrganizationPermission.SCAN;
+import static org.sonar.db.property.PropertyTesting.newComponentPropertyDto;
 
 public class ProjectDataLoaderTest {
   @Rule
@@ -179,4 +181,55 @@ public class ProjectDataLoaderTest {
 
     assertThat(repositories).isNotNull();
   }
+
+  @Test
+  public void return_version_of_project_data() {
+    ComponentDto project = dbTester.components().insertProject();
+    userSession.logIn().addProjectUuidPermissions(GlobalPermissions.SCAN_EXECUTION, project.uuid());
+
+    ProjectRepositories repositories = underTest.load(ProjectDataQuery.create().setModuleKey(project.key()));
+
+    assertThat(repositories.version()).isNotEmpty();
+    assertThat(repositories.notModified()).isFalse();
+    assertThat(underTest.load(ProjectDataQuery.create().setModuleKey(project.key())).version()).isEqualTo(repositories.version());
+  }
+
+  @Test
+  public void not_modified_if_known_version_is_the_current_one() {
+    ComponentDto project = dbTester.components().insertProject();
+    userSession.logIn().addProjectUuidPermissions(GlobalPermissions.SCAN_EXECUTION, project.uuid());
+    String version = underTest.load(ProjectDataQuery.create().setModuleKey(project.key())).version();
+
+    ProjectRepositories repositories = underTest.load(ProjectDataQuery.create().setModuleKey(project.key()).setKnownVersion(version));
+
+    assertThat(repositories.version()).isEqualTo(version);
+    assertThat(repositories.notModified()).isTrue();
+  }
+
+  @Test
+  public void version_changes_when_project_is_analyzed() {
+    ComponentDto project = dbTester.components().insertProject();
+    userSession.logIn().addProjectUuidPermissions(GlobalPermissions.SCAN_EXECUTION, project.uuid());
+    String initialVersion = underTest.load(ProjectDataQuery.create().setModuleKey(project.key())).version();
+
+    dbTester.components().insertSnapshot(project, analysis -> analysis.setLast(true));
+    ProjectRepositories afterAnalysis = underTest.load(ProjectDataQuery.create().setModuleKey(project.key()).setKnownVersion(initialVersion));
+
+    assertThat(afterAnalysis.version()).isNotEqualTo(initialVersion);
+    assertThat(afterAnalysis.notModified()).isFalse();
+  }
+
+  @Test
+  public void return_up_to_date_settings_when_not_modified() {
+    ComponentDto project = dbTester.components().insertProject();
+    userSession.logIn().addProjectUuidPermissions(GlobalPermissions.SCAN_EXECUTION, project.uuid());
+    String version = underTest.load(ProjectDataQuery.create().setModuleKey(project.key())).version();
+
+    dbTester.properties().insertProperty(newComponentPropertyDto("sonar.foo", "bar", project));
+    ProjectRepositories afterSettings = underTest.load(ProjectDataQuery.create().setModuleKey(project.key()).setKnownVersion(version));
+
+    assertThat(afterSettings.version()).isEqualTo(version);
+    assertThat(afterSettings.notModified()).isTrue();
+    assertThat(afterSettings.settings(project.key())).containsOnly(entry("sonar.foo", "bar"));
+  }
 }
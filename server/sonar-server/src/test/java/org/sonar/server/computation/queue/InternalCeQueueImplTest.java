@@ -250,6 +250,62 @@ public class InternalCeQueueImplTest {
     assertThat(peek.isPresent()).isFalse();
   }
 
+  @Test
+  public void peek_returns_tasks_claimed_for_concurrent_peeks_without_claiming_again() {
+    underTest = newQueueWithConcurrentPeeks(2);
+    CeTask task1 = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask task2 = submit(CeTaskTypes.REPORT, "PROJECT_2");
+
+    // both tasks are claimed by the first peek
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(task1.getUuid());
+    assertThat(selectStatus(task2)).isEqualTo(CeQueueDto.Status.IN_PROGRESS);
+    CeTask task3 = submit(CeTaskTypes.REPORT, "PROJECT_3");
+
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(task2.getUuid());
+    assertThat(selectStatus(task3)).isEqualTo(CeQueueDto.Status.PENDING);
+  }
+
+  @Test
+  public void pausePeek_sets_back_to_pending_the_tasks_claimed_for_concurrent_peeks() {
+    underTest = newQueueWithConcurrentPeeks(2);
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask task2 = submit(CeTaskTypes.REPORT, "PROJECT_2");
+    underTest.peek();
+
+    underTest.pausePeek();
+
+    assertThat(selectStatus(task2)).isEqualTo(CeQueueDto.Status.PENDING);
+    assertThat(underTest.peek().isPresent()).isFalse();
+    underTest.resumePeek();
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(task2.getUuid());
+  }
+
+  @Test
+  public void clear_cancels_the_tasks_claimed_for_concurrent_peeks() {
+    underTest = newQueueWithConcurrentPeeks(2);
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask task2 = submit(CeTaskTypes.REPORT, "PROJECT_2");
+    underTest.peek();
+
+    assertThat(underTest.clear()).isEqualTo(2);
+
+    assertThat(underTest.peek().isPresent()).isFalse();
+    assertThat(dbTester.getDbClient().ceActivityDao().selectByUuid(session, task2.getUuid()).get().getStatus()).isEqualTo(CeActivityDto.Status.CANCELED);
+  }
+
+  @Test
+  public void cancel_discards_the_task_claimed_for_a_concurrent_peek() {
+    underTest = newQueueWithConcurrentPeeks(2);
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask task2 = submit(CeTaskTypes.REPORT, "PROJECT_2");
+    underTest.peek();
+
+    underTest.cancel(session, dbTester.getDbClient().ceQueueDao().selectByUuid(session, task2.getUuid()).get());
+
+    assertThat(underTest.peek().isPresent()).isFalse();
+    assertThat(dbTester.getDbClient().ceActivityDao().selectByUuid(session, task2.getUuid()).get().getStatus()).isEqualTo(CeActivityDto.Status.CANCELED);
+  }
+
   @Test
   public void cancel_pending() throws Exception {
     CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
@@ -312,6 +368,22 @@ public class InternalCeQueueImplTest {
     assertThat(underTest.isPeekPaused()).isFalse();
   }
 
+  /**
+   * Queue which claims tasks as if the specified number of workers were peeking at the same time
+   */
+  private InternalCeQueueImpl newQueueWithConcurrentPeeks(int concurrentPeeks) {
+    return new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider) {
+      @Override
+      int countConcurrentPeeks() {
+        return concurrentPeeks;
+      }
+    };
+  }
+
+  private CeQueueDto.Status selectStatus(CeTask task) {
+    return dbTester.getDbClient().ceQueueDao().selectByUuid(session, task.getUuid()).get().getStatus();
+  }
+
   private void verifyCeTask(CeTaskSubmit taskSubmit, CeTask task, @Nullable ComponentDto componentDto) {
     if (componentDto == null) {
       assertThat(task.getOrganizationUuid()).isEqualTo(defaultOrganizationProvider.get().getUuid());
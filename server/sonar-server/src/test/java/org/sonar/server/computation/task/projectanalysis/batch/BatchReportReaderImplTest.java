@@ -25,6 +25,7 @@ import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.internal.JUnitTempFolder;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.protocol.output.ScannerReport;
@@ -315,4 +316,27 @@ public class BatchReportReaderImplTest {
     assertThat(res).containsExactly(COVERAGE_DETAIL_1, COVERAGE_DETAIL_2);
     res.close();
   }
+
+  @Test
+  public void read_zipped_report_without_extracting_it() throws IOException {
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().setProjectKey("PROJECT").build());
+    writer.writeComponent(COMPONENT);
+    writer.writeTests(COMPONENT_REF, of(TEST_1, TEST_2));
+    FileUtils.write(writer.getSourceFile(COMPONENT_REF), "line1\nline2");
+    FileUtils.write(writer.getFileStructure().analysisLog(), "log1\nlog2");
+    File zip = tempFolder.newFile();
+    ZipUtils.zipDir(writer.getFileStructure().root(), zip);
+
+    BatchReportReaderImpl zipReader = new BatchReportReaderImpl(new ImmutableBatchReportDirectoryHolder(zip));
+    try {
+      assertThat(zipReader.readMetadata().getProjectKey()).isEqualTo("PROJECT");
+      assertThat(zipReader.readComponent(COMPONENT_REF)).isEqualTo(COMPONENT);
+      assertThat(zipReader.readTests(COMPONENT_REF)).containsExactly(TEST_1, TEST_2);
+      assertThat(zipReader.readFileSource(COMPONENT_REF).get()).containsExactly("line1", "line2");
+      assertThat(zipReader.readScannerLogs()).containsExactly("log1", "log2");
+      assertThat(zipReader.readCoverageDetails(COMPONENT_REF)).isEmpty();
+    } finally {
+      zipReader.stop();
+    }
+  }
 }
@@ -0,0 +1,113 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.sonar.server.computation.task.projectanalysis.filemove.FileSimilarity.File;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CandidateFilePairsTest {
+
+  @Test
+  public void mayReachMinRequiredScore_is_false_if_a_file_is_empty() {
+    assertThat(CandidateFilePairs.mayReachMinRequiredScore(new int[0], new int[0])).isFalse();
+    assertThat(CandidateFilePairs.mayReachMinRequiredScore(new int[] {1}, new int[0])).isFalse();
+    assertThat(CandidateFilePairs.mayReachMinRequiredScore(new int[0], new int[] {1})).isFalse();
+  }
+
+  @Test
+  public void mayReachMinRequiredScore_is_false_if_number_of_lines_is_too_different() {
+    // 15% of the lines of the biggest file can be added
+    assertThat(CandidateFilePairs.mayReachMinRequiredScore(range(0, 85), range(0, 100))).isTrue();
+    assertThat(CandidateFilePairs.mayReachMinRequiredScore(range(0, 84), range(0, 100))).isFalse();
+    assertThat(CandidateFilePairs.mayReachMinRequiredScore(range(0, 100), range(0, 84))).isFalse();
+  }
+
+  @Test
+  public void mayReachMinRequiredScore_is_false_if_too_many_lines_are_not_in_both_files() {
+    // 15% of the lines of the biggest file can be changed
+    assertThat(CandidateFilePairs.mayReachMinRequiredScore(range(0, 100), range(15, 115))).isTrue();
+    assertThat(CandidateFilePairs.mayReachMinRequiredScore(range(0, 100), range(16, 116))).isFalse();
+  }
+
+  @Test
+  public void find_keeps_only_pairs_which_may_reach_min_required_score() {
+    List<File> dbFiles = asList(file("a", "b", "c"), file("d", "e", "f"), file());
+    List<File> reportFiles = asList(file("x", "y", "z"), file("a", "b", "c"), file("f", "e", "d"));
+
+    CandidateFilePairs underTest = CandidateFilePairs.find(dbFiles, reportFiles, 10);
+
+    assertThat(underTest.size()).isEqualTo(2);
+    assertThat(underTest.getReportFileIndexes(0)).containsExactly(1);
+    // order of lines is not taken into account
+    assertThat(underTest.getReportFileIndexes(1)).containsExactly(2);
+    assertThat(underTest.getReportFileIndexes(2)).isEmpty();
+  }
+
+  @Test
+  public void find_returns_null_if_there_are_more_pairs_than_the_specified_maximum() {
+    List<File> dbFiles = asList(file("a", "b", "c"), file("d", "e", "f"));
+    List<File> reportFiles = asList(file("a", "b", "c"), file("d", "e", "f"));
+
+    assertThat(CandidateFilePairs.find(dbFiles, reportFiles, 2)).isNotNull();
+    assertThat(CandidateFilePairs.find(dbFiles, reportFiles, 1)).isNull();
+  }
+
+  @Test
+  public void find_uses_buckets_of_similar_files_when_there_are_many_pairs() {
+    int filesCount = 200;
+    List<File> dbFiles = new ArrayList<>();
+    List<File> reportFiles = new ArrayList<>();
+    for (int i = 0; i < filesCount; i++) {
+      List<String> lines = new ArrayList<>();
+      for (int line = 0; line < 50; line++) {
+        lines.add(i + "_" + line);
+      }
+      dbFiles.add(new File("db_" + i, lines));
+      List<String> changedLines = new ArrayList<>(lines);
+      changedLines.set(10, "changed");
+      changedLines.set(20, "changed");
+      reportFiles.add(new File("report_" + i, changedLines));
+    }
+
+    CandidateFilePairs underTest = CandidateFilePairs.find(dbFiles, reportFiles, filesCount);
+
+    assertThat(underTest.size()).isEqualTo(filesCount);
+    for (int i = 0; i < filesCount; i++) {
+      assertThat(underTest.getReportFileIndexes(i)).containsExactly(i);
+    }
+  }
+
+  private static File file(String... lineHashes) {
+    return new File("path", asList(lineHashes));
+  }
+
+  private static int[] range(int from, int to) {
+    int[] res = new int[to - from];
+    for (int i = 0; i < res.length; i++) {
+      res[i] = from + i;
+    }
+    return res;
+  }
+}
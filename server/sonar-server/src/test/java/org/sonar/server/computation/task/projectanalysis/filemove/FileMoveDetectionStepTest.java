@@ -34,6 +34,9 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.core.hash.SourceLinesHashesComputer;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -222,16 +225,19 @@ public class FileMoveDetectionStepTest {
   public SourceLinesRepositoryRule sourceLinesRepository = new SourceLinesRepositoryRule();
   @Rule
   public MutableMovedFilesRepositoryRule movedFilesRepository = new MutableMovedFilesRepositoryRule();
+  @Rule
+  public LogTester logTester = new LogTester();
 
   private DbClient dbClient = mock(DbClient.class);
   private DbSession dbSession = mock(DbSession.class);
   private ComponentDao componentDao = mock(ComponentDao.class);
   private FileSourceDao fileSourceDao = mock(FileSourceDao.class);
   private FileSimilarity fileSimilarity = new FileSimilarityImpl(new SourceSimilarityImpl());
+  private MapSettings settings = new MapSettings();
   private long dbIdGenerator = 0;
 
   private FileMoveDetectionStep underTest = new FileMoveDetectionStep(analysisMetadataHolder, treeRootHolder, dbClient,
-    sourceLinesRepository, fileSimilarity, movedFilesRepository);
+    sourceLinesRepository, fileSimilarity, movedFilesRepository, settings);
 
   @Before
   public void setUp() throws Exception {
@@ -454,6 +460,79 @@ public class FileMoveDetectionStepTest {
     assertThat(originalFile5.getUuid()).isEqualTo(dtos[3].uuid());
   }
 
+  @Test
+  public void execute_detects_moves_among_many_files() {
+    // enough files for candidate pairs to be found with MinHash
+    analysisMetadataHolder.setBaseAnalysis(ANALYSIS);
+    int filesCount = 120;
+    String[] dbKeys = new String[filesCount];
+    for (int i = 0; i < filesCount; i++) {
+      dbKeys[i] = "removed_" + i;
+      mockContentOfFileInDb(dbKeys[i], contentOfFile(i));
+    }
+    mockComponents(dbKeys);
+    Component[] reportFiles = new Component[filesCount];
+    for (int i = 0; i < filesCount; i++) {
+      reportFiles[i] = fileComponent(10 + i);
+      // files are renamed, every tenth one with a small change
+      String[] content = contentOfFile(i);
+      if (i % 10 == 0) {
+        content[5] = "changed";
+      }
+      setFileContentInReport(10 + i, content);
+    }
+    setFilesInReport(reportFiles);
+
+    underTest.execute();
+
+    assertThat(movedFilesRepository.getComponentsWithOriginal()).containsOnly(reportFiles);
+    for (int i = 0; i < filesCount; i++) {
+      assertThat(movedFilesRepository.getOriginalFile(reportFiles[i]).get().getKey()).isEqualTo(dbKeys[i]);
+    }
+  }
+
+  @Test
+  public void execute_detects_no_move_if_there_are_too_many_pairs_of_files_to_compare() {
+    settings.setProperty("sonar.filemove.maxCandidatePairs", 1);
+    analysisMetadataHolder.setBaseAnalysis(ANALYSIS);
+    mockComponents(FILE_1.getKey(), FILE_2.getKey());
+    mockContentOfFileInDb(FILE_1.getKey(), CONTENT1);
+    mockContentOfFileInDb(FILE_2.getKey(), CONTENT2);
+    setFilesInReport(FILE_3, fileComponent(5));
+    setFileContentInReport(FILE_3_REF, CONTENT1);
+    setFileContentInReport(5, CONTENT2);
+
+    underTest.execute();
+
+    assertThat(movedFilesRepository.getComponentsWithOriginal()).isEmpty();
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsOnly(
+      "File move detection aborted: more than 1 pairs of files to compare (removed files=2, added files=2). Limit can be changed with property sonar.filemove.maxCandidatePairs.");
+  }
+
+  @Test
+  public void execute_detects_no_move_if_timeout_is_exceeded() {
+    settings.setProperty("sonar.filemove.timeoutInMs", 0);
+    analysisMetadataHolder.setBaseAnalysis(ANALYSIS);
+    mockComponents(FILE_1.getKey());
+    mockContentOfFileInDb(FILE_1.getKey(), CONTENT1);
+    setFilesInReport(FILE_2);
+    setFileContentInReport(FILE_2_REF, CONTENT1);
+
+    underTest.execute();
+
+    assertThat(movedFilesRepository.getComponentsWithOriginal()).isEmpty();
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsOnly(
+      "File move detection aborted: similarity of 1 pairs of files not computed within 0ms (removed files=1, added files=1). Limit can be changed with property sonar.filemove.timeoutInMs.");
+  }
+
+  private static String[] contentOfFile(int index) {
+    String[] res = new String[20];
+    for (int line = 0; line < res.length; line++) {
+      res[line] = "file " + index + " line " + line;
+    }
+    return res;
+  }
+
   /**
    * JH: A bug was encountered in the algorithm and I didn't manage to forge a simpler test case.
    */
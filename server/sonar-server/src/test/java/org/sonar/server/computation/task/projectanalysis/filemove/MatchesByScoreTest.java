@@ -22,7 +22,6 @@ package org.sonar.server.computation.task.projectanalysis.filemove;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +29,7 @@ import java.util.Set;
 import org.junit.Test;
 
 import static com.google.common.collect.ImmutableSet.of;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -43,7 +43,7 @@ public class MatchesByScoreTest {
   public void creates_returns_always_the_same_instance_of_maxScore_is_less_than_min_required_score() {
     Set<String> doesNotMatterDbFileKeys = emptySet();
     Map<String, FileSimilarity.File> doesNotMatterReportFiles = Collections.emptyMap();
-    int[][] doesNotMatterScores = new int[0][0];
+    List<ScoreMatrix.Score> doesNotMatterScores = emptyList();
 
     ScoreMatrix scoreMatrix1 = new ScoreMatrix(doesNotMatterDbFileKeys, doesNotMatterReportFiles, doesNotMatterScores, MIN_REQUIRED_SCORE - 1);
     MatchesByScore matchesByScore = MatchesByScore.create(scoreMatrix1);
@@ -58,16 +58,15 @@ public class MatchesByScoreTest {
   @Test
   public void creates_supports_score_with_same_value_as_min_required_score() {
     int maxScore = 92;
-    int[][] scores = {
-      {maxScore},
-      {8},
-      {85},
-    };
+    List<ScoreMatrix.Score> scores = asList(
+      new ScoreMatrix.Score("A", "1", maxScore),
+      new ScoreMatrix.Score("B", "1", 8),
+      new ScoreMatrix.Score("C", "1", 85));
     MatchesByScore matchesByScore = MatchesByScore.create(new ScoreMatrix(
       of("A", "B", "C"), ImmutableMap.of("1", fileOf("1")), scores, maxScore));
 
     assertThat(matchesByScore.getSize()).isEqualTo(2);
-    assertThat(Lists.newArrayList(matchesByScore)).isEqualTo(Arrays.asList(
+    assertThat(Lists.newArrayList(matchesByScore)).isEqualTo(asList(
       ImmutableList.of(new Match("A", "1")), // 92
       NO_MATCH,
       NO_MATCH,
@@ -79,6 +78,17 @@ public class MatchesByScoreTest {
     ));
   }
 
+  @Test
+  public void creates_ignores_pairs_without_score() {
+    int maxScore = 90;
+    List<ScoreMatrix.Score> scores = asList(new ScoreMatrix.Score("B", "2", maxScore));
+    MatchesByScore matchesByScore = MatchesByScore.create(new ScoreMatrix(
+      of("A", "B"), ImmutableMap.of("1", fileOf("1"), "2", fileOf("2")), scores, maxScore));
+
+    assertThat(matchesByScore.getSize()).isEqualTo(1);
+    assertThat(Lists.newArrayList(matchesByScore).get(0)).containsExactly(new Match("B", "2"));
+  }
+
   private static FileSimilarity.File fileOf(String key) {
     return new FileSimilarity.File("path of " + key, emptyList());
   }
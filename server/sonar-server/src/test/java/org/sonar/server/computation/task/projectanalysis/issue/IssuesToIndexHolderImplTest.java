@@ -0,0 +1,51 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IssuesToIndexHolderImplTest {
+
+  private IssuesToIndexHolderImpl underTest = new IssuesToIndexHolderImpl();
+
+  @Test
+  public void nothing_to_index_by_default() {
+    assertThat(underTest.getIssueKeys()).isEmpty();
+    assertThat(underTest.isProjectReindexRequired()).isFalse();
+  }
+
+  @Test
+  public void add_issue_keys() {
+    underTest.addIssueKey("ISSUE1");
+    underTest.addIssueKey("ISSUE2");
+    underTest.addIssueKey("ISSUE1");
+
+    assertThat(underTest.getIssueKeys()).containsOnly("ISSUE1", "ISSUE2");
+  }
+
+  @Test
+  public void require_project_reindex() {
+    underTest.requireProjectReindex();
+
+    assertThat(underTest.isProjectReindexRequired()).isTrue();
+  }
+}
@@ -20,8 +20,12 @@
 package org.sonar.server.computation.task.projectanalysis.issue;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.source.FileSourceDao;
@@ -29,6 +33,9 @@ import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -97,4 +104,30 @@ public class TrackerBaseInputFactoryTest {
     verify(baseIssuesLoader).loadForComponentUuid(originalUuid);
     verify(baseIssuesLoader, times(0)).loadForComponentUuid(FILE_UUID);
   }
+
+  @Test
+  public void create_inputs_of_several_components_with_bulk_queries() {
+    String originalUuid = "original uuid";
+    ReportComponent movedFile = ReportComponent.builder(Component.Type.FILE, 2).setUuid("moved uuid").build();
+    ReportComponent directory = ReportComponent.builder(Component.Type.DIRECTORY, 3).setUuid("directory uuid").build();
+    when(movedFilesRepository.getOriginalFile(movedFile)).thenReturn(
+      Optional.of(new MovedFilesRepository.OriginalFile(6542, originalUuid, "original key")));
+    DefaultIssue fileIssue = new DefaultIssue().setComponentUuid(FILE_UUID);
+    DefaultIssue movedFileIssue = new DefaultIssue().setComponentUuid(originalUuid);
+    when(fileSourceDao.selectLineHashes(dbSession, asList(FILE_UUID, originalUuid)))
+      .thenReturn(ImmutableMap.of(FILE_UUID, asList("a", "b"), originalUuid, asList("c")));
+    when(baseIssuesLoader.loadForComponentUuids(asList(FILE_UUID, originalUuid, "directory uuid")))
+      .thenReturn(ImmutableMap.of(FILE_UUID, singletonList(fileIssue), originalUuid, singletonList(movedFileIssue)));
+
+    List<Input<DefaultIssue>> inputs = underTest.create(asList(FILE, movedFile, directory));
+
+    assertThat(inputs).hasSize(3);
+    assertThat(inputs.get(0).getLineHashSequence().length()).isEqualTo(2);
+    assertThat(inputs.get(0).getIssues()).containsExactly(fileIssue);
+    assertThat(inputs.get(1).getLineHashSequence().length()).isEqualTo(1);
+    assertThat(inputs.get(1).getIssues()).containsExactly(movedFileIssue);
+    assertThat(inputs.get(2).getLineHashSequence().length()).isEqualTo(0);
+    assertThat(inputs.get(2).getIssues()).isEmpty();
+    verify(baseIssuesLoader, times(0)).loadForComponentUuid(any(String.class));
+  }
 }
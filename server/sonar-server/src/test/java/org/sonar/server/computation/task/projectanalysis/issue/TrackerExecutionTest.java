@@ -0,0 +1,231 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.MDC;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
+import org.sonar.core.issue.tracking.Tracker;
+import org.sonar.core.issue.tracking.Tracking;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
+
+public class TrackerExecutionTest {
+
+  private static final Component FILE_1 = builder(Component.Type.FILE, 2).setUuid("FILE_1").build();
+  private static final Component FILE_2 = builder(Component.Type.FILE, 3).setUuid("FILE_2").build();
+  private static final Component PROJECT = builder(Component.Type.PROJECT, 1).setUuid("PROJECT").addChildren(FILE_1, FILE_2).build();
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
+
+  private TrackerBaseInputFactory baseInputFactory = mock(TrackerBaseInputFactory.class);
+  private TrackerRawInputFactory rawInputFactory = mock(TrackerRawInputFactory.class);
+  @SuppressWarnings("unchecked")
+  private Tracker<DefaultIssue, DefaultIssue> tracker = mock(Tracker.class);
+
+  private Map<Component, Input<DefaultIssue>> rawInputs = new HashMap<>();
+  private Map<Component, Input<DefaultIssue>> baseInputs = new HashMap<>();
+  private Map<Component, Tracking<DefaultIssue, DefaultIssue>> trackings = new HashMap<>();
+
+  private TrackerExecution underTest = new TrackerExecution(baseInputFactory, rawInputFactory, tracker, treeRootHolder);
+
+  @Before
+  public void setUp() {
+    when(baseInputFactory.create(anyListOf(Component.class))).thenAnswer(invocation -> {
+      List<Component> components = (List<Component>) invocation.getArguments()[0];
+      List<Input<DefaultIssue>> inputs = new ArrayList<>();
+      components.forEach(component -> inputs.add(baseInputs.get(component)));
+      return inputs;
+    });
+  }
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void track_components_with_prefetched_trackings_when_visited_in_expected_order() {
+    treeRootHolder.setRoot(PROJECT);
+    mockInputs(FILE_1, FILE_2, PROJECT);
+
+    assertThat(underTest.track(FILE_1)).isSameAs(trackings.get(FILE_1));
+    assertThat(underTest.track(FILE_2)).isSameAs(trackings.get(FILE_2));
+    assertThat(underTest.track(PROJECT)).isSameAs(trackings.get(PROJECT));
+
+    verify(baseInputFactory).create(asList(FILE_1, FILE_2, PROJECT));
+    verify(baseInputFactory, never()).create(any(Component.class));
+    verify(rawInputFactory, never()).create(any(Component.class));
+  }
+
+  @Test
+  public void track_component_again_when_it_has_issues_of_common_rules() {
+    treeRootHolder.setRoot(PROJECT);
+    mockInputs(FILE_1, FILE_2, PROJECT);
+    List<DefaultIssue> commonRuleIssues = asList(new DefaultIssue());
+    Input<DefaultIssue> rawInputWithCommonRuleIssues = mockInput();
+    Tracking<DefaultIssue, DefaultIssue> tracking = mockTracking();
+    when(rawInputFactory.loadCommonRuleIssues(FILE_1)).thenReturn(commonRuleIssues);
+    when(rawInputFactory.withCommonRuleIssues(rawInputs.get(FILE_1), commonRuleIssues)).thenReturn(rawInputWithCommonRuleIssues);
+    when(tracker.track(rawInputWithCommonRuleIssues, baseInputs.get(FILE_1))).thenReturn(tracking);
+
+    assertThat(underTest.track(FILE_1)).isSameAs(tracking);
+    assertThat(underTest.track(FILE_2)).isSameAs(trackings.get(FILE_2));
+  }
+
+  @Test
+  public void track_components_with_prefetched_trackings_when_not_visited_in_expected_order() {
+    treeRootHolder.setRoot(PROJECT);
+    mockInputs(FILE_1, FILE_2, PROJECT);
+
+    assertThat(underTest.track(FILE_2)).isSameAs(trackings.get(FILE_2));
+    assertThat(underTest.track(PROJECT)).isSameAs(trackings.get(PROJECT));
+    assertThat(underTest.track(FILE_1)).isSameAs(trackings.get(FILE_1));
+
+    verify(baseInputFactory, never()).create(any(Component.class));
+    verify(rawInputFactory, never()).create(any(Component.class));
+  }
+
+  @Test
+  public void track_component_synchronously_when_not_prefetched() {
+    treeRootHolder.setRoot(PROJECT);
+    mockInputs(FILE_1, FILE_2, PROJECT);
+    Input<DefaultIssue> rawInput = mockInput();
+    Input<DefaultIssue> baseInput = mockInput();
+    Tracking<DefaultIssue, DefaultIssue> tracking = mockTracking();
+    when(rawInputFactory.create(FILE_1)).thenReturn(rawInput);
+    when(baseInputFactory.create(FILE_1)).thenReturn(baseInput);
+    when(tracker.track(rawInput, baseInput)).thenReturn(tracking);
+
+    assertThat(underTest.track(FILE_1)).isSameAs(trackings.get(FILE_1));
+    // already tracked, so no more prefetched
+    assertThat(underTest.track(FILE_1)).isSameAs(tracking);
+    assertThat(underTest.track(FILE_2)).isSameAs(trackings.get(FILE_2));
+  }
+
+  @Test
+  public void propagate_mdc_to_threads_of_prefetching() {
+    treeRootHolder.setRoot(PROJECT);
+    mockInputs(FILE_1, FILE_2, PROJECT);
+    Map<Component, String> mdcValues = new ConcurrentHashMap<>();
+    when(rawInputFactory.createWithoutCommonRuleIssues(any(Component.class))).thenAnswer(invocation -> {
+      Component component = (Component) invocation.getArguments()[0];
+      mdcValues.put(component, String.valueOf(MDC.get("ceTaskUuid")));
+      return rawInputs.get(component);
+    });
+
+    MDC.put("ceTaskUuid", "TASK_1");
+    try {
+      underTest.track(FILE_1);
+      underTest.track(FILE_2);
+      underTest.track(PROJECT);
+    } finally {
+      MDC.remove("ceTaskUuid");
+    }
+
+    assertThat(mdcValues).containsOnlyKeys(FILE_1, FILE_2, PROJECT);
+    assertThat(mdcValues.values()).containsOnly("TASK_1");
+  }
+
+  @Test
+  public void prefetch_components_by_batches() {
+    List<Component> files = new ArrayList<>();
+    for (int i = 0; i < TrackerExecution.BATCH_SIZE + 10; i++) {
+      files.add(builder(Component.Type.FILE, i + 2).setUuid("FILE_" + i).build());
+    }
+    Component project = builder(Component.Type.PROJECT, 1).setUuid("PROJECT").addChildren(files.toArray(new Component[0])).build();
+    treeRootHolder.setRoot(project);
+    mockInputs(files.toArray(new Component[0]));
+    mockInputs(project);
+
+    for (Component file : files) {
+      assertThat(underTest.track(file)).isSameAs(trackings.get(file));
+    }
+    assertThat(underTest.track(project)).isSameAs(trackings.get(project));
+
+    ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+    verify(baseInputFactory, times(2)).create(batches.capture());
+    assertThat(batches.getAllValues().get(0)).hasSize(TrackerExecution.BATCH_SIZE);
+    assertThat(batches.getAllValues().get(1)).hasSize(11);
+  }
+
+  @Test
+  public void fail_with_error_of_prefetching() {
+    treeRootHolder.setRoot(PROJECT);
+    doThrow(new IllegalStateException("Fail to load issues")).when(baseInputFactory).create(anyListOf(Component.class));
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to load issues");
+
+    underTest.track(FILE_1);
+  }
+
+  private void mockInputs(Component... components) {
+    for (Component component : components) {
+      Input<DefaultIssue> rawInput = mockInput();
+      Input<DefaultIssue> baseInput = mockInput();
+      Tracking<DefaultIssue, DefaultIssue> tracking = mockTracking();
+      rawInputs.put(component, rawInput);
+      baseInputs.put(component, baseInput);
+      trackings.put(component, tracking);
+      when(rawInputFactory.createWithoutCommonRuleIssues(component)).thenReturn(rawInput);
+      when(rawInputFactory.loadCommonRuleIssues(component)).thenReturn(Collections.emptyList());
+      when(tracker.track(rawInput, baseInput)).thenReturn(tracking);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Input<DefaultIssue> mockInput() {
+    return mock(Input.class);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Tracking<DefaultIssue, DefaultIssue> mockTracking() {
+    return mock(Tracking.class);
+  }
+}
@@ -21,6 +21,8 @@ package org.sonar.server.computation.task.projectanalysis.issue;
 
 import com.google.common.collect.Iterators;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.issue.Issue;
@@ -32,9 +34,9 @@ import org.sonar.scanner.protocol.Constants;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.TextRange;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
-import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.issue.commonrule.CommonRuleEngine;
 import org.sonar.server.computation.task.projectanalysis.issue.filter.IssueFilter;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepositoryRule;
@@ -45,6 +47,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class TrackerRawInputFactoryTest {
@@ -189,6 +192,56 @@ public class TrackerRawInputFactoryTest {
     assertThat(input.getIssues()).isEmpty();
   }
 
+  @Test
+  public void createWithoutCommonRuleIssues_loads_only_issues_from_report() throws Exception {
+    when(issueFilter.accept(any(DefaultIssue.class), eq(FILE))).thenReturn(true);
+    fileSourceRepository.addLines(FILE_REF, "line 1;", "line 2;");
+    ScannerReport.Issue reportIssue = ScannerReport.Issue.newBuilder()
+      .setMsg("the message")
+      .setRuleRepository("java")
+      .setRuleKey("S001")
+      .setSeverity(Constants.Severity.BLOCKER)
+      .build();
+    reportReader.putIssues(FILE.getReportAttributes().getRef(), asList(reportIssue));
+    DefaultIssue ceIssue = new DefaultIssue()
+      .setRuleKey(RuleKey.of(CommonRuleKeys.commonRepositoryForLang("java"), "InsufficientCoverage"))
+      .setMessage("not enough coverage");
+    when(commonRuleEngine.process(FILE)).thenReturn(asList(ceIssue));
+
+    Input<DefaultIssue> input = underTest.createWithoutCommonRuleIssues(FILE);
+
+    assertThat(input.getIssues()).extracting(DefaultIssue::ruleKey).containsExactly(RuleKey.of("java", "S001"));
+    verifyZeroInteractions(commonRuleEngine);
+  }
+
+  @Test
+  public void withCommonRuleIssues_returns_same_issues_as_create() throws Exception {
+    when(issueFilter.accept(any(DefaultIssue.class), eq(FILE))).thenReturn(true);
+    fileSourceRepository.addLines(FILE_REF, "line 1;", "line 2;");
+    ScannerReport.Issue reportIssue = ScannerReport.Issue.newBuilder()
+      .setMsg("the message")
+      .setRuleRepository("java")
+      .setRuleKey("S001")
+      .setSeverity(Constants.Severity.BLOCKER)
+      .build();
+    reportReader.putIssues(FILE.getReportAttributes().getRef(), asList(reportIssue));
+    DefaultIssue ceIssue = new DefaultIssue()
+      .setRuleKey(RuleKey.of(CommonRuleKeys.commonRepositoryForLang("java"), "InsufficientCoverage"))
+      .setMessage("not enough coverage");
+    when(commonRuleEngine.process(FILE)).thenReturn(asList(ceIssue));
+
+    Input<DefaultIssue> reportInput = underTest.createWithoutCommonRuleIssues(FILE);
+    List<DefaultIssue> commonRuleIssues = underTest.loadCommonRuleIssues(FILE);
+    Input<DefaultIssue> input = underTest.withCommonRuleIssues(reportInput, commonRuleIssues);
+
+    assertThat(commonRuleIssues).containsExactly(ceIssue);
+    assertInitializedIssue(ceIssue);
+    assertThat(input.getIssues()).extracting(DefaultIssue::ruleKey)
+      .containsExactly(ceIssue.ruleKey(), RuleKey.of("java", "S001"));
+    assertThat(input.getLineHashSequence()).isSameAs(reportInput.getLineHashSequence());
+    assertThat(underTest.withCommonRuleIssues(reportInput, Collections.emptyList())).isSameAs(reportInput);
+  }
+
   private void assertInitializedIssue(DefaultIssue issue) {
     assertThat(issue.componentKey()).isEqualTo(FILE.getKey());
     assertThat(issue.componentUuid()).isEqualTo(FILE.getUuid());
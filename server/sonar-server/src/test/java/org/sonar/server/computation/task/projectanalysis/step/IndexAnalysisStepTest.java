@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
@@ -26,11 +27,18 @@ import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.component.ViewsComponent;
+import org.sonar.server.computation.task.projectanalysis.issue.IssuesToIndexHolderImpl;
 import org.sonar.server.computation.task.step.ComputationStep;
 import org.sonar.server.es.ProjectIndexer;
+import org.sonar.server.issue.index.IssueIndexer;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.VIEW;
 
@@ -45,7 +53,9 @@ public class IndexAnalysisStepTest extends BaseStepTest {
   public BatchReportReaderRule reportReader = new BatchReportReaderRule();
 
   private ProjectIndexer componentIndexer = mock(ProjectIndexer.class);
-  private IndexAnalysisStep underTest = new IndexAnalysisStep(treeRootHolder, componentIndexer);
+  private IssueIndexer issueIndexer = mock(IssueIndexer.class);
+  private IssuesToIndexHolderImpl issuesToIndexHolder = new IssuesToIndexHolderImpl();
+  private IndexAnalysisStep underTest = new IndexAnalysisStep(treeRootHolder, issuesToIndexHolder, issueIndexer, componentIndexer, issueIndexer);
 
   @Test
   public void call_indexByProjectUuid_of_indexer_for_project() {
@@ -67,6 +77,40 @@ public class IndexAnalysisStepTest extends BaseStepTest {
     verify(componentIndexer).indexProject(PROJECT_UUID, ProjectIndexer.Cause.NEW_ANALYSIS);
   }
 
+  @Test
+  public void index_only_issues_persisted_by_analysis() {
+    treeRootHolder.setRoot(ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build());
+    issuesToIndexHolder.addIssueKey("ISSUE1");
+    issuesToIndexHolder.addIssueKey("ISSUE2");
+
+    underTest.execute();
+
+    verify(issueIndexer).index(ImmutableSet.of("ISSUE1", "ISSUE2"));
+    verify(issueIndexer, never()).indexProject(anyString(), any(ProjectIndexer.Cause.class));
+  }
+
+  @Test
+  public void do_not_index_issues_if_none_persisted_by_analysis() {
+    treeRootHolder.setRoot(ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build());
+
+    underTest.execute();
+
+    verify(componentIndexer).indexProject(PROJECT_UUID, ProjectIndexer.Cause.NEW_ANALYSIS);
+    verifyZeroInteractions(issueIndexer);
+  }
+
+  @Test
+  public void index_all_issues_of_project_if_required() {
+    treeRootHolder.setRoot(ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build());
+    issuesToIndexHolder.addIssueKey("ISSUE1");
+    issuesToIndexHolder.requireProjectReindex();
+
+    underTest.execute();
+
+    verify(issueIndexer).indexProject(PROJECT_UUID, ProjectIndexer.Cause.NEW_ANALYSIS);
+    verify(issueIndexer, never()).index(anyCollectionOf(String.class));
+  }
+
   @Override
   protected ComputationStep step() {
     return underTest;
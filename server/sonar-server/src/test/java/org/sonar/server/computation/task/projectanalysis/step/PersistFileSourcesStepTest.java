@@ -34,6 +34,7 @@ import org.sonar.db.source.FileSourceDto.Type;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.Component.ComponentType;
 import org.sonar.scanner.protocol.output.ScannerReport.SyntaxHighlightingRule.HighlightingType;
+import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
@@ -46,12 +47,17 @@ import org.sonar.server.computation.task.projectanalysis.duplication.InnerDuplic
 import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
 import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepositoryRule;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class PersistFileSourcesStepTest extends BaseStepTest {
@@ -302,6 +308,12 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     // Sources from the report
     initBasicReport(1);
 
+    // first analysis only sets the missing inputs hash (progressive migration)
+    underTest.execute();
+    String inputsHash = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID).getInputsHash();
+    assertThat(inputsHash).isNotEmpty();
+
+    when(system2.now()).thenReturn(NOW + 1);
     underTest.execute();
 
     assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(1);
@@ -309,8 +321,133 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getSrcHash()).isEqualTo(srcHash);
     assertThat(fileSourceDto.getLineHashes()).isEqualTo(lineHashes);
     assertThat(fileSourceDto.getDataHash()).isEqualTo(dataHash);
+    assertThat(fileSourceDto.getInputsHash()).isEqualTo(inputsHash);
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(past);
-    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(past);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void persist_inputs_hash() {
+    initBasicReport(2);
+
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getInputsHash()).hasSize(32);
+  }
+
+  @Test
+  public void not_compute_sources_when_inputs_are_unchanged() {
+    initBasicReport(1);
+    reportReader.putCoverage(FILE_REF, newArrayList(ScannerReport.LineCoverage.newBuilder()
+      .setLine(1)
+      .setConditions(10)
+      .setHits(true)
+      .build()));
+    underTest.execute();
+
+    // data computed from the same inputs is not computed again
+    FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    dbClient.fileSourceDao().update(session, dto.setDataHash("not recomputed"));
+    session.commit();
+    when(system2.now()).thenReturn(NOW + 1);
+
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getDataHash()).isEqualTo("not recomputed");
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void compute_sources_when_coverage_changed() {
+    initBasicReport(1);
+    underTest.execute();
+    String inputsHash = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID).getInputsHash();
+
+    reportReader.putCoverage(FILE_REF, newArrayList(ScannerReport.LineCoverage.newBuilder()
+      .setLine(1)
+      .setConditions(10)
+      .setHits(true)
+      .build()));
+    when(system2.now()).thenReturn(NOW + 1);
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getInputsHash()).isNotEqualTo(inputsHash);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW + 1);
+    assertThat(fileSourceDto.getSourceData().getLines(0).getConditions()).isEqualTo(10);
+  }
+
+  @Test
+  public void compute_sources_when_highlighting_changed() {
+    initBasicReport(1);
+    underTest.execute();
+    String inputsHash = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID).getInputsHash();
+
+    reportReader.putSyntaxHighlighting(FILE_REF, newArrayList(ScannerReport.SyntaxHighlightingRule.newBuilder()
+      .setRange(ScannerReport.TextRange.newBuilder()
+        .setStartLine(1).setEndLine(1)
+        .setStartOffset(2).setEndOffset(4)
+        .build())
+      .setType(HighlightingType.ANNOTATION)
+      .build()));
+    when(system2.now()).thenReturn(NOW + 1);
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getInputsHash()).isNotEqualTo(inputsHash);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW + 1);
+    assertThat(fileSourceDto.getSourceData().getLines(0).getHighlighting()).isEqualTo("2,4,a");
+  }
+
+  @Test
+  public void read_report_data_once_when_inputs_are_unchanged() {
+    initBasicReport(1);
+    underTest.execute();
+    BatchReportReader spiedReportReader = spy(reportReader);
+    SourceLinesRepository spiedSourceLinesRepository = spy(fileSourceRepository);
+    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, spiedReportReader, spiedSourceLinesRepository, scmInfoRepository, duplicationRepository);
+
+    underTest.execute();
+
+    verify(spiedSourceLinesRepository, times(1)).readLines(any(Component.class));
+    verify(spiedReportReader, times(1)).readComponentCoverage(FILE_REF);
+    verify(spiedReportReader, times(1)).readComponentSyntaxHighlighting(FILE_REF);
+    verify(spiedReportReader, times(1)).readComponentSymbols(FILE_REF);
+  }
+
+  @Test
+  public void read_report_data_again_when_sources_are_computed() {
+    initBasicReport(1);
+    BatchReportReader spiedReportReader = spy(reportReader);
+    SourceLinesRepository spiedSourceLinesRepository = spy(fileSourceRepository);
+    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, spiedReportReader, spiedSourceLinesRepository, scmInfoRepository, duplicationRepository);
+
+    underTest.execute();
+
+    // once to compute the inputs hash, once to compute the sources
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(1);
+    verify(spiedSourceLinesRepository, times(2)).readLines(any(Component.class));
+    verify(spiedReportReader, times(2)).readComponentCoverage(FILE_REF);
+    verify(spiedReportReader, times(2)).readComponentSyntaxHighlighting(FILE_REF);
+    verify(spiedReportReader, times(2)).readComponentSymbols(FILE_REF);
+  }
+
+  @Test
+  public void compute_sources_when_duplications_changed() {
+    initBasicReport(2);
+    underTest.execute();
+    String inputsHash = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID).getInputsHash();
+
+    duplicationRepository.add(FILE_REF, new Duplication(new TextBlock(1, 2), Arrays.<Duplicate>asList(new InnerDuplicate(new TextBlock(3, 4)))));
+    when(system2.now()).thenReturn(NOW + 1);
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getInputsHash()).isNotEqualTo(inputsHash);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW + 1);
+    assertThat(fileSourceDto.getSourceData().getLines(0).getDuplicationList()).hasSize(1);
   }
 
   @Test
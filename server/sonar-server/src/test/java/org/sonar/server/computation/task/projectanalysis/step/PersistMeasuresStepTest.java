@@ -24,6 +24,8 @@ import java.util.Map;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.MapSettings;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
@@ -72,6 +74,11 @@ public class PersistMeasuresStepTest extends BaseStepTest {
   private static final Metric INT_METRIC = new Metric.Builder(INT_METRIC_KEY, "int metric", Metric.ValueType.INT).create();
   private static final Metric LONG_METRIC = new Metric.Builder(LONG_METRIC_KEY, "long metric", Metric.ValueType.WORK_DUR).create();
 
+  private static final int STRING_METRIC_ID = 1;
+  private static final int DOUBLE_METRIC_ID = 2;
+  private static final int INT_METRIC_ID = 3;
+  private static final int LONG_METRIC_ID = 4;
+
   private static final int ROOT_REF = 1;
   private static final int INTERMEDIATE_1_REF = 2;
   private static final int INTERMEDIATE_2_REF = 3;
@@ -92,7 +99,11 @@ public class PersistMeasuresStepTest extends BaseStepTest {
   @Rule
   public MutableAnalysisMetadataHolderRule analysisMetadataHolder = new MutableAnalysisMetadataHolderRule();
 
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
   DbClient dbClient = dbTester.getDbClient();
+  MapSettings settings = new MapSettings();
   RuleDto rule;
   ComponentDto rootDto;
   ComponentDto intermediate1Dto;
@@ -103,7 +114,8 @@ public class PersistMeasuresStepTest extends BaseStepTest {
 
   @Before
   public void setUp() {
-    underTest = new PersistMeasuresStep(dbClient, metricRepository, new MeasureToMeasureDto(dbIdsRepository, analysisMetadataHolder), treeRootHolder, measureRepository);
+    underTest = new PersistMeasuresStep(dbClient, metricRepository, new MeasureToMeasureDto(dbIdsRepository, analysisMetadataHolder), treeRootHolder, measureRepository,
+      settings);
     analysisMetadataHolder.setUuid(ANALYSIS_UUID);
   }
 
@@ -171,20 +183,64 @@ public class PersistMeasuresStepTest extends BaseStepTest {
     insertMeasures();
   }
 
-  private void insertMeasures() {
-    int stringMetricId = 1;
-    int doubleMetricId = 2;
-    int intMetricId = 3;
-    int longMetricId = 4;
-    metricRepository.add(stringMetricId, STRING_METRIC);
-    metricRepository.add(doubleMetricId, DOUBLE_METRIC);
-    metricRepository.add(intMetricId, INT_METRIC);
-    metricRepository.add(longMetricId, LONG_METRIC);
+  @Test
+  public void insert_measures_by_chunks() {
+    settings.setProperty(PersistMeasuresStep.CHUNK_SIZE_PROPERTY, 3);
+    setupReportComponents();
+
+    insertMeasures();
+  }
+
+  @Test
+  public void fail_if_chunk_size_is_not_positive() {
+    settings.setProperty(PersistMeasuresStep.CHUNK_SIZE_PROPERTY, 0);
+    setupReportComponents();
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.ce.persistMeasures.chunkSize must be positive: 0");
+
+    underTest.execute();
+  }
+
+  @Test
+  public void insert_measures_sorted_by_metric() {
+    setupReportComponents();
+    addMeasures();
+
+    underTest.execute();
+
+    // visit order is root, intermediate1, intermediate2, leaf
+    assertThat(selectSnapshots()).extracting(dto -> dto.get("componentUuid"))
+      .containsExactly(rootDto.uuid(), leafDto.uuid(), intermediate1Dto.uuid(), intermediate2Dto.uuid());
+  }
+
+  @Test
+  public void insert_measures_sorted_by_metric_within_each_chunk() {
+    settings.setProperty(PersistMeasuresStep.CHUNK_SIZE_PROPERTY, 3);
+    setupReportComponents();
+    addMeasures();
+
+    underTest.execute();
+
+    // first chunk is root, intermediate1 and intermediate2, leaf is in the second one whatever its metric
+    assertThat(selectSnapshots()).extracting(dto -> dto.get("componentUuid"))
+      .containsExactly(rootDto.uuid(), intermediate1Dto.uuid(), intermediate2Dto.uuid(), leafDto.uuid());
+  }
+
+  private void addMeasures() {
+    metricRepository.add(STRING_METRIC_ID, STRING_METRIC);
+    metricRepository.add(DOUBLE_METRIC_ID, DOUBLE_METRIC);
+    metricRepository.add(INT_METRIC_ID, INT_METRIC);
+    metricRepository.add(LONG_METRIC_ID, LONG_METRIC);
 
     measureRepository.addRawMeasure(ROOT_REF, STRING_METRIC_KEY, newMeasureBuilder().create("measure-data"));
     measureRepository.addRawMeasure(INTERMEDIATE_1_REF, INT_METRIC_KEY, newMeasureBuilder().create(12));
     measureRepository.addRawMeasure(INTERMEDIATE_2_REF, LONG_METRIC_KEY, newMeasureBuilder().create(9635L));
     measureRepository.addRawMeasure(LEAF_REF, DOUBLE_METRIC_KEY, newMeasureBuilder().create(123.123d, 1));
+  }
+
+  private void insertMeasures() {
+    addMeasures();
 
     underTest.execute();
 
@@ -192,39 +248,46 @@ public class PersistMeasuresStepTest extends BaseStepTest {
 
     List<Map<String, Object>> dtos = selectSnapshots();
 
-    Map<String, Object> dto = dtos.get(0);
+    Map<String, Object> dto = selectByComponent(dtos, rootDto);
     assertThat(dto.get("analysisUuid")).isEqualTo(ANALYSIS_UUID);
     assertThat(dto.get("componentUuid")).isEqualTo(rootDto.uuid());
-    assertThat(dto.get("metricId")).isEqualTo((long) stringMetricId);
+    assertThat(dto.get("metricId")).isEqualTo((long) STRING_METRIC_ID);
     assertThat(dto.get("value")).isNull();
     assertThat(dto.get("textValue")).isEqualTo("measure-data");
     assertThat(dto.get("severity")).isNull();
 
-    dto = dtos.get(1);
+    dto = selectByComponent(dtos, intermediate1Dto);
     assertThat(dto.get("analysisUuid")).isEqualTo(ANALYSIS_UUID);
     assertThat(dto.get("componentUuid")).isEqualTo(intermediate1Dto.uuid());
-    assertThat(dto.get("metricId")).isEqualTo((long) intMetricId);
+    assertThat(dto.get("metricId")).isEqualTo((long) INT_METRIC_ID);
     assertValue(dto, 12d);
     assertThat(dto.get("textValue")).isNull();
     assertThat(dto.get("severity")).isNull();
 
-    dto = dtos.get(2);
+    dto = selectByComponent(dtos, intermediate2Dto);
     assertThat(dto.get("analysisUuid")).isEqualTo(ANALYSIS_UUID);
     assertThat(dto.get("componentUuid")).isEqualTo(intermediate2Dto.uuid());
-    assertThat(dto.get("metricId")).isEqualTo((long) longMetricId);
+    assertThat(dto.get("metricId")).isEqualTo((long) LONG_METRIC_ID);
     assertValue(dto, 9635d);
     assertThat(dto.get("textValue")).isNull();
     assertThat(dto.get("severity")).isNull();
 
-    dto = dtos.get(3);
+    dto = selectByComponent(dtos, leafDto);
     assertThat(dto.get("analysisUuid")).isEqualTo(ANALYSIS_UUID);
     assertThat(dto.get("componentUuid")).isEqualTo(leafDto.uuid());
-    assertThat(dto.get("metricId")).isEqualTo((long) doubleMetricId);
+    assertThat(dto.get("metricId")).isEqualTo((long) DOUBLE_METRIC_ID);
     assertValue(dto, 123.1d);
     assertThat(dto.get("textValue")).isNull();
     assertThat(dto.get("severity")).isNull();
   }
 
+  private static Map<String, Object> selectByComponent(List<Map<String, Object>> dtos, ComponentDto component) {
+    return dtos.stream()
+      .filter(dto -> component.uuid().equals(dto.get("componentUuid")))
+      .findFirst()
+      .orElseThrow(() -> new AssertionError("No measure on component " + component.uuid()));
+  }
+
   /**
    * Horrible trick to support oracle retuning number as BigDecimal and DbTester#select converting BigDecimal with no
    * scale to Long instead of Double when all other DBs will return a Double anyway.
@@ -37,6 +37,7 @@ import org.sonar.server.computation.task.projectanalysis.component.FileAttribute
 import org.sonar.server.computation.task.projectanalysis.component.MutableDbIdsRepositoryRule;
 import org.sonar.server.computation.task.projectanalysis.component.MutableDisabledComponentsHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.server.computation.task.projectanalysis.issue.IssuesToIndexHolderImpl;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -72,6 +73,7 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
   private DbClient dbClient = dbTester.getDbClient();
   private Date now;
   private MutableDisabledComponentsHolder disabledComponentsHolder = mock(MutableDisabledComponentsHolder.class, RETURNS_DEEP_STUBS);
+  private IssuesToIndexHolderImpl issuesToIndexHolder = new IssuesToIndexHolderImpl();
   private PersistComponentsStep underTest;
 
   @Before
@@ -80,7 +82,7 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
     when(system2.now()).thenReturn(now.getTime());
 
     dbTester.organizations().insertForUuid(ORGANIZATION_UUID);
-    underTest = new PersistComponentsStep(dbClient, treeRootHolder, dbIdsRepository, system2, disabledComponentsHolder, analysisMetadataHolder);
+    underTest = new PersistComponentsStep(dbClient, treeRootHolder, dbIdsRepository, system2, disabledComponentsHolder, analysisMetadataHolder, issuesToIndexHolder);
   }
 
   @Override
@@ -458,6 +460,8 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
     assertThat(fileReloaded.getRootUuid()).isEqualTo(file.getRootUuid());
     assertThat(fileReloaded.name()).isEqualTo(file.name());
     assertThat(fileReloaded.path()).isEqualTo(file.path());
+
+    assertThat(issuesToIndexHolder.isProjectReindexRequired()).isFalse();
   }
 
   @Test
@@ -491,6 +495,9 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
     dbClient.componentDao().applyBChangesForRootComponentUuid(dbTester.getSession(), "ABCD");
     assertNameAndDescription(PROJECT_KEY, "New Project", "New project description");
     assertNameAndDescription(MODULE_KEY, "New Module", "New module description");
+
+    // name and description are not copied in issues index
+    assertThat(issuesToIndexHolder.isProjectReindexRequired()).isFalse();
   }
 
   private void assertNameAndDescription(String key, String expectedName, String expectedDescription) {
@@ -524,6 +531,8 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
     // commit the functional transaction
     dbClient.componentDao().applyBChangesForRootComponentUuid(dbTester.getSession(), project.uuid());
     assertThat(dbClient.componentDao().selectByKey(dbTester.getSession(), MODULE_KEY).get().path()).isEqualTo("New path");
+
+    assertThat(issuesToIndexHolder.isProjectReindexRequired()).isTrue();
   }
 
   @Test
@@ -19,8 +19,14 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -152,6 +158,81 @@ public class ComputationStepExecutorTest {
     new ComputationStepExecutor(mockComputationSteps(computationStep1), listener).execute();
   }
 
+  @Test
+  public void execute_runs_independent_ConcurrentComputationSteps_concurrently() {
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    Runnable waitForOtherStep = () -> {
+      bothStarted.countDown();
+      try {
+        assertThat(bothStarted.await(10, TimeUnit.SECONDS)).isTrue();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+    ComputationStep step1 = new TestConcurrentStep("step1", ImmutableSet.of("A"), ImmutableSet.of("B"), waitForOtherStep);
+    ComputationStep step2 = new TestConcurrentStep("step2", ImmutableSet.of("A"), ImmutableSet.of("C"), waitForOtherStep);
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2)).execute();
+
+    assertThat(bothStarted.getCount()).isZero();
+  }
+
+  @Test
+  public void execute_runs_conflicting_ConcurrentComputationSteps_in_declaration_order() {
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    ComputationStep step1 = new TestConcurrentStep("step1", ImmutableSet.of(), ImmutableSet.of("A"), () -> {
+      sleep(100);
+      executed.add("step1");
+    });
+    ComputationStep step2 = new TestConcurrentStep("step2", ImmutableSet.of("A"), ImmutableSet.of("B"), () -> executed.add("step2"));
+    ComputationStep step3 = new TestConcurrentStep("step3", ImmutableSet.of(), ImmutableSet.of("B"), () -> executed.add("step3"));
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2, step3, computationStep1)).execute();
+
+    assertThat(executed).containsExactly("step1", "step2", "step3");
+    verify(computationStep1).execute();
+  }
+
+  @Test
+  public void execute_let_exception_thrown_by_ConcurrentComputationStep_go_up_as_is() {
+    String message = "Exception should go up";
+    ComputationStep failingStep = new TestConcurrentStep("step1", ImmutableSet.of(), ImmutableSet.of("A"), () -> {
+      throw new IllegalArgumentException(message);
+    });
+    ComputationStep step2 = new TestConcurrentStep("step2", ImmutableSet.of(), ImmutableSet.of("B"), () -> {
+    });
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage(message);
+
+    new ComputationStepExecutor(mockComputationSteps(failingStep, step2, computationStep1)).execute();
+  }
+
+  @Test
+  public void execute_logs_end_timing_for_each_ConcurrentComputationStep_when_level_is_DEBUG() {
+    ComputationStep step1 = new TestConcurrentStep("step1", ImmutableSet.of(), ImmutableSet.of("A"), () -> {
+    });
+    ComputationStep step2 = new TestConcurrentStep("step2", ImmutableSet.of(), ImmutableSet.of("B"), () -> {
+    });
+
+    try (ChangeLogLevel executor = new ChangeLogLevel(ComputationStepExecutor.class, LoggerLevel.DEBUG)) {
+      new ComputationStepExecutor(mockComputationSteps(step1, step2)).execute();
+    }
+
+    List<String> debugLogs = logTester.logs(LoggerLevel.DEBUG);
+    assertThat(debugLogs).hasSize(2);
+    assertThat(debugLogs.stream().anyMatch(log -> log.contains("step1 | time="))).isTrue();
+    assertThat(debugLogs.stream().anyMatch(log -> log.contains("step2 | time="))).isTrue();
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   private static ComputationSteps mockComputationSteps(ComputationStep... computationSteps) {
     ComputationSteps steps = mock(ComputationSteps.class);
     when(steps.instances()).thenReturn(Arrays.asList(computationSteps));
@@ -163,4 +244,38 @@ public class ComputationStepExecutorTest {
     when(mock.getDescription()).thenReturn(desc);
     return mock;
   }
+
+  private static class TestConcurrentStep implements ConcurrentComputationStep {
+    private final String description;
+    private final Set<Object> reads;
+    private final Set<Object> writes;
+    private final Runnable runnable;
+
+    private TestConcurrentStep(String description, Set<Object> reads, Set<Object> writes, Runnable runnable) {
+      this.description = description;
+      this.reads = reads;
+      this.writes = writes;
+      this.runnable = runnable;
+    }
+
+    @Override
+    public Set<Object> reads() {
+      return reads;
+    }
+
+    @Override
+    public Set<Object> writes() {
+      return writes;
+    }
+
+    @Override
+    public void execute() {
+      runnable.run();
+    }
+
+    @Override
+    public String getDescription() {
+      return description;
+    }
+  }
 }
@@ -65,10 +65,11 @@ public class CeProcessingSchedulerImplTest {
 
   private CeWorkerCallable ceWorkerRunnable = mock(CeWorkerCallable.class);
   private StubCeProcessingSchedulerExecutorService processingExecutorService = new StubCeProcessingSchedulerExecutorService();
-  private SchedulerCall regularDelayedPoll = new SchedulerCall(ceWorkerRunnable, 2000L, TimeUnit.MILLISECONDS);
+  private CeWorkerWakeUp workerWakeUp = new CeWorkerWakeUp();
+  private SchedulerCall regularDelayedPoll = delayedPoll(2000L);
   private SchedulerCall notDelayedPoll = new SchedulerCall(ceWorkerRunnable);
 
-  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable);
+  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable, workerWakeUp);
 
   @Test
   public void polls_without_delay_when_CeWorkerCallable_returns_true() throws Exception {
@@ -108,7 +109,7 @@ public class CeProcessingSchedulerImplTest {
 
     assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
       regularDelayedPoll,
-      regularDelayedPoll
+      delayedPoll(4000L)
       );
   }
 
@@ -137,11 +138,65 @@ public class CeProcessingSchedulerImplTest {
       regularDelayedPoll,
       notDelayedPoll,
       regularDelayedPoll,
+      delayedPoll(4000L),
+      delayedPoll(8000L)
+      );
+  }
+
+  @Test
+  public void delay_between_polls_of_empty_queue_is_capped() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenReturn(false)
+      .thenReturn(false)
+      .thenReturn(false)
+      .thenReturn(false)
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    startSchedulingAndRun();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
       regularDelayedPoll,
+      delayedPoll(4000L),
+      delayedPoll(8000L),
+      delayedPoll(16000L),
+      delayedPoll(16000L),
+      delayedPoll(16000L)
+      );
+  }
+
+  @Test
+  public void wake_up_cancels_delayed_poll_and_polls_without_delay() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    workerWakeUp.onSubmit();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      notDelayedPoll,
       regularDelayedPoll
       );
   }
 
+  @Test
+  public void wake_up_has_no_effect_before_scheduling_is_started() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    workerWakeUp.onSubmit();
+    startSchedulingAndRun();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      delayedPoll(4000L)
+      );
+  }
+
   @Test
   public void stop_cancels_next_polling_and_does_not_add_any_new_one() throws Exception {
     when(ceWorkerRunnable.call())
@@ -175,7 +230,7 @@ public class CeProcessingSchedulerImplTest {
     assertThat(cancelledTaskFutureCount).isEqualTo(1);
     assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
       regularDelayedPoll,
-      regularDelayedPoll,
+      delayedPoll(4000L),
       notDelayedPoll,
       regularDelayedPoll
       );
@@ -189,16 +244,20 @@ public class CeProcessingSchedulerImplTest {
 
     ListenableScheduledFuture listenableScheduledFuture = mock(ListenableScheduledFuture.class);
     CeProcessingSchedulerExecutorService processingExecutorService = mock(CeProcessingSchedulerExecutorService.class);
-    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable);
-    when(processingExecutorService.schedule(ceWorkerRunnable, ceConfiguration.getQueuePollingDelay(), MILLISECONDS))
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable, workerWakeUp);
+    when(processingExecutorService.schedule(any(Callable.class), eq(ceConfiguration.getQueuePollingDelay()), eq(MILLISECONDS)))
         .thenReturn(listenableScheduledFuture);
 
     underTest.startScheduling();
 
-    verify(processingExecutorService, times(workerCount)).schedule(ceWorkerRunnable, ceConfiguration.getQueuePollingDelay(), MILLISECONDS);
+    verify(processingExecutorService, times(workerCount)).schedule(any(Callable.class), eq(ceConfiguration.getQueuePollingDelay()), eq(MILLISECONDS));
     verify(listenableScheduledFuture, times(workerCount)).addListener(any(Runnable.class), eq(processingExecutorService));
   }
 
+  private static SchedulerCall delayedPoll(long delay) {
+    return new SchedulerCall(null, delay, TimeUnit.MILLISECONDS);
+  }
+
   private void startSchedulingAndRun() throws ExecutionException, InterruptedException {
     underTest.startScheduling();
 
@@ -234,7 +293,8 @@ public class CeProcessingSchedulerImplTest {
 
     @Override
     public <V> ListenableScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
-      this.schedulerCalls.add(new SchedulerCall(callable, delay, unit));
+      // delayed polls do not schedule the CeWorkerCallable itself but a wrapper which can be short-circuited by a wake up
+      this.schedulerCalls.add(new SchedulerCall(null, delay, unit));
       return delegate.schedule(callable, delay, unit);
     }
 
@@ -496,11 +556,12 @@ public class CeProcessingSchedulerImplTest {
    */
   @Immutable
   private static final class SchedulerCall {
+    @Nullable
     private final Callable<?> callable;
     private final long delay;
     private final TimeUnit unit;
 
-    private SchedulerCall(Callable<?> callable, long delay, TimeUnit unit) {
+    private SchedulerCall(@Nullable Callable<?> callable, long delay, TimeUnit unit) {
       this.callable = callable;
       this.delay = delay;
       this.unit = unit;
@@ -62,6 +62,24 @@ public class BulkIndexerTest {
     assertThat(count()).isEqualTo(2);
   }
 
+  @Test
+  public void indexing_is_recorded_in_stats_of_client() {
+    BulkIndexingStats stats = esTester.client().getBulkIndexingStats();
+    long docsBefore = stats.getIndexedDocs();
+
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), INDEX)
+      .setFlushByteSize(500);
+    indexer.start();
+    for (int i = 0; i < 10; i++) {
+      indexer.add(newIndexRequest(i));
+    }
+    indexer.stop();
+
+    assertThat(stats.getIndexedDocs() - docsBefore).isEqualTo(10L);
+    assertThat(stats.getIndexedBytes()).isGreaterThan(0L);
+    assertThat(stats.getRequestsInFlight()).isEqualTo(0);
+  }
+
   @Test
   public void large_indexing() {
     // index has one replica
@@ -0,0 +1,127 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.es.BulkIndexerThrottle.FAST_RESPONSE_MS;
+import static org.sonar.server.es.BulkIndexerThrottle.MAX_FLUSH_BYTE_SIZE;
+import static org.sonar.server.es.BulkIndexerThrottle.MIN_FLUSH_BYTE_SIZE;
+import static org.sonar.server.es.BulkIndexerThrottle.SLOW_RESPONSE_MS;
+
+public class BulkIndexerThrottleTest {
+
+  private static final long INITIAL_SIZE = 1_000_000L;
+
+  private BulkIndexerThrottle underTest = new BulkIndexerThrottle(INITIAL_SIZE, 2, 4);
+
+  @Test
+  public void fast_responses_increase_size_and_concurrency_up_to_maximum() {
+    sendAndRelease(FAST_RESPONSE_MS, false);
+    assertThat(underTest.getConcurrency()).isEqualTo(3);
+    assertThat(underTest.getFlushByteSize()).isEqualTo(1_500_000L);
+
+    for (int i = 0; i < 20; i++) {
+      sendAndRelease(0L, false);
+    }
+    assertThat(underTest.getConcurrency()).isEqualTo(4);
+    assertThat(underTest.getFlushByteSize()).isEqualTo(MAX_FLUSH_BYTE_SIZE);
+  }
+
+  @Test
+  public void slow_responses_decrease_size_and_concurrency_down_to_minimum() {
+    sendAndRelease(SLOW_RESPONSE_MS, false);
+    assertThat(underTest.getConcurrency()).isEqualTo(1);
+    assertThat(underTest.getFlushByteSize()).isEqualTo(500_000L);
+
+    for (int i = 0; i < 20; i++) {
+      sendAndRelease(SLOW_RESPONSE_MS, false);
+    }
+    assertThat(underTest.getConcurrency()).isEqualTo(1);
+    assertThat(underTest.getFlushByteSize()).isEqualTo(MIN_FLUSH_BYTE_SIZE);
+  }
+
+  @Test
+  public void average_responses_do_not_change_size_and_concurrency() {
+    sendAndRelease(FAST_RESPONSE_MS + 1, false);
+
+    assertThat(underTest.getConcurrency()).isEqualTo(2);
+    assertThat(underTest.getFlushByteSize()).isEqualTo(INITIAL_SIZE);
+  }
+
+  @Test
+  public void rejections_halve_size_and_concurrency_even_if_response_is_fast() {
+    underTest = new BulkIndexerThrottle(INITIAL_SIZE, 4, 4);
+
+    sendAndRelease(0L, true);
+
+    assertThat(underTest.getConcurrency()).isEqualTo(2);
+    assertThat(underTest.getFlushByteSize()).isEqualTo(500_000L);
+  }
+
+  @Test
+  public void configured_size_lower_than_minimum_is_the_lower_bound() {
+    underTest = new BulkIndexerThrottle(500L, 1, 1);
+
+    sendAndRelease(0L, true);
+
+    assertThat(underTest.getFlushByteSize()).isEqualTo(500L);
+  }
+
+  @Test
+  public void concurrency_is_at_least_one() {
+    underTest = new BulkIndexerThrottle(INITIAL_SIZE, 0, 0);
+
+    assertThat(underTest.getConcurrency()).isEqualTo(1);
+  }
+
+  @Test
+  public void acquire_blocks_until_a_request_is_released() throws Exception {
+    underTest = new BulkIndexerThrottle(INITIAL_SIZE, 1, 1);
+    underTest.acquire();
+
+    Thread thread = new Thread(underTest::acquire);
+    thread.start();
+    thread.join(100L);
+    assertThat(thread.isAlive()).isTrue();
+    assertThat(underTest.getInFlight()).isEqualTo(1);
+
+    underTest.release(SLOW_RESPONSE_MS, false);
+    thread.join();
+    assertThat(underTest.getInFlight()).isEqualTo(1);
+  }
+
+  @Test
+  public void awaitNoneInFlight_returns_false_on_timeout() throws Exception {
+    assertThat(underTest.awaitNoneInFlight(10L)).isTrue();
+
+    underTest.acquire();
+    assertThat(underTest.awaitNoneInFlight(10L)).isFalse();
+
+    underTest.release(0L, false);
+    assertThat(underTest.awaitNoneInFlight(10L)).isTrue();
+  }
+
+  private void sendAndRelease(long responseTimeMs, boolean rejected) {
+    underTest.acquire();
+    underTest.release(responseTimeMs, rejected);
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BulkIndexingStatsTest {
+
+  private System2 system2 = mock(System2.class);
+  private BulkIndexingStats underTest = new BulkIndexingStats(system2);
+
+  @Test
+  public void no_indexing() {
+    assertThat(underTest.getIndexedDocs()).isEqualTo(0L);
+    assertThat(underTest.getDocsPerSecond()).isEqualTo(0L);
+    assertThat(underTest.getBytesPerSecond()).isEqualTo(0L);
+    assertThat(underTest.getRequestsInFlight()).isEqualTo(0);
+  }
+
+  @Test
+  public void rates_are_computed_over_the_periods_with_requests_in_flight() {
+    when(system2.now()).thenReturn(1_000L);
+    underTest.onRequestSent();
+    when(system2.now()).thenReturn(1_500L);
+    underTest.onRequestSent();
+    assertThat(underTest.getRequestsInFlight()).isEqualTo(2);
+    underTest.onResponse(100, 10_000L, 0);
+    when(system2.now()).thenReturn(2_000L);
+    underTest.onResponse(80, 8_000L, 20);
+
+    // idle period is ignored
+    when(system2.now()).thenReturn(10_000L);
+    underTest.onRequestSent();
+    when(system2.now()).thenReturn(11_000L);
+    underTest.onResponse(20, 2_000L, 0);
+
+    assertThat(underTest.getRequestsInFlight()).isEqualTo(0);
+    assertThat(underTest.getIndexedDocs()).isEqualTo(200L);
+    assertThat(underTest.getIndexedBytes()).isEqualTo(20_000L);
+    assertThat(underTest.getRejectedDocs()).isEqualTo(20L);
+    assertThat(underTest.getDocsPerSecond()).isEqualTo(100L);
+    assertThat(underTest.getBytesPerSecond()).isEqualTo(10_000L);
+  }
+
+  @Test
+  public void rates_include_the_current_period() {
+    when(system2.now()).thenReturn(1_000L);
+    underTest.onRequestSent();
+    when(system2.now()).thenReturn(2_000L);
+    underTest.onResponse(50, 5_000L, 0);
+    underTest.onRequestSent();
+
+    when(system2.now()).thenReturn(3_000L);
+
+    assertThat(underTest.getDocsPerSecond()).isEqualTo(25L);
+  }
+}
@@ -20,15 +20,22 @@
 package org.sonar.server.es;
 
 import com.google.common.collect.ImmutableSet;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.mockito.Mockito;
 import org.sonar.api.config.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anySetOf;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.sonar.server.es.FakeIndexDefinition.INDEX_TYPE_FAKE;
@@ -44,6 +51,9 @@ public class IndexerStartupTaskTest {
   @Rule
   public EsTester es = new EsTester(new FakeIndexDefinition());
 
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
   @Test
   public void only_index_once() throws Exception {
     insertDocumentIntoIndex();
@@ -76,13 +86,56 @@ public class IndexerStartupTaskTest {
     verifyNoMoreInteractions(indexer);
   }
 
+  @Test
+  public void group_indexers_sharing_an_index() {
+    StartupIndexer rules = createIndexer(new IndexType("rules", "rule"), new IndexType("rules", "ruleExtension"));
+    StartupIndexer issues = createIndexer(new IndexType("issues", "issue"));
+    StartupIndexer users = createIndexer(new IndexType("users", "user"));
+    StartupIndexer measures = createIndexer(new IndexType("projectmeasures", "projectmeasure"));
+    StartupIndexer permissions = createIndexer(new IndexType("issues", "authorization"), new IndexType("projectmeasures", "authorization"));
+
+    List<List<StartupIndexer>> groups = IndexerStartupTask.groupByIndex(rules, issues, users, measures, permissions);
+
+    assertThat(groups).containsExactly(asList(rules), asList(issues, measures, permissions), asList(users));
+  }
+
+  @Test
+  public void index_groups_of_indexers_concurrently() throws Exception {
+    StartupIndexer indexer1 = createIndexer();
+    // does not share index with indexer1
+    StartupIndexer indexer2 = createIndexer(new IndexType[0]);
+    insertDocumentIntoIndex();
+
+    new IndexerStartupTask(es.client(), settings, indexer1, indexer2).execute();
+
+    verify(indexer1).indexOnStartup(Mockito.eq(ImmutableSet.of(INDEX_TYPE_FAKE)));
+    verify(indexer2, never()).indexOnStartup(anySetOf(IndexType.class));
+  }
+
+  @Test
+  public void fail_if_an_indexer_fails() throws Exception {
+    StartupIndexer indexer1 = createIndexer();
+    StartupIndexer indexer2 = createIndexer(new IndexType[0]);
+    insertDocumentIntoIndex();
+    doThrow(new IllegalStateException("Fail to index")).when(indexer1).indexOnStartup(anySetOf(IndexType.class));
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to index");
+
+    new IndexerStartupTask(es.client(), settings, indexer1, indexer2).execute();
+  }
+
   private void insertDocumentIntoIndex() {
     es.putDocuments(INDEX_TYPE_FAKE, new FakeDoc());
   }
 
   private StartupIndexer createIndexer() {
+    return createIndexer(INDEX_TYPE_FAKE);
+  }
+
+  private StartupIndexer createIndexer(IndexType... indexTypes) {
     StartupIndexer indexer = mock(StartupIndexer.class);
-    doReturn(ImmutableSet.of(INDEX_TYPE_FAKE)).when(indexer).getIndexTypes();
+    doReturn(ImmutableSet.copyOf(indexTypes)).when(indexer).getIndexTypes();
     return indexer;
   }
 
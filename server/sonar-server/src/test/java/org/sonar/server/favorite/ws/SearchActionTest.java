@@ -185,8 +185,7 @@ public class SearchActionTest {
   private void addComponent(ComponentDto component) {
     db.components().insertComponent(component);
     db.favorites().add(component, USER_ID);
-    dbClient.userPermissionDao().insert(dbSession, new UserPermissionDto(component.getOrganizationUuid(), UserRole.USER, USER_ID, component.getId()));
-    db.commit();
+    userSession.addProjectUuidPermissions(UserRole.USER, component.projectUuid());
   }
 
   private SearchResponse call(@Nullable Integer page, @Nullable Integer pageSize) {
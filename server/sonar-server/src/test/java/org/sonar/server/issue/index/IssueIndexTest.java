@@ -1325,6 +1325,39 @@ public class IssueIndexTest {
     assertThat(Lists.newArrayList(underTest.selectIssuesForBatch(project2))).isEmpty();
   }
 
+  @Test
+  public void search_all_keys() {
+    ComponentDto project = newProjectDto(newOrganizationDto());
+    ComponentDto file = newFileDto(project, null);
+    ComponentDto otherProject = newProjectDto(newOrganizationDto());
+    indexIssues(
+      newDoc("ISSUE1", file).setStatus(Issue.STATUS_OPEN),
+      newDoc("ISSUE2", file).setStatus(Issue.STATUS_OPEN),
+      newDoc("ISSUE3", file).setStatus(Issue.STATUS_CLOSED),
+      newDoc("ISSUE4", otherProject).setStatus(Issue.STATUS_OPEN));
+
+    assertThat(Lists.newArrayList(underTest.searchAllKeys(IssueQuery.builder().projectUuids(asList(project.uuid())).build())))
+      .containsOnly("ISSUE1", "ISSUE2", "ISSUE3");
+    assertThat(Lists.newArrayList(underTest.searchAllKeys(IssueQuery.builder().statuses(asList(Issue.STATUS_OPEN)).build())))
+      .containsOnly("ISSUE1", "ISSUE2", "ISSUE4");
+    assertThat(Lists.newArrayList(underTest.searchAllKeys(IssueQuery.builder().projectUuids(asList("unknown")).build()))).isEmpty();
+  }
+
+  @Test
+  public void search_all_keys_return_only_authorized_issues() {
+    OrganizationDto org = newOrganizationDto();
+    ComponentDto project1 = newProjectDto(org);
+    ComponentDto project2 = newProjectDto(org);
+    GroupDto allowedGroup = newGroupDto();
+    indexIssue(newDoc("ISSUE1", newFileDto(project1, null)));
+    authorizationIndexerTester.allowOnlyGroup(project1, allowedGroup);
+    indexIssue(newDoc("ISSUE2", newFileDto(project2, null)));
+
+    userSessionRule.logIn().setGroups(allowedGroup);
+
+    assertThat(Lists.newArrayList(underTest.searchAllKeys(IssueQuery.builder().build()))).containsOnly("ISSUE1");
+  }
+
   @Test
   public void list_tags() {
     RuleDefinitionDto r1 = db.rules().insert();
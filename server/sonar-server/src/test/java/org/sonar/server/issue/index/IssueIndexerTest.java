@@ -94,6 +94,24 @@ public class IssueIndexerTest {
     verifyDoc(docs.get(0), org, project, file, rule, issue);
   }
 
+  @Test
+  public void indexOnStartup_loads_and_indexes_issues_of_all_projects() {
+    OrganizationDto org = dbTester.organizations().insert();
+    RuleDto rule = dbTester.rules().insertRule();
+    List<String> issueKeys = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      ComponentDto project = dbTester.components().insertProject(org);
+      ComponentDto file = dbTester.components().insertComponent(ComponentTesting.newFileDto(project));
+      for (int j = 0; j <= i; j++) {
+        issueKeys.add(dbTester.issues().insertIssue(IssueTesting.newDto(rule, file, project)).getKey());
+      }
+    }
+
+    underTest.indexOnStartup(null);
+
+    assertThat(esTester.getIds(IssueIndexDefinition.INDEX_TYPE_ISSUE)).containsOnlyElementsOf(issueKeys).hasSize(issueKeys.size());
+  }
+
   @Test
   public void index_loads_and_indexes_issues_with_specified_keys() {
     OrganizationDto org = dbTester.organizations().insert();
@@ -0,0 +1,122 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.db.issue.IssueDto;
+import org.sonar.server.es.Facets;
+import org.sonar.server.issue.IssueQuery;
+import org.sonar.server.issue.IssueQueryFactory;
+import org.sonar.server.issue.index.IssueIndex;
+import org.sonar.server.ws.TestResponse;
+import org.sonar.server.ws.WsActionTester;
+import org.sonarqube.ws.Issues;
+import org.sonarqube.ws.MediaTypes;
+import org.sonarqube.ws.client.issue.SearchWsRequest;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class ExportActionTest {
+
+  private IssueIndex issueIndex = mock(IssueIndex.class);
+  private IssueQueryFactory issueQueryFactory = mock(IssueQueryFactory.class);
+  private SearchResponseLoader searchResponseLoader = mock(SearchResponseLoader.class);
+  private SearchResponseFormat searchResponseFormat = mock(SearchResponseFormat.class);
+
+  private WsActionTester ws = new WsActionTester(new ExportAction(issueIndex, issueQueryFactory, searchResponseLoader, searchResponseFormat));
+
+  @Test
+  public void definition() {
+    WebService.Action definition = ws.getDef();
+
+    assertThat(definition.key()).isEqualTo("export");
+    assertThat(definition.isInternal()).isTrue();
+    assertThat(definition.since()).isEqualTo("6.4");
+    assertThat(definition.params()).extracting(WebService.Param::key).containsOnly("organization", "componentKeys", "severities", "statuses",
+      "resolutions", "resolved", "rules", "tags", "types", "assignees", "createdAfter", "createdBefore");
+  }
+
+  @Test
+  public void stream_issues_loaded_by_batches() throws IOException {
+    IssueQuery query = IssueQuery.builder().build();
+    when(issueQueryFactory.create(any(SearchWsRequest.class))).thenReturn(query);
+    List<String> keys = IntStream.range(0, ExportAction.BATCH_SIZE + 1).mapToObj(i -> "ISSUE_" + i).collect(toList());
+    when(issueIndex.searchAllKeys(query)).thenReturn(keys.iterator());
+    when(searchResponseLoader.load(any(SearchResponseLoader.Collector.class), any(Facets.class))).thenAnswer(invocation -> {
+      SearchResponseLoader.Collector collector = (SearchResponseLoader.Collector) invocation.getArguments()[0];
+      return new SearchResponseData(collector.getIssueKeys().stream().map(key -> new IssueDto().setKee(key)).collect(toList()));
+    });
+    when(searchResponseFormat.formatIssues(anySetOf(SearchAdditionalField.class), any(SearchResponseData.class))).thenAnswer(invocation -> {
+      SearchResponseData data = (SearchResponseData) invocation.getArguments()[1];
+      return data.getIssues().stream().map(dto -> Issues.Issue.newBuilder().setKey(dto.getKey()).build()).collect(toList());
+    });
+
+    TestResponse response = ws.newRequest()
+      .setParam("componentKeys", "project1,project2")
+      .setParam("statuses", "OPEN")
+      .setParam("resolved", "false")
+      .execute();
+
+    assertThat(response.getMediaType()).isEqualTo(MediaTypes.PROTOBUF);
+    assertThat(readIssueKeys(response.getInputStream())).containsExactlyElementsOf(keys);
+    verify(searchResponseLoader, times(2)).load(any(SearchResponseLoader.Collector.class), any(Facets.class));
+    ArgumentCaptor<SearchWsRequest> requestCaptor = ArgumentCaptor.forClass(SearchWsRequest.class);
+    verify(issueQueryFactory).create(requestCaptor.capture());
+    assertThat(requestCaptor.getValue().getComponentKeys()).containsExactly("project1", "project2");
+    assertThat(requestCaptor.getValue().getStatuses()).containsExactly("OPEN");
+    assertThat(requestCaptor.getValue().getResolved()).isFalse();
+  }
+
+  @Test
+  public void return_empty_stream_when_no_issues() throws IOException {
+    IssueQuery query = IssueQuery.builder().build();
+    when(issueQueryFactory.create(any(SearchWsRequest.class))).thenReturn(query);
+    when(issueIndex.searchAllKeys(query)).thenReturn(new ArrayList<String>().iterator());
+
+    TestResponse response = ws.newRequest().execute();
+
+    assertThat(readIssueKeys(response.getInputStream())).isEmpty();
+    verifyZeroInteractions(searchResponseLoader, searchResponseFormat);
+  }
+
+  private static List<String> readIssueKeys(InputStream input) throws IOException {
+    List<String> keys = new ArrayList<>();
+    Issues.Issue issue;
+    while ((issue = Issues.Issue.parseDelimitedFrom(input)) != null) {
+      keys.add(issue.getKey());
+    }
+    return keys;
+  }
+}
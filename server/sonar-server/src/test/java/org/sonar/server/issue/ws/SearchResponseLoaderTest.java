@@ -0,0 +1,116 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import java.util.EnumSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.issue.IssueDto;
+import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.user.UserDto;
+import org.sonar.server.issue.ActionFinder;
+import org.sonar.server.issue.TransitionService;
+import org.sonar.server.organization.OrganizationCache;
+import org.sonar.server.rule.RuleDefinitionCache;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserCache;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+import static org.sonar.db.component.ComponentTesting.newModuleDto;
+import static org.sonar.server.issue.ws.SearchAdditionalField.COMMENTS;
+import static org.sonar.server.issue.ws.SearchAdditionalField.RULES;
+import static org.sonar.server.issue.ws.SearchAdditionalField.USERS;
+
+public class SearchResponseLoaderTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+
+  private SearchResponseLoader underTest = new SearchResponseLoader(userSession, db.getDbClient(), new ActionFinder(userSession),
+    mock(TransitionService.class), new RuleDefinitionCache(db.getDbClient()), new UserCache(db.getDbClient()), new OrganizationCache(db.getDbClient()));
+
+  @Test
+  public void load_issues_with_their_components_rules_users_comments_and_organizations() {
+    OrganizationDto organization = db.organizations().insert();
+    ComponentDto project = db.components().insertProject(organization);
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    RuleDefinitionDto rule = db.rules().insert();
+    UserDto assignee = db.users().insertUser();
+    UserDto commenter = db.users().insertUser();
+    IssueDto issue = db.issues().insert(rule, project, file, i -> i.setAssignee(assignee.getLogin()));
+    db.issues().insertComment(issue, commenter.getLogin(), "the comment");
+    userSession.logIn(commenter);
+
+    SearchResponseData result = underTest.load(new SearchResponseLoader.Collector(EnumSet.of(COMMENTS, RULES, USERS), singletonList(issue.getKey())), null);
+
+    assertThat(result.getIssues()).extracting(IssueDto::getKey).containsExactly(issue.getKey());
+    assertThat(result.getComponents()).extracting(ComponentDto::uuid).containsOnly(project.uuid(), file.uuid());
+    assertThat(result.getRules()).extracting(RuleDefinitionDto::getKey).containsExactly(rule.getKey());
+    assertThat(result.getUsers()).extracting(UserDto::getLogin).containsOnly(assignee.getLogin(), commenter.getLogin());
+    assertThat(result.getCommentsForIssueKey(issue.getKey())).hasSize(1);
+    assertThat(result.isUpdatableComment(result.getCommentsForIssueKey(issue.getKey()).get(0).getKey())).isTrue();
+    assertThat(result.getOrganizationKey(organization.getUuid())).isEqualTo(organization.getKey());
+  }
+
+  @Test
+  public void load_modules_and_project_of_components() {
+    ComponentDto project = db.components().insertProject();
+    ComponentDto module = db.components().insertComponent(newModuleDto(project));
+    ComponentDto file = db.components().insertComponent(newFileDto(module));
+    IssueDto issue = db.issues().insert(db.rules().insert(), project, file);
+
+    SearchResponseData result = underTest.load(new SearchResponseLoader.Collector(EnumSet.noneOf(SearchAdditionalField.class), singletonList(issue.getKey())), null);
+
+    assertThat(result.getComponents()).extracting(ComponentDto::uuid).containsOnly(project.uuid(), module.uuid(), file.uuid());
+    assertThat(result.getRules()).isNull();
+    assertThat(result.getUsers()).isNull();
+  }
+
+  @Test
+  public void load_rules_users_and_organizations_on_the_session_of_the_request() {
+    DbClient dbClient = spy(db.getDbClient());
+    underTest = new SearchResponseLoader(userSession, dbClient, new ActionFinder(userSession),
+      mock(TransitionService.class), new RuleDefinitionCache(dbClient), new UserCache(dbClient), new OrganizationCache(dbClient));
+    ComponentDto project = db.components().insertProject();
+    UserDto assignee = db.users().insertUser();
+    IssueDto issue = db.issues().insert(db.rules().insert(), project, project, i -> i.setAssignee(assignee.getLogin()));
+
+    SearchResponseData result = underTest.load(new SearchResponseLoader.Collector(EnumSet.of(RULES, USERS), singletonList(issue.getKey())), null);
+
+    assertThat(result.getRules()).hasSize(1);
+    assertThat(result.getUsers()).hasSize(1);
+    verify(dbClient, times(1)).openSession(anyBoolean());
+  }
+}
@@ -513,8 +513,7 @@ public class SearchActionTest {
 
   private void setBrowsePermissionOnUser(ComponentDto... projects) {
     for (ComponentDto project : projects) {
-      db.users().insertProjectPermissionOnUser(user, UserRole.USER, project);
+      userSession.addProjectUuidPermissions(UserRole.USER, project.projectUuid());
     }
-    dbSession.commit();
   }
 }
@@ -78,6 +78,19 @@ public class EsMonitorTest {
     assertThat(indexAttributes.get("Store Size")).isNotNull();
   }
 
+  @Test
+  public void bulk_indexing_attributes() {
+    Map<String, Object> attributes = underTest.attributes();
+    Map bulkAttributes = (Map) attributes.get("Bulk Indexing");
+
+    assertThat(bulkAttributes.get("Indexed Docs")).isEqualTo(0L);
+    assertThat(bulkAttributes.get("Indexed Docs per Second")).isEqualTo(0L);
+    assertThat(bulkAttributes.get("Requests in Flight")).isEqualTo(0);
+    assertThat(underTest.getBulkIndexingDocsPerSecond()).isEqualTo(0L);
+    assertThat(underTest.getBulkIndexingBytesPerSecond()).isEqualTo(0L);
+    assertThat(underTest.getBulkIndexingRequestsInFlight()).isEqualTo(0);
+  }
+
   @Test
   public void attributes_displays_exception_message_when_cause_null_when_client_fails() {
     EsClient esClientMock = mock(EsClient.class);
@@ -52,6 +52,7 @@ import org.sonar.server.rule.index.RuleQuery;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.sonar.db.rule.RuleTesting.newRule;
 import static org.sonar.server.util.TypeValidationsTesting.newFullTypeValidations;
 
@@ -72,8 +73,9 @@ public class RuleCreatorTest {
   private RuleIndexer ruleIndexer = new RuleIndexer(es.client(), db.getDbClient());
   private DbSession dbSession = db.getSession();
 
+  private RuleDefinitionCache ruleDefinitionCache = mock(RuleDefinitionCache.class);
   private RuleCreator underTest = new RuleCreator(system2, new RuleIndexer(es.client(), db.getDbClient()), db.getDbClient(), newFullTypeValidations(),
-    TestDefaultOrganizationProvider.from(db));
+    TestDefaultOrganizationProvider.from(db), ruleDefinitionCache);
 
   @Test
   public void create_custom_rule() {
@@ -253,6 +255,7 @@ public class RuleCreatorTest {
     RuleDefinitionDto result = db.getDbClient().ruleDao().selectOrFailDefinitionByKey(dbSession, customRuleKey);
     assertThat(result.getKey()).isEqualTo(RuleKey.of("java", key));
     assertThat(result.getStatus()).isEqualTo(RuleStatus.READY);
+    verify(ruleDefinitionCache).invalidate(customRuleKey);
 
     // These values should be the same than before
     assertThat(result.getName()).isEqualTo("Old name");
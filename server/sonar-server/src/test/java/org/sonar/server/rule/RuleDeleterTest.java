@@ -55,7 +55,8 @@ public class RuleDeleterTest {
   private RuleIndexer ruleIndexer = mock(RuleIndexer.class);
   private OrganizationFlags organizationFlags = TestOrganizationFlags.standalone();
   private RuleActivator ruleActivator = mock(RuleActivator.class);
-  private RuleDeleter deleter = new RuleDeleter(System2.INSTANCE, ruleIndexer, dbClient, ruleActivator, organizationFlags);
+  private RuleDefinitionCache ruleDefinitionCache = mock(RuleDefinitionCache.class);
+  private RuleDeleter deleter = new RuleDeleter(System2.INSTANCE, ruleIndexer, dbClient, ruleActivator, organizationFlags, ruleDefinitionCache);
 
   @Test
   public void delete_custom_rule() {
@@ -79,6 +80,7 @@ public class RuleDeleterTest {
 
     Mockito.verify(ruleIndexer).indexRuleDefinition(eq(customRule.getKey()));
     Mockito.verifyNoMoreInteractions(ruleIndexer);
+    Mockito.verify(ruleDefinitionCache).invalidate(customRule.getKey());
 
     // Verify custom rule has status REMOVED
     RuleDefinitionDto customRuleReloaded = dbClient.ruleDao().selectOrFailDefinitionByKey(dbSession, customRule.getKey());
@@ -60,6 +60,7 @@ import org.sonar.server.tester.UserSessionRule;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 public class RuleUpdaterTest {
 
@@ -84,7 +85,8 @@ public class RuleUpdaterTest {
   private DbSession dbSession = db.getSession();
   private TestDefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
 
-  private RuleUpdater underTest = new RuleUpdater(db.getDbClient(), ruleIndexer, system2);
+  private RuleDefinitionCache ruleDefinitionCache = mock(RuleDefinitionCache.class);
+  private RuleUpdater underTest = new RuleUpdater(db.getDbClient(), ruleIndexer, system2, ruleDefinitionCache);
 
   @Test
   public void do_not_update_rule_with_removed_status() {
@@ -381,6 +383,7 @@ public class RuleUpdaterTest {
 
     List<RuleParamDto> params = db.getDbClient().ruleDao().selectRuleParamsByRuleKey(dbSession, customRuleReloaded.getKey());
     assertThat(params).extracting(RuleParamDto::getDefaultValue).containsOnly("b.*", null);
+    verify(ruleDefinitionCache).invalidate(customRule.getKey());
 
     // Verify in index
     assertThat(ruleIndex.search(new RuleQuery().setQueryText("New name"), new SearchOptions()).getIds()).containsOnly(customRule.getKey());
@@ -35,6 +35,7 @@ import org.sonar.server.es.EsTester;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.organization.TestOrganizationFlags;
 import org.sonar.server.rule.RuleCreator;
+import org.sonar.server.rule.RuleDefinitionCache;
 import org.sonar.server.rule.index.RuleIndexDefinition;
 import org.sonar.server.rule.index.RuleIndexer;
 import org.sonar.server.text.MacroInterpreter;
@@ -68,7 +69,7 @@ public class CreateActionTest {
 
   private WsActionTester wsTester = new WsActionTester(new CreateAction(db.getDbClient(),
     new RuleCreator(system2, new RuleIndexer(es.client(), db.getDbClient()), db.getDbClient(), newFullTypeValidations(),
-      TestDefaultOrganizationProvider.from(db)),
+      TestDefaultOrganizationProvider.from(db), mock(RuleDefinitionCache.class)),
     new RuleMapper(new Languages(), createMacroInterpreter()), organizationFlags));
 
   @Test
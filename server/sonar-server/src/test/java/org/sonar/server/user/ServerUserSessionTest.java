@@ -38,6 +38,7 @@ import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.organization.TestOrganizationFlags;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.core.permission.GlobalPermissions.PROVISIONING;
 import static org.sonar.core.permission.GlobalPermissions.SYSTEM_ADMIN;
@@ -320,6 +321,65 @@ public class ServerUserSessionTest {
     assertThat(session.hasComponentPermission(UserRole.ADMIN, project)).isFalse();
   }
 
+  @Test
+  public void keepAuthorizedComponents_returns_components_of_projects_on_which_logged_in_user_has_permission() {
+    ComponentDto project1 = db.components().insertProject();
+    ComponentDto file1 = db.components().insertComponent(ComponentTesting.newFileDto(project1, null));
+    ComponentDto project2 = db.components().insertProject();
+    ComponentDto project3 = db.components().insertProject();
+    GroupDto group = db.users().insertGroup();
+    db.users().insertMember(group, userDto);
+    db.users().insertProjectPermissionOnUser(userDto, UserRole.USER, project1);
+    db.users().insertProjectPermissionOnGroup(group, UserRole.USER, project2);
+    db.users().insertProjectPermissionOnUser(userDto, UserRole.ADMIN, project3);
+
+    UserSession underTest = newUserSession(userDto);
+
+    assertThat(underTest.keepAuthorizedComponents(UserRole.USER, asList(project3, file1, project2, project1)))
+      .containsExactly(file1, project2, project1);
+    assertThat(underTest.keepAuthorizedComponents(UserRole.ADMIN, asList(project1, project2, project3)))
+      .containsExactly(project3);
+  }
+
+  @Test
+  public void keepAuthorizedComponents_returns_components_of_projects_on_which_anonymous_has_permission() {
+    ComponentDto project1 = db.components().insertProject();
+    ComponentDto project2 = db.components().insertProject();
+    db.users().insertProjectPermissionOnAnyone(UserRole.USER, project1);
+    db.users().insertProjectPermissionOnUser(userDto, UserRole.USER, project2);
+
+    UserSession underTest = newAnonymousSession();
+
+    assertThat(underTest.keepAuthorizedComponents(UserRole.USER, asList(project1, project2))).containsExactly(project1);
+  }
+
+  @Test
+  public void keepAuthorizedComponents_returns_all_components_if_user_is_root() {
+    ComponentDto project = db.components().insertProject();
+
+    UserSession underTest = newUserSession(ROOT_USER_DTO);
+
+    assertThat(underTest.keepAuthorizedComponents(UserRole.USER, asList(project))).containsExactly(project);
+  }
+
+  @Test
+  public void keepAuthorizedComponents_shares_cache_of_permissions_with_hasComponentPermission() {
+    ComponentDto project1 = db.components().insertProject();
+    ComponentDto project2 = db.components().insertProject();
+    db.users().insertProjectPermissionOnUser(userDto, UserRole.USER, project1);
+
+    UserSession session = newUserSession(userDto);
+
+    // feed the cache
+    assertThat(session.keepAuthorizedComponents(UserRole.USER, asList(project1, project2))).containsExactly(project1);
+
+    // change permissions without updating the cache
+    db.users().deletePermissionFromUser(project1, userDto, UserRole.USER);
+    db.users().insertProjectPermissionOnUser(userDto, UserRole.USER, project2);
+    assertThat(session.hasComponentPermission(UserRole.USER, project1)).isTrue();
+    assertThat(session.hasComponentPermission(UserRole.USER, project2)).isFalse();
+  }
+
   @Test
   public void isSystemAdministrator_returns_true_if_org_feature_is_enabled_and_user_is_root() {
     organizationFlags.setEnabled(true);
@@ -88,10 +88,11 @@ public class UserUpdaterTest {
   private DbSession session = db.getSession();
   private UserIndexer userIndexer = new UserIndexer(dbClient, es.client());
   private OrganizationCreation organizationCreation = mock(OrganizationCreation.class);
+  private UserCache userCache = mock(UserCache.class);
   private DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
   private TestOrganizationFlags organizationFlags = TestOrganizationFlags.standalone();
   private UserUpdater underTest = new UserUpdater(newUserNotifier, dbClient, userIndexer, system2, organizationFlags, defaultOrganizationProvider, organizationCreation,
-    new DefaultGroupFinder(dbClient));
+    new DefaultGroupFinder(dbClient), userCache);
 
   @Before
   public void setUp() {
@@ -728,6 +729,7 @@ public class UserUpdaterTest {
     assertThat(updatedUser.getCryptedPassword()).isNotEqualTo(user.getCryptedPassword());
     assertThat(updatedUser.getCreatedAt()).isEqualTo(PAST);
     assertThat(updatedUser.getUpdatedAt()).isEqualTo(NOW);
+    verify(userCache).invalidate(DEFAULT_LOGIN);
 
     List<SearchHit> indexUsers = es.getDocuments(UserIndexDefinition.INDEX_TYPE_USER);
     assertThat(indexUsers).hasSize(1);
@@ -0,0 +1,100 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.util.cache;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.MapEntry.entry;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class ExpiringMemoryCacheTest {
+
+  private Function<List<String>, Map<String, String>> loader = mock(Function.class);
+  private ExpiringMemoryCache<String, String> underTest = new ExpiringMemoryCache<>(100L, 1L, TimeUnit.HOURS);
+
+  @Test
+  public void load_only_missing_keys() {
+    when(loader.apply(Arrays.asList("one", "two"))).thenReturn(ImmutableMap.of("one", "un", "two", "deux"));
+    when(loader.apply(Collections.singletonList("three"))).thenReturn(ImmutableMap.of("three", "trois"));
+
+    assertThat(underTest.getAll(Arrays.asList("one", "two"), loader)).containsOnly(entry("one", "un"), entry("two", "deux"));
+    assertThat(underTest.getAll(Arrays.asList("one", "three"), loader)).containsOnly(entry("one", "un"), entry("three", "trois"));
+
+    verify(loader).apply(Arrays.asList("one", "two"));
+    verify(loader).apply(Collections.singletonList("three"));
+    verifyNoMoreInteractions(loader);
+  }
+
+  @Test
+  public void keys_not_found_are_not_kept_in_memory() {
+    when(loader.apply(Collections.singletonList("one"))).thenReturn(Collections.emptyMap());
+
+    assertThat(underTest.getAll(Collections.singletonList("one"), loader)).isEmpty();
+    assertThat(underTest.getAll(Collections.singletonList("one"), loader)).isEmpty();
+
+    verify(loader, times(2)).apply(Collections.singletonList("one"));
+  }
+
+  @Test
+  public void invalidate_key() {
+    when(loader.apply(Arrays.asList("one", "two"))).thenReturn(ImmutableMap.of("one", "un", "two", "deux"));
+    when(loader.apply(Collections.singletonList("one"))).thenReturn(ImmutableMap.of("one", "uno"));
+    underTest.getAll(Arrays.asList("one", "two"), loader);
+
+    underTest.invalidate("one");
+
+    assertThat(underTest.getAll(Arrays.asList("one", "two"), loader)).containsOnly(entry("one", "uno"), entry("two", "deux"));
+  }
+
+  @Test
+  public void clear() {
+    when(loader.apply(Collections.singletonList("one"))).thenReturn(ImmutableMap.of("one", "un"));
+    underTest.getAll(Collections.singletonList("one"), loader);
+
+    underTest.clear();
+    underTest.getAll(Collections.singletonList("one"), loader);
+
+    verify(loader, times(2)).apply(Collections.singletonList("one"));
+  }
+
+  @Test
+  public void elements_expire() throws Exception {
+    underTest = new ExpiringMemoryCache<>(100L, 1L, TimeUnit.MILLISECONDS);
+    when(loader.apply(Collections.singletonList("one"))).thenReturn(ImmutableMap.of("one", "un"));
+    underTest.getAll(Collections.singletonList("one"), loader);
+
+    Thread.sleep(10L);
+    underTest.getAll(Collections.singletonList("one"), loader);
+
+    verify(loader, times(2)).apply(Collections.singletonList("one"));
+  }
+}
@@ -42,6 +42,8 @@ public class CorePropertyDefinitions {
 
   private static final String DEFAULT_LEAK_PERIOD = LEAK_PERIOD_MODE_PREVIOUS_VERSION;
 
+  public static final String CPD_INDEX_OFF_HEAP = "sonar.cpd.index.offHeap";
+
   private static final String CATEGORY_ORGANIZATIONS = "organizations";
   public static final String ORGANIZATIONS_ANYONE_CAN_CREATE = "sonar.organizations.anyoneCanCreate";
   public static final String ORGANIZATIONS_CREATE_PERSONAL_ORG = "sonar.organizations.createPersonalOrg";
@@ -240,6 +242,16 @@ public class CorePropertyDefinitions {
         .subCategory(CoreProperties.SUBCATEGORY_DUPLICATIONS_EXCLUSIONS)
         .multiValues(true)
         .build(),
+      PropertyDefinition.builder(CPD_INDEX_OFF_HEAP)
+        .defaultValue(Boolean.toString(false))
+        .name("Store duplication blocks off heap")
+        .description("Store the blocks indexed for duplication detection out of the Java heap of the scanner. "
+          + "Detection is slower, but large projects need less memory.")
+        .category(CoreProperties.CATEGORY_GENERAL)
+        .subCategory(CoreProperties.SUBCATEGORY_DUPLICATIONS)
+        .type(PropertyType.BOOLEAN)
+        .hidden()
+        .build(),
 
       // ORGANIZATIONS
       PropertyDefinition.builder(ORGANIZATIONS_ANYONE_CAN_CREATE)
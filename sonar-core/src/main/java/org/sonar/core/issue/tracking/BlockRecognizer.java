@@ -20,8 +20,9 @@
 package org.sonar.core.issue.tracking;
 
 import com.google.common.collect.LinkedHashMultimap;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -80,18 +81,41 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
       return;
     }
 
-    List<LinePair> possibleLinePairs = Lists.newArrayList();
-    for (Integer baseLine : basesByLine.keySet()) {
-      for (Integer rawLine : rawsByLine.keySet()) {
-        int weight = lengthOfMaximalBlock(baseInput.getLineHashSequence(), baseLine, rawInput.getLineHashSequence(), rawLine);
-        possibleLinePairs.add(new LinePair(baseLine, rawLine, weight));
+    int[] baseLines = toArray(basesByLine.keySet());
+    int[] rawLines = toArray(rawsByLine.keySet());
+    Map<String, Integer> lineHashIds = new HashMap<>();
+    int[] baseLineHashes = internLineHashes(baseInput.getLineHashSequence(), lineHashIds);
+    int[] rawLineHashes = internLineHashes(rawInput.getLineHashSequence(), lineHashIds);
+
+    // Pairs of lines are processed in the same order as if they were all sorted by weight, then by distance between
+    // lines, then by order of base lines, then by order of raw lines.
+    // Only the lines with the same hash have a weight, these pairs are the first ones.
+    List<LinePair> weightedLinePairs = new ArrayList<>();
+    RawLinesByHash rawLinesByHash = new RawLinesByHash(rawLines, rawLineHashes, lineHashIds.size());
+    for (int baseLine : baseLines) {
+      for (int i = rawLinesByHash.first(baseLineHashes[baseLine - 1]); i >= 0; i = rawLinesByHash.next(i)) {
+        int weight = lengthOfMaximalBlock(baseLineHashes, baseLine, rawLineHashes, rawLines[i]);
+        weightedLinePairs.add(new LinePair(baseLine, rawLines[i], weight));
       }
     }
-    Collections.sort(possibleLinePairs, LinePairComparator.INSTANCE);
-    for (LinePair linePair : possibleLinePairs) {
+    Collections.sort(weightedLinePairs, LinePairComparator.INSTANCE);
+    for (LinePair linePair : weightedLinePairs) {
       // High probability that baseLine has been moved to rawLine, so we can map all issues on baseLine to all issues on rawLine
       map(rawsByLine.get(linePair.rawLine), basesByLine.get(linePair.baseLine), tracking);
     }
+
+    // Then all the pairs, by distance. Pairs with a weight are visited again, which has no effect.
+    LinePairsByDistance linePairsByDistance = new LinePairsByDistance(baseLines, rawLines);
+    while (!tracking.isComplete() && linePairsByDistance.hasNext()) {
+      Collection<BASE> bases = basesByLine.get(linePairsByDistance.baseLine());
+      map(rawsByLine.get(linePairsByDistance.rawLine()), bases, tracking);
+      if (hasUnmatchedBase(bases, tracking)) {
+        linePairsByDistance.next();
+      } else {
+        // nothing left to match on this base line
+        linePairsByDistance.skipBaseLine();
+      }
+    }
   }
 
   /**
@@ -99,20 +123,25 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
    * @param startLineB number of line from second version of text (numbering starts from 1)
    */
   static int lengthOfMaximalBlock(LineHashSequence hashesA, int startLineA, LineHashSequence hashesB, int startLineB) {
-    if (!hashesA.getHashForLine(startLineA).equals(hashesB.getHashForLine(startLineB))) {
+    Map<String, Integer> lineHashIds = new HashMap<>();
+    return lengthOfMaximalBlock(internLineHashes(hashesA, lineHashIds), startLineA, internLineHashes(hashesB, lineHashIds), startLineB);
+  }
+
+  private static int lengthOfMaximalBlock(int[] hashesA, int startLineA, int[] hashesB, int startLineB) {
+    if (hashesA[startLineA - 1] != hashesB[startLineB - 1]) {
       return 0;
     }
     int length = 0;
     int ai = startLineA;
     int bi = startLineB;
-    while (ai <= hashesA.length() && bi <= hashesB.length() && hashesA.getHashForLine(ai).equals(hashesB.getHashForLine(bi))) {
+    while (ai <= hashesA.length && bi <= hashesB.length && hashesA[ai - 1] == hashesB[bi - 1]) {
       ai++;
       bi++;
       length++;
     }
     ai = startLineA;
     bi = startLineB;
-    while (ai > 0 && bi > 0 && hashesA.getHashForLine(ai).equals(hashesB.getHashForLine(bi))) {
+    while (ai > 0 && bi > 0 && hashesA[ai - 1] == hashesB[bi - 1]) {
       ai--;
       bi--;
       length++;
@@ -121,6 +150,43 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
     return length - 1;
   }
 
+  /**
+   * Ids of the hashes of lines, a given hash having the same id in all the sequences sharing {@code lineHashIds}.
+   * Line 1 is at index 0.
+   */
+  private static int[] internLineHashes(LineHashSequence lineHashSequence, Map<String, Integer> lineHashIds) {
+    int[] res = new int[lineHashSequence.length()];
+    for (int line = 1; line <= res.length; line++) {
+      String hash = lineHashSequence.getHashForLine(line);
+      Integer id = lineHashIds.get(hash);
+      if (id == null) {
+        id = lineHashIds.size();
+        lineHashIds.put(hash, id);
+      }
+      res[line - 1] = id;
+    }
+    return res;
+  }
+
+  private static int[] toArray(Collection<Integer> lines) {
+    int[] res = new int[lines.size()];
+    int i = 0;
+    for (Integer line : lines) {
+      res[i] = line;
+      i++;
+    }
+    return res;
+  }
+
+  private boolean hasUnmatchedBase(Collection<BASE> bases, Tracking<RAW, BASE> tracking) {
+    for (BASE base : bases) {
+      if (tracking.containsUnmatchedBase(base)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private void map(Collection<RAW> raws, Collection<BASE> bases, Tracking<RAW, BASE> result) {
     for (RAW raw : raws) {
       for (BASE base : bases) {
@@ -175,4 +241,181 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
       }
     }
   }
+
+  /**
+   * Raw lines having a given hash, in the order of the raw lines.
+   */
+  private static final class RawLinesByHash {
+    private final int[] firstByHash;
+    private final int[] next;
+
+    private RawLinesByHash(int[] rawLines, int[] rawLineHashes, int hashCount) {
+      this.firstByHash = new int[hashCount];
+      this.next = new int[rawLines.length];
+      Arrays.fill(firstByHash, -1);
+      for (int i = rawLines.length - 1; i >= 0; i--) {
+        int hash = rawLineHashes[rawLines[i] - 1];
+        next[i] = firstByHash[hash];
+        firstByHash[hash] = i;
+      }
+    }
+
+    /**
+     * Index of the first raw line with the given hash, or -1
+     */
+    private int first(int hash) {
+      return firstByHash[hash];
+    }
+
+    /**
+     * Index of the next raw line with the same hash as the raw line at the given index, or -1
+     */
+    private int next(int index) {
+      return next[index];
+    }
+  }
+
+  /**
+   * All the pairs of a base line and a raw line, ordered by distance between lines, then by order of base lines, then
+   * by order of raw lines.
+   * <p>
+   * Pairs are not materialized: each base line has a cursor on the raw lines, from the closest to the farthest, and
+   * a binary heap of these cursors gives the next pair. Memory is linear to the number of lines.
+   * </p>
+   */
+  private static final class LinePairsByDistance {
+    private final int[] baseLines;
+    // raw lines, sorted by line, with their index in the order of raw lines
+    private final int[] sortedRawLines;
+    private final int[] rawIndexes;
+    // cursor of each base line: next raw line before it and after it, then the closest of both
+    private final int[] before;
+    private final int[] after;
+    private final int[] closest;
+    private final int[] distance;
+    // heap of the indexes of base lines
+    private final int[] heap;
+    private int heapSize = 0;
+
+    private LinePairsByDistance(int[] baseLines, int[] rawLines) {
+      this.baseLines = baseLines;
+      long[] sorted = new long[rawLines.length];
+      for (int i = 0; i < rawLines.length; i++) {
+        sorted[i] = ((long) rawLines[i] << 32) | i;
+      }
+      Arrays.sort(sorted);
+      this.sortedRawLines = new int[rawLines.length];
+      this.rawIndexes = new int[rawLines.length];
+      for (int i = 0; i < sorted.length; i++) {
+        sortedRawLines[i] = (int) (sorted[i] >> 32);
+        rawIndexes[i] = (int) sorted[i];
+      }
+
+      this.before = new int[baseLines.length];
+      this.after = new int[baseLines.length];
+      this.closest = new int[baseLines.length];
+      this.distance = new int[baseLines.length];
+      this.heap = new int[baseLines.length];
+      for (int i = 0; i < baseLines.length; i++) {
+        int position = Arrays.binarySearch(sortedRawLines, baseLines[i]);
+        after[i] = position >= 0 ? position : (-position - 1);
+        before[i] = after[i] - 1;
+        if (selectClosest(i)) {
+          heap[heapSize] = i;
+          heapSize++;
+        }
+      }
+      for (int i = heapSize / 2 - 1; i >= 0; i--) {
+        siftDown(i);
+      }
+    }
+
+    private boolean hasNext() {
+      return heapSize > 0;
+    }
+
+    private int baseLine() {
+      return baseLines[heap[0]];
+    }
+
+    private int rawLine() {
+      return sortedRawLines[closest[heap[0]]];
+    }
+
+    /**
+     * Moves to the next pair
+     */
+    private void next() {
+      int baseIndex = heap[0];
+      if (closest[baseIndex] == before[baseIndex]) {
+        before[baseIndex]--;
+      } else {
+        after[baseIndex]++;
+      }
+      if (selectClosest(baseIndex)) {
+        siftDown(0);
+      } else {
+        skipBaseLine();
+      }
+    }
+
+    /**
+     * Moves to the next pair, ignoring the remaining pairs of the current base line
+     */
+    private void skipBaseLine() {
+      heapSize--;
+      heap[0] = heap[heapSize];
+      siftDown(0);
+    }
+
+    /**
+     * @return false if there is no more raw line for the specified base line
+     */
+    private boolean selectClosest(int baseIndex) {
+      int baseLine = baseLines[baseIndex];
+      boolean hasBefore = before[baseIndex] >= 0;
+      boolean hasAfter = after[baseIndex] < sortedRawLines.length;
+      if (!hasBefore && !hasAfter) {
+        return false;
+      }
+      int distanceBefore = hasBefore ? (baseLine - sortedRawLines[before[baseIndex]]) : Integer.MAX_VALUE;
+      int distanceAfter = hasAfter ? (sortedRawLines[after[baseIndex]] - baseLine) : Integer.MAX_VALUE;
+      if (distanceBefore < distanceAfter
+        || (distanceBefore == distanceAfter && rawIndexes[before[baseIndex]] < rawIndexes[after[baseIndex]])) {
+        closest[baseIndex] = before[baseIndex];
+        distance[baseIndex] = distanceBefore;
+      } else {
+        closest[baseIndex] = after[baseIndex];
+        distance[baseIndex] = distanceAfter;
+      }
+      return true;
+    }
+
+    private void siftDown(int position) {
+      int current = position;
+      while (true) {
+        int smallest = current;
+        int left = 2 * current + 1;
+        int right = left + 1;
+        if (left < heapSize && isBefore(heap[left], heap[smallest])) {
+          smallest = left;
+        }
+        if (right < heapSize && isBefore(heap[right], heap[smallest])) {
+          smallest = right;
+        }
+        if (smallest == current) {
+          return;
+        }
+        int tmp = heap[current];
+        heap[current] = heap[smallest];
+        heap[smallest] = tmp;
+        current = smallest;
+      }
+    }
+
+    private boolean isBefore(int baseIndex1, int baseIndex2) {
+      return distance[baseIndex1] < distance[baseIndex2]
+        || (distance[baseIndex1] == distance[baseIndex2] && baseIndex1 < baseIndex2);
+    }
+  }
 }
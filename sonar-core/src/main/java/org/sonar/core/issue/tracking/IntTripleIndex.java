@@ -0,0 +1,107 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+/**
+ * Hash table of queues of values, keyed by three ints, which does not allocate anything once created.
+ * Values are the indexes of the elements added to the table, from 0 to {@code capacity - 1}, and are polled in the
+ * order they were added.
+ */
+final class IntTripleIndex {
+  private static final int EMPTY = -1;
+
+  private final int mask;
+  // open addressing with linear probing
+  private final int[] keys1;
+  private final int[] keys2;
+  private final int[] keys3;
+  private final boolean[] used;
+  // head and tail of the queue of each slot
+  private final int[] heads;
+  private final int[] tails;
+  // next value in the queue of each value
+  private final int[] next;
+
+  IntTripleIndex(int capacity) {
+    int slots = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) * 2;
+    this.mask = slots - 1;
+    this.keys1 = new int[slots];
+    this.keys2 = new int[slots];
+    this.keys3 = new int[slots];
+    this.used = new boolean[slots];
+    this.heads = new int[slots];
+    this.tails = new int[slots];
+    this.next = new int[capacity];
+  }
+
+  void add(int key1, int key2, int key3, int value) {
+    int slot = slotOf(key1, key2, key3);
+    next[value] = EMPTY;
+    if (used[slot]) {
+      if (heads[slot] == EMPTY) {
+        heads[slot] = value;
+      } else {
+        next[tails[slot]] = value;
+      }
+    } else {
+      used[slot] = true;
+      keys1[slot] = key1;
+      keys2[slot] = key2;
+      keys3[slot] = key3;
+      heads[slot] = value;
+    }
+    tails[slot] = value;
+  }
+
+  /**
+   * Removes and returns the first value added with the specified key, or -1 if there is none.
+   */
+  int poll(int key1, int key2, int key3) {
+    int slot = slotOf(key1, key2, key3);
+    if (!used[slot]) {
+      return EMPTY;
+    }
+    int res = heads[slot];
+    if (res != EMPTY) {
+      heads[slot] = next[res];
+    }
+    return res;
+  }
+
+  /**
+   * Slot of the key, or the free slot where it should be added
+   */
+  private int slotOf(int key1, int key2, int key3) {
+    int slot = hash(key1, key2, key3) & mask;
+    while (used[slot] && (keys1[slot] != key1 || keys2[slot] != key2 || keys3[slot] != key3)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private static int hash(int key1, int key2, int key3) {
+    int h = key1;
+    h = 31 * h + key2;
+    h = 31 * h + key3;
+    // spread bits, as keys are usually small consecutive ids
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -20,13 +20,19 @@
 package org.sonar.core.issue.tracking;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class BlockRecognizerTest {
 
+  private static final RuleKey RULE_KEY = RuleKey.of("java", "S001");
+
   @Test
   public void lengthOfMaximalBlock() {
     /**
@@ -41,6 +47,80 @@ public class BlockRecognizerTest {
     assertThat(compute(seq("bcde"), seq("abcde"), 3, 4)).isEqualTo(4);
   }
 
+  @Test
+  public void match_pairs_of_lines_by_length_of_block_before_distance() {
+    // line 3 of base has the longest block with line 7 of raw, whereas line 1 of raw is closer
+    FakeInput baseInput = new FakeInput("abcxy").createIssueOnLine(3);
+    FakeInput rawInput = new FakeInput("cqqqabcz").createIssueOnLine(1).createIssueOnLine(7);
+
+    Tracking<Issue, Issue> tracking = match(rawInput, baseInput);
+
+    assertThat(tracking.getMatchedRaws()).hasSize(1);
+    assertThat(tracking.baseFor(rawInput.issueOnLine(7))).isSameAs(baseInput.issueOnLine(3));
+  }
+
+  @Test
+  public void match_base_line_with_longest_block_first() {
+    // lines 1 and 5 of base are at the same distance of line 3 of raw, but line 5 has the longest block
+    FakeInput baseInput = new FakeInput("cxabc").createIssueOnLine(1).createIssueOnLine(5);
+    FakeInput rawInput = new FakeInput("abc").createIssueOnLine(3);
+
+    Tracking<Issue, Issue> tracking = match(rawInput, baseInput);
+
+    assertThat(tracking.getMatchedRaws()).hasSize(1);
+    assertThat(tracking.baseFor(rawInput.issueOnLine(3))).isSameAs(baseInput.issueOnLine(5));
+  }
+
+  @Test
+  public void match_closest_base_line_first_when_blocks_have_the_same_length() {
+    FakeInput baseInput = new FakeInput("cxxxc").createIssueOnLine(1).createIssueOnLine(5);
+    FakeInput rawInput = new FakeInput("qqqc").createIssueOnLine(4);
+
+    Tracking<Issue, Issue> tracking = match(rawInput, baseInput);
+
+    assertThat(tracking.getMatchedRaws()).hasSize(1);
+    assertThat(tracking.baseFor(rawInput.issueOnLine(4))).isSameAs(baseInput.issueOnLine(5));
+  }
+
+  @Test
+  public void match_closest_raw_line_first_when_blocks_have_the_same_length() {
+    FakeInput baseInput = new FakeInput("axcy").createIssueOnLine(3);
+    FakeInput rawInput = new FakeInput("cqcrrrc").createIssueOnLine(1).createIssueOnLine(3).createIssueOnLine(7);
+
+    Tracking<Issue, Issue> tracking = match(rawInput, baseInput);
+
+    assertThat(tracking.getMatchedRaws()).hasSize(1);
+    assertThat(tracking.baseFor(rawInput.issueOnLine(3))).isSameAs(baseInput.issueOnLine(3));
+  }
+
+  @Test
+  public void match_first_raw_line_when_pairs_have_the_same_length_and_distance() {
+    FakeInput baseInput = new FakeInput("axcy").createIssueOnLine(3);
+    FakeInput rawInput = new FakeInput("cqqqc").createIssueOnLine(1).createIssueOnLine(5);
+
+    Tracking<Issue, Issue> tracking = match(rawInput, baseInput);
+
+    assertThat(tracking.getMatchedRaws()).hasSize(1);
+    assertThat(tracking.baseFor(rawInput.issueOnLine(1))).isSameAs(baseInput.issueOnLine(3));
+  }
+
+  @Test
+  public void match_first_base_line_when_pairs_have_the_same_length_and_distance() {
+    FakeInput baseInput = new FakeInput("cxc").createIssueOnLine(1).createIssueOnLine(3);
+    FakeInput rawInput = new FakeInput("yc").createIssueOnLine(2);
+
+    Tracking<Issue, Issue> tracking = match(rawInput, baseInput);
+
+    assertThat(tracking.getMatchedRaws()).hasSize(1);
+    assertThat(tracking.baseFor(rawInput.issueOnLine(2))).isSameAs(baseInput.issueOnLine(1));
+  }
+
+  private static Tracking<Issue, Issue> match(FakeInput rawInput, FakeInput baseInput) {
+    Tracking<Issue, Issue> tracking = new Tracking<>(rawInput, baseInput);
+    new BlockRecognizer<Issue, Issue>().match(rawInput, baseInput, tracking);
+    return tracking;
+  }
+
   private int compute(LineHashSequence seqA, LineHashSequence seqB, int ai, int bi) {
     return BlockRecognizer.lengthOfMaximalBlock(seqA, ai, seqB, bi);
   }
@@ -53,4 +133,67 @@ public class BlockRecognizerTest {
     return new LineHashSequence(hashes);
   }
 
+  private static class Issue implements Trackable {
+    private final int line;
+
+    private Issue(int line) {
+      this.line = line;
+    }
+
+    @Override
+    public Integer getLine() {
+      return line;
+    }
+
+    @Override
+    public String getMessage() {
+      return "message";
+    }
+
+    @Override
+    public String getLineHash() {
+      return null;
+    }
+
+    @Override
+    public RuleKey getRuleKey() {
+      return RULE_KEY;
+    }
+  }
+
+  /**
+   * Each character of the text is the hash of a line
+   */
+  private static class FakeInput implements Input<Issue> {
+    private final LineHashSequence lineHashSequence;
+    private final Map<Integer, Issue> issuesByLine = new LinkedHashMap<>();
+
+    private FakeInput(String text) {
+      this.lineHashSequence = seq(text);
+    }
+
+    private FakeInput createIssueOnLine(int line) {
+      issuesByLine.put(line, new Issue(line));
+      return this;
+    }
+
+    private Issue issueOnLine(int line) {
+      return issuesByLine.get(line);
+    }
+
+    @Override
+    public LineHashSequence getLineHashSequence() {
+      return lineHashSequence;
+    }
+
+    @Override
+    public BlockHashSequence getBlockHashSequence() {
+      return BlockHashSequence.create(lineHashSequence);
+    }
+
+    @Override
+    public Collection<Issue> getIssues() {
+      return issuesByLine.values();
+    }
+  }
 }
@@ -0,0 +1,75 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IntTripleIndexTest {
+
+  @Test
+  public void poll_returns_values_of_key_in_order_of_addition() {
+    IntTripleIndex underTest = new IntTripleIndex(4);
+    underTest.add(1, 2, 3, 0);
+    underTest.add(1, 2, 4, 1);
+    underTest.add(1, 2, 3, 2);
+    underTest.add(3, 2, 1, 3);
+
+    assertThat(underTest.poll(1, 2, 3)).isEqualTo(0);
+    assertThat(underTest.poll(1, 2, 3)).isEqualTo(2);
+    assertThat(underTest.poll(1, 2, 3)).isEqualTo(-1);
+    assertThat(underTest.poll(1, 2, 4)).isEqualTo(1);
+    assertThat(underTest.poll(3, 2, 1)).isEqualTo(3);
+    assertThat(underTest.poll(3, 2, 1)).isEqualTo(-1);
+  }
+
+  @Test
+  public void poll_returns_minus_one_if_key_is_unknown() {
+    IntTripleIndex underTest = new IntTripleIndex(1);
+    underTest.add(1, 1, 1, 0);
+
+    assertThat(underTest.poll(1, 1, 2)).isEqualTo(-1);
+    assertThat(new IntTripleIndex(0).poll(0, 0, 0)).isEqualTo(-1);
+  }
+
+  @Test
+  public void values_can_be_added_again_once_polled() {
+    IntTripleIndex underTest = new IntTripleIndex(2);
+    underTest.add(1, 1, 1, 0);
+    assertThat(underTest.poll(1, 1, 1)).isEqualTo(0);
+
+    underTest.add(1, 1, 1, 1);
+    assertThat(underTest.poll(1, 1, 1)).isEqualTo(1);
+  }
+
+  @Test
+  public void supports_as_many_keys_as_values() {
+    int capacity = 10_000;
+    IntTripleIndex underTest = new IntTripleIndex(capacity);
+    for (int i = 0; i < capacity; i++) {
+      underTest.add(i % 7, i, -i, i);
+    }
+
+    for (int i = capacity - 1; i >= 0; i--) {
+      assertThat(underTest.poll(i % 7, i, -i)).isEqualTo(i);
+    }
+  }
+}
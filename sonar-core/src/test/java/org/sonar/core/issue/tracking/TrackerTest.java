@@ -22,6 +22,7 @@ package org.sonar.core.issue.tracking;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.Rule;
@@ -381,6 +382,41 @@ public class TrackerTest {
     assertThat(tracking.baseFor(raw1)).isEqualTo(base1);
   }
 
+  /**
+   * 10,000 issues on 400 lines, most of them moved by added lines.
+   */
+  @Test
+  public void match_10_000_issues_on_moved_lines() {
+    String[] baseLines = new String[1_000];
+    List<String> rawLines = new ArrayList<>();
+    int[] rawLineOfBaseLine = new int[baseLines.length + 1];
+    for (int i = 0; i < baseLines.length; i++) {
+      baseLines[i] = i % 10 == 0 ? "}" : ("line " + i);
+      if (i % 100 == 0) {
+        rawLines.add("added line " + i);
+      }
+      rawLines.add(baseLines[i]);
+      rawLineOfBaseLine[i + 1] = rawLines.size();
+    }
+    FakeInput baseInput = FakeInput.createForSourceLines(baseLines);
+    FakeInput rawInput = FakeInput.createForSourceLines(rawLines.toArray(new String[rawLines.size()]));
+    for (int line = 1; line <= 400; line++) {
+      for (int rule = 0; rule < 25; rule++) {
+        RuleKey ruleKey = RuleKey.of("java", "S" + rule);
+        baseInput.createIssueOnLine(line, ruleKey, "Message of line " + line);
+        rawInput.createIssueOnLine(rawLineOfBaseLine[line], ruleKey, "Message of line " + line);
+      }
+    }
+
+    Tracking<Issue, Issue> tracking = tracker.track(rawInput, baseInput);
+
+    assertThat(tracking.getMatchedRaws()).hasSize(10_000);
+    for (Map.Entry<Issue, Issue> rawAndBase : tracking.getMatchedRaws().entrySet()) {
+      assertThat(rawAndBase.getKey().getRuleKey()).isEqualTo(rawAndBase.getValue().getRuleKey());
+      assertThat(rawAndBase.getKey().getMessage()).isEqualTo(rawAndBase.getValue().getMessage());
+    }
+  }
+
   private static class Issue implements Trackable {
     private final RuleKey ruleKey;
     private final Integer line;
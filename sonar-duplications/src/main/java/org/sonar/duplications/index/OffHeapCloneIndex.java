@@ -0,0 +1,409 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+import org.sonar.duplications.utils.FastStringComparator;
+
+/**
+ * Provides an index with the same layout as {@link PackedMemoryCloneIndex}, but whose blocks are stored out of the
+ * Java heap, in direct buffers.
+ * <p>
+ * Blocks are stored in pages of fixed size, so that the index grows without copying the blocks already inserted.
+ * Resource ids are interned: each block only refers to the position of its resource in a table of distinct resources.
+ * Note that direct memory is limited by the JVM option {@code -XX:MaxDirectMemorySize}, which defaults to the maximum
+ * heap size.
+ * </p>
+ * <p>
+ * Once all blocks are inserted, queries can be executed concurrently by several threads: they do not modify the index,
+ * except for the sorting performed by the first of them.
+ * </p>
+ */
+public class OffHeapCloneIndex extends AbstractCloneIndex {
+
+  private static final int DEFAULT_PAGE_CAPACITY = 64 * 1024;
+
+  /**
+   * Ints following the hash in each block: resource, index in file, first and last lines, first and last units.
+   */
+  private static final int BLOCK_INTS = 6;
+
+  private final int hashInts;
+  private final int blockInts;
+  private final int pageCapacity;
+  private final List<IntBuffer> pages = new ArrayList<>();
+
+  /**
+   * Indicates that index requires sorting to perform queries.
+   */
+  private volatile boolean sorted;
+
+  /**
+   * Current number of blocks in index.
+   */
+  private int size;
+
+  private final List<String> resourceIds = new ArrayList<>();
+  private final Map<String, Integer> resourceIndexes = new HashMap<>();
+
+  /**
+   * Rank of each resource of {@link #resourceIds} when sorted with {@link FastStringComparator}, computed by {@link #sort()}.
+   */
+  private int[] resourceRanks = new int[0];
+
+  /**
+   * Positions of the blocks sorted by resource, computed by {@link #sort()}.
+   */
+  private IntBuffer resourceBlocksIndex = IntBuffer.allocate(0);
+
+  public OffHeapCloneIndex() {
+    this(8, DEFAULT_PAGE_CAPACITY);
+  }
+
+  /**
+   * @param hashBytes size of hash in bytes
+   * @param pageCapacity number of blocks stored by each page of direct memory
+   */
+  public OffHeapCloneIndex(int hashBytes, int pageCapacity) {
+    if (pageCapacity <= 0) {
+      throw new IllegalArgumentException("Page capacity must be positive: " + pageCapacity);
+    }
+    this.sorted = false;
+    this.hashInts = hashBytes / 4;
+    this.blockInts = hashInts + BLOCK_INTS;
+    this.pageCapacity = pageCapacity;
+    this.size = 0;
+  }
+
+  private static IntBuffer allocateDirect(int ints) {
+    return ByteBuffer.allocateDirect(ints * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+  }
+
+  private int get(int index, int field) {
+    return pages.get(index / pageCapacity).get((index % pageCapacity) * blockInts + field);
+  }
+
+  private void put(int index, int field, int value) {
+    pages.get(index / pageCapacity).put((index % pageCapacity) * blockInts + field, value);
+  }
+
+  private int resourceOf(int index) {
+    return get(index, hashInts);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * <strong>Note that this implementation does not guarantee that blocks would be sorted by index.</strong>
+   * </p>
+   */
+  @Override
+  public Collection<Block> getByResourceId(String resourceId) {
+    ensureSorted();
+
+    Integer resource = resourceIndexes.get(resourceId);
+    if (resource == null) {
+      return new ArrayList<>();
+    }
+    int rank = resourceRanks[resource];
+    int index = lowerBoundByResourceRank(rank);
+
+    List<Block> result = new ArrayList<>();
+    Block.Builder blockBuilder = Block.builder();
+    while (index < size && resourceOf(resourceBlocksIndex.get(index)) == resource) {
+      result.add(createBlock(blockBuilder, resourceBlocksIndex.get(index), resourceId, null));
+      index++;
+    }
+    return result;
+  }
+
+  private int lowerBoundByResourceRank(int rank) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (resourceRanks[resourceOf(resourceBlocksIndex.get(mid))] < rank) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int lowerBoundByHash(int[] hash) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (compareHash(mid, hash) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int compareHash(int index, int[] hash) {
+    for (int k = 0; k < hashInts; k++) {
+      int value = get(index, k);
+      if (value != hash[k]) {
+        return value < hash[k] ? -1 : 1;
+      }
+    }
+    return 0;
+  }
+
+  private Block createBlock(Block.Builder blockBuilder, int index, String resourceId, @Nullable ByteArray byteHash) {
+    ByteArray blockHash;
+    if (byteHash == null) {
+      int[] hash = new int[hashInts];
+      for (int j = 0; j < hashInts; j++) {
+        hash[j] = get(index, j);
+      }
+      blockHash = new ByteArray(hash);
+    } else {
+      blockHash = byteHash;
+    }
+
+    int offset = hashInts + 1;
+    return blockBuilder
+      .setResourceId(resourceId)
+      .setBlockHash(blockHash)
+      .setIndexInFile(get(index, offset))
+      .setLines(get(index, offset + 1), get(index, offset + 2))
+      .setUnit(get(index, offset + 3), get(index, offset + 4))
+      .build();
+  }
+
+  private class ResourceIterator implements Iterator<ResourceBlocks> {
+    private final Block.Builder blockBuilder = Block.builder();
+    private int index = 0;
+
+    @Override
+    public boolean hasNext() {
+      return index < size;
+    }
+
+    @Override
+    public ResourceBlocks next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      int resource = resourceOf(resourceBlocksIndex.get(index));
+      String resourceId = resourceIds.get(resource);
+      List<Block> blocks = new ArrayList<>();
+
+      // while we are at the same resource, keep going
+      do {
+        blocks.add(createBlock(blockBuilder, resourceBlocksIndex.get(index), resourceId, null));
+        index++;
+      } while (hasNext() && resourceOf(resourceBlocksIndex.get(index)) == resource);
+
+      return new ResourceBlocks(resourceId, blocks);
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Iterator<ResourceBlocks> iterator() {
+    ensureSorted();
+    return new ResourceIterator();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
+    ensureSorted();
+
+    // prepare hash for binary search
+    int[] hash = sequenceHash.toIntArray();
+    if (hash.length != hashInts) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
+    }
+    int index = lowerBoundByHash(hash);
+
+    List<Block> result = new ArrayList<>();
+    Block.Builder blockBuilder = Block.builder();
+    while (index < size && compareHash(index, hash) == 0) {
+      // extract block (note that there is no need to extract hash)
+      result.add(createBlock(blockBuilder, index, resourceIds.get(resourceOf(index)), sequenceHash));
+      index++;
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * <strong>Note that this implementation allows insertion of two blocks with same index for one resource.</strong>
+   * </p>
+   */
+  @Override
+  public void insert(Block block) {
+    int[] hash = block.getBlockHash().toIntArray();
+    if (hash.length != hashInts) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
+    }
+    sorted = false;
+    if (size == pages.size() * pageCapacity) {
+      pages.add(allocateDirect(pageCapacity * blockInts));
+    }
+
+    for (int i = 0; i < hashInts; i++) {
+      put(size, i, hash[i]);
+    }
+    int offset = hashInts;
+    put(size, offset, internResourceId(block.getResourceId()));
+    put(size, offset + 1, block.getIndexInFile());
+    put(size, offset + 2, block.getStartLine());
+    put(size, offset + 3, block.getEndLine());
+    put(size, offset + 4, block.getStartUnit());
+    put(size, offset + 5, block.getEndUnit());
+
+    size++;
+  }
+
+  private int internResourceId(String resourceId) {
+    Integer resource = resourceIndexes.get(resourceId);
+    if (resource == null) {
+      resource = resourceIds.size();
+      resourceIds.add(resourceId);
+      resourceIndexes.put(resourceId, resource);
+    }
+    return resource;
+  }
+
+  /**
+   * Performs sorting, if necessary.
+   */
+  private void ensureSorted() {
+    if (sorted) {
+      return;
+    }
+    sort();
+  }
+
+  private synchronized void sort() {
+    if (sorted) {
+      return;
+    }
+
+    DataUtils.sort(byBlockHash);
+
+    Integer[] resourcesByRank = new Integer[resourceIds.size()];
+    for (int i = 0; i < resourcesByRank.length; i++) {
+      resourcesByRank[i] = i;
+    }
+    Arrays.sort(resourcesByRank, (r1, r2) -> FastStringComparator.INSTANCE.compare(resourceIds.get(r1), resourceIds.get(r2)));
+    resourceRanks = new int[resourcesByRank.length];
+    for (int rank = 0; rank < resourcesByRank.length; rank++) {
+      resourceRanks[resourcesByRank[rank]] = rank;
+    }
+
+    resourceBlocksIndex = allocateDirect(size);
+    for (int i = 0; i < size; i++) {
+      resourceBlocksIndex.put(i, i);
+    }
+    DataUtils.sort(byResourceId);
+
+    sorted = true;
+  }
+
+  private final DataUtils.Sortable byBlockHash = new DataUtils.Sortable() {
+    @Override
+    public void swap(int i, int j) {
+      for (int k = 0; k < blockInts; k++) {
+        int x = get(i, k);
+        put(i, k, get(j, k));
+        put(j, k, x);
+      }
+    }
+
+    @Override
+    public boolean isLess(int i, int j) {
+      for (int k = 0; k < hashInts; k++) {
+        int x = get(i, k);
+        int y = get(j, k);
+        if (x != y) {
+          return x < y;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  };
+
+  private final DataUtils.Sortable byResourceId = new DataUtils.Sortable() {
+    @Override
+    public void swap(int i, int j) {
+      int tmp = resourceBlocksIndex.get(i);
+      resourceBlocksIndex.put(i, resourceBlocksIndex.get(j));
+      resourceBlocksIndex.put(j, tmp);
+    }
+
+    @Override
+    public boolean isLess(int i, int j) {
+      return resourceRanks[resourceOf(resourceBlocksIndex.get(i))] < resourceRanks[resourceOf(resourceBlocksIndex.get(j))];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  };
+
+  /**
+   * Computation is O(1), resource ids being interned
+   */
+  @Override
+  public int noResources() {
+    return resourceIds.size();
+  }
+}
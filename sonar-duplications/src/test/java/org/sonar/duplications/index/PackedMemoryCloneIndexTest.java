@@ -28,6 +28,10 @@ import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -126,6 +130,39 @@ public class PackedMemoryCloneIndexTest {
    * Given: index, which accepts blocks with 4-byte hash.
    * Expected: exception during insertion of block with 8-byte hash.
    */
+  @Test
+  public void should_support_concurrent_queries() throws Exception {
+    for (int i = 0; i < 1000; i++) {
+      index.insert(newBlock("resource" + (i % 10), i % 100));
+    }
+    // sort before concurrent queries, as done by the first query
+    assertThat(index.noResources()).isEqualTo(10);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executorService.submit(() -> {
+          for (int i = 0; i < 1000; i++) {
+            long hash = i % 100;
+            String resourceId = "resource" + (i % 10);
+            if (index.getBySequenceHash(new ByteArray(hash)).size() != 10
+              || index.getBySequenceHash(new ByteArray(hash)).stream().anyMatch(block -> block.getBlockHash().equals(new ByteArray(hash + 1)))
+              || index.getByResourceId(resourceId).stream().anyMatch(block -> !block.getResourceId().equals(resourceId))) {
+              return false;
+            }
+          }
+          return true;
+        }));
+      }
+      for (Future<Boolean> future : futures) {
+        assertThat(future.get()).isTrue();
+      }
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void attempt_to_insert_hash_of_incorrect_size() {
     CloneIndex index = new PackedMemoryCloneIndex(4, 1);
@@ -19,7 +19,6 @@
  */
 package org.sonar.api.batch.fs.internal;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -27,14 +26,13 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
-import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 
-import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import org.apache.commons.codec.binary.Hex;
@@ -56,6 +54,7 @@ public class FileMetadata {
 
   private static final char LINE_FEED = '\n';
   private static final char CARRIAGE_RETURN = '\r';
+  private static final int READ_BUFFER_SIZE = 16 * 1024;
 
   public abstract static class CharHandler {
 
@@ -72,107 +71,127 @@ public class FileMetadata {
     }
   }
 
-  private static class LineCounter extends CharHandler {
+  /**
+   * Computes lines, non-blank lines, line offsets and hash of a file in a single pass over the
+   * characters read by chunks, without any per-character call to {@link CharHandler}.
+   */
+  private static final class MetadataComputer {
+    private static final int HASH_BUFFER_SIZE = 8 * 1024;
+
+    private final String filePath;
+    private final Charset encoding;
+    private final MessageDigest globalMd5Digest = DigestUtils.getMd5Digest();
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    // characters of the file with ends of lines replaced by LF, encoded to UTF-8 when full
+    private final CharBuffer hashChars = CharBuffer.allocate(HASH_BUFFER_SIZE);
+    private final ByteBuffer hashBytes = ByteBuffer.allocate((int) Math.ceil(HASH_BUFFER_SIZE * (double) encoder.maxBytesPerChar()));
+    private final IntArrayList originalLineOffsets = new IntArrayList();
     private int lines = 1;
     private int nonBlankLines = 0;
     private boolean blankLine = true;
-    boolean alreadyLoggedInvalidCharacter = false;
-    private final String filePath;
-    private final Charset encoding;
+    private boolean alreadyLoggedInvalidCharacter = false;
+    private long currentOriginalOffset = 0;
+    private boolean afterCR = false;
 
-    LineCounter(String filePath, Charset encoding) {
+    MetadataComputer(String filePath, Charset encoding) {
       this.filePath = filePath;
       this.encoding = encoding;
+      originalLineOffsets.add(0);
     }
 
-    @Override
-    protected void handleAll(char c) {
+    void process(char[] chars, int length) {
+      for (int i = 0; i < length; i++) {
+        char c = chars[i];
+        if (afterCR) {
+          afterCR = false;
+          if (c == LINE_FEED) {
+            currentOriginalOffset++;
+            newLine();
+            continue;
+          }
+          // a single CR is an end of line
+          newLine();
+        }
+        currentOriginalOffset++;
+        if (c == LINE_FEED) {
+          newLine();
+        } else if (c == CARRIAGE_RETURN) {
+          afterCR = true;
+        } else {
+          handleIgnoreEoL(c);
+        }
+      }
+    }
+
+    private void handleIgnoreEoL(char c) {
       if (!alreadyLoggedInvalidCharacter && c == '\ufffd') {
         LOG.warn("Invalid character encountered in file {} at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.", filePath,
           lines, encoding, CoreProperties.ENCODING_PROPERTY);
         alreadyLoggedInvalidCharacter = true;
       }
+      if (blankLine && !Character.isWhitespace(c)) {
+        blankLine = false;
+      }
+      appendToHash(c);
     }
 
-    @Override
-    protected void newLine() {
+    private void newLine() {
       lines++;
       if (!blankLine) {
         nonBlankLines++;
       }
       blankLine = true;
+      if (currentOriginalOffset > Integer.MAX_VALUE) {
+        throw new IllegalStateException("File is too big: " + currentOriginalOffset);
+      }
+      originalLineOffsets.add((int) currentOriginalOffset);
+      appendToHash(LINE_FEED);
     }
 
-    @Override
-    protected void handleIgnoreEoL(char c) {
-      if (!Character.isWhitespace(c)) {
-        blankLine = false;
+    private void appendToHash(char c) {
+      if (!hashChars.hasRemaining()) {
+        updateHash(false);
+      }
+      hashChars.put(c);
+    }
+
+    /**
+     * Encodes the buffered characters. Unless end of input, an incomplete surrogate pair is kept
+     * in buffer until next characters are appended.
+     */
+    private void updateHash(boolean endOfInput) {
+      hashChars.flip();
+      CoderResult result = encoder.encode(hashChars, hashBytes, endOfInput);
+      if (endOfInput && !result.isError()) {
+        result = encoder.flush(hashBytes);
       }
+      if (result.isError()) {
+        throw new IllegalStateException("Error encoding line hash in file: " + filePath);
+      }
+      globalMd5Digest.update(hashBytes.array(), 0, hashBytes.position());
+      hashBytes.clear();
+      hashChars.compact();
     }
 
-    @Override
-    protected void eof() {
+    void eof() {
+      if (afterCR) {
+        afterCR = false;
+        newLine();
+      }
       if (!blankLine) {
         nonBlankLines++;
       }
+      updateHash(true);
     }
 
-    public int lines() {
-      return lines;
-    }
-
-    public int nonBlankLines() {
-      return nonBlankLines;
-    }
-
-  }
-
-  private static class FileHashComputer extends CharHandler {
-    private MessageDigest globalMd5Digest = DigestUtils.getMd5Digest();
-    private StringBuilder sb = new StringBuilder();
-    private final CharsetEncoder encoder;
-    private final String filePath;
-
-    public FileHashComputer(String filePath) {
-      encoder = StandardCharsets.UTF_8.newEncoder()
-        .onMalformedInput(CodingErrorAction.REPLACE)
-        .onUnmappableCharacter(CodingErrorAction.REPLACE);
-      this.filePath = filePath;
-    }
-
-    @Override
-    protected void handleIgnoreEoL(char c) {
-      sb.append(c);
-    }
-
-    @Override
-    protected void newLine() {
-      sb.append(LINE_FEED);
-      processBuffer();
-      sb.setLength(0);
-    }
-
-    @Override
-    protected void eof() {
-      if (sb.length() > 0) {
-        processBuffer();
-      }
-    }
-
-    private void processBuffer() {
-      try {
-        if (sb.length() > 0) {
-          ByteBuffer encoded = encoder.encode(CharBuffer.wrap(sb));
-          globalMd5Digest.update(encoded.array(), 0, encoded.limit());
-        }
-      } catch (CharacterCodingException e) {
-        throw new IllegalStateException("Error encoding line hash in file: " + filePath, e);
+    Metadata toMetadata() {
+      if (currentOriginalOffset > Integer.MAX_VALUE) {
+        throw new IllegalStateException("File is too big: " + currentOriginalOffset);
       }
-    }
-
-    @CheckForNull
-    public String getHash() {
-      return Hex.encodeHexString(globalMd5Digest.digest());
+      return new Metadata(lines, nonBlankLines, Hex.encodeHexString(globalMd5Digest.digest()), originalLineOffsets.trimAndGet(),
+        (int) currentOriginalOffset);
     }
   }
 
@@ -183,6 +202,8 @@ public class FileMetadata {
     private final LineHashConsumer consumer;
     private final File file;
     private int line = 1;
+    // reused by lines, grown when a line is too long
+    private ByteBuffer encoded = ByteBuffer.allocate(1024);
 
     public LineHashComputer(LineHashConsumer consumer, File f) {
       this.consumer = consumer;
@@ -214,56 +235,24 @@ public class FileMetadata {
     }
 
     private void processBuffer() {
-      try {
-        if (sb.length() > 0) {
-          ByteBuffer encoded = encoder.encode(CharBuffer.wrap(sb));
-          lineMd5Digest.update(encoded.array(), 0, encoded.limit());
-          consumer.consume(line, lineMd5Digest.digest());
+      if (sb.length() > 0) {
+        int maxLength = (int) Math.ceil(sb.length() * (double) encoder.maxBytesPerChar());
+        if (encoded.capacity() < maxLength) {
+          encoded = ByteBuffer.allocate(maxLength);
         }
-      } catch (CharacterCodingException e) {
-        throw new IllegalStateException("Error encoding line hash in file: " + file.getAbsolutePath(), e);
-      }
-    }
-  }
-
-  private static class LineOffsetCounter extends CharHandler {
-    private long currentOriginalOffset = 0;
-    private IntArrayList originalLineOffsets = new IntArrayList();
-    private long lastValidOffset = 0;
-
-    public LineOffsetCounter() {
-      originalLineOffsets.add(0);
-    }
-
-    @Override
-    protected void handleAll(char c) {
-      currentOriginalOffset++;
-    }
-
-    @Override
-    protected void newLine() {
-      if (currentOriginalOffset > Integer.MAX_VALUE) {
-        throw new IllegalStateException("File is too big: " + currentOriginalOffset);
-      }
-      originalLineOffsets.add((int) currentOriginalOffset);
-    }
-
-    @Override
-    protected void eof() {
-      lastValidOffset = currentOriginalOffset;
-    }
-
-    public int[] getOriginalLineOffsets() {
-      return originalLineOffsets.trimAndGet();
-    }
-
-    public int getLastValidOffset() {
-      if (lastValidOffset > Integer.MAX_VALUE) {
-        throw new IllegalStateException("File is too big: " + lastValidOffset);
+        encoded.clear();
+        encoder.reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(sb), encoded, true);
+        if (!result.isError()) {
+          result = encoder.flush(encoded);
+        }
+        if (result.isError()) {
+          throw new IllegalStateException("Error encoding line hash in file: " + file.getAbsolutePath());
+        }
+        lineMd5Digest.update(encoded.array(), 0, encoded.position());
+        consumer.consume(line, lineMd5Digest.digest());
       }
-      return (int) lastValidOffset;
     }
-
   }
 
   /**
@@ -271,19 +260,14 @@ public class FileMetadata {
    * Maximum performance is needed.
    */
   public Metadata readMetadata(InputStream stream, Charset encoding, String filePath, @Nullable CharHandler otherHandler) {
-    LineCounter lineCounter = new LineCounter(filePath, encoding);
-    FileHashComputer fileHashComputer = new FileHashComputer(filePath);
-    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
-
-    if (otherHandler != null) {
-      CharHandler[] handlers = {lineCounter, fileHashComputer, lineOffsetCounter, otherHandler};
-      readFile(stream, encoding, filePath, handlers);
-    } else {
-      CharHandler[] handlers = {lineCounter, fileHashComputer, lineOffsetCounter};
-      readFile(stream, encoding, filePath, handlers);
+    MetadataComputer computer = new MetadataComputer(filePath, encoding);
+    CharHandler[] handlers = otherHandler == null ? new CharHandler[0] : new CharHandler[] {otherHandler};
+    try (Reader reader = new InputStreamReader(stream, encoding)) {
+      read(reader, computer, handlers);
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", filePath, encoding), e);
     }
-    return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineOffsets(),
-      lineOffsetCounter.getLastValidOffset());
+    return computer.toMetadata();
   }
 
   public Metadata readMetadata(InputStream stream, Charset encoding, String filePath) {
@@ -294,34 +278,54 @@ public class FileMetadata {
    * For testing purpose
    */
   public Metadata readMetadata(Reader reader) {
-    LineCounter lineCounter = new LineCounter("fromString", StandardCharsets.UTF_16);
-    FileHashComputer fileHashComputer = new FileHashComputer("fromString");
-    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
-    CharHandler[] handlers = {lineCounter, fileHashComputer, lineOffsetCounter};
-
+    MetadataComputer computer = new MetadataComputer("fromString", StandardCharsets.UTF_16);
     try {
-      read(reader, handlers);
+      read(reader, computer, new CharHandler[0]);
     } catch (IOException e) {
       throw new IllegalStateException("Should never occur", e);
     }
-    return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineOffsets(),
-      lineOffsetCounter.getLastValidOffset());
+    return computer.toMetadata();
   }
 
   public static void readFile(InputStream stream, Charset encoding, String filePath, CharHandler[] handlers) {
-    try (Reader reader = new BufferedReader(new InputStreamReader(stream, encoding))) {
-      read(reader, handlers);
+    try (Reader reader = new InputStreamReader(stream, encoding)) {
+      read(reader, null, handlers);
     } catch (IOException e) {
       throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", filePath, encoding), e);
     }
   }
 
-  private static void read(Reader reader, CharHandler[] handlers) throws IOException {
-    char c;
-    int i = reader.read();
+  /**
+   * Characters are read by chunks, as reading them one by one from a {@link Reader} is synchronized.
+   */
+  private static void read(Reader reader, @Nullable MetadataComputer computer, CharHandler[] handlers) throws IOException {
+    char[] buffer = new char[READ_BUFFER_SIZE];
     boolean afterCR = false;
-    while (i != -1) {
-      c = (char) i;
+    int length = reader.read(buffer);
+    while (length != -1) {
+      if (computer != null) {
+        computer.process(buffer, length);
+      }
+      if (handlers.length > 0) {
+        afterCR = dispatch(buffer, length, afterCR, handlers);
+      }
+      length = reader.read(buffer);
+    }
+    if (computer != null) {
+      computer.eof();
+    }
+    for (CharHandler handler : handlers) {
+      if (afterCR) {
+        handler.newLine();
+      }
+      handler.eof();
+    }
+  }
+
+  private static boolean dispatch(char[] buffer, int length, boolean initialAfterCR, CharHandler[] handlers) {
+    boolean afterCR = initialAfterCR;
+    for (int i = 0; i < length; i++) {
+      char c = buffer[i];
       if (afterCR) {
         for (CharHandler handler : handlers) {
           if (c == CARRIAGE_RETURN) {
@@ -353,14 +357,8 @@ public class FileMetadata {
           handler.handleAll(c);
         }
       }
-      i = reader.read();
-    }
-    for (CharHandler handler : handlers) {
-      if (afterCR) {
-        handler.newLine();
-      }
-      handler.eof();
     }
+    return afterCR;
   }
 
   @FunctionalInterface
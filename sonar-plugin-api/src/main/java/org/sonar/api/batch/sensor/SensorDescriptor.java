@@ -84,4 +84,12 @@ public interface SensorDescriptor {
    * @since 6.4
    */
   SensorDescriptor global();
+
+  /**
+   * This sensor can be executed concurrently with other sensors which are declared thread-safe, when the platform is configured
+   * to do so. It must not depend on the results of other sensors and must not share mutable state with them.
+   * Default is to execute sensor alone.
+   * @since 6.4
+   */
+  SensorDescriptor threadSafe();
 }
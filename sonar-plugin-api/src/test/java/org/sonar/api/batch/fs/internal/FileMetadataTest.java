@@ -27,6 +27,7 @@ import java.nio.charset.StandardCharsets;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -210,6 +211,21 @@ public class FileMetadataTest {
     assertThat(metadata.originalLineOffsets()).containsOnly(0, 1, 5, 10);
   }
 
+  @Test
+  public void file_larger_than_read_buffers() throws Exception {
+    // surrogate pair and CRLF on the boundaries of the internal buffers
+    String firstLine = StringUtils.repeat("a", 8191) + "\uD83D\uDE00" + StringUtils.repeat("b", 8190);
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, firstLine + "\r\nc\rd", StandardCharsets.UTF_8, true);
+
+    Metadata metadata = new FileMetadata().readMetadata(new FileInputStream(tempFile), StandardCharsets.UTF_8, tempFile.getName());
+    assertThat(metadata.lines()).isEqualTo(3);
+    assertThat(metadata.nonBlankLines()).isEqualTo(3);
+    assertThat(metadata.hash()).isEqualTo(md5Hex(firstLine + "\nc\nd"));
+    assertThat(metadata.originalLineOffsets()).containsOnly(0, 16385, 16387);
+    assertThat(metadata.lastValidOffset()).isEqualTo(16388);
+  }
+
   @Test
   public void ignore_whitespace_when_computing_line_hashes() throws Exception {
     File tempFile = temp.newFile();
@@ -22,15 +22,20 @@ package org.sonar.scanner.cpd;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-
+import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputComponent;
@@ -56,6 +61,10 @@ import static com.google.common.collect.FluentIterable.from;
  * Runs on the root module, at the end of the project analysis.
  * It executes copy paste detection involving all files of all modules, which were indexed during sensors execution for each module
  * by {@link CpdSensor). The sensor is responsible for handling exclusions and block sizes.
+ * <p>
+ * Detection is executed concurrently for several files, as the index is not modified anymore. Results are saved in the
+ * order of the index, whatever the order in which detections complete.
+ * </p>
  */
 public class CpdExecutor {
   private static final Logger LOG = Loggers.get(CpdExecutor.class);
@@ -63,6 +72,9 @@ public class CpdExecutor {
   private static final int TIMEOUT = 5 * 60 * 1000;
   static final int MAX_CLONE_GROUP_PER_FILE = 100;
   static final int MAX_CLONE_PART_PER_GROUP = 100;
+  static final String THREADS_PROPERTY = "sonar.cpd.threads";
+  // number of files submitted in advance to each thread, so that threads never wait for results to be saved
+  private static final int PENDING_FILES_PER_THREAD = 4;
 
   private final SonarCpdBlockIndex index;
   private final ReportPublisher publisher;
@@ -91,14 +103,22 @@ public class CpdExecutor {
     if (filesWithoutBlocks > 0) {
       LOG.info("{} {} had no CPD blocks", filesWithoutBlocks, pluralize(filesWithoutBlocks));
     }
+    int threads = getThreads();
     progressReport.start(String.format("Calculating CPD for %d %s", total, pluralize(total)));
-    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("CPD-%d")
+      .setDaemon(true)
+      .build());
     try {
       Iterator<ResourceBlocks> it = index.iterator();
+      Deque<FileDetection> pendingDetections = new ArrayDeque<>();
 
-      while (it.hasNext()) {
-        ResourceBlocks resourceBlocks = it.next();
-        runCpdAnalysis(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks(), timeout);
+      while (it.hasNext() || !pendingDetections.isEmpty()) {
+        while (it.hasNext() && pendingDetections.size() < threads * PENDING_FILES_PER_THREAD) {
+          ResourceBlocks resourceBlocks = it.next();
+          pendingDetections.add(submitCpdAnalysis(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks()));
+        }
+        saveCpdAnalysis(pendingDetections.poll(), timeout);
         count++;
       }
       progressReport.stop("CPD calculation finished");
@@ -106,7 +126,7 @@ public class CpdExecutor {
       progressReport.stop("");
       throw e;
     } finally {
-      executorService.shutdown();
+      executorService.shutdownNow();
     }
   }
 
@@ -114,11 +134,42 @@ public class CpdExecutor {
     return files == 1 ? "file" : "files";
   }
 
+  @VisibleForTesting
+  int getThreads() {
+    int threads = settings.getInt(THREADS_PROPERTY);
+    if (threads <= 0) {
+      threads = Runtime.getRuntime().availableProcessors();
+    }
+    return threads;
+  }
+
   @VisibleForTesting
   void runCpdAnalysis(ExecutorService executorService, String componentKey, final Collection<Block> fileBlocks, long timeout) {
+    saveCpdAnalysis(submitCpdAnalysis(executorService, componentKey, fileBlocks), timeout);
+  }
+
+  private FileDetection submitCpdAnalysis(ExecutorService executorService, String componentKey, final Collection<Block> fileBlocks) {
     DefaultInputComponent component = (DefaultInputComponent) componentStore.getByKey(componentKey);
     if (component == null) {
-      LOG.error("Resource not found in component store: {}. Skipping CPD computation for it", componentKey);
+      return new FileDetection(componentKey, null);
+    }
+    FileDetection detection = new FileDetection(componentKey, component);
+    detection.result = executorService.submit(() -> {
+      detection.start();
+      return SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks);
+    });
+    return detection;
+  }
+
+  /**
+   * Waits for the detection of duplications in a file and saves them. The timeout applies to the detection itself:
+   * it starts when the detection begins executing, not while it is waiting for a thread. A detection which does
+   * not begin within the timeout is considered as timed out too.
+   */
+  private void saveCpdAnalysis(FileDetection detection, long timeout) {
+    DefaultInputComponent component = detection.component;
+    if (component == null) {
+      LOG.error("Resource not found in component store: {}. Skipping CPD computation for it", detection.componentKey);
       return;
     }
 
@@ -127,13 +178,15 @@ public class CpdExecutor {
     progressReport.message(String.format("%d/%d - current file: %s", count, total, inputFile.absolutePath()));
 
     List<CloneGroup> duplications;
-    Future<List<CloneGroup>> futureResult = executorService.submit(() -> SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks));
     try {
-      duplications = futureResult.get(timeout, TimeUnit.MILLISECONDS);
+      duplications = detection.get(timeout);
     } catch (TimeoutException e) {
       LOG.warn("Timeout during detection of duplications for " + inputFile.absolutePath());
-      futureResult.cancel(true);
+      detection.result.cancel(true);
       return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted during detection of duplication for " + inputFile.absolutePath(), e);
     } catch (Exception e) {
       throw new IllegalStateException("Fail during detection of duplication for " + inputFile.absolutePath(), e);
     }
@@ -221,4 +274,38 @@ public class CpdExecutor {
     }
     return dupBuilder.build();
   }
+
+  private static final class FileDetection {
+    private final String componentKey;
+    @Nullable
+    private final DefaultInputComponent component;
+    private final CountDownLatch started = new CountDownLatch(1);
+    private volatile long startedAt;
+    @Nullable
+    private Future<List<CloneGroup>> result;
+
+    private FileDetection(String componentKey, @Nullable DefaultInputComponent component) {
+      this.componentKey = componentKey;
+      this.component = component;
+    }
+
+    /**
+     * Called by the thread executing the detection, before it begins.
+     */
+    private void start() {
+      startedAt = System.nanoTime();
+      started.countDown();
+    }
+
+    /**
+     * Waits at most {@code timeout} for the detection to start, then at most {@code timeout} from its start.
+     */
+    private List<CloneGroup> get(long timeout) throws InterruptedException, ExecutionException, TimeoutException {
+      if (!started.await(timeout, TimeUnit.MILLISECONDS)) {
+        throw new TimeoutException("Detection did not start");
+      }
+      long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+      return result.get(Math.max(0L, timeout - elapsed), TimeUnit.MILLISECONDS);
+    }
+  }
 }
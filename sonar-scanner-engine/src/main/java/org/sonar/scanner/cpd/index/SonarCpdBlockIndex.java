@@ -19,6 +19,7 @@
  */
 package org.sonar.scanner.cpd.index;
 
+import com.google.common.annotations.VisibleForTesting;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -31,10 +32,12 @@ import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.config.CorePropertyDefinitions;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.index.AbstractCloneIndex;
 import org.sonar.duplications.index.CloneIndex;
+import org.sonar.duplications.index.OffHeapCloneIndex;
 import org.sonar.duplications.index.PackedMemoryCloneIndex;
 import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
 import org.sonar.scanner.protocol.output.FileStructure;
@@ -42,8 +45,14 @@ import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.report.ReportPublisher;
 
 public class SonarCpdBlockIndex extends AbstractCloneIndex {
+  /**
+   * When enabled, blocks are stored out of the Java heap by {@link OffHeapCloneIndex}, which is slower to query
+   * but reduces the heap needed by large projects.
+   */
+  public static final String OFF_HEAP_INDEX_PROPERTY = CorePropertyDefinitions.CPD_INDEX_OFF_HEAP;
+
   private static final Logger LOG = Loggers.get(SonarCpdBlockIndex.class);
-  private final CloneIndex mem = new PackedMemoryCloneIndex();
+  private final CloneIndex mem;
   private final ReportPublisher publisher;
   private final Settings settings;
   // Files already tokenized
@@ -52,6 +61,7 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
   public SonarCpdBlockIndex(ReportPublisher publisher, Settings settings) {
     this.publisher = publisher;
     this.settings = settings;
+    this.mem = settings.getBoolean(OFF_HEAP_INDEX_PROPERTY) ? new OffHeapCloneIndex() : new PackedMemoryCloneIndex();
   }
 
   public void insert(InputFile inputFile, Collection<Block> blocks) {
@@ -94,6 +104,11 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
       && StringUtils.isBlank(settings.getString(CoreProperties.PROJECT_BRANCH_PROPERTY));
   }
 
+  @VisibleForTesting
+  CloneIndex getCloneIndex() {
+    return mem;
+  }
+
   public Collection<Block> getByInputFile(String resourceKey) {
     return mem.getByResourceId(resourceKey);
   }
@@ -37,9 +37,10 @@ public class EventBus {
   }
 
   /**
-   * Fires the given event.
+   * Fires the given event. Synchronized as events may be fired by sensors executed concurrently, while handlers
+   * are not expected to be thread-safe.
    */
-  public void fireEvent(BatchEvent event) {
+  public synchronized void fireEvent(BatchEvent event) {
     doFireEvent(event);
   }
 
@@ -19,33 +19,51 @@
  */
 package org.sonar.scanner.phases;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
 import org.sonar.scanner.sensor.SensorStrategy;
+import org.sonar.scanner.sensor.SensorWrapper;
 
 @ScannerSide
 public class SensorsExecutor {
+  /**
+   * Maximum number of sensors executed concurrently. Only consecutive sensors which are declared thread-safe
+   * (see {@link org.sonar.api.batch.sensor.SensorDescriptor#threadSafe()}) are executed concurrently.
+   * Sensors are executed one by one by default.
+   */
+  public static final String THREADS_PROP_KEY = "sonar.scanner.sensorThreads";
+
   private final ScannerExtensionDictionnary selector;
   private final DefaultInputModule module;
   private final EventBus eventBus;
   private final SensorStrategy strategy;
   private final boolean isRoot;
+  private final int threads;
 
-  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, EventBus eventBus, SensorStrategy strategy) {
+  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, EventBus eventBus, SensorStrategy strategy, Settings settings) {
     this.selector = selector;
     this.module = module;
     this.eventBus = eventBus;
     this.strategy = strategy;
     this.isRoot = module.definition().getParent() == null;
+    this.threads = Math.max(1, settings.getInt(THREADS_PROP_KEY));
   }
 
   public void execute(SensorContext context) {
@@ -77,8 +95,61 @@ public class SensorsExecutor {
   }
 
   private void execute(SensorContext context, Collection<Sensor> sensors) {
+    if (threads == 1) {
+      for (Sensor sensor : sensors) {
+        executeSensor(context, sensor);
+      }
+      return;
+    }
+    // order of sensors is kept: a sensor which is not thread-safe waits for the previous ones and is executed alone
+    List<Sensor> threadSafeSensors = new ArrayList<>();
     for (Sensor sensor : sensors) {
-      executeSensor(context, sensor);
+      if (isThreadSafe(sensor)) {
+        threadSafeSensors.add(sensor);
+      } else {
+        executeConcurrently(context, threadSafeSensors);
+        threadSafeSensors.clear();
+        executeSensor(context, sensor);
+      }
+    }
+    executeConcurrently(context, threadSafeSensors);
+  }
+
+  private static boolean isThreadSafe(Sensor sensor) {
+    return sensor instanceof SensorWrapper && ((SensorWrapper) sensor).isThreadSafe();
+  }
+
+  private void executeConcurrently(SensorContext context, List<Sensor> sensors) {
+    if (sensors.size() <= 1) {
+      sensors.forEach(sensor -> executeSensor(context, sensor));
+      return;
+    }
+    ExecutorService executorService = Executors.newFixedThreadPool(Math.min(threads, sensors.size()), new ThreadFactoryBuilder()
+      .setNameFormat("Sensors-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      List<Future<?>> futures = new ArrayList<>(sensors.size());
+      for (Sensor sensor : sensors) {
+        futures.add(executorService.submit(() -> executeSensor(context, sensor)));
+      }
+      for (Future<?> future : futures) {
+        awaitSensor(future);
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private static void awaitSensor(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for sensors", e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IllegalStateException("Fail to execute sensor", e.getCause());
     }
   }
 
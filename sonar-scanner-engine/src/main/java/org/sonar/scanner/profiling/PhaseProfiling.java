@@ -72,11 +72,30 @@ public class PhaseProfiling extends AbstractTimeProfiling {
     }
   }
 
+  /**
+   * Sum of the execution times of items, which is greater than the execution time of the phase when items are
+   * executed concurrently.
+   */
+  public long itemsTotalTime() {
+    long itemsTotalTime = 0L;
+    for (ItemProfiling itemProfiling : profilingPerItem.values()) {
+      itemsTotalTime += itemProfiling.totalTime();
+    }
+    return itemsTotalTime;
+  }
+
   public void dump(Properties props) {
     double percent = this.totalTime() / 100.0;
     for (ItemProfiling itemProfiling : profilingPerItem.values()) {
       props.setProperty(itemProfiling.itemName(), Long.toString(itemProfiling.totalTime()));
     }
+    long itemsTotalTime = itemsTotalTime();
+    if (itemsTotalTime > totalTime()) {
+      ItemProfiling cumulatedProfiling = new ItemProfiling(system(), phase + " cumulated");
+      cumulatedProfiling.setTotalTime(itemsTotalTime);
+      props.setProperty(cumulatedProfiling.itemName(), Long.toString(itemsTotalTime));
+      println("   o Cumulated time of concurrent executions: ", percent, cumulatedProfiling);
+    }
     for (ItemProfiling itemProfiling : truncate(sortByDescendingTotalTime(profilingPerItem).values())) {
       println("   o " + itemProfiling.itemName() + ": ", percent, itemProfiling);
     }
@@ -22,15 +22,27 @@ package org.sonar.scanner.repository;
 import com.google.common.base.Throwables;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Date;
 import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.utils.MessageException;
+import org.sonar.home.cache.FileCache;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
 import org.sonar.scanner.util.ScannerUtils;
 import org.sonarqube.ws.WsBatch;
@@ -41,21 +53,40 @@ import org.sonarqube.ws.client.GetRequest;
 import org.sonarqube.ws.client.HttpException;
 import org.sonarqube.ws.client.WsResponse;
 
+/**
+ * The files of the last project repository returned by the server are kept in the user cache, so that they are
+ * downloaded again only when the version changes. Settings may contain secured values, so they are never cached
+ * and are returned by the server on every call.
+ */
 public class DefaultProjectRepositoriesLoader implements ProjectRepositoriesLoader {
   private static final Logger LOG = LoggerFactory.getLogger(DefaultProjectRepositoriesLoader.class);
   private static final String BATCH_PROJECT_URL = "/batch/project.protobuf";
+  private static final String CACHE_DIR = "_project_repositories";
   private ScannerWsClient wsClient;
+  private FileCache fileCache;
 
-  public DefaultProjectRepositoriesLoader(ScannerWsClient wsClient) {
+  public DefaultProjectRepositoriesLoader(ScannerWsClient wsClient, FileCache fileCache) {
     this.wsClient = wsClient;
+    this.fileCache = fileCache;
   }
 
   @Override
   public ProjectRepositories load(String projectKey, boolean issuesMode) {
-    GetRequest request = new GetRequest(getUrl(projectKey, issuesMode));
+    File cacheFile = getCacheFile(projectKey, issuesMode);
+    WsProjectResponse cached = readCache(cacheFile);
+    GetRequest request = new GetRequest(getUrl(projectKey, issuesMode, cached));
     try (WsResponse response = wsClient.call(request)) {
       InputStream is = response.contentStream();
-      return processStream(is, projectKey);
+      WsProjectResponse projectResponse = parseStream(is, projectKey);
+      if (cached != null && projectResponse.getNotModified()) {
+        LOG.debug("Project repository not modified - using cached version");
+        projectResponse = cached.toBuilder()
+          .putAllSettingsByModule(projectResponse.getSettingsByModule())
+          .build();
+      } else if (projectResponse.hasVersion()) {
+        writeCache(cacheFile, projectResponse);
+      }
+      return toProjectRepositories(projectResponse);
     } catch (RuntimeException e) {
       if (shouldThrow(e)) {
         throw e;
@@ -66,7 +97,7 @@ public class DefaultProjectRepositoriesLoader implements ProjectRepositoriesLoad
     }
   }
 
-  private static String getUrl(String projectKey, boolean issuesMode) {
+  private static String getUrl(String projectKey, boolean issuesMode, @Nullable WsProjectResponse cached) {
     StringBuilder builder = new StringBuilder();
 
     builder.append(BATCH_PROJECT_URL)
@@ -74,9 +105,59 @@ public class DefaultProjectRepositoriesLoader implements ProjectRepositoriesLoad
     if (issuesMode) {
       builder.append("&issues_mode=true");
     }
+    if (cached != null && cached.hasVersion()) {
+      builder.append("&version=").append(ScannerUtils.encodeForUrl(cached.getVersion()));
+    }
     return builder.toString();
   }
 
+  /**
+   * Project repositories depend on the server and on the mode of the analysis
+   */
+  private File getCacheFile(String projectKey, boolean issuesMode) {
+    String name = DigestUtils.sha1Hex(wsClient.baseUrl() + "|" + projectKey + "|" + issuesMode);
+    return new File(new File(fileCache.getDir(), CACHE_DIR), name + ".protobuf");
+  }
+
+  /**
+   * The cache is only an optimization, so any failure to read it is ignored
+   */
+  @CheckForNull
+  private static WsProjectResponse readCache(File cacheFile) {
+    if (!cacheFile.isFile()) {
+      return null;
+    }
+    try (InputStream is = new BufferedInputStream(new FileInputStream(cacheFile))) {
+      return WsProjectResponse.parseFrom(is);
+    } catch (IOException e) {
+      LOG.debug("Fail to read cached project repository " + cacheFile, e);
+      return null;
+    }
+  }
+
+  /**
+   * The response, without its settings, is written to a temporary file which is then moved, so that other analyses
+   * never read an incomplete file. Failures are ignored, as for {@link #readCache(File)}.
+   */
+  private static void writeCache(File cacheFile, WsProjectResponse response) {
+    WsProjectResponse.Builder withoutSettings = response.toBuilder();
+    withoutSettings.getMutableSettingsByModule().clear();
+    try {
+      Files.createDirectories(cacheFile.getParentFile().toPath());
+      File tempFile = File.createTempFile("project", ".tmp", cacheFile.getParentFile());
+      try {
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+          withoutSettings.build().writeTo(os);
+        }
+        Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tempFile.toPath());
+      }
+    } catch (IOException e) {
+      LOG.debug("Fail to cache project repository " + cacheFile, e);
+    }
+  }
+
   private static boolean shouldThrow(Exception e) {
     for (Throwable t : Throwables.getCausalChain(e)) {
       if (t instanceof HttpException) {
@@ -91,33 +172,35 @@ public class DefaultProjectRepositoriesLoader implements ProjectRepositoriesLoad
     return false;
   }
 
-  private static ProjectRepositories processStream(InputStream is, String projectKey) {
+  private static WsProjectResponse parseStream(InputStream is, String projectKey) {
     try {
-      WsProjectResponse response = WsProjectResponse.parseFrom(is);
+      return WsProjectResponse.parseFrom(is);
+    } catch (IOException e) {
+      throw new IllegalStateException("Couldn't load project repository for " + projectKey, e);
+    } finally {
+      IOUtils.closeQuietly(is);
+    }
+  }
 
-      Table<String, String, FileData> fileDataTable = HashBasedTable.create();
-      Table<String, String, String> settings = HashBasedTable.create();
+  private static ProjectRepositories toProjectRepositories(WsProjectResponse response) {
+    Table<String, String, FileData> fileDataTable = HashBasedTable.create();
+    Table<String, String, String> settings = HashBasedTable.create();
 
-      Map<String, Settings> settingsByModule = response.getSettingsByModule();
-      for (Map.Entry<String, Settings> e1 : settingsByModule.entrySet()) {
-        for (Map.Entry<String, String> e2 : e1.getValue().getSettings().entrySet()) {
-          settings.put(e1.getKey(), e2.getKey(), e2.getValue());
-        }
+    Map<String, Settings> settingsByModule = response.getSettingsByModule();
+    for (Map.Entry<String, Settings> e1 : settingsByModule.entrySet()) {
+      for (Map.Entry<String, String> e2 : e1.getValue().getSettings().entrySet()) {
+        settings.put(e1.getKey(), e2.getKey(), e2.getValue());
       }
+    }
 
-      Map<String, FileDataByPath> fileDataByModuleAndPath = response.getFileDataByModuleAndPath();
-      for (Map.Entry<String, FileDataByPath> e1 : fileDataByModuleAndPath.entrySet()) {
-        for (Map.Entry<String, WsBatch.WsProjectResponse.FileData> e2 : e1.getValue().getFileDataByPath().entrySet()) {
-          FileData fd = new FileData(e2.getValue().getHash(), e2.getValue().getRevision());
-          fileDataTable.put(e1.getKey(), e2.getKey(), fd);
-        }
+    Map<String, FileDataByPath> fileDataByModuleAndPath = response.getFileDataByModuleAndPath();
+    for (Map.Entry<String, FileDataByPath> e1 : fileDataByModuleAndPath.entrySet()) {
+      for (Map.Entry<String, WsBatch.WsProjectResponse.FileData> e2 : e1.getValue().getFileDataByPath().entrySet()) {
+        FileData fd = new FileData(e2.getValue().getHash(), e2.getValue().getRevision());
+        fileDataTable.put(e1.getKey(), e2.getKey(), fd);
       }
-
-      return new ProjectRepositories(settings, fileDataTable, new Date(response.getLastAnalysisDate()));
-    } catch (IOException e) {
-      throw new IllegalStateException("Couldn't load project repository for " + projectKey, e);
-    } finally {
-      IOUtils.closeQuietly(is);
     }
+
+    return new ProjectRepositories(settings, fileDataTable, new Date(response.getLastAnalysisDate()));
   }
 }
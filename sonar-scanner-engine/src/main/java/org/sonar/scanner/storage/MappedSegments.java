@@ -0,0 +1,124 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Append-only set of memory-mapped files storing the values of {@link MappedStorage}. Space is reserved
+ * under a short lock, bytes are then copied without locking, so that several threads can write and read
+ * at the same time. Space of removed values is not reclaimed before {@link #close()}.
+ */
+class MappedSegments {
+
+  private static final int MIN_SEGMENT_SIZE = 1024 * 1024;
+  private static final int MAX_SEGMENT_SIZE = 256 * 1024 * 1024;
+
+  private final File dir;
+  private final int segmentSize;
+  private final List<ByteBuffer> segments = new CopyOnWriteArrayList<>();
+
+  // guarded by this
+  private int currentSegment = -1;
+  private int currentPosition = 0;
+
+  MappedSegments(File dir, int segmentSize) {
+    this.dir = dir;
+    this.segmentSize = segmentSize;
+  }
+
+  /**
+   * Size of segments derived from the maximum heap size, so that small JVMs do not map large files.
+   */
+  static int segmentSizeFor(long maxMemory) {
+    return (int) Math.max(MIN_SEGMENT_SIZE, Math.min(MAX_SEGMENT_SIZE, maxMemory / 16));
+  }
+
+  Location write(byte[] bytes, int length) {
+    Location location = allocate(length);
+    ByteBuffer buffer = segments.get(location.segment).duplicate();
+    buffer.position(location.offset);
+    buffer.put(bytes, 0, length);
+    return location;
+  }
+
+  byte[] read(Location location) {
+    ByteBuffer buffer = segments.get(location.segment).duplicate();
+    buffer.position(location.offset);
+    byte[] bytes = new byte[location.length];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  private synchronized Location allocate(int length) {
+    if (length > segmentSize) {
+      // dedicated segment, the current one keeps being filled
+      return new Location(map(length), 0, length);
+    }
+    if (currentSegment < 0 || segmentSize - currentPosition < length) {
+      currentSegment = map(segmentSize);
+      currentPosition = 0;
+    }
+    Location location = new Location(currentSegment, currentPosition, length);
+    currentPosition += length;
+    return location;
+  }
+
+  private int map(int size) {
+    File file = new File(dir, "segment" + segments.size());
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+      FileChannel channel = randomAccessFile.getChannel()) {
+      segments.add(channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+      return segments.size() - 1;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to map storage file " + file, e);
+    }
+  }
+
+  /**
+   * Mapped buffers are released by garbage collection, files are deleted immediately.
+   */
+  synchronized void close() {
+    segments.clear();
+    currentSegment = -1;
+    currentPosition = 0;
+    deleteQuietly(dir);
+  }
+
+  static final class Location {
+    private final int segment;
+    private final int offset;
+    private final int length;
+
+    private Location(int segment, int offset, int length) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
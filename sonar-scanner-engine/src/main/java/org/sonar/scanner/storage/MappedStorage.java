@@ -0,0 +1,198 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.primitives.UnsignedBytes;
+import com.persistit.Key;
+import com.persistit.Persistit;
+import com.persistit.Value;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.scanner.storage.MappedSegments.Location;
+
+/**
+ * {@link Storage} keeping its sorted index of keys in memory and its values in {@link MappedSegments}.
+ * <p>
+ * Values are encoded by Persistit {@link Value}, so that the {@link com.persistit.encoding.ValueCoder}s registered
+ * in {@link Storages} still apply. Keys are encoded by Persistit {@link Key} and the index is sorted by the encoded
+ * bytes, so that keys are iterated in the same order as in {@link PersistitStorage}, including keys made of parts
+ * of different types. Reads and writes do not lock each other. Iterables are lazy and weakly consistent: they
+ * reflect the writes done before the creation of each iterator, and possibly some of the concurrent writes.
+ * </p>
+ */
+class MappedStorage<V> extends Storage<V> {
+
+  private static final Comparator<byte[]> KEY_COMPARATOR = UnsignedBytes.lexicographicalComparator();
+
+  private final String name;
+  private final MappedSegments segments;
+  private final ConcurrentNavigableMap<byte[], Indexed> index = new ConcurrentSkipListMap<>(KEY_COMPARATOR);
+  private final ThreadLocal<Key> keyCodec;
+  private final ThreadLocal<Value> codec;
+
+  MappedStorage(String name, MappedSegments segments, Persistit persistit) {
+    this.name = name;
+    this.segments = segments;
+    this.keyCodec = ThreadLocal.withInitial(() -> new Key(persistit));
+    this.codec = ThreadLocal.withInitial(() -> {
+      Value value = new Value(persistit);
+      value.setMaximumSize(Value.MAXIMUM_SIZE);
+      return value;
+    });
+  }
+
+  @Override
+  public Storage<V> put(Object[] key, @Nullable V value) {
+    try {
+      Value encoded = codec.get();
+      encoded.put(value);
+      index.put(encode(key), new Indexed(key.clone(), segments.write(encoded.getEncodedBytes(), encoded.getEncodedSize())));
+      return this;
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to put element in the storage '" + name + "'", e);
+    }
+  }
+
+  @Override
+  @CheckForNull
+  public V get(Object[] key) {
+    Indexed indexed = index.get(encode(key));
+    return indexed == null ? null : read(indexed.location);
+  }
+
+  @Override
+  public boolean containsKey(Object[] key) {
+    return index.containsKey(encode(key));
+  }
+
+  @Override
+  public boolean remove(Object[] key) {
+    return index.remove(encode(key)) != null;
+  }
+
+  @Override
+  public Storage<V> clear(Object[] key) {
+    byte[] encodedKey = encode(key);
+    Iterator<byte[]> keys = index.tailMap(encodedKey, true).keySet().iterator();
+    while (keys.hasNext() && startsWith(keys.next(), encodedKey)) {
+      keys.remove();
+    }
+    return this;
+  }
+
+  @Override
+  public void clear() {
+    index.clear();
+  }
+
+  @Override
+  protected Set<Object> doKeySet(Object[] prefix) {
+    Set<Object> keys = new LinkedHashSet<>();
+    Iterator<Indexed> descendants = descendants(prefix);
+    while (descendants.hasNext()) {
+      keys.add(descendants.next().key[prefix.length]);
+    }
+    return keys;
+  }
+
+  @Override
+  protected Iterable<V> doValues(Object[] prefix) {
+    return () -> Iterators.transform(descendants(prefix), indexed -> read(indexed.location));
+  }
+
+  @Override
+  protected Iterable<Entry<V>> doEntries(Object[] prefix) {
+    return () -> Iterators.transform(descendants(prefix), indexed -> new Entry<>(indexed.key.clone(), read(indexed.location)));
+  }
+
+  @SuppressWarnings("unchecked")
+  private V read(Location location) {
+    try {
+      byte[] bytes = segments.read(location);
+      Value decoded = codec.get();
+      decoded.putEncodedBytes(bytes, 0, bytes.length);
+      return (V) decoded.get();
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to get element from the storage '" + name + "'", e);
+    }
+  }
+
+  /**
+   * Indexed entries of the keys starting with the given prefix, excluding the prefix itself. As the encoding of a key
+   * is a prefix of the encodings of its descendants, these entries are contiguous in the index.
+   */
+  private Iterator<Indexed> descendants(Object[] prefix) {
+    byte[] encodedPrefix = encode(prefix);
+    Iterator<Map.Entry<byte[], Indexed>> tail = index.tailMap(encodedPrefix, false).entrySet().iterator();
+    return new AbstractIterator<Indexed>() {
+      @Override
+      protected Indexed computeNext() {
+        if (tail.hasNext()) {
+          Map.Entry<byte[], Indexed> entry = tail.next();
+          if (startsWith(entry.getKey(), encodedPrefix)) {
+            return entry.getValue();
+          }
+        }
+        return endOfData();
+      }
+    };
+  }
+
+  private byte[] encode(Object[] key) {
+    Key encoded = keyCodec.get();
+    encoded.clear();
+    for (Object part : key) {
+      encoded.append(part);
+    }
+    return Arrays.copyOf(encoded.getEncodedBytes(), encoded.getEncodedSize());
+  }
+
+  private static boolean startsWith(byte[] key, byte[] prefix) {
+    if (key.length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (key[i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static class Indexed {
+    private final Object[] key;
+    private final Location location;
+
+    private Indexed(Object[] key, Location location) {
+      this.key = key;
+      this.location = location;
+    }
+  }
+}
@@ -27,21 +27,35 @@ import com.persistit.Volume;
 import com.persistit.encoding.CoderManager;
 import com.persistit.encoding.ValueCoder;
 import com.persistit.exception.PersistitException;
-
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import org.picocontainer.Startable;
 import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 
 @ScannerSide
 public class Storages implements Startable {
+  private static final Logger LOG = Loggers.get(Storages.class);
+
   private final Map<String, Exchange> cacheMap = new HashMap<>();
+  private final Set<String> mappedCaches = new HashSet<>();
+  private final File tempDir;
+  private final boolean memoryMapped;
   private Persistit persistit;
   private Volume volume;
+  private MappedSegments segments;
 
   public Storages(StoragesManager storagesManager) {
     persistit = storagesManager.persistit();
+    tempDir = storagesManager.tempDir();
+    memoryMapped = storagesManager.isMemoryMapped();
     doStart();
   }
 
@@ -51,6 +65,10 @@ public class Storages implements Startable {
   }
 
   private void doStart() {
+    if (memoryMapped) {
+      startMappedSegments();
+      return;
+    }
     try {
       persistit.flush();
       volume = persistit.createTemporaryVolume();
@@ -59,18 +77,33 @@ public class Storages implements Startable {
     }
   }
 
+  private void startMappedSegments() {
+    try {
+      int segmentSize = MappedSegments.segmentSizeFor(Runtime.getRuntime().maxMemory());
+      segments = new MappedSegments(Files.createTempDirectory(tempDir.toPath(), "mmap").toFile(), segmentSize);
+      LOG.debug("Memory-mapped storages use segments of {} bytes", segmentSize);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create memory-mapped storages", e);
+    }
+  }
+
   public void registerValueCoder(Class<?> clazz, ValueCoder coder) {
     CoderManager cm = persistit.getCoderManager();
     cm.registerValueCoder(clazz, coder);
   }
 
   public <V> Storage<V> createCache(String cacheName) {
+    if (memoryMapped) {
+      Preconditions.checkState(segments != null, "Caches are not initialized");
+      Preconditions.checkState(mappedCaches.add(cacheName), "Cache is already created: %s", cacheName);
+      return new MappedStorage<>(cacheName, segments, persistit);
+    }
     Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
     Preconditions.checkState(!cacheMap.containsKey(cacheName), "Cache is already created: %s", cacheName);
     try {
       Exchange exchange = persistit.getExchange(volume, cacheName, true);
       exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Storage<V> cache = new Storage<>(cacheName, exchange);
+      Storage<V> cache = new PersistitStorage<>(cacheName, exchange);
       cacheMap.put(cacheName, exchange);
       return cache;
     } catch (Exception e) {
@@ -85,6 +118,12 @@ public class Storages implements Startable {
     }
 
     cacheMap.clear();
+    mappedCaches.clear();
+
+    if (segments != null) {
+      segments.close();
+      segments = null;
+    }
 
     if (volume != null) {
       try {
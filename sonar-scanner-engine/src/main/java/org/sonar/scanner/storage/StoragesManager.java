@@ -24,11 +24,15 @@ import com.persistit.exception.PersistitException;
 import com.persistit.logging.Slf4jAdapter;
 import java.io.File;
 import java.util.Properties;
+import javax.annotation.Nullable;
 import org.picocontainer.Startable;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
+import org.sonar.scanner.bootstrap.GlobalProperties;
 
+import static java.lang.String.format;
 import static org.sonar.core.util.FileUtils.deleteQuietly;
 
 /**
@@ -38,15 +42,44 @@ import static org.sonar.core.util.FileUtils.deleteQuietly;
  */
 @ScannerSide
 public class StoragesManager implements Startable {
+  /**
+   * Engine of the storages: {@value #PERSISTIT_ENGINE} (default) or {@value #MEMORY_MAPPED_ENGINE}.
+   * @since 6.4
+   */
+  public static final String ENGINE_PROPERTY = "sonar.scanner.storageEngine";
+  public static final String PERSISTIT_ENGINE = "persistit";
+  public static final String MEMORY_MAPPED_ENGINE = "mmap";
+
   private File tempDir;
   private Persistit persistit;
   private final TempFolder tempFolder;
+  private final boolean memoryMapped;
 
   public StoragesManager(TempFolder tempFolder) {
+    this(tempFolder, false);
+  }
+
+  public StoragesManager(TempFolder tempFolder, GlobalProperties properties) {
+    this(tempFolder, isMemoryMapped(properties.property(ENGINE_PROPERTY)));
+  }
+
+  private StoragesManager(TempFolder tempFolder, boolean memoryMapped) {
     this.tempFolder = tempFolder;
+    this.memoryMapped = memoryMapped;
     initPersistit();
   }
 
+  private static boolean isMemoryMapped(@Nullable String engine) {
+    if (engine == null || PERSISTIT_ENGINE.equals(engine)) {
+      return false;
+    }
+    if (MEMORY_MAPPED_ENGINE.equals(engine)) {
+      return true;
+    }
+    throw MessageException.of(format("Unsupported value of property '%s': '%s'. Supported values are '%s' and '%s'.", ENGINE_PROPERTY, engine,
+      PERSISTIT_ENGINE, MEMORY_MAPPED_ENGINE));
+  }
+
   private void initPersistit() {
     try {
       tempDir = tempFolder.newDir("caches");
@@ -92,7 +125,15 @@ public class StoragesManager implements Startable {
     return tempDir;
   }
 
+  /**
+   * Persistit is started whichever the engine, as values of memory-mapped storages are encoded by its
+   * registered {@link com.persistit.encoding.ValueCoder}s.
+   */
   Persistit persistit() {
     return persistit;
   }
+
+  boolean isMemoryMapped() {
+    return memoryMapped;
+  }
 }
@@ -25,6 +25,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -52,6 +56,7 @@ import org.sonar.scanner.report.ReportPublisher;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -239,6 +244,95 @@ public class CpdExecutorTest {
         "Timeout during detection of duplications for .*Foo2.php");
   }
 
+  @Test
+  public void timeout_starts_when_detection_begins_executing() throws Exception {
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      // the only thread is busy before the detection can start
+      executorService.submit(() -> {
+        Thread.sleep(500L);
+        return null;
+      });
+
+      executor.runCpdAnalysis(executorService, batchComponent1.key(), singleBlock(), 1000L);
+
+      readDuplications(0);
+      assertThat(logTester.logs(LoggerLevel.WARN)).isEmpty();
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void timeout_if_detection_does_not_start() {
+    // detections are submitted but never executed
+    ExecutorService executorService = mock(ExecutorService.class);
+    when(executorService.submit(any(Callable.class))).thenReturn(new FutureTask<>(() -> null));
+
+    executor.runCpdAnalysis(executorService, batchComponent1.key(), singleBlock(), 100L);
+
+    readDuplications(0);
+    assertThat(logTester.logs(LoggerLevel.WARN))
+      .usingElementComparator((l, r) -> l.matches(r) ? 0 : 1)
+      .containsOnly("Timeout during detection of duplications for .*Foo.php");
+  }
+
+  private List<Block> singleBlock() {
+    return Collections.singletonList(Block.builder()
+      .setResourceId(batchComponent1.key())
+      .setIndexInFile(0)
+      .setLines(1, 2)
+      .setUnit(1, 2)
+      .setBlockHash(new ByteArray("abcd1234".getBytes()))
+      .build());
+  }
+
+  @Test
+  public void threads_default_to_available_processors() {
+    assertThat(executor.getThreads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+
+    settings.setProperty(CpdExecutor.THREADS_PROPERTY, "3");
+    assertThat(executor.getThreads()).isEqualTo(3);
+  }
+
+  @Test
+  public void detect_duplications_of_all_files_with_several_threads() {
+    settings.setProperty(CpdExecutor.THREADS_PROPERTY, "2");
+    DefaultInputFile[] components = new DefaultInputFile[6];
+    for (int i = 0; i < components.length; i++) {
+      components[i] = new TestInputFileBuilder("foo", "src/Bar" + i + ".java")
+        .setModuleBaseDir(baseDir.toPath())
+        .setLanguage("java")
+        .setLines(20)
+        .build();
+      componentStore.put(components[i]);
+      List<Block> blocks = new ArrayList<>();
+      for (int j = 1; j <= 10; j++) {
+        // files are duplicated by pairs
+        blocks.add(Block.builder()
+          .setResourceId(components[i].key())
+          .setIndexInFile(j)
+          .setLines(j, j + 1)
+          .setUnit(j, j + 1)
+          .setBlockHash(new ByteArray((long) (i / 2) * 100 + j))
+          .build());
+      }
+      index.insert(components[i], blocks);
+    }
+
+    executor.execute();
+
+    for (int i = 0; i < components.length; i++) {
+      DefaultInputFile other = components[i % 2 == 0 ? i + 1 : i - 1];
+      List<Duplication> duplications = new ArrayList<>();
+      try (CloseableIterator<Duplication> it = reader.readComponentDuplications(components[i].batchId())) {
+        it.forEachRemaining(duplications::add);
+      }
+      assertThat(duplications).hasSize(1);
+      assertThat(duplications.get(0).getDuplicate(0).getOtherFileRef()).isEqualTo(other.batchId());
+    }
+  }
+
   private Duplication[] readDuplications(int expected) {
     assertThat(reader.readComponentDuplications(batchComponent1.batchId())).hasSize(expected);
     Duplication[] duplications = new Duplication[expected];
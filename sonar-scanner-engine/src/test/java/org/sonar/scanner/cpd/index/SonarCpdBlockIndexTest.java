@@ -0,0 +1,77 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cpd.index;
+
+import java.util.Collections;
+import org.junit.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.OffHeapCloneIndex;
+import org.sonar.duplications.index.PackedMemoryCloneIndex;
+import org.sonar.scanner.report.ReportPublisher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class SonarCpdBlockIndexTest {
+
+  private Settings settings = new MapSettings();
+  private ReportPublisher publisher = mock(ReportPublisher.class);
+
+  @Test
+  public void blocks_are_stored_on_heap_by_default() {
+    SonarCpdBlockIndex underTest = new SonarCpdBlockIndex(publisher, settings);
+
+    assertThat(underTest.getCloneIndex()).isInstanceOf(PackedMemoryCloneIndex.class);
+  }
+
+  @Test
+  public void blocks_are_stored_off_heap_if_enabled() {
+    settings.setProperty(SonarCpdBlockIndex.OFF_HEAP_INDEX_PROPERTY, true);
+
+    SonarCpdBlockIndex underTest = new SonarCpdBlockIndex(publisher, settings);
+
+    assertThat(underTest.getCloneIndex()).isInstanceOf(OffHeapCloneIndex.class);
+  }
+
+  @Test
+  public void off_heap_index_returns_inserted_blocks() {
+    settings.setProperty(SonarCpdBlockIndex.OFF_HEAP_INDEX_PROPERTY, true);
+    SonarCpdBlockIndex underTest = new SonarCpdBlockIndex(publisher, settings);
+    InputFile file = new TestInputFileBuilder("foo", "src/Foo.php").build();
+    Block block = Block.builder()
+      .setResourceId("foo:src/Foo.php")
+      .setIndexInFile(0)
+      .setLines(1, 2)
+      .setUnit(1, 2)
+      .setBlockHash(new ByteArray("abcd1234".getBytes()))
+      .build();
+
+    underTest.insert(file, Collections.singletonList(block));
+
+    assertThat(underTest.isIndexed(file)).isTrue();
+    assertThat(underTest.getByInputFile("foo:src/Foo.php")).containsExactly(block);
+    assertThat(underTest.getBySequenceHash(new ByteArray("abcd1234".getBytes()))).containsExactly(block);
+  }
+}
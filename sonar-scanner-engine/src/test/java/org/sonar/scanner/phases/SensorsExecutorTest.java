@@ -20,17 +20,28 @@
 package org.sonar.scanner.phases;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.*;
+import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.sensor.SensorOptimizer;
 import org.sonar.scanner.sensor.SensorStrategy;
+import org.sonar.scanner.sensor.SensorWrapper;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -38,12 +49,15 @@ import static org.mockito.Mockito.*;
 public class SensorsExecutorTest {
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
 
   private SensorsExecutor rootModuleExecutor;
   private SensorsExecutor subModuleExecutor;
   private SensorContext context;
 
   private SensorStrategy strategy = new SensorStrategy();
+  private Settings settings = new MapSettings();
 
   private TestSensor perModuleSensor = new TestSensor(strategy);
   private TestSensor globalSensor = new TestSensor(strategy);
@@ -79,11 +93,11 @@ public class SensorsExecutorTest {
     when(selector.selectSensors(any(DefaultInputModule.class), eq(true))).thenReturn(Collections.singleton(globalSensor));
 
     DefaultInputModule rootModule = TestInputFileBuilder.newDefaultInputModule("root", temp.newFolder());
-    rootModuleExecutor = new SensorsExecutor(selector, rootModule, mock(EventBus.class), strategy);
+    rootModuleExecutor = new SensorsExecutor(selector, rootModule, mock(EventBus.class), strategy, settings);
 
     DefaultInputModule subModule = TestInputFileBuilder.newDefaultInputModule("sub", temp.newFolder());
     rootModule.definition().addSubProject(subModule.definition());
-    subModuleExecutor = new SensorsExecutor(selector, subModule, mock(EventBus.class), strategy);
+    subModuleExecutor = new SensorsExecutor(selector, subModule, mock(EventBus.class), strategy, settings);
   }
 
   @Test
@@ -104,4 +118,76 @@ public class SensorsExecutorTest {
     assertThat(globalSensor.called).isTrue();
     assertThat(globalSensor.global).isTrue();
   }
+
+  @Test
+  public void should_execute_thread_safe_sensors_concurrently() throws IOException {
+    settings.setProperty(SensorsExecutor.THREADS_PROP_KEY, "2");
+    CountDownLatch latch = new CountDownLatch(2);
+    List<Boolean> executedConcurrently = new CopyOnWriteArrayList<>();
+    List<String> executions = new CopyOnWriteArrayList<>();
+    org.sonar.api.batch.sensor.Sensor threadSafeSensor = new org.sonar.api.batch.sensor.Sensor() {
+      @Override
+      public void describe(SensorDescriptor descriptor) {
+        descriptor.threadSafe();
+      }
+
+      @Override
+      public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+        latch.countDown();
+        try {
+          executedConcurrently.add(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+        executions.add("threadSafe");
+      }
+    };
+    Sensor notThreadSafeSensor = new TestSensor(strategy) {
+      @Override
+      public void analyse(Project module, SensorContext context) {
+        executions.add("notThreadSafe");
+      }
+    };
+    SensorOptimizer optimizer = mock(SensorOptimizer.class);
+    ScannerExtensionDictionnary selector = mock(ScannerExtensionDictionnary.class);
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(Arrays.asList(
+      new SensorWrapper(threadSafeSensor, null, optimizer),
+      new SensorWrapper(threadSafeSensor, null, optimizer),
+      notThreadSafeSensor));
+    DefaultInputModule module = TestInputFileBuilder.newDefaultInputModule("sub", temp.newFolder());
+    TestInputFileBuilder.newDefaultInputModule("root", temp.newFolder()).definition().addSubProject(module.definition());
+
+    new SensorsExecutor(selector, module, mock(EventBus.class), strategy, settings).execute(context);
+
+    assertThat(executedConcurrently).containsExactly(true, true);
+    assertThat(executions).containsExactly("threadSafe", "threadSafe", "notThreadSafe");
+  }
+
+  @Test
+  public void should_propagate_failure_of_sensor_executed_concurrently() throws IOException {
+    settings.setProperty(SensorsExecutor.THREADS_PROP_KEY, "2");
+    org.sonar.api.batch.sensor.Sensor failingSensor = new org.sonar.api.batch.sensor.Sensor() {
+      @Override
+      public void describe(SensorDescriptor descriptor) {
+        descriptor.threadSafe();
+      }
+
+      @Override
+      public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+        throw new IllegalArgumentException("faking sensor failure");
+      }
+    };
+    SensorOptimizer optimizer = mock(SensorOptimizer.class);
+    ScannerExtensionDictionnary selector = mock(ScannerExtensionDictionnary.class);
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(Arrays.asList(
+      new SensorWrapper(failingSensor, null, optimizer),
+      new SensorWrapper(failingSensor, null, optimizer)));
+    DefaultInputModule module = TestInputFileBuilder.newDefaultInputModule("sub", temp.newFolder());
+    TestInputFileBuilder.newDefaultInputModule("root", temp.newFolder()).definition().addSubProject(module.definition());
+
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("faking sensor failure");
+
+    new SensorsExecutor(selector, module, mock(EventBus.class), strategy, settings).execute(context);
+  }
 }
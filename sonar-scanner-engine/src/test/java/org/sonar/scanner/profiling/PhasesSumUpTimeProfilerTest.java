@@ -102,6 +102,29 @@ public class PhasesSumUpTimeProfilerTest {
     assertThat(profiler.totalProfiling.getProfilingPerPhase(Phase.POSTJOB).getProfilingPerItem(new FakePostJob()).totalTime()).isEqualTo(90L);
   }
 
+  @Test
+  public void testConcurrentSensors() {
+    Project project = mockProject("my:project", true);
+    Sensor sensor1 = new NamedSensor("Sensor 1");
+    Sensor sensor2 = new NamedSensor("Sensor 2");
+
+    profiler.onProjectAnalysis(projectEvent(project, true));
+    profiler.onSensorsPhase(sensorsEvent(true));
+    profiler.onSensorExecution(sensorEvent(sensor1, true));
+    profiler.onSensorExecution(sensorEvent(sensor2, true));
+    clock.sleep(10);
+    profiler.onSensorExecution(sensorEvent(sensor1, false));
+    clock.sleep(5);
+    profiler.onSensorExecution(sensorEvent(sensor2, false));
+    profiler.onSensorsPhase(sensorsEvent(false));
+
+    PhaseProfiling sensorProfiling = profiler.currentModuleProfiling.getProfilingPerPhase(Phase.SENSOR);
+    assertThat(sensorProfiling.getProfilingPerItem(sensor1).totalTime()).isEqualTo(10L);
+    assertThat(sensorProfiling.getProfilingPerItem(sensor2).totalTime()).isEqualTo(15L);
+    assertThat(sensorProfiling.totalTime()).isEqualTo(15L);
+    assertThat(sensorProfiling.itemsTotalTime()).isEqualTo(25L);
+  }
+
   @Test
   public void testDisplayTimings() {
     AbstractTimeProfiling profiling = new AbstractTimeProfiling(System2.INSTANCE) {
@@ -345,6 +368,19 @@ public class PhasesSumUpTimeProfilerTest {
     }
   }
 
+  public class NamedSensor extends FakeSensor {
+    private final String name;
+
+    NamedSensor(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
   public class FakeInitializer extends Initializer {
     @Override
     public void execute(Project project) {
@@ -19,16 +19,22 @@
  */
 package org.sonar.scanner.repository;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.sonar.api.utils.MessageException;
+import org.sonar.home.cache.FileCache;
 import org.sonar.scanner.WsTestUtil;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
 import org.sonarqube.ws.WsBatch.WsProjectResponse;
@@ -36,6 +42,7 @@ import org.sonarqube.ws.client.HttpException;
 import org.sonarqube.ws.client.WsRequest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -44,16 +51,21 @@ public class DefaultProjectRepositoriesLoaderTest {
   private final static String PROJECT_KEY = "foo?";
   @Rule
   public ExpectedException thrown = ExpectedException.none();
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
 
   private DefaultProjectRepositoriesLoader loader;
   private ScannerWsClient wsClient;
+  private FileCache fileCache;
 
   @Before
   public void prepare() throws IOException {
     wsClient = mock(ScannerWsClient.class);
     InputStream is = mockData();
     WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", is);
-    loader = new DefaultProjectRepositoriesLoader(wsClient);
+    fileCache = mock(FileCache.class);
+    when(fileCache.getDir()).thenReturn(temp.newFolder());
+    loader = new DefaultProjectRepositoriesLoader(wsClient, fileCache);
   }
 
   @Test
@@ -110,6 +122,91 @@ public class DefaultProjectRepositoriesLoaderTest {
     WsTestUtil.verifyCall(wsClient, "/batch/project.protobuf?key=foo%3F");
   }
 
+  @Test
+  public void use_cached_response_when_not_modified() throws IOException {
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", toStream(newResponseWithFile("v1")));
+    loader.load(PROJECT_KEY, false);
+
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F&version=v1",
+      toStream(WsProjectResponse.newBuilder().setVersion("v1").setNotModified(true).build()));
+    ProjectRepositories proj = loader.load(PROJECT_KEY, false);
+
+    WsTestUtil.verifyCall(wsClient, "/batch/project.protobuf?key=foo%3F&version=v1");
+    assertThat(proj.fileData(PROJECT_KEY, "src/Foo.java").hash()).isEqualTo("abc");
+  }
+
+  @Test
+  public void do_not_cache_settings() throws IOException {
+    WsProjectResponse response = newResponseWithFile("v1").toBuilder()
+      .putAllSettingsByModule(ImmutableMap.of(PROJECT_KEY, newSettings("sonar.foo.secured", "secret")))
+      .build();
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", toStream(response));
+    assertThat(loader.load(PROJECT_KEY, false).settings(PROJECT_KEY)).containsOnly(entry("sonar.foo.secured", "secret"));
+
+    File[] cacheFiles = new File(fileCache.getDir(), "_project_repositories").listFiles();
+    assertThat(cacheFiles).hasSize(1);
+    assertThat(WsProjectResponse.parseFrom(Files.readAllBytes(cacheFiles[0].toPath())).getSettingsByModule()).isEmpty();
+    assertThat(new String(Files.readAllBytes(cacheFiles[0].toPath()), StandardCharsets.UTF_8)).doesNotContain("secret");
+  }
+
+  @Test
+  public void use_settings_of_response_when_not_modified() throws IOException {
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", toStream(newResponseWithFile("v1")));
+    loader.load(PROJECT_KEY, false);
+
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F&version=v1",
+      toStream(WsProjectResponse.newBuilder().setVersion("v1").setNotModified(true)
+        .putAllSettingsByModule(ImmutableMap.of(PROJECT_KEY, newSettings("sonar.foo", "bar")))
+        .build()));
+    ProjectRepositories proj = loader.load(PROJECT_KEY, false);
+
+    assertThat(proj.settings(PROJECT_KEY)).containsOnly(entry("sonar.foo", "bar"));
+    assertThat(proj.fileData(PROJECT_KEY, "src/Foo.java").hash()).isEqualTo("abc");
+  }
+
+  @Test
+  public void update_cache_when_modified() throws IOException {
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", toStream(newResponseWithFile("v1")));
+    loader.load(PROJECT_KEY, false);
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F&version=v1", toStream(newResponseWithFile("v2")));
+    loader.load(PROJECT_KEY, false);
+
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F&version=v2",
+      toStream(WsProjectResponse.newBuilder().setVersion("v2").setNotModified(true).build()));
+    loader.load(PROJECT_KEY, false);
+
+    WsTestUtil.verifyCall(wsClient, "/batch/project.protobuf?key=foo%3F&version=v2");
+  }
+
+  @Test
+  public void do_not_share_cache_between_modes() throws IOException {
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", toStream(newResponseWithFile("v1")));
+    loader.load(PROJECT_KEY, false);
+
+    WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F&issues_mode=true", mockData());
+    loader.load(PROJECT_KEY, true);
+
+    WsTestUtil.verifyCall(wsClient, "/batch/project.protobuf?key=foo%3F&issues_mode=true");
+  }
+
+  private static WsProjectResponse newResponseWithFile(String version) {
+    WsProjectResponse.Builder builder = WsProjectResponse.newBuilder().setVersion(version);
+    builder.getMutableFileDataByModuleAndPath().put(PROJECT_KEY, WsProjectResponse.FileDataByPath.newBuilder()
+      .putAllFileDataByPath(ImmutableMap.of("src/Foo.java", WsProjectResponse.FileData.newBuilder().setHash("abc").build()))
+      .build());
+    return builder.build();
+  }
+
+  private static WsProjectResponse.Settings newSettings(String key, String value) {
+    return WsProjectResponse.Settings.newBuilder().putAllSettings(ImmutableMap.of(key, value)).build();
+  }
+
+  private static InputStream toStream(WsProjectResponse response) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    response.writeTo(os);
+    return new ByteArrayInputStream(os.toByteArray());
+  }
+
   private InputStream mockData() throws IOException {
     ByteArrayOutputStream os = new ByteArrayOutputStream();
     WsProjectResponse.Builder projectResponseBuilder = WsProjectResponse.newBuilder();
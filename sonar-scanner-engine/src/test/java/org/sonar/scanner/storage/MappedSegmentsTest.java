@@ -0,0 +1,61 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.File;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.scanner.storage.MappedSegments.Location;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedSegmentsTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void segment_size_depends_on_max_memory() {
+    assertThat(MappedSegments.segmentSizeFor(1024L * 1024 * 1024)).isEqualTo(64 * 1024 * 1024);
+    assertThat(MappedSegments.segmentSizeFor(1024L)).isEqualTo(1024 * 1024);
+    assertThat(MappedSegments.segmentSizeFor(Long.MAX_VALUE)).isEqualTo(256 * 1024 * 1024);
+  }
+
+  @Test
+  public void write_and_read_across_segments() throws Exception {
+    File dir = temp.newFolder();
+    MappedSegments segments = new MappedSegments(dir, 10);
+
+    Location first = segments.write(new byte[] {1, 2, 3, 4, 5, 6}, 6);
+    Location second = segments.write(new byte[] {7, 8, 9, 10, 11, 12}, 5);
+    Location large = segments.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}, 12);
+    Location third = segments.write(new byte[] {13}, 1);
+
+    assertThat(segments.read(first)).containsExactly(1, 2, 3, 4, 5, 6);
+    assertThat(segments.read(second)).containsExactly(7, 8, 9, 10, 11);
+    assertThat(segments.read(large)).containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12);
+    assertThat(segments.read(third)).containsExactly(13);
+    assertThat(dir.list()).hasSize(3);
+
+    segments.close();
+
+    assertThat(dir).doesNotExist();
+  }
+}
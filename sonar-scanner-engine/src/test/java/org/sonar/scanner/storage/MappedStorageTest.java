@@ -0,0 +1,142 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sonar.api.CoreProperties;
+import org.sonar.scanner.bootstrap.GlobalProperties;
+import org.sonar.scanner.bootstrap.GlobalTempFolderProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the tests of {@link StorageTest} against memory-mapped storages.
+ */
+public class MappedStorageTest extends StorageTest {
+  private static StoragesManager mappedManager;
+
+  @BeforeClass
+  public static void startMappedManager() {
+    Map<String, String> props = ImmutableMap.of(CoreProperties.WORKING_DIRECTORY, temp.getRoot().getAbsolutePath(),
+      CoreProperties.GLOBAL_WORKING_DIRECTORY, temp.getRoot().getAbsolutePath(),
+      StoragesManager.ENGINE_PROPERTY, StoragesManager.MEMORY_MAPPED_ENGINE);
+    GlobalProperties properties = new GlobalProperties(props);
+    mappedManager = new StoragesManager(new GlobalTempFolderProvider().provide(properties), properties);
+    mappedManager.start();
+  }
+
+  @AfterClass
+  public static void stopMappedManager() {
+    if (mappedManager != null) {
+      mappedManager.stop();
+    }
+  }
+
+  @Override
+  @Before
+  public void start() {
+    caches = new Storages(mappedManager);
+    caches.start();
+  }
+
+  @Test
+  public void storage_is_memory_mapped() {
+    assertThat(caches.createCache("mapped")).isInstanceOf(MappedStorage.class);
+  }
+
+  @Test
+  public void keys_of_different_types_are_sorted() {
+    Storage<String> cache = caches.createCache("mixed");
+    cache.put("b", 10, "b10");
+    cache.put("b", 2, "b2");
+    cache.put("a", "z", "az");
+    cache.put("a", 1, "a1");
+
+    assertThat(cache.values("b")).containsExactly("b2", "b10");
+    assertThat(cache.keySet()).containsExactly("a", "b");
+    assertThat(cache.get("a", 1)).isEqualTo("a1");
+    assertThat(cache.get("a", "z")).isEqualTo("az");
+  }
+
+  @Test
+  public void clear_removes_key_and_descendants_only() {
+    Storage<String> cache = caches.createCache("clear");
+    cache.put("europe", "france");
+    cache.put("europe", "france", "paris");
+    cache.put("europe2", "ukrania", "kiev");
+
+    cache.clear("europe");
+
+    assertThat(cache.get("europe")).isNull();
+    assertThat(cache.keySet()).containsOnly("europe2");
+  }
+
+  @Test
+  public void value_larger_than_a_segment() {
+    Storage<String> cache = caches.createCache("large");
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 3 * 1024 * 1024; i++) {
+      sb.append((char) ('a' + i % 26));
+    }
+    String large = sb.toString();
+
+    cache.put("large", large);
+    cache.put("small", "value");
+
+    assertThat(cache.get("large")).isEqualTo(large);
+    assertThat(cache.get("small")).isEqualTo("value");
+  }
+
+  @Test
+  public void keys_are_sorted_as_in_persistit() {
+    Storages persistitCaches = new Storages(cachesManager);
+    persistitCaches.start();
+    try {
+      Storage<String> persistitCache = persistitCaches.createCache("order");
+      Storage<String> mappedCache = caches.createCache("order");
+      for (Storage<String> cache : Arrays.asList(persistitCache, mappedCache)) {
+        cache.put("b", "b");
+        cache.put("b", 10L, "b10L");
+        cache.put("b", 10, "b10");
+        cache.put("b", -2, "b-2");
+        cache.put("b", "z", "bz");
+        cache.put("b", "Z", "bZ");
+        cache.put("b", "\u00e9", "b\u00e9");
+        cache.put("b", true, "btrue");
+        cache.put("a", 1, 2, "a12");
+        cache.put("ab", "ab");
+        cache.put(3, "3");
+      }
+
+      assertThat(mappedCache.keySet()).containsExactlyElementsOf(persistitCache.keySet());
+      assertThat(mappedCache.keySet("b")).containsExactlyElementsOf(persistitCache.keySet("b"));
+      assertThat(mappedCache.values("b")).containsExactlyElementsOf(persistitCache.values("b"));
+      assertThat(mappedCache.values("b")).hasSize(8);
+    } finally {
+      persistitCaches.stop();
+    }
+  }
+}
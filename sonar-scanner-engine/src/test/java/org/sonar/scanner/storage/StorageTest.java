@@ -20,6 +20,11 @@
 package org.sonar.scanner.storage;
 
 import com.google.common.collect.Iterables;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Test;
 import org.sonar.scanner.index.AbstractCachesTest;
 import org.sonar.scanner.storage.Storage;
@@ -67,6 +72,32 @@ public class StorageTest extends AbstractCachesTest {
     assertThat(values).isEmpty();
   }
 
+  @Test
+  public void concurrent_writers() throws Exception {
+    Storage<String> cache = caches.createCache("concurrent");
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        String thread = "thread" + t;
+        futures.add(executorService.submit(() -> {
+          for (int i = 0; i < 500; i++) {
+            cache.put(thread, i, thread + "-" + i);
+            assertThat(cache.get(thread, i)).isEqualTo(thread + "-" + i);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdown();
+    }
+
+    assertThat(cache.keySet()).containsOnly("thread0", "thread1", "thread2", "thread3");
+    assertThat(cache.values("thread2")).hasSize(500);
+  }
+
   @Test
   public void test_key_being_prefix_of_another_key() throws Exception {
     Storage<String> cache = caches.createCache("components");
@@ -19,13 +19,23 @@
  */
 package org.sonar.scanner.storage;
 
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.utils.MessageException;
+import org.sonar.scanner.bootstrap.GlobalProperties;
+import org.sonar.scanner.bootstrap.GlobalTempFolderProvider;
 import org.sonar.scanner.index.AbstractCachesTest;
-import java.io.File;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class StoragesManagerTest extends AbstractCachesTest {
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
   @Test
   public void should_stop_and_clean_temp_dir() {
     File tempDir = cachesManager.tempDir();
@@ -39,4 +49,28 @@ public class StoragesManagerTest extends AbstractCachesTest {
     assertThat(cachesManager.tempDir()).isNull();
     assertThat(cachesManager.persistit()).isNull();
   }
+
+  @Test
+  public void select_engine_from_property() {
+    assertThat(cachesManager.isMemoryMapped()).isFalse();
+    assertThat(isMemoryMapped(StoragesManager.PERSISTIT_ENGINE)).isFalse();
+    assertThat(isMemoryMapped(StoragesManager.MEMORY_MAPPED_ENGINE)).isTrue();
+  }
+
+  @Test
+  public void fail_if_engine_is_not_supported() {
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("Unsupported value of property 'sonar.scanner.storageEngine': 'foo'");
+
+    isMemoryMapped("foo");
+  }
+
+  private static boolean isMemoryMapped(String engine) {
+    GlobalProperties properties = new GlobalProperties(ImmutableMap.of(CoreProperties.WORKING_DIRECTORY, temp.getRoot().getAbsolutePath(),
+      CoreProperties.GLOBAL_WORKING_DIRECTORY, temp.getRoot().getAbsolutePath(),
+      StoragesManager.ENGINE_PROPERTY, engine));
+    StoragesManager manager = new StoragesManager(new GlobalTempFolderProvider().provide(properties), properties);
+    manager.stop();
+    return manager.isMemoryMapped();
+  }
 }
@@ -38,6 +38,8 @@ public class ProjectRepositories {
   private Map<String, Map<String, String>> settingsByModule = new HashMap<>();
   private Map<String, Map<String, FileData>> fileDataByModuleAndPath = new HashMap<>();
   private Date lastAnalysisDate;
+  private String version;
+  private boolean notModified;
 
   public Map<String, String> settings(String moduleKey) {
     return settingsByModule.containsKey(moduleKey) ? settingsByModule.get(moduleKey) : Collections.<String, String>emptyMap();
@@ -105,6 +107,31 @@ public class ProjectRepositories {
     this.lastAnalysisDate = lastAnalysisDate;
   }
 
+  /**
+   * Version of the project data, which changes when settings, modules or files of the project change.
+   */
+  @CheckForNull
+  public String version() {
+    return version;
+  }
+
+  public ProjectRepositories setVersion(@Nullable String version) {
+    this.version = version;
+    return this;
+  }
+
+  /**
+   * True when the version known by the batch is still the current one, in which case file data are not loaded.
+   */
+  public boolean notModified() {
+    return notModified;
+  }
+
+  public ProjectRepositories setNotModified(boolean notModified) {
+    this.notModified = notModified;
+    return this;
+  }
+
   public String toJson() {
     return GsonHelper.create().toJson(this);
   }
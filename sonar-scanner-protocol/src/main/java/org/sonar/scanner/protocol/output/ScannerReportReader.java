@@ -19,162 +19,307 @@
  */
 package org.sonar.scanner.protocol.output;
 
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import javax.annotation.CheckForNull;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.ContextException;
 import org.sonar.core.util.Protobuf;
 
 import static org.sonar.core.util.CloseableIterator.emptyCloseableIterator;
+import static org.sonar.scanner.protocol.output.FileStructure.fileNameFor;
 
-public class ScannerReportReader {
+public class ScannerReportReader implements Closeable {
 
+  @CheckForNull
   private final FileStructure fileStructure;
+  private final ReportEntries entries;
 
   public ScannerReportReader(File dir) {
     this.fileStructure = new FileStructure(dir);
+    this.entries = new DirectoryEntries(dir);
+  }
+
+  private ScannerReportReader(ZipFile zip) {
+    this.fileStructure = null;
+    this.entries = new ZipEntries(zip);
+  }
+
+  /**
+   * Reads the report directly from the zip file generated by the scanner, without extracting it. Entries are
+   * located through the central directory of the zip. The zip file is closed by {@link #close()}.
+   *
+   * @since 6.4
+   */
+  public static ScannerReportReader fromZip(File zipFile) {
+    try {
+      return new ScannerReportReader(new ZipFile(zipFile));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open zipped analysis report: " + zipFile, e);
+    }
   }
 
   public ScannerReport.Metadata readMetadata() {
-    File file = fileStructure.metadataFile();
-    if (!fileExists(file)) {
-      throw new IllegalStateException("Metadata file is missing in analysis report: " + file);
+    if (!entries.exists(FileStructure.METADATA)) {
+      throw new IllegalStateException("Metadata file is missing in analysis report: " + entries.describe(FileStructure.METADATA));
     }
-    return Protobuf.read(file, ScannerReport.Metadata.parser());
+    return read(FileStructure.METADATA, ScannerReport.Metadata.parser());
   }
 
   public CloseableIterator<ScannerReport.ActiveRule> readActiveRules() {
-    File file = fileStructure.activeRules();
-    if (!fileExists(file)) {
-      return emptyCloseableIterator();
-    }
-    return Protobuf.readStream(file, ScannerReport.ActiveRule.parser());
+    return readStream(FileStructure.ACTIVE_RULES, ScannerReport.ActiveRule.parser());
   }
 
   public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Measure.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(fileNameFor(FileStructure.Domain.MEASURES, componentRef), ScannerReport.Measure.parser());
   }
 
   @CheckForNull
   public ScannerReport.Changesets readChangesets(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CHANGESETS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.read(file, ScannerReport.Changesets.parser());
+    String name = fileNameFor(FileStructure.Domain.CHANGESETS, componentRef);
+    if (entries.exists(name)) {
+      return read(name, ScannerReport.Changesets.parser());
     }
     return null;
   }
 
   public ScannerReport.Component readComponent(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COMPONENT, componentRef);
-    if (!fileExists(file)) {
-      throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + file);
+    String name = fileNameFor(FileStructure.Domain.COMPONENT, componentRef);
+    if (!entries.exists(name)) {
+      throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + entries.describe(name));
     }
-    return Protobuf.read(file, ScannerReport.Component.parser());
+    return read(name, ScannerReport.Component.parser());
   }
 
   public CloseableIterator<ScannerReport.Issue> readComponentIssues(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Issue.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(fileNameFor(FileStructure.Domain.ISSUES, componentRef), ScannerReport.Issue.parser());
   }
 
   public CloseableIterator<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Duplication.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(fileNameFor(FileStructure.Domain.DUPLICATIONS, componentRef), ScannerReport.Duplication.parser());
   }
 
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.CpdTextBlock.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(fileNameFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef), ScannerReport.CpdTextBlock.parser());
   }
 
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYMBOLS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Symbol.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(fileNameFor(FileStructure.Domain.SYMBOLS, componentRef), ScannerReport.Symbol.parser());
   }
 
   public boolean hasSyntaxHighlighting(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
-    return file.exists();
+    return entries.exists(fileNameFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef));
   }
 
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.SyntaxHighlightingRule.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(fileNameFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef), ScannerReport.SyntaxHighlightingRule.parser());
   }
 
   public boolean hasCoverage(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, componentRef);
-    return file.exists();
+    return entries.exists(fileNameFor(FileStructure.Domain.COVERAGES, componentRef));
   }
 
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.LineCoverage.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(fileNameFor(FileStructure.Domain.COVERAGES, fileRef), ScannerReport.LineCoverage.parser());
   }
 
+  /**
+   * Not supported when the report is read from a zip, see {@link #openFileSource(int)}
+   */
   @CheckForNull
   public File readFileSource(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SOURCE, fileRef);
-    if (fileExists(file)) {
-      return file;
-    }
-    return null;
+    return existingFile(FileStructure.Domain.SOURCE, fileRef);
+  }
+
+  /**
+   * Content of the source file, or null if the report does not contain it. The stream must be closed by caller.
+   * @since 6.4
+   */
+  @CheckForNull
+  public InputStream openFileSource(int fileRef) {
+    return open(fileNameFor(FileStructure.Domain.SOURCE, fileRef));
   }
 
+  /**
+   * Not supported when the report is read from a zip, see {@link #openTests(int)}
+   */
   @CheckForNull
   public File readTests(int testFileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.TESTS, testFileRef);
-    if (fileExists(file)) {
-      return file;
-    }
+    return existingFile(FileStructure.Domain.TESTS, testFileRef);
+  }
 
-    return null;
+  /**
+   * Stream of delimited {@link ScannerReport.Test}, or null if the report does not contain it. The stream must be closed by caller.
+   * @since 6.4
+   */
+  @CheckForNull
+  public InputStream openTests(int testFileRef) {
+    return open(fileNameFor(FileStructure.Domain.TESTS, testFileRef));
   }
 
+  /**
+   * Not supported when the report is read from a zip, see {@link #openCoverageDetails(int)}
+   */
   @CheckForNull
   public File readCoverageDetails(int testFileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGE_DETAILS, testFileRef);
+    return existingFile(FileStructure.Domain.COVERAGE_DETAILS, testFileRef);
+  }
+
+  /**
+   * Stream of delimited {@link ScannerReport.CoverageDetail}, or null if the report does not contain it. The stream must be
+   * closed by caller.
+   * @since 6.4
+   */
+  @CheckForNull
+  public InputStream openCoverageDetails(int testFileRef) {
+    return open(fileNameFor(FileStructure.Domain.COVERAGE_DETAILS, testFileRef));
+  }
+
+  /**
+   * Content of the log of the analysis, or null if the report does not contain it. The stream must be closed by caller.
+   * @since 6.4
+   */
+  @CheckForNull
+  public InputStream openAnalysisLog() {
+    return open(FileStructure.ANALYSIS_LOG);
+  }
+
+  public CloseableIterator<ScannerReport.ContextProperty> readContextProperties() {
+    return readStream(FileStructure.CONTEXT_PROPERTIES, ScannerReport.ContextProperty.parser());
+  }
+
+  /**
+   * Not supported when the report is read from a zip
+   */
+  public FileStructure getFileStructure() {
+    if (fileStructure == null) {
+      throw new UnsupportedOperationException("Files are not available when analysis report is read from a zip");
+    }
+    return fileStructure;
+  }
+
+  @Override
+  public void close() throws IOException {
+    entries.close();
+  }
+
+  @CheckForNull
+  private File existingFile(FileStructure.Domain domain, int componentRef) {
+    File file = getFileStructure().fileFor(domain, componentRef);
     if (fileExists(file)) {
       return file;
     }
-
     return null;
   }
 
-  public CloseableIterator<ScannerReport.ContextProperty> readContextProperties() {
-    File file = fileStructure.contextProperties();
-    if (!fileExists(file)) {
+  private <MSG extends Message> MSG read(String name, Parser<MSG> parser) {
+    try {
+      return Protobuf.read(entries.open(name), parser);
+    } catch (ContextException e) {
+      throw e.addContext("file", entries.describe(name));
+    } catch (IOException e) {
+      throw ContextException.of("Unable to read message", e).addContext("file", entries.describe(name));
+    }
+  }
+
+  private <MSG extends Message> CloseableIterator<MSG> readStream(String name, Parser<MSG> parser) {
+    if (!entries.exists(name)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.ContextProperty.parser());
+    try {
+      // the input stream is closed by the CloseableIterator
+      return Protobuf.readStream(entries.open(name), parser);
+    } catch (IOException e) {
+      throw ContextException.of("Unable to read messages", e).addContext("file", entries.describe(name));
+    }
+  }
+
+  @CheckForNull
+  private InputStream open(String name) {
+    if (!entries.exists(name)) {
+      return null;
+    }
+    try {
+      return entries.open(name);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open " + entries.describe(name), e);
+    }
   }
 
   private static boolean fileExists(File file) {
     return file.exists() && file.isFile();
   }
 
-  public FileStructure getFileStructure() {
-    return fileStructure;
+  private interface ReportEntries extends Closeable {
+    boolean exists(String name);
+
+    InputStream open(String name) throws IOException;
+
+    String describe(String name);
+  }
+
+  private static class DirectoryEntries implements ReportEntries {
+    private final File dir;
+
+    private DirectoryEntries(File dir) {
+      this.dir = dir;
+    }
+
+    @Override
+    public boolean exists(String name) {
+      return fileExists(new File(dir, name));
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+      return new BufferedInputStream(new FileInputStream(new File(dir, name)));
+    }
+
+    @Override
+    public String describe(String name) {
+      return new File(dir, name).toString();
+    }
+
+    @Override
+    public void close() {
+      // nothing to do
+    }
+  }
+
+  private static class ZipEntries implements ReportEntries {
+    private final ZipFile zip;
+
+    private ZipEntries(ZipFile zip) {
+      this.zip = zip;
+    }
+
+    @Override
+    public boolean exists(String name) {
+      ZipEntry entry = zip.getEntry(name);
+      return entry != null && !entry.isDirectory();
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+      return new BufferedInputStream(zip.getInputStream(zip.getEntry(name)));
+    }
+
+    @Override
+    public String describe(String name) {
+      return zip.getName() + "!/" + name;
+    }
+
+    @Override
+    public void close() throws IOException {
+      zip.close();
+    }
   }
 }
@@ -22,7 +22,10 @@ package org.sonar.scanner.protocol.output;
 import com.google.common.collect.Lists;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.Before;
@@ -377,4 +380,47 @@ public class ScannerReportReaderTest {
   public void return_null_when_no_file_source() throws Exception {
     assertThat(underTest.readFileSource(UNKNOWN_COMPONENT_REF)).isNull();
   }
+
+  @Test
+  public void read_report_from_zip_without_extracting_it() throws Exception {
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().setProjectKey("PROJECT_A").build());
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+    writer.writeComponentIssues(1, singletonList(ScannerReport.Issue.newBuilder().setMsg("the message").build()));
+    try (FileOutputStream outputStream = new FileOutputStream(writer.getSourceFile(1))) {
+      IOUtils.write("line1\nline2", outputStream);
+    }
+
+    try (ScannerReportReader zipReader = ScannerReportReader.fromZip(zip(dir))) {
+      assertThat(zipReader.readMetadata().getProjectKey()).isEqualTo("PROJECT_A");
+      assertThat(zipReader.readComponent(1).getRef()).isEqualTo(1);
+      assertThat(zipReader.readComponentIssues(1)).extracting("msg").containsExactly("the message");
+      assertThat(zipReader.readComponentIssues(UNKNOWN_COMPONENT_REF)).isEmpty();
+      assertThat(zipReader.readChangesets(1)).isNull();
+      try (InputStream source = zipReader.openFileSource(1)) {
+        assertThat(IOUtils.readLines(source)).containsExactly("line1", "line2");
+      }
+      assertThat(zipReader.openFileSource(UNKNOWN_COMPONENT_REF)).isNull();
+      assertThat(zipReader.openAnalysisLog()).isNull();
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void files_are_not_available_when_reading_from_zip() throws Exception {
+    try (ScannerReportReader zipReader = ScannerReportReader.fromZip(zip(dir))) {
+      zipReader.getFileStructure();
+    }
+  }
+
+  private File zip(File reportDir) throws IOException {
+    File zip = temp.newFile();
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+      for (File file : reportDir.listFiles()) {
+        out.putNextEntry(new ZipEntry(file.getName()));
+        FileUtils.copyFile(file, out);
+        out.closeEntry();
+      }
+    }
+    return zip;
+  }
 }
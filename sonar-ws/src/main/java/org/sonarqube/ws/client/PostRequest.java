@@ -20,8 +20,11 @@
 package org.sonarqube.ws.client;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import javax.annotation.CheckForNull;
 
 /**
  * @since 5.3
@@ -51,19 +54,55 @@ public class PostRequest extends BaseRequest<PostRequest> {
   public static class Part {
     private final String mediaType;
     private final File file;
+    private final PartContent content;
 
     public Part(String mediaType, File file) {
       this.mediaType = mediaType;
       this.file = file;
+      this.content = null;
+    }
+
+    /**
+     * Part whose content is written while the request is sent, without knowing its length in advance.
+     * @since 6.4
+     */
+    public Part(String mediaType, PartContent content) {
+      this.mediaType = mediaType;
+      this.file = null;
+      this.content = content;
     }
 
     public String getMediaType() {
       return mediaType;
     }
 
+    /**
+     * Null if the part is defined by {@link #getContent()}
+     */
+    @CheckForNull
     public File getFile() {
       return file;
     }
+
+    /**
+     * Null if the part is defined by {@link #getFile()}
+     * @since 6.4
+     */
+    @CheckForNull
+    public PartContent getContent() {
+      return content;
+    }
+  }
+
+  /**
+   * @since 6.4
+   */
+  @FunctionalInterface
+  public interface PartContent {
+    /**
+     * Writes the content of the part. May be called again if the request is retried. The stream must not be closed.
+     */
+    void writeTo(OutputStream output) throws IOException;
   }
 
 }
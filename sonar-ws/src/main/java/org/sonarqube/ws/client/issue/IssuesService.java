@@ -19,13 +19,18 @@
  */
 package org.sonarqube.ws.client.issue;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
 import org.sonarqube.ws.Issues;
 import org.sonarqube.ws.Issues.ChangelogWsResponse;
 import org.sonarqube.ws.Issues.SearchWsResponse;
+import org.sonarqube.ws.MediaTypes;
 import org.sonarqube.ws.client.BaseService;
 import org.sonarqube.ws.client.GetRequest;
 import org.sonarqube.ws.client.PostRequest;
 import org.sonarqube.ws.client.WsConnector;
+import org.sonarqube.ws.client.WsResponse;
 
 import static org.sonar.api.server.ws.WebService.Param.FACETS;
 import static org.sonar.api.server.ws.WebService.Param.PAGE;
@@ -38,6 +43,7 @@ import static org.sonarqube.ws.client.issue.IssuesWsParameters.ACTION_CHANGELOG;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.ACTION_DELETE_COMMENT;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.ACTION_DO_TRANSITION;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.ACTION_EDIT_COMMENT;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.ACTION_EXPORT;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.ACTION_SEARCH;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.ACTION_SET_SEVERITY;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.ACTION_SET_TYPE;
@@ -70,6 +76,7 @@ import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_ISSUES;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_LANGUAGES;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_MODULE_UUIDS;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_ON_COMPONENT_ONLY;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_ORGANIZATION;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_PROJECTS;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_PROJECT_KEYS;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_PROJECT_UUIDS;
@@ -150,6 +157,39 @@ public class IssuesService extends BaseService {
       Issues.Operation.parser());
   }
 
+  /**
+   * Export all the issues matching the filters of the request, without the limit of {@link #search(SearchWsRequest)}
+   * on the number of issues. Pagination, sort, facets and additional fields of the request are ignored.
+   * Issues are passed to the consumer, in no particular order, as soon as they are read from the response.
+   *
+   * @since 6.4
+   */
+  public void export(SearchWsRequest request, Consumer<Issues.Issue> consumer) {
+    WsResponse response = call(
+      new GetRequest(path(ACTION_EXPORT))
+        .setMediaType(MediaTypes.PROTOBUF)
+        .setParam(PARAM_ASSIGNEES, inlineMultipleParamValue(request.getAssignees()))
+        .setParam(PARAM_COMPONENT_KEYS, inlineMultipleParamValue(request.getComponentKeys()))
+        .setParam(PARAM_CREATED_AFTER, request.getCreatedAfter())
+        .setParam(PARAM_CREATED_BEFORE, request.getCreatedBefore())
+        .setParam(PARAM_ORGANIZATION, request.getOrganization())
+        .setParam(PARAM_RESOLUTIONS, inlineMultipleParamValue(request.getResolutions()))
+        .setParam(PARAM_RESOLVED, request.getResolved())
+        .setParam(PARAM_RULES, inlineMultipleParamValue(request.getRules()))
+        .setParam(PARAM_SEVERITIES, inlineMultipleParamValue(request.getSeverities()))
+        .setParam(PARAM_STATUSES, inlineMultipleParamValue(request.getStatuses()))
+        .setParam(PARAM_TAGS, inlineMultipleParamValue(request.getTags()))
+        .setParam(PARAM_TYPES, inlineMultipleParamValue(request.getTypes())));
+    try (InputStream input = response.contentStream()) {
+      Issues.Issue issue;
+      while ((issue = Issues.Issue.parseDelimitedFrom(input)) != null) {
+        consumer.accept(issue);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to parse protobuf response of " + response.requestUrl(), e);
+    }
+  }
+
   public SearchWsResponse search(SearchWsRequest request) {
     return call(
       new GetRequest(path(ACTION_SEARCH))
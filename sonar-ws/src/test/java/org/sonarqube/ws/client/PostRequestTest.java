@@ -57,4 +57,16 @@ public class PostRequestTest {
     assertThat(part.getMediaType()).isEqualTo(MediaTypes.JSON);
     assertThat(part.getFile()).isSameAs(reportFile);
   }
+
+  @Test
+  public void add_streamed_part() {
+    PostRequest request = new PostRequest("api/issues/search");
+    PostRequest.PartContent content = output -> output.write(1);
+    request.setPart("report", new PostRequest.Part(MediaTypes.ZIP, content));
+
+    PostRequest.Part part = request.getParts().get("report");
+    assertThat(part.getMediaType()).isEqualTo(MediaTypes.ZIP);
+    assertThat(part.getContent()).isSameAs(content);
+    assertThat(part.getFile()).isNull();
+  }
 }
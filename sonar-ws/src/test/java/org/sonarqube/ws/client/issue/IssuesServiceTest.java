@@ -19,17 +19,26 @@
  */
 package org.sonarqube.ws.client.issue;
 
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.sonarqube.ws.Issues;
 import org.sonarqube.ws.client.GetRequest;
+import org.sonarqube.ws.client.MockWsResponse;
 import org.sonarqube.ws.client.PostRequest;
 import org.sonarqube.ws.client.ServiceTester;
 import org.sonarqube.ws.client.WsConnector;
+import org.sonarqube.ws.client.WsRequest;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class IssuesServiceTest {
 
@@ -137,6 +146,34 @@ public class IssuesServiceTest {
       .andNoOtherParam();
   }
 
+  @Test
+  public void export() throws Exception {
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    Issues.Issue.newBuilder().setKey("ABCD").build().writeDelimitedTo(content);
+    Issues.Issue.newBuilder().setKey("EFGH").build().writeDelimitedTo(content);
+    WsConnector wsConnector = mock(WsConnector.class);
+    when(wsConnector.call(any(WsRequest.class))).thenReturn(new MockWsResponse().setContent(content.toByteArray()));
+    List<Issues.Issue> issues = new ArrayList<>();
+
+    new IssuesService(wsConnector).export(new SearchWsRequest()
+      .setComponentKeys(asList("project1", "project2"))
+      .setStatuses(asList("OPEN", "REOPENED"))
+      .setResolved(false)
+      .setPage(3),
+      issues::add);
+
+    assertThat(issues).extracting(Issues.Issue::getKey).containsExactly("ABCD", "EFGH");
+    ArgumentCaptor<WsRequest> requestCaptor = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsConnector).call(requestCaptor.capture());
+    WsRequest request = requestCaptor.getValue();
+    assertThat(request.getPath()).isEqualTo("api/issues/export");
+    assertThat(request.getParams())
+      .containsOnlyKeys("componentKeys", "statuses", "resolved")
+      .containsEntry("componentKeys", "project1,project2")
+      .containsEntry("statuses", "OPEN,REOPENED")
+      .containsEntry("resolved", "false");
+  }
+
   @Test
   public void set_severity() {
     underTest.setSeverity(new SetSeverityRequest("ABCD", "confirm"));